@@ -2,6 +2,7 @@ package com.mfein.sfs;
 
 import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
@@ -11,16 +12,25 @@ import com.badlogic.gdx.utils.JsonValue;
 import com.badlogic.gdx.utils.ScreenUtils;
 import com.mfein.sfs.objects.Fighter;
 import com.mfein.sfs.objects.FighterChoice;
+import com.mfein.sfs.objects.FrameData;
+import com.mfein.sfs.replay.MatchSuspender;
+import com.mfein.sfs.replay.SuspendedMatch;
 import com.mfein.sfs.resources.Assets;
 import com.mfein.sfs.resources.AudioManager;
+import com.mfein.sfs.resources.ErrorLog;
+import com.mfein.sfs.resources.GlobalVariables;
 import com.mfein.sfs.resources.SettingsManager;
 import com.mfein.sfs.screens.GameScreen;
 import com.mfein.sfs.screens.LoadingScreen;
 import com.mfein.sfs.screens.MainMenuScreen;
 import com.mfein.sfs.screens.SettingsScreen;
+import com.mfein.sfs.simulation.AiProfile;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /** {@link com.badlogic.gdx.ApplicationListener} implementation shared by all platforms. */
 public class SFS extends Game {
@@ -35,6 +45,14 @@ public class SFS extends Game {
 
     public SettingsManager settingsManager;
 
+    // match left paused when the app was last closed or sent to the background
+    private static final String SUSPENDED_MATCH_FILE = "suspended-match.sfsm";
+    public MatchSuspender matchSuspender;
+    private Future<SuspendedMatch> suspendedMatch;
+
+    // AI profiles (and their behavior trees), one file per difficulty
+    private static final String AI_PROFILE_DIRECTORY = "data/ai/";
+
     // screens
     public GameScreen gameScreen;
     public MainMenuScreen mainMenuScreen;
@@ -54,6 +72,9 @@ public class SFS extends Game {
         shapeRenderer = new ShapeRenderer();
         assets = new Assets();
 
+        // look for a suspended match in the background while the assets load
+        matchSuspender = new MatchSuspender(Gdx.files.local(SUSPENDED_MATCH_FILE).file());
+        suspendedMatch = matchSuspender.load();
 
         // initialize the loading screen and switch to it
         loadingScreen = new LoadingScreen(this);
@@ -89,9 +110,13 @@ public class SFS extends Game {
         // load the fighter choice list
         loadFighterChoiceList();
 
+        // load the moves and the AI profiles, before any match or fighter animation uses them
+        Fighter.loadFrameData(Gdx.files.internal(FrameData.FILE));
+        loadAiProfiles();
+
         // initialize the fighters
-        player = new Fighter(this, fighterChoiceList.get(0).getName(), fighterChoiceList.get(0).getColor());
-        opponent = new Fighter(this, fighterChoiceList.get(1).getName(), fighterChoiceList.get(1).getColor());
+        player = new Fighter(fighterChoiceList.get(0).getName(), fighterChoiceList.get(0).getColor());
+        opponent = new Fighter(fighterChoiceList.get(1).getName(), fighterChoiceList.get(1).getColor());
 
         // initialize the game screen
         gameScreen = new GameScreen(this);
@@ -99,9 +124,29 @@ public class SFS extends Game {
         // initialize the settings screen
         settingsScreen = new SettingsScreen(this);
 
-        // initialize the main menu screen and switch to it
+        // initialize the main menu screen
         mainMenuScreen = new MainMenuScreen(this);
-        setScreen(mainMenuScreen);
+
+        // go straight back to the suspended match, if there is one; otherwise, switch to the main menu screen
+        SuspendedMatch match = getSuspendedMatch();
+        if (match != null) {
+            gameScreen.resumeSuspendedMatch(match);
+            setScreen(gameScreen);
+        } else {
+            setScreen(mainMenuScreen);
+        }
+    }
+
+    private SuspendedMatch getSuspendedMatch() {
+        // it has almost always been read by the time the assets have loaded
+        try {
+            return suspendedMatch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            ErrorLog.error("SFS", "Couldn't read the suspended match", e.getCause());
+        }
+        return null;
     }
 
     private void loadFighterChoiceList() {
@@ -114,6 +159,17 @@ public class SFS extends Game {
 
     }
 
+    private void loadAiProfiles() {
+        // a difficulty without a profile file keeps its built-in profile
+        for (GlobalVariables.Difficulty difficulty : GlobalVariables.Difficulty.values()) {
+            FileHandle file = Gdx.files.internal(AI_PROFILE_DIRECTORY + difficulty.name().toLowerCase(Locale.ROOT) +
+                ".json");
+            if (file.exists()) {
+                AiProfile.setDifficultyProfile(difficulty, AiProfile.load(file));
+            }
+        }
+    }
+
     @Override
     public void render() {
         super.render();
@@ -125,5 +181,13 @@ public class SFS extends Game {
         shapeRenderer.dispose();
         assets.dispose();
 
+        // finish the game screen's replay, if any
+        if (gameScreen != null) {
+            gameScreen.dispose();
+        }
+
+        // and let any suspended match get to its file
+        matchSuspender.dispose();
+
     }
 }
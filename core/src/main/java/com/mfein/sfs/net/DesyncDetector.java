@@ -0,0 +1,92 @@
+package com.mfein.sfs.net;
+
+/**
+ * Compares the state hashes both sides of a network session take of each confirmed tick. Every packet carries the
+ * sender's latest confirmed hash; once the local side has confirmed the same tick, the two are compared, so a desync
+ * is noticed within a round trip of it happening. The tick reported is the first one found to differ, which can be a
+ * little after the actual desync; the replays of both sides can be bisected to find the exact tick.
+ */
+public class DesyncDetector {
+    // ticks of local hashes kept (a power of two, well above the round trip in ticks)
+    private static final int HISTORY_LENGTH = 128;
+    private static final int HISTORY_MASK = HISTORY_LENGTH - 1;
+
+    private final long[] localHashes = new long[HISTORY_LENGTH];
+    private final int[] localHashTicks = new int[HISTORY_LENGTH];
+    private int remoteHashTick;
+    private long remoteHash;
+    private int checkedTick;
+
+    // results
+    private int firstDesyncTick;
+    private long desyncs;
+    private long checks;
+
+    public DesyncDetector() {
+        reset();
+    }
+
+    public void reset() {
+        for (int i = 0; i < HISTORY_LENGTH; i++) {
+            localHashTicks[i] = -1;
+        }
+        remoteHashTick = -1;
+        checkedTick = -1;
+        firstDesyncTick = -1;
+        desyncs = 0;
+        checks = 0;
+    }
+
+    public void setLocalHash(int tick, long hash) {
+        // the hash of the local state before the tick (set again if the tick is simulated again)
+        int slot = tick & HISTORY_MASK;
+        localHashes[slot] = hash;
+        localHashTicks[slot] = tick;
+    }
+
+    public boolean hasLocalHash(int tick) {
+        return tick >= 0 && localHashTicks[tick & HISTORY_MASK] == tick;
+    }
+
+    public long getLocalHash(int tick) {
+        return localHashes[tick & HISTORY_MASK];
+    }
+
+    public void setRemoteHash(int tick, long hash) {
+        // packets can arrive out of order, so only keep the latest
+        if (tick > remoteHashTick) {
+            remoteHashTick = tick;
+            remoteHash = hash;
+        }
+    }
+
+    public void check(int confirmedTick) {
+        // compare the remote hash once the local side has confirmed the same tick (and its hash is still kept)
+        if (remoteHashTick <= checkedTick || remoteHashTick > confirmedTick || !hasLocalHash(remoteHashTick)) return;
+        checkedTick = remoteHashTick;
+        checks++;
+        if (localHashes[remoteHashTick & HISTORY_MASK] != remoteHash) {
+            desyncs++;
+            if (firstDesyncTick < 0) {
+                firstDesyncTick = remoteHashTick;
+            }
+        }
+    }
+
+    public boolean isDesynced() {
+        return firstDesyncTick >= 0;
+    }
+
+    public int getFirstDesyncTick() {
+        // -1 if both sides have agreed so far
+        return firstDesyncTick;
+    }
+
+    public long getDesyncs() {
+        return desyncs;
+    }
+
+    public long getChecks() {
+        return checks;
+    }
+}
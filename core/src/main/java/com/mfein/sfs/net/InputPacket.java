@@ -0,0 +1,80 @@
+package com.mfein.sfs.net;
+
+import com.mfein.sfs.simulation.FighterInput;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The packet network sessions exchange every tick: the last remote tick received (as an acknowledgement), the sender's
+ * hash of the latest tick it has confirmed (see {@link DesyncDetector}), the last local tick sent and the local inputs
+ * leading up to it, oldest first. Inputs are bit-packed at {@link FighterInput#BITS} bits each, so a packet carrying
+ * redundant copies of many ticks stays tiny. An instance is reused for every packet.
+ */
+public class InputPacket {
+    public static final int MAX_INPUTS = 32;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 1;
+    public static final int MAX_SIZE = HEADER_SIZE + (MAX_INPUTS * FighterInput.BITS + 7) / 8;
+
+    public int acknowledgedTick;
+    public int hashTick;
+    public long stateHash;
+    public int lastTick;
+    public int count;
+    public final int[] inputs = new int[MAX_INPUTS];
+
+    public int getFirstTick() {
+        return lastTick - count + 1;
+    }
+
+    public void write(ByteBuffer buffer) {
+        // write the header
+        buffer.clear();
+        buffer.putInt(acknowledgedTick);
+        buffer.putInt(hashTick);
+        buffer.putLong(stateHash);
+        buffer.putInt(lastTick);
+        buffer.put((byte) count);
+
+        // pack the inputs into as few bytes as possible, lowest bits first
+        long bits = 0;
+        int bitCount = 0;
+        for (int i = 0; i < count; i++) {
+            bits |= (long) (inputs[i] & FighterInput.MASK) << bitCount;
+            bitCount += FighterInput.BITS;
+            while (bitCount >= 8) {
+                buffer.put((byte) bits);
+                bits >>>= 8;
+                bitCount -= 8;
+            }
+        }
+        if (bitCount > 0) {
+            buffer.put((byte) bits);
+        }
+        buffer.flip();
+    }
+
+    public boolean read(ByteBuffer buffer) {
+        // read the header, ignoring anything that isn't a complete packet
+        if (buffer.remaining() < HEADER_SIZE) return false;
+        acknowledgedTick = buffer.getInt();
+        hashTick = buffer.getInt();
+        stateHash = buffer.getLong();
+        lastTick = buffer.getInt();
+        count = buffer.get() & 0xFF;
+        if (count > MAX_INPUTS || buffer.remaining() < (count * FighterInput.BITS + 7) / 8) return false;
+
+        // unpack the inputs
+        long bits = 0;
+        int bitCount = 0;
+        for (int i = 0; i < count; i++) {
+            while (bitCount < FighterInput.BITS) {
+                bits |= (long) (buffer.get() & 0xFF) << bitCount;
+                bitCount += 8;
+            }
+            inputs[i] = (int) (bits & FighterInput.MASK);
+            bits >>>= FighterInput.BITS;
+            bitCount -= FighterInput.BITS;
+        }
+        return true;
+    }
+}
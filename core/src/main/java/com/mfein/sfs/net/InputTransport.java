@@ -0,0 +1,14 @@
+package com.mfein.sfs.net;
+
+import java.nio.ByteBuffer;
+
+/** Carries small, unreliable and unordered packets between two peers, like UDP datagrams. */
+public interface InputTransport {
+
+    // sends the bytes between the packet's position and limit; the packet may be lost
+    void send(ByteBuffer packet);
+
+    // clears the packet and receives the next available packet into it, ready to be read; returns false if none is
+    // available yet
+    boolean receive(ByteBuffer packet);
+}
@@ -0,0 +1,217 @@
+package com.mfein.sfs.net;
+
+import com.mfein.sfs.simulation.FighterInput;
+import com.mfein.sfs.simulation.MatchListener;
+import com.mfein.sfs.simulation.MatchSimulation;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Runs one side of a match between two humans over an {@link InputTransport} in lockstep: local input is scheduled a
+ * fixed number of ticks in the future and sent straight away, and a tick is only simulated once both inputs for it are
+ * known. The input delay hides latency up to delay times the step time; beyond that, the session stalls until the
+ * remote input arrives. Nothing is ever predicted or rolled back, so the simulation never shows a wrong state.
+ *
+ * <p>Each {@link InputPacket} repeats at least the last {@code redundancy} inputs, plus any the remote side hasn't
+ * acknowledged yet, so lost packets are covered by the next ones. Both sides must use the same seed, step time and
+ * input delay.
+ */
+public class LockstepSession {
+    public static final int DEFAULT_INPUT_DELAY = 3;
+    public static final int DEFAULT_REDUNDANCY = 8;
+
+    // ticks of input kept (a power of two, well above the input delay)
+    private static final int HISTORY_LENGTH = 64;
+    private static final int HISTORY_MASK = HISTORY_LENGTH - 1;
+
+    // match
+    private final MatchSimulation simulation;
+    private final boolean localIsPlayer;
+    private final float stepTime;
+    private final int inputDelay;
+    private final int redundancy;
+
+    // connection
+    private final InputTransport transport;
+    private final InputPacket packet = new InputPacket();
+    private final ByteBuffer packetBuffer = ByteBuffer.allocateDirect(InputPacket.MAX_SIZE);
+
+    // history, indexed by tick & HISTORY_MASK
+    private final int[] localInputs = new int[HISTORY_LENGTH];
+    private final int[] remoteInputs = new int[HISTORY_LENGTH];
+    private final int[] remoteInputTicks = new int[HISTORY_LENGTH];
+
+    // ticks
+    private int tick;
+    private int scheduledLocalTick;
+    private int confirmedRemoteTick;
+    private int remoteAcknowledgedTick;
+
+    // desyncs
+    private final DesyncDetector desyncDetector = new DesyncDetector();
+
+    // counters
+    private long stalls;
+    private long packetsSent;
+    private long packetsReceived;
+
+    public LockstepSession(MatchSimulation simulation, boolean localIsPlayer, InputTransport transport, float stepTime,
+                           int inputDelay, int redundancy) {
+        if (inputDelay < 0 || inputDelay >= HISTORY_LENGTH / 2) {
+            throw new IllegalArgumentException("Input delay must be between 0 and " + (HISTORY_LENGTH / 2 - 1));
+        }
+        if (redundancy < 1 || redundancy > InputPacket.MAX_INPUTS) {
+            throw new IllegalArgumentException("Redundancy must be between 1 and " + InputPacket.MAX_INPUTS);
+        }
+        this.simulation = simulation;
+        this.localIsPlayer = localIsPlayer;
+        this.transport = transport;
+        this.stepTime = stepTime;
+        this.inputDelay = inputDelay;
+        this.redundancy = redundancy;
+
+        // both fighters are controlled by their input
+        simulation.setPlayerAiProfile(null);
+        simulation.setOpponentAiProfile(null);
+    }
+
+    public MatchSimulation getSimulation() {
+        return simulation;
+    }
+
+    public void setListener(MatchListener listener) {
+        simulation.setListener(listener);
+    }
+
+    public int getInputDelay() {
+        return inputDelay;
+    }
+
+    public int getTick() {
+        // the next tick to simulate
+        return tick;
+    }
+
+    public DesyncDetector getDesyncDetector() {
+        return desyncDetector;
+    }
+
+    public long getStalls() {
+        return stalls;
+    }
+
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
+    public long getPacketsReceived() {
+        return packetsReceived;
+    }
+
+    public void start(long seed) {
+        simulation.startGame(seed);
+        tick = 0;
+        remoteAcknowledgedTick = -1;
+        for (int i = 0; i < HISTORY_LENGTH; i++) {
+            remoteInputTicks[i] = -1;
+        }
+
+        // nothing is pressed during the first ticks, before the first input takes effect, on either side
+        for (int i = 0; i < inputDelay; i++) {
+            localInputs[i] = FighterInput.NONE;
+            remoteInputs[i] = FighterInput.NONE;
+            remoteInputTicks[i] = i;
+        }
+        scheduledLocalTick = inputDelay - 1;
+        confirmedRemoteTick = inputDelay - 1;
+
+        // every simulated tick is confirmed, so the hash of the state so far can be compared straight away
+        desyncDetector.reset();
+        desyncDetector.setLocalHash(tick, simulation.getStateHash());
+    }
+
+    public boolean advance(int localInput) {
+        receiveInputs();
+        desyncDetector.check(tick);
+
+        // schedule the local input for the tick the delay ahead (only once per tick, even if the last update stalled)
+        if (scheduledLocalTick < tick + inputDelay) {
+            scheduledLocalTick++;
+            localInputs[scheduledLocalTick & HISTORY_MASK] = localInput & FighterInput.MASK;
+        }
+        sendInputs();
+
+        // wait until the remote input for the tick has arrived
+        if (confirmedRemoteTick < tick) {
+            stalls++;
+            return false;
+        }
+
+        // simulate the tick
+        int slot = tick & HISTORY_MASK;
+        if (localIsPlayer) {
+            simulation.setPlayerInput(localInputs[slot]);
+            simulation.setOpponentInput(remoteInputs[slot]);
+        } else {
+            simulation.setPlayerInput(remoteInputs[slot]);
+            simulation.setOpponentInput(localInputs[slot]);
+        }
+        simulation.update(stepTime);
+        tick++;
+        desyncDetector.setLocalHash(tick, simulation.getStateHash());
+        return true;
+    }
+
+    public void poll() {
+        // take in remote input and send the local input again without simulating, e.g. after the match has ended, so
+        // the remote side can still finish
+        receiveInputs();
+        desyncDetector.check(tick);
+        sendInputs();
+    }
+
+    private void sendInputs() {
+        // send the last few local inputs, plus any older ones the remote side hasn't acknowledged yet
+        int firstTick = Math.min(remoteAcknowledgedTick + 1, scheduledLocalTick - redundancy + 1);
+        firstTick = Math.max(Math.max(firstTick, scheduledLocalTick - InputPacket.MAX_INPUTS + 1), 0);
+        packet.acknowledgedTick = confirmedRemoteTick;
+        packet.hashTick = tick;
+        packet.stateHash = desyncDetector.getLocalHash(tick);
+        packet.lastTick = scheduledLocalTick;
+        packet.count = Math.max(scheduledLocalTick - firstTick + 1, 0);
+        for (int i = 0; i < packet.count; i++) {
+            packet.inputs[i] = localInputs[(firstTick + i) & HISTORY_MASK];
+        }
+        packet.write(packetBuffer);
+        transport.send(packetBuffer);
+        packetsSent++;
+    }
+
+    private void receiveInputs() {
+        while (transport.receive(packetBuffer)) {
+            packetsReceived++;
+
+            // ignore anything that isn't a complete packet
+            if (!packet.read(packetBuffer)) continue;
+
+            // the remote side has everything up to its acknowledged tick
+            remoteAcknowledgedTick = Math.max(remoteAcknowledgedTick, packet.acknowledgedTick);
+            desyncDetector.setRemoteHash(packet.hashTick, packet.stateHash);
+
+            for (int i = 0; i < packet.count; i++) {
+                int remoteTick = packet.getFirstTick() + i;
+
+                // ignore input that has already been received, or that is too far ahead to keep
+                if (remoteTick <= confirmedRemoteTick || remoteTick - confirmedRemoteTick >= HISTORY_LENGTH) continue;
+                int slot = remoteTick & HISTORY_MASK;
+                remoteInputs[slot] = packet.inputs[i];
+                remoteInputTicks[slot] = remoteTick;
+            }
+
+            // move the confirmed tick forward past every tick that now has its input
+            while (remoteInputTicks[(confirmedRemoteTick + 1) & HISTORY_MASK] == confirmedRemoteTick + 1) {
+                confirmedRemoteTick++;
+            }
+        }
+    }
+}
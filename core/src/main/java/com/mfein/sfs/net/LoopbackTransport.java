@@ -0,0 +1,119 @@
+package com.mfein.sfs.net;
+
+import com.mfein.sfs.simulation.MatchRandom;
+
+import java.nio.ByteBuffer;
+import java.util.function.LongSupplier;
+
+/**
+ * An in-process {@link InputTransport} that delivers packets to its peer after a configurable latency and jitter, and
+ * randomly drops some of them, so network play can be tried out on one machine. Time comes from a clock in
+ * nanoseconds, which can be the real one or one advanced by a test. Both ends may be used from different threads.
+ */
+public class LoopbackTransport implements InputTransport {
+    public static final int MAX_PACKET_SIZE = 512;
+    private static final int MAX_PACKETS_IN_FLIGHT = 256;
+
+    // packets in flight to this end (a free slot has a delivery time of -1)
+    private final byte[][] packets = new byte[MAX_PACKETS_IN_FLIGHT][MAX_PACKET_SIZE];
+    private final int[] packetLengths = new int[MAX_PACKETS_IN_FLIGHT];
+    private final long[] deliveryTimes = new long[MAX_PACKETS_IN_FLIGHT];
+
+    // connection
+    private LoopbackTransport peer;
+    private final long latency;
+    private final long jitter;
+    private final float lossChance;
+    private final MatchRandom random;
+    private final LongSupplier clock;
+
+    // counters
+    private long packetsSent;
+    private long packetsDropped;
+
+    private LoopbackTransport(long latency, long jitter, float lossChance, MatchRandom random, LongSupplier clock) {
+        this.latency = latency;
+        this.jitter = jitter;
+        this.lossChance = lossChance;
+        this.random = random;
+        this.clock = clock;
+        for (int i = 0; i < MAX_PACKETS_IN_FLIGHT; i++) {
+            deliveryTimes[i] = -1;
+        }
+    }
+
+    public static LoopbackTransport[] createPair(float latency, float jitter, float lossChance, long seed) {
+        return createPair(latency, jitter, lossChance, seed, System::nanoTime);
+    }
+
+    public static LoopbackTransport[] createPair(float latency, float jitter, float lossChance, long seed,
+                                                 LongSupplier clock) {
+        // create two connected ends; latency and jitter are in seconds and apply in each direction
+        long latencyNanos = (long) (latency * 1e9);
+        long jitterNanos = (long) (jitter * 1e9);
+        LoopbackTransport first = new LoopbackTransport(latencyNanos, jitterNanos, lossChance, new MatchRandom(seed, 0),
+            clock);
+        LoopbackTransport second = new LoopbackTransport(latencyNanos, jitterNanos, lossChance, new MatchRandom(seed, 1),
+            clock);
+        first.peer = second;
+        second.peer = first;
+        return new LoopbackTransport[] {first, second};
+    }
+
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
+    public long getPacketsDropped() {
+        return packetsDropped;
+    }
+
+    @Override
+    public void send(ByteBuffer packet) {
+        packetsSent++;
+
+        // randomly lose the packet
+        if (random.random() < lossChance) {
+            packetsDropped++;
+            return;
+        }
+
+        // put the packet into a free slot of the peer, to be delivered once the latency (plus some jitter) has passed
+        long deliveryTime = clock.getAsLong() + latency + (long) (jitter * random.random());
+        synchronized (peer) {
+            for (int i = 0; i < MAX_PACKETS_IN_FLIGHT; i++) {
+                if (peer.deliveryTimes[i] < 0) {
+                    int length = Math.min(packet.remaining(), MAX_PACKET_SIZE);
+                    packet.get(peer.packets[i], 0, length);
+                    peer.packetLengths[i] = length;
+                    peer.deliveryTimes[i] = deliveryTime;
+                    return;
+                }
+            }
+        }
+
+        // too many packets in flight, so this one is lost as well
+        packetsDropped++;
+    }
+
+    @Override
+    public synchronized boolean receive(ByteBuffer packet) {
+        // find the packet that is due first
+        long now = clock.getAsLong();
+        int next = -1;
+        for (int i = 0; i < MAX_PACKETS_IN_FLIGHT; i++) {
+            if (deliveryTimes[i] >= 0 && deliveryTimes[i] <= now &&
+                (next < 0 || deliveryTimes[i] < deliveryTimes[next])) {
+                next = i;
+            }
+        }
+        if (next < 0) return false;
+
+        // hand it over and free its slot
+        packet.clear();
+        packet.put(packets[next], 0, Math.min(packetLengths[next], packet.remaining()));
+        packet.flip();
+        deliveryTimes[next] = -1;
+        return true;
+    }
+}
@@ -0,0 +1,30 @@
+package com.mfein.sfs.net;
+
+/** Totals collected by a {@link RollbackSession}, for tuning and for showing connection quality. */
+public class RollbackCounters {
+    // ticks
+    public long ticks;
+    public long stalls;
+
+    // rollbacks
+    public long rollbacks;
+    public long resimulatedTicks;
+    public long totalRollbackDepth;
+    public int maxRollbackDepth;
+    public long rollbackNanos;
+
+    // packets
+    public long packetsSent;
+    public long packetsReceived;
+
+    public void reset() {
+        ticks = stalls = 0;
+        rollbacks = resimulatedTicks = totalRollbackDepth = rollbackNanos = 0;
+        maxRollbackDepth = 0;
+        packetsSent = packetsReceived = 0;
+    }
+
+    public double getAverageRollbackDepth() {
+        return rollbacks == 0 ? 0 : (double) totalRollbackDepth / rollbacks;
+    }
+}
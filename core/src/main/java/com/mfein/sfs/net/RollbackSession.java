@@ -0,0 +1,249 @@
+package com.mfein.sfs.net;
+
+import com.mfein.sfs.simulation.FighterInput;
+import com.mfein.sfs.simulation.MatchListener;
+import com.mfein.sfs.simulation.MatchSimulation;
+import com.mfein.sfs.simulation.MatchSnapshot;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Runs one side of a match between two humans over an {@link InputTransport} without waiting for the remote input.
+ * Every tick, the local input is sent and the remote input is predicted (the last one received is assumed to still be
+ * held). When remote input arrives that differs from the prediction, the simulation is restored to the snapshot taken
+ * before the mispredicted tick and every tick since is simulated again with the corrected input. Both sides must use
+ * the same seed and step time.
+ *
+ * <p>Each {@link InputPacket} carries all the local inputs the remote side hasn't acknowledged yet, so lost packets
+ * are covered by the next ones, and the hash of the latest tick whose state no longer depends on a prediction, so a
+ * {@link DesyncDetector} can tell if the two sides have drifted apart.
+ */
+public class RollbackSession {
+    // how many ticks may be simulated with predicted input before waiting for the remote side
+    public static final int MAX_PREDICTION_TICKS = 8;
+
+    // ticks of input and snapshots kept (a power of two, well above the prediction window)
+    private static final int HISTORY_LENGTH = 64;
+    private static final int HISTORY_MASK = HISTORY_LENGTH - 1;
+
+    // match
+    private final MatchSimulation simulation;
+    private final boolean localIsPlayer;
+    private final float stepTime;
+    private MatchListener listener = new MatchListener() {};
+    private final MatchListener silentListener = new MatchListener() {};
+
+    // connection
+    private final InputTransport transport;
+    private final InputPacket packet = new InputPacket();
+    private final ByteBuffer packetBuffer = ByteBuffer.allocateDirect(InputPacket.MAX_SIZE);
+
+    // history, indexed by tick & HISTORY_MASK
+    private final int[] localInputs = new int[HISTORY_LENGTH];
+    private final int[] remoteInputs = new int[HISTORY_LENGTH];
+    private final int[] remoteInputTicks = new int[HISTORY_LENGTH];
+    private final int[] usedRemoteInputs = new int[HISTORY_LENGTH];
+    private final MatchSnapshot[] snapshots = new MatchSnapshot[HISTORY_LENGTH];
+
+    // ticks
+    private int tick;
+    private int confirmedRemoteTick;
+    private int confirmedRemoteInput;
+    private int remoteAcknowledgedTick;
+    private int rollbackTick;
+
+    private final RollbackCounters counters = new RollbackCounters();
+    private final DesyncDetector desyncDetector = new DesyncDetector();
+
+    public RollbackSession(MatchSimulation simulation, boolean localIsPlayer, InputTransport transport, float stepTime) {
+        this.simulation = simulation;
+        this.localIsPlayer = localIsPlayer;
+        this.transport = transport;
+        this.stepTime = stepTime;
+        for (int i = 0; i < HISTORY_LENGTH; i++) {
+            snapshots[i] = new MatchSnapshot();
+        }
+
+        // both fighters are controlled by their input
+        simulation.setPlayerAiProfile(null);
+        simulation.setOpponentAiProfile(null);
+    }
+
+    public MatchSimulation getSimulation() {
+        return simulation;
+    }
+
+    public boolean isLocalPlayer() {
+        return localIsPlayer;
+    }
+
+    public void setListener(MatchListener listener) {
+        // the listener only hears about ticks simulated for the first time, not about re-simulated ones
+        this.listener = listener;
+        simulation.setListener(listener);
+    }
+
+    public RollbackCounters getCounters() {
+        return counters;
+    }
+
+    public DesyncDetector getDesyncDetector() {
+        return desyncDetector;
+    }
+
+    public int getTick() {
+        // the next tick to simulate
+        return tick;
+    }
+
+    public int getConfirmedRemoteTick() {
+        // the last tick up to which all remote input has been received
+        return confirmedRemoteTick;
+    }
+
+    public MatchSnapshot getSnapshot(int tick) {
+        // the state before the given tick was simulated, if it's still in the history
+        return tick < this.tick && tick > this.tick - HISTORY_LENGTH && tick >= 0 ? snapshots[tick & HISTORY_MASK] : null;
+    }
+
+    public void start(long seed) {
+        simulation.startGame(seed);
+        tick = 0;
+        confirmedRemoteTick = -1;
+        confirmedRemoteInput = FighterInput.NONE;
+        remoteAcknowledgedTick = -1;
+        rollbackTick = Integer.MAX_VALUE;
+        for (int i = 0; i < HISTORY_LENGTH; i++) {
+            remoteInputTicks[i] = -1;
+        }
+        desyncDetector.reset();
+    }
+
+    public boolean advance(int localInput) {
+        // take in any remote input, and correct the ticks that were simulated with the wrong prediction
+        receiveInputs();
+        if (rollbackTick < tick) {
+            rollBack();
+        }
+        desyncDetector.check(getConfirmedHashTick());
+
+        // if the remote side is too far behind, wait for it (but keep sending, in case it's waiting for us)
+        if (tick - confirmedRemoteTick > MAX_PREDICTION_TICKS) {
+            counters.stalls++;
+            sendInputs(tick - 1);
+            return false;
+        }
+
+        // send the local input and simulate the tick
+        localInputs[tick & HISTORY_MASK] = localInput & FighterInput.MASK;
+        sendInputs(tick);
+        simulateTick(tick);
+        tick++;
+        counters.ticks++;
+        return true;
+    }
+
+    private void simulateTick(int tick) {
+        int slot = tick & HISTORY_MASK;
+
+        // remember the state before the tick, in case it has to be simulated again, and its hash
+        simulation.save(snapshots[slot]);
+        desyncDetector.setLocalHash(tick, simulation.getStateHash());
+
+        // use the remote input if it has arrived; otherwise, predict it
+        int remoteInput = remoteInputTicks[slot] == tick ? remoteInputs[slot] : confirmedRemoteInput;
+        usedRemoteInputs[slot] = remoteInput;
+
+        // simulate the tick
+        if (localIsPlayer) {
+            simulation.setPlayerInput(localInputs[slot]);
+            simulation.setOpponentInput(remoteInput);
+        } else {
+            simulation.setPlayerInput(remoteInput);
+            simulation.setOpponentInput(localInputs[slot]);
+        }
+        simulation.update(stepTime);
+    }
+
+    private void rollBack() {
+        long startTime = System.nanoTime();
+        int depth = tick - rollbackTick;
+
+        // go back to the state before the first mispredicted tick and simulate every tick since then again, without
+        // telling the listener about it a second time
+        simulation.restore(snapshots[rollbackTick & HISTORY_MASK]);
+        simulation.setListener(silentListener);
+        for (int i = rollbackTick; i < tick; i++) {
+            simulateTick(i);
+        }
+        simulation.setListener(listener);
+        rollbackTick = Integer.MAX_VALUE;
+
+        // count the rollback
+        counters.rollbacks++;
+        counters.resimulatedTicks += depth;
+        counters.totalRollbackDepth += depth;
+        counters.maxRollbackDepth = Math.max(counters.maxRollbackDepth, depth);
+        counters.rollbackNanos += System.nanoTime() - startTime;
+    }
+
+    private void sendInputs(int lastTick) {
+        // send every local input up to the given tick that the remote side hasn't acknowledged yet
+        int firstTick = Math.max(Math.max(remoteAcknowledgedTick + 1, lastTick - InputPacket.MAX_INPUTS + 1), 0);
+        packet.acknowledgedTick = confirmedRemoteTick;
+        packet.hashTick = getConfirmedHashTick();
+        packet.stateHash = desyncDetector.getLocalHash(packet.hashTick);
+        packet.lastTick = lastTick;
+        packet.count = Math.max(lastTick - firstTick + 1, 0);
+        for (int i = 0; i < packet.count; i++) {
+            packet.inputs[i] = localInputs[(firstTick + i) & HISTORY_MASK];
+        }
+        packet.write(packetBuffer);
+        transport.send(packetBuffer);
+        counters.packetsSent++;
+    }
+
+    private int getConfirmedHashTick() {
+        // the latest tick whose state before it only depends on confirmed input, and has been simulated (-1 if none)
+        return Math.min(confirmedRemoteTick + 1, tick - 1);
+    }
+
+    private void receiveInputs() {
+        while (transport.receive(packetBuffer)) {
+            counters.packetsReceived++;
+
+            // ignore anything that isn't a complete packet
+            if (!packet.read(packetBuffer)) continue;
+
+            // the remote side has everything up to its acknowledged tick, so those inputs don't have to be sent again
+            remoteAcknowledgedTick = Math.max(remoteAcknowledgedTick, packet.acknowledgedTick);
+            desyncDetector.setRemoteHash(packet.hashTick, packet.stateHash);
+
+            for (int i = 0; i < packet.count; i++) {
+                receiveInput(packet.getFirstTick() + i, packet.inputs[i]);
+            }
+        }
+    }
+
+    private void receiveInput(int remoteTick, int input) {
+        // ignore input that has already been received, or that is too far ahead to keep
+        int slot = remoteTick & HISTORY_MASK;
+        if (remoteTick <= confirmedRemoteTick || remoteTick - confirmedRemoteTick >= HISTORY_LENGTH ||
+            remoteInputTicks[slot] == remoteTick) {
+            return;
+        }
+        remoteInputs[slot] = input;
+        remoteInputTicks[slot] = remoteTick;
+
+        // if the tick has already been simulated with a different input, it has to be simulated again
+        if (remoteTick < tick && usedRemoteInputs[slot] != input) {
+            rollbackTick = Math.min(rollbackTick, remoteTick);
+        }
+
+        // move the confirmed tick forward past every tick that now has its input
+        while (remoteInputTicks[(confirmedRemoteTick + 1) & HISTORY_MASK] == confirmedRemoteTick + 1) {
+            confirmedRemoteTick++;
+            confirmedRemoteInput = remoteInputs[confirmedRemoteTick & HISTORY_MASK];
+        }
+    }
+}
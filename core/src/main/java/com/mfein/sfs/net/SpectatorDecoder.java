@@ -0,0 +1,164 @@
+package com.mfein.sfs.net;
+
+import com.mfein.sfs.objects.Fighter;
+import com.mfein.sfs.simulation.MatchSimulation;
+
+import java.nio.ByteBuffer;
+
+import static com.mfein.sfs.net.SpectatorEncoder.*;
+
+/**
+ * Rebuilds what a spectator sees from the frames of a {@link SpectatorEncoder}. Frames before the first keyframe are
+ * skipped. Fighter and blood pool state times aren't sent every tick; they are counted from the tick their state
+ * started.
+ */
+public class SpectatorDecoder {
+    // fighters
+    public static final int PLAYER = 0;
+    public static final int OPPONENT = 1;
+
+    private static final MatchSimulation.GameState[] GAME_STATES = MatchSimulation.GameState.values();
+    private static final MatchSimulation.RoundState[] ROUND_STATES = MatchSimulation.RoundState.values();
+    private static final Fighter.State[] FIGHTER_STATES = Fighter.State.values();
+
+    // values of the current tick and of the last keyframe
+    private final int[] values = new int[VALUE_COUNT];
+    private final int[] keyframeValues = new int[VALUE_COUNT];
+    private boolean hasKeyframe;
+    private int tick;
+    private int tickRate;
+
+    // blood pools (a pool is active until it has faded)
+    private final float[] bloodPoolPositionsX = new float[MatchSimulation.BLOOD_POOL_AMOUNT];
+    private final float[] bloodPoolPositionsY = new float[MatchSimulation.BLOOD_POOL_AMOUNT];
+    private final int[] bloodPoolVariants = new int[MatchSimulation.BLOOD_POOL_AMOUNT];
+    private final int[] bloodPoolStartTicks = new int[MatchSimulation.BLOOD_POOL_AMOUNT];
+    private final boolean[] bloodPoolsActive = new boolean[MatchSimulation.BLOOD_POOL_AMOUNT];
+
+    public boolean decode(ByteBuffer frame) {
+        int type = frame.get();
+        int frameTick = Varint.get(frame);
+
+        if (type == KEYFRAME) {
+            // take every value and the active blood pools
+            tick = frameTick;
+            tickRate = Varint.get(frame);
+            for (int i = 0; i < VALUE_COUNT; i++) {
+                values[i] = Varint.getSigned(frame);
+            }
+            for (int i = 0; i < MatchSimulation.BLOOD_POOL_AMOUNT; i++) {
+                bloodPoolsActive[i] = false;
+            }
+            readBloodPools(frame, true);
+
+            System.arraycopy(values, 0, keyframeValues, 0, VALUE_COUNT);
+            hasKeyframe = true;
+            return true;
+        }
+
+        // skip deltas until there is a keyframe to apply them to
+        if (type != DELTA || !hasKeyframe) return false;
+        tick = frameTick;
+
+        // apply the deltas to the keyframe; any value not in the frame is the same as in the keyframe
+        int changed = Varint.get(frame);
+        for (int i = 0; i < VALUE_COUNT; i++) {
+            values[i] = (changed & 1 << i) != 0 ? keyframeValues[i] + Varint.getSigned(frame) : keyframeValues[i];
+        }
+        readBloodPools(frame, false);
+        return true;
+    }
+
+    private void readBloodPools(ByteBuffer frame, boolean keyframe) {
+        int count = Varint.get(frame);
+        for (int i = 0; i < count; i++) {
+            int index = Varint.get(frame);
+            bloodPoolPositionsX[index] = Varint.getSigned(frame) / SCALE;
+            bloodPoolPositionsY[index] = Varint.getSigned(frame) / SCALE;
+            bloodPoolVariants[index] = Varint.get(frame);
+            bloodPoolStartTicks[index] = keyframe ? tick - Varint.get(frame) : tick;
+            bloodPoolsActive[index] = true;
+        }
+    }
+
+    public boolean hasKeyframe() {
+        return hasKeyframe;
+    }
+
+    public int getTick() {
+        return tick;
+    }
+
+    public MatchSimulation.GameState getGameState() {
+        return values[GAME_STATE] < 0 ? null : GAME_STATES[values[GAME_STATE]];
+    }
+
+    public MatchSimulation.RoundState getRoundState() {
+        return values[ROUND_STATE] < 0 ? null : ROUND_STATES[values[ROUND_STATE]];
+    }
+
+    public int getCurrentRound() {
+        return values[CURRENT_ROUND];
+    }
+
+    public int getRoundsWon() {
+        return values[ROUNDS_WON];
+    }
+
+    public int getRoundsLost() {
+        return values[ROUNDS_LOST];
+    }
+
+    public float getRoundTimer() {
+        return values[ROUND_TIMER] / SCALE;
+    }
+
+    public Fighter.State getFighterState(int fighter) {
+        int state = values[FIRST_FIGHTER_VALUE + fighter * FIGHTER_VALUE_COUNT + FIGHTER_STATE];
+        return state < 0 ? null : FIGHTER_STATES[state];
+    }
+
+    public float getFighterStateTime(int fighter) {
+        return toTime(tick - values[FIRST_FIGHTER_VALUE + fighter * FIGHTER_VALUE_COUNT + FIGHTER_STATE_START_TICK]);
+    }
+
+    public int getFighterFacing(int fighter) {
+        return values[FIRST_FIGHTER_VALUE + fighter * FIGHTER_VALUE_COUNT + FIGHTER_FACING];
+    }
+
+    public float getFighterPositionX(int fighter) {
+        return values[FIRST_FIGHTER_VALUE + fighter * FIGHTER_VALUE_COUNT + FIGHTER_POSITION_X] / SCALE;
+    }
+
+    public float getFighterPositionY(int fighter) {
+        return values[FIRST_FIGHTER_VALUE + fighter * FIGHTER_VALUE_COUNT + FIGHTER_POSITION_Y] / SCALE;
+    }
+
+    public float getFighterLife(int fighter) {
+        return values[FIRST_FIGHTER_VALUE + fighter * FIGHTER_VALUE_COUNT + FIGHTER_LIFE] / SCALE;
+    }
+
+    public boolean isBloodPoolActive(int index) {
+        return bloodPoolsActive[index] && getBloodPoolStateTime(index) < MatchSimulation.BLOOD_POOL_FADE_TIME;
+    }
+
+    public float getBloodPoolPositionX(int index) {
+        return bloodPoolPositionsX[index];
+    }
+
+    public float getBloodPoolPositionY(int index) {
+        return bloodPoolPositionsY[index];
+    }
+
+    public int getBloodPoolVariant(int index) {
+        return bloodPoolVariants[index];
+    }
+
+    public float getBloodPoolStateTime(int index) {
+        return toTime(tick - bloodPoolStartTicks[index]);
+    }
+
+    private float toTime(int ticks) {
+        return tickRate == 0 ? 0f : (float) ticks / tickRate;
+    }
+}
@@ -0,0 +1,176 @@
+package com.mfein.sfs.net;
+
+import com.mfein.sfs.objects.Fighter;
+import com.mfein.sfs.simulation.MatchSimulation;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Turns the parts of a match a spectator sees into one small frame per tick. Every {@link #KEYFRAME_INTERVAL} ticks
+ * (or on request, e.g. when a spectator joins), a keyframe holds every value; the frames in between only hold the
+ * values that differ from the last keyframe, as varint deltas, plus the blood pools spilled during the tick. Positions,
+ * life and the round timer are quantized to hundredths, and the fighters' state times are sent as the tick their state
+ * started, which only changes when the state does. The frame buffer is reused, so encoding doesn't allocate.
+ *
+ * <pre>
+ * keyframe: type, tick, tick rate, every value, the active blood pools
+ * delta:    type, tick, bitmask of changed values, their deltas, the blood pools spilled
+ * </pre>
+ */
+public class SpectatorEncoder {
+    public static final int KEYFRAME_INTERVAL = 60;
+
+    // frame types
+    static final int KEYFRAME = 0;
+    static final int DELTA = 1;
+
+    // values, in the order they are written
+    static final int GAME_STATE = 0;
+    static final int ROUND_STATE = 1;
+    static final int CURRENT_ROUND = 2;
+    static final int ROUNDS_WON = 3;
+    static final int ROUNDS_LOST = 4;
+    static final int ROUND_TIMER = 5;
+    static final int FIRST_FIGHTER_VALUE = 6;
+    static final int FIGHTER_STATE = 0;
+    static final int FIGHTER_FACING = 1;
+    static final int FIGHTER_POSITION_X = 2;
+    static final int FIGHTER_POSITION_Y = 3;
+    static final int FIGHTER_LIFE = 4;
+    static final int FIGHTER_STATE_START_TICK = 5;
+    static final int FIGHTER_VALUE_COUNT = 6;
+    static final int VALUE_COUNT = FIRST_FIGHTER_VALUE + 2 * FIGHTER_VALUE_COUNT;
+
+    // quantized values are in hundredths
+    static final float SCALE = 100f;
+
+    // largest possible frame: header, values and every blood pool
+    public static final int MAX_FRAME_SIZE = 1 + 3 * Varint.MAX_SIZE + VALUE_COUNT * Varint.MAX_SIZE +
+        Varint.MAX_SIZE + MatchSimulation.BLOOD_POOL_AMOUNT * 5 * Varint.MAX_SIZE;
+
+    private final int tickRate;
+    private final ByteBuffer frame = ByteBuffer.allocate(MAX_FRAME_SIZE);
+
+    // values of the current tick and of the last keyframe
+    private final int[] values = new int[VALUE_COUNT];
+    private final int[] keyframeValues = new int[VALUE_COUNT];
+    private int keyframeTick;
+    private boolean keyframeNeeded = true;
+
+    // blood pools as of the last frame, to find the ones spilled since
+    private final boolean[] bloodPoolsActive = new boolean[MatchSimulation.BLOOD_POOL_AMOUNT];
+    private final float[] bloodPoolStateTimes = new float[MatchSimulation.BLOOD_POOL_AMOUNT];
+
+    public SpectatorEncoder(int tickRate) {
+        this.tickRate = tickRate;
+    }
+
+    public void requestKeyframe() {
+        keyframeNeeded = true;
+    }
+
+    public ByteBuffer encode(MatchSimulation simulation) {
+        int tick = simulation.getTick();
+        readValues(simulation, tick);
+        frame.clear();
+
+        if (keyframeNeeded || tick - keyframeTick >= KEYFRAME_INTERVAL || tick < keyframeTick) {
+            // write every value and the active blood pools
+            frame.put((byte) KEYFRAME);
+            Varint.put(frame, tick);
+            Varint.put(frame, tickRate);
+            for (int i = 0; i < VALUE_COUNT; i++) {
+                Varint.putSigned(frame, values[i]);
+            }
+            writeBloodPools(simulation, true);
+
+            // later frames are relative to this one
+            System.arraycopy(values, 0, keyframeValues, 0, VALUE_COUNT);
+            keyframeTick = tick;
+            keyframeNeeded = false;
+        } else {
+            // write the values that differ from the keyframe, and the blood pools spilled since the last frame
+            frame.put((byte) DELTA);
+            Varint.put(frame, tick);
+            int changed = 0;
+            for (int i = 0; i < VALUE_COUNT; i++) {
+                if (values[i] != keyframeValues[i]) {
+                    changed |= 1 << i;
+                }
+            }
+            Varint.put(frame, changed);
+            for (int i = 0; i < VALUE_COUNT; i++) {
+                if ((changed & 1 << i) != 0) {
+                    Varint.putSigned(frame, values[i] - keyframeValues[i]);
+                }
+            }
+            writeBloodPools(simulation, false);
+        }
+
+        frame.flip();
+        return frame;
+    }
+
+    private void readValues(MatchSimulation simulation, int tick) {
+        values[GAME_STATE] = simulation.getGameState() == null ? -1 : simulation.getGameState().ordinal();
+        values[ROUND_STATE] = simulation.getRoundState() == null ? -1 : simulation.getRoundState().ordinal();
+        values[CURRENT_ROUND] = simulation.getCurrentRound();
+        values[ROUNDS_WON] = simulation.getRoundsWon();
+        values[ROUNDS_LOST] = simulation.getRoundsLost();
+        values[ROUND_TIMER] = quantize(simulation.getRoundTimer());
+        readFighterValues(simulation.getPlayer(), FIRST_FIGHTER_VALUE, tick);
+        readFighterValues(simulation.getOpponent(), FIRST_FIGHTER_VALUE + FIGHTER_VALUE_COUNT, tick);
+    }
+
+    private void readFighterValues(Fighter fighter, int first, int tick) {
+        values[first + FIGHTER_STATE] = fighter.getRenderState() == null ? -1 : fighter.getRenderState().ordinal();
+        values[first + FIGHTER_FACING] = fighter.getFacing();
+        values[first + FIGHTER_POSITION_X] = quantize(fighter.getPosition().x);
+        values[first + FIGHTER_POSITION_Y] = quantize(fighter.getPosition().y);
+        values[first + FIGHTER_LIFE] = quantize(fighter.getLife());
+        values[first + FIGHTER_STATE_START_TICK] = tick - toTicks(fighter.getRenderStateTime());
+    }
+
+    private void writeBloodPools(MatchSimulation simulation, boolean allActive) {
+        // count the blood pools to write: all active ones, or the ones that have been spilled since the last frame
+        // (newly active, or active again with a lower state time)
+        int count = 0;
+        for (int i = 0; i < MatchSimulation.BLOOD_POOL_AMOUNT; i++) {
+            if (isBloodPoolWritten(simulation, i, allActive)) {
+                count++;
+            }
+        }
+
+        Varint.put(frame, count);
+        for (int i = 0; i < MatchSimulation.BLOOD_POOL_AMOUNT; i++) {
+            if (isBloodPoolWritten(simulation, i, allActive)) {
+                Varint.put(frame, i);
+                Varint.putSigned(frame, quantize(simulation.getBloodPoolPositionX(i)));
+                Varint.putSigned(frame, quantize(simulation.getBloodPoolPositionY(i)));
+                Varint.put(frame, simulation.getBloodPoolVariant(i));
+                if (allActive) {
+                    Varint.put(frame, toTicks(simulation.getBloodPoolStateTime(i)));
+                }
+            }
+        }
+
+        // remember the blood pools for the next frame
+        for (int i = 0; i < MatchSimulation.BLOOD_POOL_AMOUNT; i++) {
+            bloodPoolsActive[i] = simulation.isBloodPoolActive(i);
+            bloodPoolStateTimes[i] = simulation.getBloodPoolStateTime(i);
+        }
+    }
+
+    private boolean isBloodPoolWritten(MatchSimulation simulation, int index, boolean allActive) {
+        if (!simulation.isBloodPoolActive(index)) return false;
+        return allActive || !bloodPoolsActive[index] || simulation.getBloodPoolStateTime(index) < bloodPoolStateTimes[index];
+    }
+
+    private int toTicks(float time) {
+        return Math.max(Math.round(time * tickRate), 0);
+    }
+
+    static int quantize(float value) {
+        return Math.round(value * SCALE);
+    }
+}
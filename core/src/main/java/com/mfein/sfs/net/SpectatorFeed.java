@@ -0,0 +1,76 @@
+package com.mfein.sfs.net;
+
+import com.mfein.sfs.simulation.MatchSimulation;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Broadcasts a match to any number of spectators. Each tick's frame is encoded once by a {@link SpectatorEncoder} and
+ * the same buffer is handed to every subscriber. Subscribers can join and leave from any thread; a keyframe is sent
+ * on the next tick after someone joins, so they don't have to wait for the next scheduled one.
+ */
+public class SpectatorFeed {
+    private final SpectatorEncoder encoder;
+    private final List<SpectatorSubscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean keyframeNeeded = new AtomicBoolean();
+
+    // stats
+    private long framesEncoded;
+    private long bytesEncoded;
+    private long bytesSent;
+
+    public SpectatorFeed(int tickRate) {
+        encoder = new SpectatorEncoder(tickRate);
+    }
+
+    public void subscribe(SpectatorSubscriber subscriber) {
+        subscribers.add(subscriber);
+        keyframeNeeded.set(true);
+    }
+
+    public void unsubscribe(SpectatorSubscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public int broadcast(MatchSimulation simulation) {
+        // nobody is watching, so don't even encode
+        if (subscribers.isEmpty()) return 0;
+
+        if (keyframeNeeded.getAndSet(false)) {
+            encoder.requestKeyframe();
+        }
+        ByteBuffer frame = encoder.encode(simulation);
+        int frameSize = frame.remaining();
+        framesEncoded++;
+        bytesEncoded += frameSize;
+
+        // hand the same frame to every subscriber, rewound for each
+        int sent = 0;
+        for (SpectatorSubscriber subscriber : subscribers) {
+            frame.position(0);
+            subscriber.onFrame(frame);
+            sent += frameSize;
+        }
+        bytesSent += sent;
+        return sent;
+    }
+
+    public long getFramesEncoded() {
+        return framesEncoded;
+    }
+
+    public long getBytesEncoded() {
+        return bytesEncoded;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+}
@@ -0,0 +1,9 @@
+package com.mfein.sfs.net;
+
+import java.nio.ByteBuffer;
+
+/** Receives the frames of a {@link SpectatorFeed}, e.g. to decode them or write them to a spectator's socket. */
+public interface SpectatorSubscriber {
+    // the frame is shared with every other subscriber and only valid during the call, so copy or write it, don't keep it
+    void onFrame(ByteBuffer frame);
+}
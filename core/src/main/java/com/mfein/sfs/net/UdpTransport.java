@@ -0,0 +1,103 @@
+package com.mfein.sfs.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * An {@link InputTransport} over UDP, using a non-blocking {@link DatagramChannel} connected to one remote address.
+ * Packets in direct buffers are handed to the channel as they are; anything else is copied into a direct buffer that
+ * is reused, so sending and receiving don't allocate. Errors while sending (such as the remote side not listening yet)
+ * count as lost packets.
+ */
+public class UdpTransport implements InputTransport, Closeable {
+    public static final int MAX_PACKET_SIZE = 512;
+
+    private final DatagramChannel channel;
+    private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(MAX_PACKET_SIZE);
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(MAX_PACKET_SIZE);
+
+    // counters
+    private long packetsSent;
+    private long packetsReceived;
+    private long bytesSent;
+    private long sendErrors;
+
+    public UdpTransport(int localPort, String remoteHost, int remotePort) throws IOException {
+        channel = DatagramChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.bind(new InetSocketAddress(localPort));
+            channel.connect(new InetSocketAddress(remoteHost, remotePort));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
+    public long getPacketsReceived() {
+        return packetsReceived;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getSendErrors() {
+        return sendErrors;
+    }
+
+    @Override
+    public void send(ByteBuffer packet) {
+        // copy the packet into the direct send buffer, unless it's already in one
+        ByteBuffer buffer = packet;
+        if (!packet.isDirect()) {
+            sendBuffer.clear();
+            sendBuffer.put(packet);
+            sendBuffer.flip();
+            buffer = sendBuffer;
+        }
+
+        packetsSent++;
+        try {
+            bytesSent += channel.write(buffer);
+        } catch (IOException e) {
+            sendErrors++;
+        }
+    }
+
+    @Override
+    public boolean receive(ByteBuffer packet) {
+        // read straight into the packet if it's a direct buffer; otherwise, go through the direct receive buffer
+        ByteBuffer buffer = packet.isDirect() ? packet : receiveBuffer;
+        buffer.clear();
+        int length;
+        try {
+            length = channel.read(buffer);
+        } catch (IOException e) {
+            // (e.g. an ICMP port unreachable from an earlier send, while the remote side isn't listening yet)
+            return false;
+        }
+        if (length <= 0) return false;
+        buffer.flip();
+
+        if (buffer != packet) {
+            packet.clear();
+            packet.put(buffer);
+            packet.flip();
+        }
+        packetsReceived++;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
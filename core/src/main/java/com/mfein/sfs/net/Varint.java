@@ -0,0 +1,50 @@
+package com.mfein.sfs.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Variable-length integers: 7 bits per byte, lowest bits first, with the top bit set on every byte but the last, so
+ * small values take a single byte. Signed values are zigzag-encoded first, so small negative values stay small too.
+ */
+public final class Varint {
+    // most bytes an int can take
+    public static final int MAX_SIZE = 5;
+
+    private Varint() {}
+
+    public static void put(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    public static void putSigned(ByteBuffer buffer, int value) {
+        put(buffer, (value << 1) ^ (value >> 31));
+    }
+
+    public static int get(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    public static int getSigned(ByteBuffer buffer) {
+        int value = get(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public static int size(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,56 @@
+package com.mfein.sfs.objects;
+
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.mfein.sfs.SFS;
+import com.mfein.sfs.resources.Assets;
+import com.mfein.sfs.resources.GlobalVariables;
+import com.mfein.sfs.simulation.MatchSimulation;
+
+public class BloodPoolRenderer {
+
+    // textures
+    private final TextureRegion[] textures;
+    public static final int TEXTURE_AMOUNT = MatchSimulation.BLOOD_POOL_VARIANT_AMOUNT;
+
+    public BloodPoolRenderer(SFS game) {
+        // get all the blood pool textures; the match decides which one each blood pool shows
+        textures = getBloodPoolTextures(game.assets.manager);
+    }
+
+    private TextureRegion[] getBloodPoolTextures(AssetManager assetManager) {
+        // get the blood texture atlas from the asset manager
+        TextureAtlas bloodAtlas = assetManager.get(Assets.BLOOD_ATLAS);
+
+        // get every blood pool texture region from the blood atlas
+        TextureRegion[] textures = new TextureRegion[TEXTURE_AMOUNT];
+        for (int i = 0; i < TEXTURE_AMOUNT; i++) {
+            textures[i] = bloodAtlas.findRegion("BloodPool" + i);
+        }
+        return textures;
+    }
+
+    public void render(SpriteBatch batch, MatchSimulation simulation) {
+        for (int i = 0; i < MatchSimulation.BLOOD_POOL_AMOUNT; i++) {
+            // if not active, don't render
+            if (!simulation.isBloodPoolActive(i)) continue;
+
+            // reduce the alpha to make the blood pool more transparent over time
+            float alpha = 1f - simulation.getBloodPoolStateTime(i) / MatchSimulation.BLOOD_POOL_FADE_TIME;
+
+            // set the sprite batch's color using the blood pool's alpha
+            batch.setColor(1, 1, 1, alpha);
+
+            // draw the blood pool
+            TextureRegion texture = textures[simulation.getBloodPoolVariant(i)];
+            batch.draw(texture, simulation.getBloodPoolPositionX(i), simulation.getBloodPoolPositionY(i),
+                texture.getRegionWidth() * GlobalVariables.WORLD_SCALE,
+                texture.getRegionHeight() * GlobalVariables.WORLD_SCALE);
+        }
+
+        // reset the sprite batch's color to fully opaque
+        batch.setColor(1, 1, 1, 1);
+    }
+}
@@ -1,19 +1,19 @@
 package com.mfein.sfs.objects;
 
-import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Texture;
-import com.badlogic.gdx.graphics.g2d.Animation;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Vector2;
-import com.mfein.sfs.SFS;
-import com.mfein.sfs.resources.Assets;
-import com.mfein.sfs.resources.GlobalVariables;
+import com.mfein.sfs.simulation.MatchSnapshot;
+import com.mfein.sfs.simulation.StateHash;
 
 public class Fighter {
-    // number of frame rows and columns in each animation sprite sheet
-    private static final int FRAME_ROWS = 2, FRAME_COLS = 3;
+    // number of frames in each animation
+    public static final int ANIMATION_FRAME_COUNT = 6;
+
+    // how each move plays out: frame durations, attack frames, damage and reach (the built-in moves until the move
+    // definition file is loaded, once, at start-up)
+    private static FrameData frameData = FrameData.builtIn();
+    private static boolean frameDataLoaded;
 
     // how fast a fighter can move
     public static final float MOVEMENT_SPEED = 10f;
@@ -21,10 +21,10 @@ public class Fighter {
     // maximum life a fighter can have
     public  static final float MAX_LIFE = 100f;
 
-    // amount of damage a fighter's hit will inflict
-    public static final float HIT_STRENGTH = 5f;
-    // factor to decrease damage if a fighter gets hit while blocking
-    public static final float BLOCK_DAMAGE_FACTOR = 0.2f;
+    // phases of an attack: its startup, active (when it can hit) and recovery frames
+    public static final int ATTACK_STARTING = 0;
+    public static final int ATTACK_ACTIVE = 1;
+    public static final int ATTACK_RECOVERING = 2;
 
     // distinguishing details
     private String name;
@@ -41,40 +41,27 @@ public class Fighter {
         WALK,
         WIN
     }
+    private static final State[] STATES = State.values();
 
     private State state;
     private float stateTime;
     private State renderState;
     private float renderStateTime;
     private final Vector2 position = new Vector2();
+
+    // state after the previous update, used to interpolate rendering between updates
+    private State previousRenderState;
+    private float previousRenderStateTime;
+    private final Vector2 previousPosition = new Vector2();
+
     private final Vector2 movementDirection = new Vector2();
     private float life;
     private int facing;
     private boolean madeContact;
 
-    // animations
-    private Animation<TextureRegion> blockAnimation;
-    private Animation<TextureRegion> hurtAnimation;
-    private Animation<TextureRegion> idleAnimation;
-    private Animation<TextureRegion> kickAnimation;
-    private Animation<TextureRegion> loseAnimation;
-    private Animation<TextureRegion> punchAnimation;
-    private Animation<TextureRegion> walkAnimation;
-    private Animation<TextureRegion> winAnimation;
-
-    public Fighter(SFS game, String name, Color color) {
+    public Fighter(String name, Color color) {
         this.name = name;
         this.color = color;
-
-        // initialize the animations
-        initializeBlockAnimation(game.assets.manager);
-        initializeHurtAnimation(game.assets.manager);
-        initializeIdleAnimation(game.assets.manager);
-        initializeKickAnimation(game.assets.manager);
-        initializeLoseAnimation(game.assets.manager);
-        initializePunchAnimation(game.assets.manager);
-        initializeWalkAnimation(game.assets.manager);
-        initializeWinAnimation(game.assets.manager);
     }
 
     public String getName() {
@@ -93,6 +80,22 @@ public class Fighter {
         this.color = color;
     }
 
+    public static FrameData getFrameData() {
+        return frameData;
+    }
+
+    public static synchronized void loadFrameData(FileHandle file) {
+        // use the moves in the given move definition file, or keep the built-in ones if there isn't one; the game, the
+        // sim tools and the server all do this before they set up any match, so they all play the same moves. Only the
+        // first call loads them, so they stay the same for the rest of the process, even if the game is created again
+        // in it (e.g. when its activity is recreated)
+        if (frameDataLoaded) return;
+        if (file.exists()) {
+            frameData = FrameData.load(file);
+        }
+        frameDataLoaded = true;
+    }
+
     public Vector2 getPosition() {
         return position;
     }
@@ -101,58 +104,133 @@ public class Fighter {
         return life;
     }
 
+    public Vector2 getMovementDirection() {
+        return movementDirection;
+    }
+
     public void getReady(float positionX, float positionY) {
-        state = renderState = State.IDLE;
-        stateTime = renderStateTime = 0f;
+        state = renderState = previousRenderState = State.IDLE;
+        stateTime = renderStateTime = previousRenderStateTime = 0f;
         position.set(positionX, positionY);
+        previousPosition.set(positionX, positionY);
         movementDirection.set(0,0);
         life = MAX_LIFE;
         madeContact = false;
     }
 
-    public void render(SpriteBatch batch){
-        // get the current animation frame
-        TextureRegion currentFrame;
-        switch (renderState) {
-            case BLOCK:
-                currentFrame = blockAnimation.getKeyFrame(renderStateTime, true);
-                break;
-            case HURT:
-                currentFrame = hurtAnimation.getKeyFrame(renderStateTime, false);
-                break;
-            case IDLE:
-                currentFrame = idleAnimation.getKeyFrame(renderStateTime, true);
-                break;
-            case KICK:
-                currentFrame = kickAnimation.getKeyFrame(renderStateTime, false);
-                break;
-            case LOSE:
-                currentFrame = loseAnimation.getKeyFrame(renderStateTime, false);
-                break;
-            case PUNCH:
-                currentFrame = punchAnimation.getKeyFrame(renderStateTime, false);
-                break;
-            case WALK:
-                currentFrame = walkAnimation.getKeyFrame(renderStateTime, true);
-                break;
-            default:
-                currentFrame = winAnimation.getKeyFrame(renderStateTime, true);
-        }
-
-        batch.setColor(color);
-        batch.draw( currentFrame, position.x, position.y, currentFrame.getRegionWidth() * 0.5f * GlobalVariables.WORLD_SCALE,
-            0, currentFrame.getRegionWidth() * GlobalVariables.WORLD_SCALE, currentFrame.getRegionHeight() *
-                GlobalVariables.WORLD_SCALE, facing, 1,0);
-        batch.setColor(1,1,1,1);
-
+    public State getState() {
+        return state;
+    }
+
+    public State getRenderState() {
+        return renderState;
+    }
+
+    public float getRenderStateTime() {
+        return renderStateTime;
+    }
+
+    public State getPreviousRenderState() {
+        return previousRenderState;
+    }
+
+    public float getPreviousRenderStateTime() {
+        return previousRenderStateTime;
+    }
+
+    public Vector2 getPreviousPosition() {
+        return previousPosition;
+    }
+
+    public int getFacing() {
+        return facing;
+    }
+
+    public void save(MatchSnapshot snapshot) {
+        // write the state in the same order restore reads it
+        snapshot.putEnum(state);
+        snapshot.putFloat(stateTime);
+        snapshot.putEnum(renderState);
+        snapshot.putFloat(renderStateTime);
+        snapshot.putFloat(position.x);
+        snapshot.putFloat(position.y);
+        snapshot.putEnum(previousRenderState);
+        snapshot.putFloat(previousRenderStateTime);
+        snapshot.putFloat(previousPosition.x);
+        snapshot.putFloat(previousPosition.y);
+        snapshot.putFloat(movementDirection.x);
+        snapshot.putFloat(movementDirection.y);
+        snapshot.putFloat(life);
+        snapshot.putInt(facing);
+        snapshot.putBoolean(madeContact);
+    }
+
+    public long hash(long hash) {
+        // mix in the same state save writes
+        hash = StateHash.mix(hash, state);
+        hash = StateHash.mix(hash, stateTime);
+        hash = StateHash.mix(hash, renderState);
+        hash = StateHash.mix(hash, renderStateTime);
+        hash = StateHash.mix(hash, position.x);
+        hash = StateHash.mix(hash, position.y);
+        hash = StateHash.mix(hash, previousRenderState);
+        hash = StateHash.mix(hash, previousRenderStateTime);
+        hash = StateHash.mix(hash, previousPosition.x);
+        hash = StateHash.mix(hash, previousPosition.y);
+        hash = StateHash.mix(hash, movementDirection.x);
+        hash = StateHash.mix(hash, movementDirection.y);
+        hash = StateHash.mix(hash, life);
+        hash = StateHash.mix(hash, facing);
+        return StateHash.mix(hash, madeContact);
+    }
+
+    public void describe(StringBuilder text, String prefix) {
+        // one line per value hashed, for comparing two states by eye (debugging only)
+        text.append(prefix).append("state: ").append(state).append('\n');
+        text.append(prefix).append("stateTime: ").append(stateTime).append('\n');
+        text.append(prefix).append("renderState: ").append(renderState).append('\n');
+        text.append(prefix).append("renderStateTime: ").append(renderStateTime).append('\n');
+        text.append(prefix).append("position: ").append(position.x).append(", ").append(position.y).append('\n');
+        text.append(prefix).append("previousRenderState: ").append(previousRenderState).append('\n');
+        text.append(prefix).append("previousRenderStateTime: ").append(previousRenderStateTime).append('\n');
+        text.append(prefix).append("previousPosition: ").append(previousPosition.x).append(", ")
+            .append(previousPosition.y).append('\n');
+        text.append(prefix).append("movementDirection: ").append(movementDirection.x).append(", ")
+            .append(movementDirection.y).append('\n');
+        text.append(prefix).append("life: ").append(life).append('\n');
+        text.append(prefix).append("facing: ").append(facing).append('\n');
+        text.append(prefix).append("madeContact: ").append(madeContact).append('\n');
+    }
+
+    public void restore(MatchSnapshot snapshot) {
+        state = snapshot.getEnum(STATES);
+        stateTime = snapshot.getFloat();
+        renderState = snapshot.getEnum(STATES);
+        renderStateTime = snapshot.getFloat();
+        position.x = snapshot.getFloat();
+        position.y = snapshot.getFloat();
+        previousRenderState = snapshot.getEnum(STATES);
+        previousRenderStateTime = snapshot.getFloat();
+        previousPosition.x = snapshot.getFloat();
+        previousPosition.y = snapshot.getFloat();
+        movementDirection.x = snapshot.getFloat();
+        movementDirection.y = snapshot.getFloat();
+        life = snapshot.getFloat();
+        facing = snapshot.getInt();
+        madeContact = snapshot.getBoolean();
     }
 
     public void update(float deltaTime) {
+        // remember the position from the previous update
+        previousPosition.set(position);
+
         // increment the state time by delta time
         stateTime += deltaTime;
 
         // only update the render state if delta time is greater than zero
         if (deltaTime > 0) {
+            previousRenderState = renderState;
+            previousRenderStateTime = renderStateTime;
             renderState = state;
             renderStateTime = stateTime;
         }
@@ -161,9 +239,8 @@ public class Fighter {
             // if the fighter is walking, move in the direction of the movement direction vector
             position.x += movementDirection.x * MOVEMENT_SPEED * deltaTime;
             position.y += movementDirection.y * MOVEMENT_SPEED * deltaTime;
-        } else if ((state == State.PUNCH && punchAnimation.isAnimationFinished(stateTime)) || (state == State.KICK &&
-            kickAnimation.isAnimationFinished(stateTime)) || (state == State.HURT &&
-            hurtAnimation.isAnimationFinished(stateTime))) {
+        } else if ((state == State.PUNCH || state == State.KICK || state == State.HURT) &&
+            isAnimationFinished(state, stateTime)) {
             // if the animation has finished and the movement direction is set, start walking; otherwise, go to idle
             if (movementDirection.x != 0 || movementDirection.y != 0) {
                 changeState(State.WALK);
@@ -291,22 +368,35 @@ public class Fighter {
     public boolean isAttackActive() {
         // the attack is only active if the fighter has not yet made contact and the attack animation has not just started
         // or is almost finished
-        if (hasMadeContact()) {
-            return false;
-        } else if (state == State.PUNCH) {
-            return stateTime > punchAnimation.getAnimationDuration() * 0.33f && stateTime < punchAnimation.getAnimationDuration() * 0.66f;
-        } else if (state == State.KICK) {
-            return stateTime > kickAnimation.getAnimationDuration() * 0.33f && stateTime < kickAnimation.getAnimationDuration() * 0.66f;
-        } else  {
-            return false;
+        return !hasMadeContact() && isAttacking() && getAttackPhase() == ATTACK_ACTIVE;
+    }
+
+    public int getAttackPhase() {
+        // whether the attack is starting, active or recovering, by which of its frames it is in (regardless of
+        // contact); only meaningful while attacking
+        int index = state.ordinal();
+        if (stateTime < frameData.activeStarts[index]) {
+            return ATTACK_STARTING;
+        } else if (stateTime < frameData.activeEnds[index]) {
+            return ATTACK_ACTIVE;
+        } else {
+            return ATTACK_RECOVERING;
         }
     }
 
-    public void getHit(float damage) {
+    public boolean canReach(Fighter target) {
+        // whether the target is within the reach of the fighter's attack
+        int index = state.ordinal();
+        return Math.abs(position.x - target.position.x) <= frameData.reachesX[index] &&
+            Math.abs(position.y - target.position.y) <= frameData.reachesY[index];
+    }
+
+    public void getHit(State attack) {
         if (state == State.HURT || state == State.WIN || state == State.LOSE) return;
 
-        // reduce the fighter's life by the full damage amount, or a fraction of it if the fighter is blocking
-        life -= state == State.BLOCK ? damage * BLOCK_DAMAGE_FACTOR : damage;
+        // reduce the fighter's life by the attack's damage, or its block damage if the fighter is blocking
+        int index = attack.ordinal();
+        life -= state == State.BLOCK ? frameData.blockDamages[index] : frameData.damages[index];
         if (life <= 0f) {
             // if no life remains, lose
             lose();
@@ -329,66 +419,18 @@ public class Fighter {
         changeState(State.WIN);
     }
 
-    private void initializeBlockAnimation(AssetManager assetManager) {
-        Texture spriteSheet = assetManager.get(Assets.BLOCK_SPRITE_SHEET);
-        TextureRegion[] frames = getAnimationFrames(spriteSheet);
-        blockAnimation = new Animation<>(0.05f, frames);
+    public static float getFrameDuration(State state) {
+        return frameData.frameDurations[state.ordinal()];
     }
 
-    private void initializeHurtAnimation(AssetManager assetManager) {
-        Texture spriteSheet = assetManager.get(Assets.HURT_SPRITE_SHEET);
-        TextureRegion[] frames = getAnimationFrames(spriteSheet);
-        hurtAnimation = new Animation<>(0.03f, frames);
+    public static float getAnimationDuration(State state) {
+        return frameData.durations[state.ordinal()];
     }
 
-    private void initializeIdleAnimation(AssetManager assetManager) {
-        Texture spriteSheet = assetManager.get(Assets.IDLE_SPRITE_SHEET);
-        TextureRegion[] frames = getAnimationFrames(spriteSheet);
-        idleAnimation = new Animation<>(0.1f, frames);
-    }
-
-    private void initializeKickAnimation(AssetManager assetManager) {
-        Texture spriteSheet = assetManager.get(Assets.KICK_SPRITE_SHEET);
-        TextureRegion[] frames = getAnimationFrames(spriteSheet);
-        kickAnimation = new Animation<>(0.05f, frames);
-    }
-
-    private void initializeLoseAnimation(AssetManager assetManager) {
-        Texture spriteSheet = assetManager.get(Assets.LOSE_SPRITE_SHEET);
-        TextureRegion[] frames = getAnimationFrames(spriteSheet);
-        loseAnimation = new Animation<>(0.05f, frames);
-    }
-
-    private void initializePunchAnimation(AssetManager assetManager) {
-        Texture spriteSheet = assetManager.get(Assets.PUNCH_SPRITE_SHEET);
-        TextureRegion[] frames = getAnimationFrames(spriteSheet);
-        punchAnimation = new Animation<>(0.05f, frames);
-    }
-
-    private void initializeWalkAnimation(AssetManager assetManager) {
-        Texture spriteSheet = assetManager.get(Assets.WALK_SPRITE_SHEET);
-        TextureRegion[] frames = getAnimationFrames(spriteSheet);
-        walkAnimation = new Animation<>(0.08f, frames);
-    }
-
-    private void initializeWinAnimation(AssetManager assetManager) {
-        Texture spriteSheet = assetManager.get(Assets.WIN_SPRITE_SHEET);
-        TextureRegion[] frames = getAnimationFrames(spriteSheet);
-        winAnimation = new Animation<>(0.05f, frames);
-    }
-
-
-
-    private TextureRegion[] getAnimationFrames(Texture spriteSheet) {
-        TextureRegion[][] tmp = TextureRegion.split(spriteSheet, spriteSheet.getWidth() / FRAME_COLS,
-            spriteSheet.getHeight() / FRAME_ROWS);
-        TextureRegion[] frames = new TextureRegion[FRAME_ROWS * FRAME_COLS];
-        int index = 0;
-        for (int i = 0; i < FRAME_ROWS; i++) {
-            for (int j = 0; j < FRAME_COLS; j++) {
-                frames[index++] = tmp[i][j];
-            }
-        }
-        return frames;
+    private static boolean isAnimationFinished(State state, float stateTime) {
+        // same rule as Animation.isAnimationFinished: finished once the frame index passes the last frame
+        int index = state.ordinal();
+        int frameNumber = (int) (stateTime / frameData.frameDurations[index]);
+        return frameData.frameCounts[index] - 1 < frameNumber;
     }
 }
@@ -0,0 +1,145 @@
+package com.mfein.sfs.objects;
+
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Animation;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.MathUtils;
+import com.mfein.sfs.SFS;
+import com.mfein.sfs.resources.Assets;
+import com.mfein.sfs.resources.GlobalVariables;
+
+public class FighterRenderer {
+    // number of frame rows and columns in each animation sprite sheet
+    private static final int FRAME_ROWS = 2, FRAME_COLS = 3;
+
+    // animations
+    private Animation<TextureRegion> blockAnimation;
+    private Animation<TextureRegion> hurtAnimation;
+    private Animation<TextureRegion> idleAnimation;
+    private Animation<TextureRegion> kickAnimation;
+    private Animation<TextureRegion> loseAnimation;
+    private Animation<TextureRegion> punchAnimation;
+    private Animation<TextureRegion> walkAnimation;
+    private Animation<TextureRegion> winAnimation;
+
+    public FighterRenderer(SFS game) {
+        // initialize the animations
+        initializeBlockAnimation(game.assets.manager);
+        initializeHurtAnimation(game.assets.manager);
+        initializeIdleAnimation(game.assets.manager);
+        initializeKickAnimation(game.assets.manager);
+        initializeLoseAnimation(game.assets.manager);
+        initializePunchAnimation(game.assets.manager);
+        initializeWalkAnimation(game.assets.manager);
+        initializeWinAnimation(game.assets.manager);
+    }
+
+    public void render(SpriteBatch batch, Fighter fighter, float alpha) {
+        // interpolate the state time between the previous and the latest update, unless the state has just changed
+        float renderStateTime = fighter.getRenderStateTime();
+        if (fighter.getPreviousRenderState() == fighter.getRenderState()) {
+            renderStateTime = MathUtils.lerp(fighter.getPreviousRenderStateTime(), renderStateTime, alpha);
+        }
+
+        // interpolate the position between the previous and the latest update
+        float positionX = MathUtils.lerp(fighter.getPreviousPosition().x, fighter.getPosition().x, alpha);
+        float positionY = MathUtils.lerp(fighter.getPreviousPosition().y, fighter.getPosition().y, alpha);
+
+        // get the current animation frame
+        TextureRegion currentFrame;
+        switch (fighter.getRenderState()) {
+            case BLOCK:
+                currentFrame = blockAnimation.getKeyFrame(renderStateTime, true);
+                break;
+            case HURT:
+                currentFrame = hurtAnimation.getKeyFrame(renderStateTime, false);
+                break;
+            case IDLE:
+                currentFrame = idleAnimation.getKeyFrame(renderStateTime, true);
+                break;
+            case KICK:
+                currentFrame = kickAnimation.getKeyFrame(renderStateTime, false);
+                break;
+            case LOSE:
+                currentFrame = loseAnimation.getKeyFrame(renderStateTime, false);
+                break;
+            case PUNCH:
+                currentFrame = punchAnimation.getKeyFrame(renderStateTime, false);
+                break;
+            case WALK:
+                currentFrame = walkAnimation.getKeyFrame(renderStateTime, true);
+                break;
+            default:
+                currentFrame = winAnimation.getKeyFrame(renderStateTime, true);
+        }
+
+        batch.setColor(fighter.getColor());
+        batch.draw(currentFrame, positionX, positionY, currentFrame.getRegionWidth() * 0.5f *
+                GlobalVariables.WORLD_SCALE, 0, currentFrame.getRegionWidth() * GlobalVariables.WORLD_SCALE,
+            currentFrame.getRegionHeight() * GlobalVariables.WORLD_SCALE, fighter.getFacing(), 1, 0);
+        batch.setColor(1,1,1,1);
+    }
+
+    private void initializeBlockAnimation(AssetManager assetManager) {
+        Texture spriteSheet = assetManager.get(Assets.BLOCK_SPRITE_SHEET);
+        TextureRegion[] frames = getAnimationFrames(spriteSheet);
+        blockAnimation = new Animation<>(Fighter.getFrameDuration(Fighter.State.BLOCK), frames);
+    }
+
+    private void initializeHurtAnimation(AssetManager assetManager) {
+        Texture spriteSheet = assetManager.get(Assets.HURT_SPRITE_SHEET);
+        TextureRegion[] frames = getAnimationFrames(spriteSheet);
+        hurtAnimation = new Animation<>(Fighter.getFrameDuration(Fighter.State.HURT), frames);
+    }
+
+    private void initializeIdleAnimation(AssetManager assetManager) {
+        Texture spriteSheet = assetManager.get(Assets.IDLE_SPRITE_SHEET);
+        TextureRegion[] frames = getAnimationFrames(spriteSheet);
+        idleAnimation = new Animation<>(Fighter.getFrameDuration(Fighter.State.IDLE), frames);
+    }
+
+    private void initializeKickAnimation(AssetManager assetManager) {
+        Texture spriteSheet = assetManager.get(Assets.KICK_SPRITE_SHEET);
+        TextureRegion[] frames = getAnimationFrames(spriteSheet);
+        kickAnimation = new Animation<>(Fighter.getFrameDuration(Fighter.State.KICK), frames);
+    }
+
+    private void initializeLoseAnimation(AssetManager assetManager) {
+        Texture spriteSheet = assetManager.get(Assets.LOSE_SPRITE_SHEET);
+        TextureRegion[] frames = getAnimationFrames(spriteSheet);
+        loseAnimation = new Animation<>(Fighter.getFrameDuration(Fighter.State.LOSE), frames);
+    }
+
+    private void initializePunchAnimation(AssetManager assetManager) {
+        Texture spriteSheet = assetManager.get(Assets.PUNCH_SPRITE_SHEET);
+        TextureRegion[] frames = getAnimationFrames(spriteSheet);
+        punchAnimation = new Animation<>(Fighter.getFrameDuration(Fighter.State.PUNCH), frames);
+    }
+
+    private void initializeWalkAnimation(AssetManager assetManager) {
+        Texture spriteSheet = assetManager.get(Assets.WALK_SPRITE_SHEET);
+        TextureRegion[] frames = getAnimationFrames(spriteSheet);
+        walkAnimation = new Animation<>(Fighter.getFrameDuration(Fighter.State.WALK), frames);
+    }
+
+    private void initializeWinAnimation(AssetManager assetManager) {
+        Texture spriteSheet = assetManager.get(Assets.WIN_SPRITE_SHEET);
+        TextureRegion[] frames = getAnimationFrames(spriteSheet);
+        winAnimation = new Animation<>(Fighter.getFrameDuration(Fighter.State.WIN), frames);
+    }
+
+    private TextureRegion[] getAnimationFrames(Texture spriteSheet) {
+        TextureRegion[][] tmp = TextureRegion.split(spriteSheet, spriteSheet.getWidth() / FRAME_COLS,
+            spriteSheet.getHeight() / FRAME_ROWS);
+        TextureRegion[] frames = new TextureRegion[FRAME_ROWS * FRAME_COLS];
+        int index = 0;
+        for (int i = 0; i < FRAME_ROWS; i++) {
+            for (int j = 0; j < FRAME_COLS; j++) {
+                frames[index++] = tmp[i][j];
+            }
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,185 @@
+package com.mfein.sfs.objects;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+
+/**
+ * How each of a fighter's moves plays out, by {@link Fighter.State}: how long each of its animation frames lasts and,
+ * for attacks, in how many frames it starts up, is active (can hit) and recovers, how much damage it does (and through
+ * a block), and how far it reaches. The built-in moves can be replaced by a move definition file, loaded at start-up,
+ * in which any state left out keeps its built-in move. Either way, the moves are compiled into one array per value,
+ * indexed by the state's ordinal, so the simulation looks them up with array reads.
+ *
+ * <pre>
+ * {"punch": {"frameDuration": 0.05, "startup": 2, "active": 2, "recovery": 2, "damage": 5, "blockDamage": 1,
+ *            "reachX": 7.5, "reachY": 1.5},
+ *  "walk": {"frameDuration": 0.08}, ...}
+ * </pre>
+ */
+public class FrameData {
+    // the move definition file, in the assets
+    public static final String FILE = "data/moves.json";
+
+    // built-in duration of a single animation frame for each state
+    public static final float BLOCK_FRAME_DURATION = 0.05f;
+    public static final float HURT_FRAME_DURATION = 0.03f;
+    public static final float IDLE_FRAME_DURATION = 0.1f;
+    public static final float KICK_FRAME_DURATION = 0.05f;
+    public static final float LOSE_FRAME_DURATION = 0.05f;
+    public static final float PUNCH_FRAME_DURATION = 0.05f;
+    public static final float WALK_FRAME_DURATION = 0.08f;
+    public static final float WIN_FRAME_DURATION = 0.05f;
+
+    // built-in attacks: a third of the animation each to start up, be active and recover, the damage of a hit and how
+    // much of it gets through a block, and a reach as far as the fighters' contact distance
+    public static final int ATTACK_STARTUP_FRAMES = 2;
+    public static final int ATTACK_ACTIVE_FRAMES = 2;
+    public static final int ATTACK_RECOVERY_FRAMES = 2;
+    public static final float ATTACK_DAMAGE = 5f;
+    public static final float ATTACK_BLOCK_DAMAGE = 1f;
+    public static final float ATTACK_REACH_X = 7.5f;
+    public static final float ATTACK_REACH_Y = 1.5f;
+
+    private static final Fighter.State[] STATES = Fighter.State.values();
+
+    // each state's frame duration and frames (an attack's startup, active and recovery frames, and any other state's
+    // animation frames), the whole animation's duration, when an attack's active frames start and end, and its
+    // damage, block damage and reach
+    final float[] frameDurations = new float[STATES.length];
+    final int[] startupFrames = new int[STATES.length];
+    final int[] activeFrames = new int[STATES.length];
+    final int[] frameCounts = new int[STATES.length];
+    final float[] durations = new float[STATES.length];
+    final float[] activeStarts = new float[STATES.length];
+    final float[] activeEnds = new float[STATES.length];
+    final float[] damages = new float[STATES.length];
+    final float[] blockDamages = new float[STATES.length];
+    final float[] reachesX = new float[STATES.length];
+    final float[] reachesY = new float[STATES.length];
+    private float maxDamage;
+
+    private FrameData() {
+    }
+
+    public float getFrameDuration(Fighter.State state) {
+        return frameDurations[state.ordinal()];
+    }
+
+    public float getAnimationDuration(Fighter.State state) {
+        return durations[state.ordinal()];
+    }
+
+    public float getDamage(Fighter.State attack, boolean blocked) {
+        return blocked ? blockDamages[attack.ordinal()] : damages[attack.ordinal()];
+    }
+
+    public float getMaxDamage() {
+        // the most damage any attack does, e.g. to measure damage in hits
+        return maxDamage;
+    }
+
+    public static FrameData builtIn() {
+        FrameData frameData = new FrameData();
+        for (Fighter.State state : STATES) {
+            if (isAttack(state)) {
+                frameData.set(state, getBuiltInFrameDuration(state), ATTACK_STARTUP_FRAMES, ATTACK_ACTIVE_FRAMES,
+                    ATTACK_STARTUP_FRAMES + ATTACK_ACTIVE_FRAMES + ATTACK_RECOVERY_FRAMES, ATTACK_DAMAGE,
+                    ATTACK_BLOCK_DAMAGE, ATTACK_REACH_X, ATTACK_REACH_Y);
+            } else {
+                frameData.set(state, getBuiltInFrameDuration(state), 0, 0, Fighter.ANIMATION_FRAME_COUNT, 0f, 0f, 0f,
+                    0f);
+            }
+        }
+        return frameData;
+    }
+
+    public static FrameData load(FileHandle file) {
+        return fromJson(new JsonReader().parse(file));
+    }
+
+    public static FrameData fromJson(JsonValue json) {
+        // any value left out is that of the built-in move; only attacks have frames other than their animation's
+        FrameData frameData = builtIn();
+        for (JsonValue move = json.child; move != null; move = move.next) {
+            Fighter.State state = null;
+            for (Fighter.State candidate : STATES) {
+                if (candidate.name().equalsIgnoreCase(move.name)) state = candidate;
+            }
+            if (state == null) {
+                throw new IllegalArgumentException("Unknown fighter state: " + move.name);
+            }
+            int index = state.ordinal();
+            float frameDuration = move.getFloat("frameDuration", frameData.frameDurations[index]);
+            if (frameDuration <= 0f) {
+                throw new IllegalArgumentException(move.name + " needs a positive frame duration");
+            }
+            if (!isAttack(state)) {
+                for (JsonValue value = move.child; value != null; value = value.next) {
+                    if (!value.name.equals("frameDuration")) {
+                        throw new IllegalArgumentException(move.name + " isn't an attack: " + value.name);
+                    }
+                }
+                frameData.set(state, frameDuration, 0, 0, Fighter.ANIMATION_FRAME_COUNT, 0f, 0f, 0f, 0f);
+                continue;
+            }
+            int startup = move.getInt("startup", frameData.startupFrames[index]);
+            int active = move.getInt("active", frameData.activeFrames[index]);
+            int recovery = move.getInt("recovery", frameData.frameCounts[index] - frameData.startupFrames[index] -
+                frameData.activeFrames[index]);
+            if (startup < 0 || active < 1 || recovery < 0) {
+                throw new IllegalArgumentException(move.name + " needs at least one active frame");
+            }
+            frameData.set(state, frameDuration, startup, active, startup + active + recovery,
+                move.getFloat("damage", frameData.damages[index]),
+                move.getFloat("blockDamage", frameData.blockDamages[index]),
+                move.getFloat("reachX", frameData.reachesX[index]), move.getFloat("reachY", frameData.reachesY[index]));
+        }
+        return frameData;
+    }
+
+    private void set(Fighter.State state, float frameDuration, int startup, int active, int frameCount, float damage,
+                     float blockDamage, float reachX, float reachY) {
+        int index = state.ordinal();
+        frameDurations[index] = frameDuration;
+        startupFrames[index] = startup;
+        activeFrames[index] = active;
+        frameCounts[index] = frameCount;
+        durations[index] = frameDuration * frameCount;
+        activeStarts[index] = frameDuration * startup;
+        activeEnds[index] = frameDuration * (startup + active);
+        damages[index] = damage;
+        blockDamages[index] = blockDamage;
+        reachesX[index] = reachX;
+        reachesY[index] = reachY;
+        maxDamage = 0f;
+        for (float stateDamage : damages) {
+            maxDamage = Math.max(maxDamage, stateDamage);
+        }
+    }
+
+    private static boolean isAttack(Fighter.State state) {
+        return state == Fighter.State.PUNCH || state == Fighter.State.KICK;
+    }
+
+    private static float getBuiltInFrameDuration(Fighter.State state) {
+        switch (state) {
+            case BLOCK:
+                return BLOCK_FRAME_DURATION;
+            case HURT:
+                return HURT_FRAME_DURATION;
+            case IDLE:
+                return IDLE_FRAME_DURATION;
+            case KICK:
+                return KICK_FRAME_DURATION;
+            case LOSE:
+                return LOSE_FRAME_DURATION;
+            case PUNCH:
+                return PUNCH_FRAME_DURATION;
+            case WALK:
+                return WALK_FRAME_DURATION;
+            default:
+                return WIN_FRAME_DURATION;
+        }
+    }
+}
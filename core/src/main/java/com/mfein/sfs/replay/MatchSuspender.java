@@ -0,0 +1,111 @@
+package com.mfein.sfs.replay;
+
+import com.mfein.sfs.resources.ErrorLog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a {@link SuspendedMatch} in a file, so a match paused when the app went into the background (or was closed)
+ * can be picked up again on the next launch, even if the app was killed in between. The match is copied on the calling
+ * thread, which only takes a couple of kilobytes; writing, reading and deleting the file are left to a background
+ * thread, in the order they were asked for. The file is written next to itself and then renamed over the old one, so
+ * being killed halfway through a write leaves the last complete match instead of a broken one.
+ */
+public class MatchSuspender {
+    private final File file;
+    private final File temporaryFile;
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "suspend-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MatchSuspender(File file) {
+        this.file = file;
+        temporaryFile = new File(file.getPath() + ".tmp");
+    }
+
+    public void suspend(SuspendedMatch match) {
+        // copy the match now, since it will have moved on by the time the file is written
+        ByteBuffer buffer = ByteBuffer.allocate(SuspendedMatch.MAX_SIZE);
+        match.write(buffer);
+        buffer.flip();
+        writer.execute(() -> write(buffer));
+    }
+
+    public void discard() {
+        // the match has been resumed or has ended, so there's nothing to pick up again
+        writer.execute(this::delete);
+    }
+
+    public Future<SuspendedMatch> load() {
+        // the suspended match, if there is one (null otherwise); it's read in the background, e.g. while assets load
+        return writer.submit(this::read);
+    }
+
+    public void dispose() {
+        // give the writer a moment to get the match to the file before the app exits
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(ByteBuffer buffer) {
+        try {
+            File directory = file.getAbsoluteFile().getParentFile();
+            if (directory != null && !directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Couldn't create " + directory);
+            }
+            try (FileChannel channel = new FileOutputStream(temporaryFile).getChannel()) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            if (!temporaryFile.renameTo(file) && !(file.delete() && temporaryFile.renameTo(file))) {
+                throw new IOException("Couldn't replace " + file);
+            }
+        } catch (IOException e) {
+            // the match just won't be resumable
+            ErrorLog.error("MatchSuspender", "Couldn't save the suspended match", e);
+        }
+    }
+
+    private void delete() {
+        if (file.exists() && !file.delete()) {
+            ErrorLog.error("MatchSuspender", "Couldn't delete " + file);
+        }
+    }
+
+    private SuspendedMatch read() {
+        if (!file.exists()) return null;
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(input.length(), SuspendedMatch.MAX_SIZE));
+            while (buffer.hasRemaining() && input.getChannel().read(buffer) >= 0) {
+                // read on
+            }
+            buffer.flip();
+            SuspendedMatch match = new SuspendedMatch();
+            match.read(buffer);
+            return match;
+        } catch (IOException | RuntimeException e) {
+            // a file that can't be read (e.g. from an older version) is no use, so start afresh
+            ErrorLog.error("MatchSuspender", "Couldn't read the suspended match", e);
+            delete();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.mfein.sfs.replay;
+
+import com.mfein.sfs.resources.GlobalVariables;
+import com.mfein.sfs.simulation.AiProfile;
+import com.mfein.sfs.simulation.FighterInput;
+import com.mfein.sfs.simulation.MatchSimulation;
+
+/**
+ * Everything the player did to a match before one of its updates, packed into an int: player's input, whether the
+ * round delay was skipped, whether the match was paused (which freezes the update), the difficulty, opponent's input
+ * (which is only ever set when opponent is played from outside the match, as on EXPERT), and whether it was (even on
+ * a difficulty whose AI could play it inside the match, when its AI runs on a thread of its own). Replaying the
+ * controls of every update in order plays the match out exactly as before.
+ */
+public final class ReplayControl {
+    public static final int ROUND_DELAY_SKIPPED = 1 << FighterInput.BITS;
+    public static final int PAUSED = 1 << (FighterInput.BITS + 1);
+    public static final int DIFFICULTY_SHIFT = FighterInput.BITS + 2;
+    public static final int DIFFICULTY_MASK = 0x7;
+    public static final int OPPONENT_INPUT_SHIFT = DIFFICULTY_SHIFT + 3;
+    public static final int OPPONENT_BY_INPUT = 1 << (OPPONENT_INPUT_SHIFT + FighterInput.BITS);
+
+    private static final GlobalVariables.Difficulty[] DIFFICULTIES = GlobalVariables.Difficulty.values();
+
+    private ReplayControl() {}
+
+    public static int of(int input, int opponentInput, boolean opponentByInput, boolean roundDelaySkipped,
+                         boolean paused, GlobalVariables.Difficulty difficulty) {
+        return input & FighterInput.MASK | (roundDelaySkipped ? ROUND_DELAY_SKIPPED : 0) | (paused ? PAUSED : 0) |
+            difficulty.ordinal() << DIFFICULTY_SHIFT | (opponentInput & FighterInput.MASK) << OPPONENT_INPUT_SHIFT |
+            (opponentByInput ? OPPONENT_BY_INPUT : 0);
+    }
+
+    public static int getInput(int control) {
+        return control & FighterInput.MASK;
+    }
+
+    public static int getOpponentInput(int control) {
+        return control >>> OPPONENT_INPUT_SHIFT & FighterInput.MASK;
+    }
+
+    public static GlobalVariables.Difficulty getDifficulty(int control) {
+        return DIFFICULTIES[control >>> DIFFICULTY_SHIFT & DIFFICULTY_MASK];
+    }
+
+    public static void apply(MatchSimulation simulation, int control, float stepTime) {
+        prepare(simulation, control);
+        simulation.setPlayerInput(getInput(control));
+        simulation.setOpponentInput(getOpponentInput(control));
+        simulation.update(stepTime);
+    }
+
+    public static void prepare(MatchSimulation simulation, int control) {
+        // do what the player did to the match before the update (the match is then as it was when it was recorded),
+        // but don't give it the input or update it yet
+        GlobalVariables.Difficulty difficulty = getDifficulty(control);
+        if (simulation.getDifficulty() != difficulty) {
+            simulation.setDifficulty(difficulty);
+        }
+        if ((control & OPPONENT_BY_INPUT) != 0) {
+            if (simulation.getOpponentAi() != null) {
+                simulation.setOpponentAiProfile(null);
+            }
+        } else if (simulation.getOpponentAi() == null) {
+            simulation.setOpponentAiProfile(AiProfile.forDifficulty(difficulty));
+        }
+        if ((control & PAUSED) != 0) {
+            if (simulation.isRunning()) {
+                simulation.pauseGame();
+            }
+        } else if (simulation.getGameState() == MatchSimulation.GameState.PAUSED) {
+            simulation.resumeGame();
+        }
+        if ((control & ROUND_DELAY_SKIPPED) != 0) {
+            simulation.skipRoundDelay();
+        }
+    }
+}
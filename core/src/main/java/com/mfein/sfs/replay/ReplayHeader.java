@@ -0,0 +1,66 @@
+package com.mfein.sfs.replay;
+
+import com.badlogic.gdx.graphics.Color;
+import com.mfein.sfs.net.Varint;
+import com.mfein.sfs.resources.GlobalVariables;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/** Everything needed to set a match up again before its inputs are replayed: the seed, difficulty and fighters. */
+public class ReplayHeader {
+    // "SFSR"
+    public static final int MAGIC = 0x53465352;
+    public static final int VERSION = 8;
+
+    private static final GlobalVariables.Difficulty[] DIFFICULTIES = GlobalVariables.Difficulty.values();
+
+    public long seed;
+    public int tickRate;
+    public GlobalVariables.Difficulty difficulty;
+    public String playerName;
+    public Color playerColor;
+    public String opponentName;
+    public Color opponentColor;
+
+    public void write(ByteBuffer buffer) {
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.putLong(seed);
+        Varint.put(buffer, tickRate);
+        buffer.put((byte) difficulty.ordinal());
+        putString(buffer, playerName);
+        buffer.putInt(Color.rgba8888(playerColor));
+        putString(buffer, opponentName);
+        buffer.putInt(Color.rgba8888(opponentColor));
+    }
+
+    public void read(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a replay");
+        }
+        int version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported replay version: " + version);
+        }
+        seed = buffer.getLong();
+        tickRate = Varint.get(buffer);
+        difficulty = DIFFICULTIES[buffer.get()];
+        playerName = getString(buffer);
+        playerColor = new Color(buffer.getInt());
+        opponentName = getString(buffer);
+        opponentColor = new Color(buffer.getInt());
+    }
+
+    private static void putString(ByteBuffer buffer, String string) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        Varint.put(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Varint.get(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,212 @@
+package com.mfein.sfs.replay;
+
+import com.mfein.sfs.objects.Fighter;
+import com.mfein.sfs.simulation.MatchListener;
+import com.mfein.sfs.simulation.MatchSimulation;
+import com.mfein.sfs.simulation.MatchSnapshot;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Plays a replay file back into its own {@link MatchSimulation}, and seeks to any tick of it. The file is memory
+ * mapped rather than read in, and its keyframes are indexed once when it's opened; a seek restores the last keyframe
+ * at or before the tick and replays the updates from there, so it never replays more than a keyframe interval,
+ * however long the recording is. While playing, the match's state hash is checked against the hashes recorded with
+ * it; a mismatch means the simulation doesn't play out the way it did when it was recorded.
+ */
+public class ReplayPlayer implements Closeable {
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final ReplayReader reader;
+    private final MatchSimulation simulation;
+    private final float stepTime;
+    private final MatchSnapshot snapshot = new MatchSnapshot();
+    private final MatchListener silentListener = new MatchListener() {};
+    private MatchListener listener = silentListener;
+
+    // keyframe index
+    private int keyframeCount;
+    private int[] keyframeTicks = new int[16];
+    private int[] keyframeControls = new int[16];
+    private int[] keyframePositions = new int[16];
+    private long[] keyframeUpdates = new long[16];
+    private final int endTick;
+    private final long updateCount;
+
+    // hash checks
+    private long hashesChecked;
+    private int firstMismatchTick = -1;
+
+    public ReplayPlayer(File replayFile) throws IOException {
+        file = new RandomAccessFile(replayFile, "r");
+        buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+        reader = new ReplayReader(buffer);
+
+        // set the match up the way it was recorded
+        simulation = createSimulation();
+        stepTime = 1f / reader.getHeader().tickRate;
+
+        // go through the whole replay once, without simulating it, to index the keyframes
+        while (reader.hasNext()) {
+            reader.next();
+            if (reader.getKeyframesRead() > keyframeCount) {
+                addKeyframe();
+            }
+        }
+        updateCount = reader.getUpdates();
+        if (keyframeCount == 0) {
+            throw new IOException("Replay has no keyframes: " + replayFile);
+        }
+
+        // find the last tick by playing on from the last keyframe, then go back to the start
+        seek(Integer.MAX_VALUE);
+        endTick = simulation.getTick();
+        seek(0);
+        resetHashChecks();
+    }
+
+    private void addKeyframe() {
+        if (keyframeCount == keyframeTicks.length) {
+            int length = keyframeCount * 2;
+            keyframeTicks = Arrays.copyOf(keyframeTicks, length);
+            keyframeControls = Arrays.copyOf(keyframeControls, length);
+            keyframePositions = Arrays.copyOf(keyframePositions, length);
+            keyframeUpdates = Arrays.copyOf(keyframeUpdates, length);
+        }
+        keyframeTicks[keyframeCount] = reader.getKeyframeTick();
+        keyframeControls[keyframeCount] = reader.getKeyframeControl();
+        keyframePositions[keyframeCount] = reader.getKeyframePosition();
+        keyframeUpdates[keyframeCount] = reader.getKeyframeUpdate();
+        keyframeCount++;
+    }
+
+    public ReplayHeader getHeader() {
+        return reader.getHeader();
+    }
+
+    public MatchSimulation createSimulation() {
+        // a new match set up like the recorded one, e.g. to restore a keyframe into
+        ReplayHeader header = reader.getHeader();
+        MatchSimulation simulation = new MatchSimulation(new Fighter(header.playerName, header.playerColor),
+            new Fighter(header.opponentName, header.opponentColor));
+        simulation.setDifficulty(header.difficulty);
+        return simulation;
+    }
+
+    public MatchSimulation getSimulation() {
+        return simulation;
+    }
+
+    public void setListener(MatchListener listener) {
+        // told about hits, blood and rounds while playing, but not while seeking
+        this.listener = listener;
+    }
+
+    public int getKeyframeCount() {
+        return keyframeCount;
+    }
+
+    public int getKeyframeTick(int index) {
+        return keyframeTicks[index];
+    }
+
+    public void readKeyframe(int index, MatchSnapshot snapshot) {
+        // the match as it was recorded before the keyframe's tick
+        buffer.position(keyframePositions[index]);
+        snapshot.readFrom(buffer);
+    }
+
+    public long getHashesChecked() {
+        return hashesChecked;
+    }
+
+    public int getFirstMismatchTick() {
+        // the first tick whose recorded hash didn't match the match played back (-1 if none has)
+        return firstMismatchTick;
+    }
+
+    public void resetHashChecks() {
+        hashesChecked = 0;
+        firstMismatchTick = -1;
+    }
+
+    public int getEndTick() {
+        return endTick;
+    }
+
+    public long getUpdateCount() {
+        return updateCount;
+    }
+
+    public boolean isFinished() {
+        return !reader.hasNext();
+    }
+
+    public boolean step() {
+        // play the next update, if there is one
+        if (!reader.hasNext()) return false;
+        play();
+        return true;
+    }
+
+    private void play() {
+        // do what the player did before the update, then check the match against the hash recorded at that point (if
+        // there was one) before updating it
+        int hashesRead = reader.getHashesRead();
+        int control = reader.next();
+        ReplayControl.prepare(simulation, control);
+        if (reader.getHashesRead() > hashesRead) {
+            hashesChecked++;
+            if (simulation.getStateHash() != reader.getHash() &&
+                (firstMismatchTick < 0 || reader.getHashTick() < firstMismatchTick)) {
+                firstMismatchTick = reader.getHashTick();
+            }
+        }
+        simulation.setPlayerInput(ReplayControl.getInput(control));
+        simulation.setOpponentInput(ReplayControl.getOpponentInput(control));
+        simulation.update(stepTime);
+    }
+
+    public void seek(int tick) {
+        // find the last keyframe at or before the tick
+        int low = 0;
+        int high = keyframeCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (keyframeTicks[middle] <= tick) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        // restore it, with the difficulty and opponent's AI set up as they were when it was written (the first
+        // keyframe comes before any control, so the match is set up as it started), and replay the updates up to the
+        // tick, silently
+        buffer.position(keyframePositions[low]);
+        snapshot.readFrom(buffer);
+        reader.seek(keyframePositions[low], keyframeControls[low], keyframeUpdates[low]);
+        simulation.setListener(silentListener);
+        if (low == 0) {
+            simulation.setDifficulty(reader.getHeader().difficulty);
+        } else {
+            ReplayControl.prepare(simulation, keyframeControls[low]);
+        }
+        simulation.restore(snapshot);
+        while (simulation.getTick() < tick && reader.hasNext()) {
+            play();
+        }
+        simulation.setListener(listener);
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,122 @@
+package com.mfein.sfs.replay;
+
+import com.mfein.sfs.net.Varint;
+import com.mfein.sfs.simulation.MatchSnapshot;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads back a replay written by a {@link ReplayRecorder}: its header, then the control of each update in turn.
+ * Keyframes and hashes are skipped over, but the last of each passed is remembered, so a {@link ReplayPlayer} can
+ * index the keyframes and check the hashes.
+ */
+public class ReplayReader {
+    private final ByteBuffer buffer;
+    private final ReplayHeader header = new ReplayHeader();
+
+    // current run
+    private int control;
+    private int runLeft;
+    private long updates;
+
+    // last keyframe passed
+    private int keyframesRead;
+    private int keyframeTick;
+    private int keyframeControl;
+    private int keyframePosition;
+    private long keyframeUpdate;
+
+    // last hash passed
+    private int hashesRead;
+    private int hashTick;
+    private long hash;
+
+    public ReplayReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+        header.read(buffer);
+    }
+
+    public ReplayHeader getHeader() {
+        return header;
+    }
+
+    public boolean hasNext() {
+        // every keyframe is followed by a run, so anything left in the buffer means there's another update
+        return runLeft > 0 || buffer.hasRemaining();
+    }
+
+    public int next() {
+        // start the next run once the current one has been used up, passing any keyframes on the way
+        while (runLeft == 0) {
+            int entry = Varint.get(buffer);
+            switch (entry & ReplayRecorder.TAG_MASK) {
+                case ReplayRecorder.KEYFRAME:
+                    keyframesRead++;
+                    keyframeTick = Varint.get(buffer);
+                    keyframeControl = control = Varint.get(buffer);
+                    keyframePosition = buffer.position();
+                    keyframeUpdate = updates;
+                    buffer.position(keyframePosition + MatchSnapshot.SIZE);
+                    break;
+                case ReplayRecorder.HASH:
+                    hashesRead++;
+                    hashTick = Varint.get(buffer);
+                    hash = buffer.getLong();
+                    break;
+                default:
+                    control ^= entry >>> ReplayRecorder.TAG_BITS;
+                    runLeft = Varint.get(buffer);
+            }
+        }
+        runLeft--;
+        updates++;
+        return control;
+    }
+
+    public long getUpdates() {
+        // updates read so far
+        return updates;
+    }
+
+    public void seek(int keyframePosition, int keyframeControl, long keyframeUpdate) {
+        // carry on reading right after a keyframe, as if it had just been passed
+        buffer.position(keyframePosition + MatchSnapshot.SIZE);
+        control = keyframeControl;
+        runLeft = 0;
+        updates = keyframeUpdate;
+    }
+
+    public int getHashesRead() {
+        return hashesRead;
+    }
+
+    public int getHashTick() {
+        return hashTick;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    public int getKeyframesRead() {
+        return keyframesRead;
+    }
+
+    public int getKeyframeTick() {
+        return keyframeTick;
+    }
+
+    public int getKeyframeControl() {
+        return keyframeControl;
+    }
+
+    public int getKeyframePosition() {
+        // position of the keyframe's snapshot in the buffer
+        return keyframePosition;
+    }
+
+    public long getKeyframeUpdate() {
+        // updates before the keyframe
+        return keyframeUpdate;
+    }
+}
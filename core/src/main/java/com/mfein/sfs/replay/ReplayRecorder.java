@@ -0,0 +1,251 @@
+package com.mfein.sfs.replay;
+
+import com.mfein.sfs.net.Varint;
+import com.mfein.sfs.resources.ErrorLog;
+import com.mfein.sfs.simulation.MatchSimulation;
+import com.mfein.sfs.simulation.MatchSnapshot;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records a match as a {@link ReplayHeader} followed by the {@link ReplayControl}s of its updates. The controls are
+ * run-length encoded: each run is the control XORed with the previous run's (so a single key press is a single bit),
+ * then the number of updates it lasted, both as varints. Every {@link #KEYFRAME_INTERVAL} ticks, a keyframe with a
+ * full {@link MatchSnapshot} is put between the runs, so a {@link ReplayPlayer} can seek without replaying the match
+ * from the start, and every {@link #HASH_INTERVAL} ticks, the match's state hash, so playback can tell if it has
+ * drifted from the recording. Entries go into one of two preallocated buffers; a full buffer is written to the file by a
+ * background thread while the other fills up, so recording doesn't block the render thread or allocate per update.
+ *
+ * <pre>
+ * header, entries...
+ * run:      control delta << 2, run length
+ * keyframe: 1, tick, control, snapshot
+ * hash:     2, tick, state hash
+ * </pre>
+ */
+public class ReplayRecorder {
+    public static final int BUFFER_SIZE = 16 * 1024;
+    public static final int KEYFRAME_INTERVAL = 1800;
+    public static final int HASH_INTERVAL = 60;
+
+    // entry tags (the lowest two bits of an entry's first varint)
+    static final int RUN = 0;
+    static final int KEYFRAME = 1;
+    static final int HASH = 2;
+    static final int TAG_BITS = 2;
+    static final int TAG_MASK = (1 << TAG_BITS) - 1;
+    static final int KEYFRAME_SIZE = 3 * Varint.MAX_SIZE + MatchSnapshot.SIZE;
+    static final int HASH_SIZE = 2 * Varint.MAX_SIZE + 8;
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replay-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // the buffer being filled, and the one being written (if any)
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private ByteBuffer writtenBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private Future<?> pendingWrite;
+
+    // only touched by the writer thread
+    private FileChannel channel;
+
+    // keyframes
+    private final MatchSnapshot snapshot = new MatchSnapshot();
+    private int nextKeyframeTick;
+    private int nextHashTick;
+
+    // current run
+    private boolean recording;
+    private int previousControl;
+    private int control;
+    private int runLength;
+    private long updates;
+
+    public boolean isRecording() {
+        return recording;
+    }
+
+    public long getUpdates() {
+        return updates;
+    }
+
+    public void start(File file, ReplayHeader header) {
+        if (recording) {
+            finish();
+        }
+
+        // open the file in the background, and start the recording with the header
+        writer.execute(() -> open(file));
+        buffer.clear();
+        header.write(buffer);
+        previousControl = control = 0;
+        runLength = 0;
+        updates = 0;
+        nextKeyframeTick = 0;
+        nextHashTick = 0;
+        recording = true;
+    }
+
+    public void record(MatchSimulation simulation, int control) {
+        // called before each update of the simulation, with what the player did since the last one
+        if (!recording) return;
+        updates++;
+
+        // write a keyframe of the match as it is before this update, every so often
+        if (simulation.getTick() >= nextKeyframeTick) {
+            writeKeyframe(simulation);
+            nextKeyframeTick = simulation.getTick() + KEYFRAME_INTERVAL;
+        }
+
+        // and its state hash, more often
+        if (simulation.getTick() >= nextHashTick) {
+            writeHash(simulation);
+            nextHashTick = simulation.getTick() + HASH_INTERVAL;
+        }
+
+        // extend the current run, or end it and start a new one
+        if (runLength > 0 && control != this.control) {
+            writeRun();
+        }
+        this.control = control;
+        runLength++;
+    }
+
+    public void finish() {
+        if (!recording) return;
+        recording = false;
+
+        // write the last run and whatever is left in the buffer, then close the file
+        if (runLength > 0) {
+            writeRun();
+        }
+        writeBuffer();
+        writer.execute(this::close);
+    }
+
+    public void dispose() {
+        // finish the recording and give the writer a moment to get it to the file before the app exits
+        finish();
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeRun() {
+        if (buffer.remaining() < 2 * Varint.MAX_SIZE) {
+            writeBuffer();
+        }
+        Varint.put(buffer, (control ^ previousControl) << TAG_BITS | RUN);
+        Varint.put(buffer, runLength);
+        previousControl = control;
+        runLength = 0;
+    }
+
+    private void writeKeyframe(MatchSimulation simulation) {
+        // end the current run, so playback can start right after the keyframe with the control it holds
+        if (runLength > 0) {
+            writeRun();
+        }
+        if (buffer.remaining() < KEYFRAME_SIZE) {
+            writeBuffer();
+        }
+        simulation.save(snapshot);
+        Varint.put(buffer, KEYFRAME);
+        Varint.put(buffer, simulation.getTick());
+        Varint.put(buffer, previousControl);
+        snapshot.writeTo(buffer);
+    }
+
+    private void writeHash(MatchSimulation simulation) {
+        // like a keyframe, the hash goes between runs, so it's checked right before the update it was taken before
+        if (runLength > 0) {
+            writeRun();
+        }
+        if (buffer.remaining() < HASH_SIZE) {
+            writeBuffer();
+        }
+        Varint.put(buffer, HASH);
+        Varint.put(buffer, simulation.getTick());
+        buffer.putLong(simulation.getStateHash());
+    }
+
+    public void flush() {
+        // write the runs recorded so far (e.g. in case the app is killed while in the background)
+        if (recording) {
+            writeBuffer();
+        }
+    }
+
+    private void writeBuffer() {
+        // wait for the previous buffer to be written (it has almost always been by now), then swap the buffers and
+        // write the full one
+        awaitPendingWrite();
+        ByteBuffer full = buffer;
+        buffer = writtenBuffer;
+        writtenBuffer = full;
+        buffer.clear();
+        full.flip();
+        pendingWrite = writer.submit(() -> write(full));
+    }
+
+    private void awaitPendingWrite() {
+        if (pendingWrite == null) return;
+        try {
+            pendingWrite.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            ErrorLog.error("ReplayRecorder", "Couldn't write the replay", e.getCause());
+        }
+        pendingWrite = null;
+    }
+
+    private void open(File file) {
+        try {
+            File directory = file.getParentFile();
+            if (directory != null && !directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Couldn't create " + directory);
+            }
+            channel = new FileOutputStream(file).getChannel();
+        } catch (IOException e) {
+            // carry on without a file; the match can still be played
+            ErrorLog.error("ReplayRecorder", "Couldn't create the replay file", e);
+            channel = null;
+        }
+    }
+
+    private void write(ByteBuffer full) {
+        if (channel == null) return;
+        try {
+            while (full.hasRemaining()) {
+                channel.write(full);
+            }
+        } catch (IOException e) {
+            ErrorLog.error("ReplayRecorder", "Couldn't write the replay", e);
+        }
+    }
+
+    private void close() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            ErrorLog.error("ReplayRecorder", "Couldn't close the replay file", e);
+        }
+        channel = null;
+    }
+}
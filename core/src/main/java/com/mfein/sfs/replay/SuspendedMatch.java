@@ -0,0 +1,60 @@
+package com.mfein.sfs.replay;
+
+import com.mfein.sfs.simulation.MatchSimulation;
+import com.mfein.sfs.simulation.MatchSnapshot;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A match put aside in the middle, to be picked up again where it was left: how it was set up (a {@link ReplayHeader}),
+ * the speed it was played at and a {@link MatchSnapshot} of its state.
+ *
+ * <pre>
+ * magic, version, header, time scale, snapshot
+ * </pre>
+ */
+public class SuspendedMatch {
+    // "SFSM"
+    public static final int MAGIC = 0x5346534D;
+    public static final int VERSION = 3;
+
+    // room for the header's fighter names, which are the only parts that vary in size
+    public static final int MAX_SIZE = 1024 + MatchSnapshot.SIZE;
+
+    public final ReplayHeader header = new ReplayHeader();
+    public final MatchSnapshot snapshot = new MatchSnapshot();
+    public float timeScale = 1f;
+
+    public void set(MatchSimulation simulation, ReplayHeader header, float timeScale) {
+        this.header.seed = header.seed;
+        this.header.tickRate = header.tickRate;
+        this.header.difficulty = simulation.getDifficulty();
+        this.header.playerName = header.playerName;
+        this.header.playerColor = header.playerColor;
+        this.header.opponentName = header.opponentName;
+        this.header.opponentColor = header.opponentColor;
+        this.timeScale = timeScale;
+        simulation.save(snapshot);
+    }
+
+    public void write(ByteBuffer buffer) {
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        header.write(buffer);
+        buffer.putFloat(timeScale);
+        snapshot.writeTo(buffer);
+    }
+
+    public void read(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a suspended match");
+        }
+        int version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported suspended match version: " + version);
+        }
+        header.read(buffer);
+        timeScale = buffer.getFloat();
+        snapshot.readFrom(buffer);
+    }
+}
@@ -0,0 +1,37 @@
+package com.mfein.sfs.resources;
+
+import com.badlogic.gdx.ApplicationLogger;
+import com.badlogic.gdx.Gdx;
+
+/**
+ * Where the game reports errors it carries on past, like a replay or suspended match that couldn't be saved.
+ * They go to the app log, or to the logger set here by a headless tool or server that has no app.
+ */
+public final class ErrorLog {
+    // null to use the app's logger
+    private static volatile ApplicationLogger logger;
+
+    private ErrorLog() {
+    }
+
+    public static void setLogger(ApplicationLogger logger) {
+        ErrorLog.logger = logger;
+    }
+
+    public static void error(String tag, String message) {
+        ApplicationLogger current = logger;
+        if (current != null) current.error(tag, message);
+        else if (Gdx.app != null) Gdx.app.error(tag, message);
+        else System.err.println("[" + tag + "] " + message); // headless with no logger set
+    }
+
+    public static void error(String tag, String message, Throwable exception) {
+        ApplicationLogger current = logger;
+        if (current != null) current.error(tag, message, exception);
+        else if (Gdx.app != null) Gdx.app.error(tag, message, exception);
+        else {
+            System.err.println("[" + tag + "] " + message);
+            exception.printStackTrace();
+        }
+    }
+}
@@ -13,14 +13,21 @@ public class GlobalVariables {
     public static final float MIN_WORLD_HEIGHT = WORLD_HEIGHT * 0.85f;
     public static final float WORLD_SCALE = 0.05F;
 
+    // simulation
+    public static final int DEFAULT_TICK_RATE = 60;
+    public static final int MIN_TICK_RATE = 30;
+    public static final int MAX_TICK_RATE = 240;
+
     // colors
     public static final Color GOLD = new Color(0.94f, 0.85f, 0.32f, 1f);
     public static final Color BLUE_BACKGROUND = new Color(0.25f, 0.42f, 0.61f, 1f);
 
-    // game
+    // game (difficulties are stored by ordinal in replays and settings, so new ones go at the end)
     public enum Difficulty {
         EASY,
         MEDIUM,
-        HARD
+        HARD,
+        EXPERT,
+        ADAPTIVE
     }
 }
@@ -2,6 +2,7 @@ package com.mfein.sfs.resources;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Preferences;
+import com.badlogic.gdx.math.MathUtils;
 
 public class SettingsManager {
 
@@ -12,11 +13,13 @@ public class SettingsManager {
     private static final String DIFFICULTY_SETTING = "difficulty";
     private static final String IS_BLOOD_ON = "isBloodOn";
     private static final String IS_FULL_SCREEN_ON = "isFullScreenOn";
+    private static final String TICK_RATE_SETTING = "tickRate";
     private boolean musicSettingOn = true;
     private boolean soundsSettingOn = true;
     private  GlobalVariables.Difficulty difficultySetting = GlobalVariables.Difficulty.EASY;
     private boolean bloodSettingOn = true;
     private boolean fullScreenSettingOn = false;
+    private int tickRateSetting = GlobalVariables.DEFAULT_TICK_RATE;
 
     // preferences
     private final Preferences prefs = Gdx.app.getPreferences("sfs.prefs");
@@ -32,12 +35,20 @@ public class SettingsManager {
             case 1:
                 difficultySetting = GlobalVariables.Difficulty.MEDIUM;
                 break;
+            case 3:
+                difficultySetting = GlobalVariables.Difficulty.EXPERT;
+                break;
+            case 4:
+                difficultySetting = GlobalVariables.Difficulty.ADAPTIVE;
+                break;
             default:
                 difficultySetting = GlobalVariables.Difficulty.HARD;
 
         }
         bloodSettingOn = prefs.getBoolean(IS_BLOOD_ON, true);
         fullScreenSettingOn = prefs.getBoolean(IS_FULL_SCREEN_ON, false);
+        tickRateSetting = MathUtils.clamp(prefs.getInteger(TICK_RATE_SETTING, GlobalVariables.DEFAULT_TICK_RATE),
+            GlobalVariables.MIN_TICK_RATE, GlobalVariables.MAX_TICK_RATE);
     }
 
     public void toggleMusicSetting(boolean on) {
@@ -76,6 +87,12 @@ public class SettingsManager {
                     break;
                 case HARD:
                     difficultyInt = 2;
+                    break;
+                case EXPERT:
+                    difficultyInt = 3;
+                    break;
+                case ADAPTIVE:
+                    difficultyInt = 4;
             }
             prefs.putInteger(DIFFICULTY_SETTING, difficultyInt).flush();
         }
@@ -107,4 +124,17 @@ public class SettingsManager {
     public boolean isFullScreenSettingOn() {
         return fullScreenSettingOn;
     }
+
+    public void setTickRateSetting(int tickRate) {
+        // if the new setting is different, update it
+        tickRate = MathUtils.clamp(tickRate, GlobalVariables.MIN_TICK_RATE, GlobalVariables.MAX_TICK_RATE);
+        if (tickRateSetting != tickRate) {
+            tickRateSetting = tickRate;
+            prefs.putInteger(TICK_RATE_SETTING, tickRate).flush();
+        }
+    }
+
+    public int getTickRateSetting() {
+        return tickRateSetting;
+    }
 }
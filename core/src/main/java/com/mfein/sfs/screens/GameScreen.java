@@ -8,51 +8,65 @@ import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
-import com.badlogic.gdx.math.MathUtils;
-import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.Align;
 import com.badlogic.gdx.utils.ScreenUtils;
 import com.badlogic.gdx.utils.viewport.ExtendViewport;
 import com.mfein.sfs.SFS;
-import com.mfein.sfs.objects.BloodPool;
+import com.mfein.sfs.objects.BloodPoolRenderer;
 import com.mfein.sfs.objects.BloodSplatter;
 import com.mfein.sfs.objects.Fighter;
+import com.mfein.sfs.objects.FighterRenderer;
+import com.mfein.sfs.replay.ReplayControl;
+import com.mfein.sfs.replay.ReplayHeader;
+import com.mfein.sfs.replay.ReplayRecorder;
+import com.mfein.sfs.replay.SuspendedMatch;
 import com.mfein.sfs.resources.Assets;
 import com.mfein.sfs.resources.GlobalVariables;
-
+import com.mfein.sfs.simulation.AiProfile;
+import com.mfein.sfs.simulation.AsyncOpponentAi;
+import com.mfein.sfs.simulation.ExpertOpponent;
+import com.mfein.sfs.simulation.FighterInput;
+import com.mfein.sfs.simulation.FixedTimestep;
+import com.mfein.sfs.simulation.MatchListener;
+import com.mfein.sfs.simulation.MatchRandom;
+import com.mfein.sfs.simulation.MatchSimulation;
+
+import java.util.Date;
 import java.util.Locale;
 
-public class GameScreen implements Screen, InputProcessor {
+public class GameScreen implements Screen, InputProcessor, MatchListener {
     private final SFS game;
 
     private final ExtendViewport viewport;
 
-    // game
-    private enum GameState {
-        RUNNING,
-        PAUSED,
-        GAME_OVER
-    }
-    private GameState gameState;
-    private GlobalVariables.Difficulty difficulty = GlobalVariables.Difficulty.EASY;
-
-    // rounds
-    private enum RoundState {
-        STARTING,
-        IN_PROGRESS,
-        ENDING
-    }
-    private RoundState roundState;
-    private float roundStateTime;
-    private static final float START_ROUND_DELAY = 2f;
-    private static final float END_ROUND_DELAY = 2f;
-    private int currentRound;
-    private static final int MAX_ROUNDS = 3;
-    private int roundsWon = 0, roundsLost = 0;
+    // match
+    private final MatchSimulation simulation;
+    private final FixedTimestep timestep;
+    private long matchSeed = MatchRandom.newSeed();
+
+    // opponent on EXPERT, which plans on its own thread (created the first time it's needed)
+    private ExpertOpponent expertOpponent;
+
+    // opponent on the other difficulties, whose AI decides on its own thread if its profile says so (also created the
+    // first time it's needed), and the profile it decides with (null while the AI decides in the match)
+    private AsyncOpponentAi asyncOpponentAi;
+    private AiProfile asyncOpponentProfile;
+
+    // player's input: the buttons currently held, plus any pressed since the last update (so a quick tap isn't missed)
+    private int heldInput;
+    private int pressedInput;
 
-    private static final float MAX_ROUND_TIME = 99.99f;
-    private float roundTimer = MAX_ROUND_TIME;
+    // replay of the current match
+    private static final String REPLAY_DIRECTORY = "replays/";
+    private final ReplayRecorder replayRecorder = new ReplayRecorder();
+    private final ReplayHeader replayHeader = new ReplayHeader();
+    private boolean roundDelaySkipped;
+
+    // suspended match: the one being written when the app is paused, and the one to resume on the next show
+    private final SuspendedMatch suspendedMatch = new SuspendedMatch();
+    private boolean matchSuspended;
+    private SuspendedMatch matchToResume;
 
     private static final float CRITICAL_ROUND_TIME = 10f;
     private static final Color CRITICAL_ROUND_TIME_COLOR = Color.RED;
@@ -69,18 +83,8 @@ public class GameScreen implements Screen, InputProcessor {
     private Texture backgroundTexture;
     private Texture frontRopesTexture;
 
-    private static final float RING_MIN_X = 7f;
-    private static final float RING_MAX_X = 60f;
-    private static final float RING_MIN_Y = 4f;
-    private static final float RING_MAX_Y = 22f;
-    private static final float RING_SLOPE = 3.16f;
-
     // fighters
-    private static final float PLAYER_START_POSITION_X = 16f;
-    private static final float OPPONENT_START_POSITION_X = 51f;
-    private static final float FIGHTER_START_POSITION_Y = 15f;
-    private static final float FIGHTER_CONTACT_DISTANCE_X = 7.5f;
-    private static final float FIGHTER_CONTACT_DISTANCE_Y = 1.5f;
+    private final FighterRenderer fighterRenderer;
 
     // buttons
     private Sprite playAgainButtonSprite;
@@ -89,33 +93,13 @@ public class GameScreen implements Screen, InputProcessor {
     private Sprite pauseButtonSprite;
     private static final float PAUSE_BUTTON_MARGIN = 1.5f;
 
-    // opponent AI
-    private float opponentAiTimer;
-    private boolean opponentAIMakingContactDecision;
-    private static final float OPPONENT_AI_CONTACT_DECISION_DELAY_EASY = 0.1f;
-    private static final float OPPONENT_AI_CONTACT_DECISION_DELAY_MEDIUM = 0.07f;
-    private static final float OPPONENT_AI_CONTACT_DECISION_DELAY_HARD = 0.01f;
-    private static final float OPPONENT_AI_BLOCK_CHANCE = 0.4f;
-    private static final float OPPONENT_AI_ATTACK_CHANCE = 0.8f;
-    private static final float OPPONENT_AI_NON_CONTACT_DECISION_DELAY = 0.5f;
-    private boolean opponentAiPursuingPlayer;
-    public static final float OPPONENT_AI_PURSUE_PLAYER_CHANCE_EASY = 0.2f;
-    public static final float OPPONENT_AI_PURSUE_PLAYER_CHANCE_MEDIUM = 0.5f;
-    public static final float OPPONENT_AI_PURSUE_PLAYER_CHANCE_HARD = 1f;
-
-
     // blood
     private boolean showingBlood = true;
     private BloodSplatter[] playerBloodSplatters;
     private BloodSplatter[] opponentBloodSplatters;
-    private int currentPlayerBloodSplatterIndex;
-    private int currentOpponentBloodSplatterIndex;
-    private static final int BLOOD_SPLATTER_AMOUNT = 5;
     private static final float BLOOD_SPLATTER_OFFSET_X = 2.8f;
     private static final float BLOOD_SPLATTER_OFFSET_Y = 11f;
-    private BloodPool[] bloodPools;
-    private int currentBloodPoolIndex;
-    private static final int BLOOD_POOL_AMOUNT = 100;
+    private BloodPoolRenderer bloodPoolRenderer;
 
 
     public GameScreen(SFS game) {
@@ -125,9 +109,19 @@ public class GameScreen implements Screen, InputProcessor {
         viewport = new ExtendViewport(GlobalVariables.WORLD_WIDTH, GlobalVariables.MIN_WORLD_HEIGHT ,
             GlobalVariables.WORLD_WIDTH,0 );
 
+        // set up the match
+        simulation = new MatchSimulation(game.player, game.opponent);
+        simulation.setListener(this);
+
+        // run the match at a fixed tick rate, independent of the frame rate
+        timestep = new FixedTimestep(game.settingsManager.getTickRateSetting());
+
         // create the game area
         createGameArea();
 
+        // set up the fighter animations
+        fighterRenderer = new FighterRenderer(game);
+
         // set up the fonts
         setUpFonts();
 
@@ -192,25 +186,15 @@ public class GameScreen implements Screen, InputProcessor {
 
     private void createBlood() {
         // initialize the blood splatters
-        playerBloodSplatters = new BloodSplatter[BLOOD_SPLATTER_AMOUNT];
-        opponentBloodSplatters = new BloodSplatter[BLOOD_SPLATTER_AMOUNT];
-        for (int i = 0; i < BLOOD_SPLATTER_AMOUNT; i++) {
+        playerBloodSplatters = new BloodSplatter[MatchSimulation.BLOOD_SPLATTER_AMOUNT];
+        opponentBloodSplatters = new BloodSplatter[MatchSimulation.BLOOD_SPLATTER_AMOUNT];
+        for (int i = 0; i < MatchSimulation.BLOOD_SPLATTER_AMOUNT; i++) {
             playerBloodSplatters[i] = new BloodSplatter(game);
             opponentBloodSplatters[i] = new BloodSplatter(game);
         }
 
-        // set the current blood splatter indexes to the start of the arrays
-        currentPlayerBloodSplatterIndex = 0;
-        currentOpponentBloodSplatterIndex = 0;
-
-        // initialize the blood pools
-        bloodPools = new BloodPool[BLOOD_POOL_AMOUNT];
-        for (int i = 0; i < BLOOD_POOL_AMOUNT; i++) {
-            bloodPools[i] = new BloodPool(game);
-        }
-
-        // set the current blood pool index to the start of the array
-        currentBloodPoolIndex = 0;
+        // initialize the blood pool renderer (the blood pools themselves are part of the match)
+        bloodPoolRenderer = new BloodPoolRenderer(game);
     }
 
     @Override
@@ -218,27 +202,115 @@ public class GameScreen implements Screen, InputProcessor {
         // process user input
         Gdx.input.setInputProcessor(this);
 
-        // get the difficulty setting from the settings manager
-        difficulty = game.settingsManager.getDifficultySetting();
-
         // get the blood setting from the settings manager
         showingBlood = game.settingsManager.isBloodSettingOn();
 
+        // pick the suspended match up again, if there is one
+        if (matchToResume != null) {
+            restoreSuspendedMatch();
+            return;
+        }
+
+        // get the difficulty setting from the settings manager
+        simulation.setDifficulty(game.settingsManager.getDifficultySetting());
+
         // start the game
         startGame();
     }
 
+    public void resumeSuspendedMatch(SuspendedMatch match) {
+        // show the given match instead of starting a new one, the next time the screen is shown
+        matchToResume = match;
+    }
+
+    private void restoreSuspendedMatch() {
+        SuspendedMatch match = matchToResume;
+        matchToResume = null;
+
+        // set the match up the way it was, and put it back exactly where it was left, still paused
+        game.player.setName(match.header.playerName);
+        game.player.setColor(match.header.playerColor);
+        game.opponent.setName(match.header.opponentName);
+        game.opponent.setColor(match.header.opponentColor);
+        simulation.setDifficulty(match.header.difficulty);
+        matchSeed = match.header.seed;
+        simulation.restore(match.snapshot);
+        simulation.pauseGame();
+        resetOpponentThreads();
+        timestep.reset();
+        timestep.setTimeScale(match.timeScale);
+        matchSuspended = true;
+
+        // the rest of the match goes into a new replay, which starts with a keyframe of where it was picked up
+        startRecording();
+
+        // the music stays paused with the match
+        game.audioManager.pauseMusic();
+    }
+
+    private void suspendMatch() {
+        // keep the paused match in a file, in case the app doesn't come back
+        suspendedMatch.set(simulation, replayHeader, timestep.getTimeScale());
+        game.matchSuspender.suspend(suspendedMatch);
+        matchSuspended = true;
+    }
+
+    private void discardSuspendedMatch() {
+        // the match has moved on from where it was suspended, so it shouldn't be picked up there again
+        if (matchSuspended) {
+            game.matchSuspender.discard();
+            matchSuspended = false;
+        }
+    }
+
+    public void setMatchSeed(long matchSeed) {
+        // set the seed for the next game, so it can be reproduced
+        this.matchSeed = matchSeed;
+    }
+
     private void startGame() {
-        gameState = GameState.RUNNING;
-        roundsWon = roundsLost = 0;
+        simulation.startGame(matchSeed);
+        timestep.reset();
+        resetOpponentThreads();
+        startRecording();
+    }
 
-        // start round 1
-        currentRound = 1;
-        startRound();
+    private void startRecording() {
+        // record the match from the start, along with everything needed to set it up again
+        replayHeader.seed = matchSeed;
+        replayHeader.tickRate = timestep.getTickRate();
+        replayHeader.difficulty = simulation.getDifficulty();
+        replayHeader.playerName = simulation.getPlayer().getName();
+        replayHeader.playerColor = simulation.getPlayer().getColor();
+        replayHeader.opponentName = simulation.getOpponent().getName();
+        replayHeader.opponentColor = simulation.getOpponent().getColor();
+        String fileName = String.format(Locale.ROOT, "replay-%tY%<tm%<td-%<tH%<tM%<tS.sfsr", new Date());
+        replayRecorder.start(Gdx.files.local(REPLAY_DIRECTORY + fileName).file(), replayHeader);
+        roundDelaySkipped = false;
+    }
+
+    private void resetOpponentThreads() {
+        if (expertOpponent != null) {
+            expertOpponent.reset();
+        }
+        if (asyncOpponentAi != null) {
+            asyncOpponentAi.reset();
+        }
+    }
+
+    private void skipRoundDelay() {
+        simulation.skipRoundDelay();
+        roundDelaySkipped = true;
+    }
+
+    private void restartGame() {
+        // play again with a new seed
+        matchSeed = MatchRandom.newSeed();
+        startGame();
     }
 
     private void pauseGame() {
-        gameState = GameState.PAUSED;
+        simulation.pauseGame();
 
         // pause game sounds and music
         game.audioManager.pauseGameSounds();
@@ -247,7 +319,8 @@ public class GameScreen implements Screen, InputProcessor {
     }
 
     private void resumeGame() {
-        gameState = GameState.RUNNING;
+        simulation.resumeGame();
+        discardSuspendedMatch();
 
         // resume game sounds and music (if it's enabled)
         game.audioManager.resumeGameSounds();
@@ -255,56 +328,67 @@ public class GameScreen implements Screen, InputProcessor {
 
     }
 
-    private void startRound() {
-        // get the fighters ready
-        game.player.getReady(PLAYER_START_POSITION_X, FIGHTER_START_POSITION_Y);
-        game.opponent.getReady(OPPONENT_START_POSITION_X, FIGHTER_START_POSITION_Y);
+    private boolean isFastForwarding() {
+        return timestep.getTimeScale() > 1f;
+    }
 
-        // start the round
-        roundState = RoundState.STARTING;
-        roundStateTime = 0f;
-        roundTimer = MAX_ROUND_TIME;
+    private void changeTimeScale(float timeScale) {
+        timestep.setTimeScale(timeScale);
 
+        // stop any game sounds that are still playing when starting to fast-forward
+        if (isFastForwarding()) {
+            game.audioManager.stopGameSounds();
+        }
     }
 
-    private void endRound() {
-        // end the round
-        roundState = RoundState.ENDING;
-        roundStateTime = 0f;
+    @Override
+    public void fighterHit(Fighter fighter, boolean blocked) {
+        // don't play game sounds while fast-forwarding
+        if (isFastForwarding()) return;
+
+        if (blocked) {
+            // if the fighter is blocking, play block sound
+            game.audioManager.playSound(Assets.BLOCK_SOUND);
+        } else {
+            // if the fighter isn't blocking, play hit sound
+            game.audioManager.playSound(Assets.HIT_SOUND);
+        }
     }
 
-    private void winRound() {
-        // player wins the round and opponent loses
-        game.player.win();
-        game.opponent.lose();
-        roundsWon++;
+    @Override
+    public void bloodSpilled(Fighter fighter, int bloodSplatterIndex) {
+        // use the given fighter to get the correct blood splatter array
+        BloodSplatter[] bloodSplatters = fighter == simulation.getPlayer() ? playerBloodSplatters : opponentBloodSplatters;
+
+        // activate the given blood splatter
+        bloodSplatters[bloodSplatterIndex].activate(fighter.getPosition().x + BLOOD_SPLATTER_OFFSET_X,
+            fighter.getPosition().y + BLOOD_SPLATTER_OFFSET_Y);
+    }
+
+    @Override
+    public void roundWon() {
+        // don't play game sounds while fast-forwarding
+        if (isFastForwarding()) return;
 
         // play cheer sound
         game.audioManager.playSound(Assets.CHEER_SOUND);
-
-        // end the round
-        endRound();
     }
 
-    private void loseRound() {
-        // player loses the round and opponent wins
-        game.player.lose();
-        game.opponent.win();
-        roundsLost++;
+    @Override
+    public void roundLost() {
+        // don't play game sounds while fast-forwarding
+        if (isFastForwarding()) return;
 
         // play boo sound
         game.audioManager.playSound(Assets.BOO_SOUND);
-
-        // end the round
-        endRound();
     }
 
     @Override
     public void render(float delta) {
         ScreenUtils.clear(0,0,0,1);
 
-        // update the game -- delta time should be 0 if the game isn't running, to freeze the game
-        update(gameState == GameState.RUNNING ? delta : 0f);
+        // update the game
+        update(delta);
 
         // set the sprite batch and the shape renderer to use the viewport's camera
         game.batch.setProjectionMatrix(viewport.getCamera().combined );
@@ -335,16 +419,16 @@ public class GameScreen implements Screen, InputProcessor {
         renderPauseButton();
 
         // if the game is over, draw the game over overlay
-        if (gameState == GameState.GAME_OVER) {
+        if (simulation.getGameState() == MatchSimulation.GameState.GAME_OVER) {
             renderGameOverOverlay();
         } else {
             // if the round is starting, draw the start round text
-            if (roundState == RoundState.STARTING) {
+            if (simulation.getRoundState() == MatchSimulation.RoundState.STARTING) {
                 renderStartRoundText();
             }
 
             // if the game is paused, draw the pause overlay
-            if (gameState == GameState.PAUSED) {
+            if (simulation.getGameState() == MatchSimulation.GameState.PAUSED) {
                 renderPauseOverlay();
             }
         }
@@ -355,28 +439,31 @@ public class GameScreen implements Screen, InputProcessor {
     }
 
     private void renderFighters() {
+        Fighter player = simulation.getPlayer();
+        Fighter opponent = simulation.getOpponent();
+
         // use the y coordinates of the fighters' positions to determine which fighter to draw first
-        if (game.player.getPosition().y > game.opponent.getPosition().y) {
+        if (player.getPosition().y > opponent.getPosition().y) {
             // draw player
-            game.player.render(game.batch);
+            fighterRenderer.render(game.batch, player, timestep.getAlpha());
 
             // draw the player's blood splatters (if enabled)
             renderBloodSplatters(playerBloodSplatters);
 
             // draw opponent
-            game.opponent.render(game.batch);
+            fighterRenderer.render(game.batch, opponent, timestep.getAlpha());
 
             // draw the opponent's blood splatters (if enabled)
             renderBloodSplatters(opponentBloodSplatters);
         } else {
             // draw opponent
-            game.opponent.render(game.batch);
+            fighterRenderer.render(game.batch, opponent, timestep.getAlpha());
 
             // draw the opponent's blood splatters (if enabled)
             renderBloodSplatters(opponentBloodSplatters);
 
             // draw player
-            game.player.render(game.batch);
+            fighterRenderer.render(game.batch, player, timestep.getAlpha());
 
             // draw the player's blood splatters (if enabled)
             renderBloodSplatters(playerBloodSplatters);
@@ -396,9 +483,7 @@ public class GameScreen implements Screen, InputProcessor {
     private void renderBloodPools() {
         // if showing blood, draw all (active) blood pools
         if (showingBlood){
-            for (BloodPool bloodPool : bloodPools) {
-                bloodPool.render(game.batch);
-            }
+            bloodPoolRenderer.render(game.batch, simulation);
         }
     }
 
@@ -406,20 +491,33 @@ public class GameScreen implements Screen, InputProcessor {
         float HUDMargin = 1f;
 
         // draw the rounds won to lost ratio
-        smallFont.draw(game.batch, "WINS: " + roundsWon + " - " + roundsLost, HUDMargin,viewport.getWorldHeight() -
+        smallFont.draw(game.batch, "WINS: " + simulation.getRoundsWon() + " - " + simulation.getRoundsLost(), HUDMargin,viewport.getWorldHeight() -
             HUDMargin);
 
+        // draw the time scale if the match isn't running in real time
+        if (timestep.getTimeScale() != 1f) {
+            float timeScale = timestep.getTimeScale();
+            String speed = timeScale >= 1f ? String.valueOf((int) timeScale) : String.valueOf(timeScale);
+            smallFont.draw(game.batch, "SPEED: " + speed + "x", HUDMargin, HUDMargin + smallFont.getCapHeight());
+        }
+
         // draw the difficulty setting
         String text = "DIFFICULTY: ";
-        switch (difficulty) {
+        switch (simulation.getDifficulty()) {
             case EASY:
                 text += "EASY";
                 break;
             case MEDIUM:
                 text += "MEDIUM";
                 break;
-            default:
+            case HARD:
                 text += "HARD";
+                break;
+            case ADAPTIVE:
+                text += "ADAPTIVE";
+                break;
+            default:
+                text += "EXPERT";
         }
         smallFont.draw(game.batch, text, viewport.getWorldWidth() - HUDMargin, viewport.getWorldHeight() - HUDMargin,
             0, Align.right, false);
@@ -449,9 +547,9 @@ public class GameScreen implements Screen, InputProcessor {
 
         // draw the fighter health bar rectangles
         game.shapeRenderer.setColor(HEALTH_BAR_COLOR);
-        float healthBarWidth = healthBarMaxWidth * game.player.getLife() / Fighter.MAX_LIFE;
+        float healthBarWidth = healthBarMaxWidth * simulation.getPlayer().getLife() / Fighter.MAX_LIFE;
         game.shapeRenderer.rect(HUDMargin + healthBarBackgroundPadding, healthBarPositionY, healthBarWidth, healthBarHeight);
-        healthBarWidth = healthBarMaxWidth * game.opponent.getLife() / Fighter.MAX_LIFE;
+        healthBarWidth = healthBarMaxWidth * simulation.getOpponent().getLife() / Fighter.MAX_LIFE;
         game.shapeRenderer.rect(viewport.getWorldWidth() - HUDMargin - healthBarBackgroundPadding - healthBarWidth,
             healthBarPositionY, healthBarWidth, healthBarHeight);
 
@@ -460,24 +558,24 @@ public class GameScreen implements Screen, InputProcessor {
         game.batch.begin();
 
         // draw the fighter names
-        smallFont.draw(game.batch, game.player.getName(), HUDMargin + healthBarBackgroundPadding + healthBarPadding,
+        smallFont.draw(game.batch, simulation.getPlayer().getName(), HUDMargin + healthBarBackgroundPadding + healthBarPadding,
             fighterNamePositionY);
-        smallFont.draw(game.batch, game.opponent.getName(), viewport.getWorldWidth() - HUDMargin -healthBarBackgroundPadding -
+        smallFont.draw(game.batch, simulation.getOpponent().getName(), viewport.getWorldWidth() - HUDMargin -healthBarBackgroundPadding -
             healthBarPadding, fighterNamePositionY, 0, Align.right, false);
 
         // draw the round timer
-        if (roundTimer < CRITICAL_ROUND_TIME) {
+        if (simulation.getRoundTimer() < CRITICAL_ROUND_TIME) {
             mediumFont.setColor(CRITICAL_ROUND_TIME_COLOR);
         }
-        mediumFont.draw(game.batch, String.format(Locale.getDefault(), "%02d", (int) roundTimer ), viewport.getWorldWidth() / 2f -
+        mediumFont.draw(game.batch, String.format(Locale.getDefault(), "%02d", (int) simulation.getRoundTimer() ), viewport.getWorldWidth() / 2f -
                 mediumFont.getSpaceXadvance() * 2.3f, viewport.getWorldHeight() - HUDMargin );
         mediumFont.setColor(DEFAULT_FONT_COLOR);
     }
 
     private void renderStartRoundText() {
         String text;
-        if (roundStateTime < START_ROUND_DELAY * 0.5f) {
-            text = "ROUND " + currentRound;
+        if (simulation.getRoundStateTime() < MatchSimulation.START_ROUND_DELAY * 0.5f) {
+            text = "ROUND " + simulation.getCurrentRound();
         } else {
             text = "FIGHT!";
         }
@@ -520,7 +618,7 @@ public class GameScreen implements Screen, InputProcessor {
         playAgainButtonSprite.draw(game.batch);
 
         // draw the text
-        String text = roundsWon > roundsLost ? "YOU WON!" : "YOU LOST";
+        String text = simulation.getRoundsWon() > simulation.getRoundsLost() ? "YOU WON!" : "YOU LOST";
         largeFont.draw(game.batch, text, viewport.getWorldWidth() / 2f, playAgainButtonSprite.getY() +
             playAgainButtonSprite.getHeight() + textMarginBottom + largeFont.getCapHeight(), 0, Align.center,
             false);
@@ -560,371 +658,107 @@ public class GameScreen implements Screen, InputProcessor {
     }
 
 
-    private void update(float deltaTime) {
-        if (roundState == RoundState.STARTING && roundStateTime >= START_ROUND_DELAY) {
-            // if the start round delay has been reached, start the fight
-            roundState = RoundState.IN_PROGRESS;
-            roundStateTime = 0f;
-        } else if (roundState == RoundState.ENDING && roundStateTime >= END_ROUND_DELAY) {
-            // if the end round delay has been reached and player has won or lost more than half of the max number of rounds,
-            // end the game; otherwise, start the next round
-            if (roundsWon > MAX_ROUNDS / 2 || roundsLost > MAX_ROUNDS / 2) {
-                gameState = GameState.GAME_OVER;
-            } else {
-                currentRound++;
-                startRound();
+    private void update(float delta) {
+        // delta time should be 0 if the game isn't running, to freeze the blood splatters; otherwise, they run at the
+        // same time scale as the match
+        float deltaTime = simulation.isRunning() ? timestep.getScaledFrameTime(delta) : 0f;
+
+        if (simulation.isRunning()) {
+            // advance the match by as many fixed steps as fit into the (scaled) frame time; only the last one is drawn
+            int steps = timestep.advance(delta);
+            for (int i = 0; i < steps; i++) {
+                updatePlayerInput();
+                simulation.update(timestep.getStepTime());
             }
         } else {
-            // increment the round state time by delta time
-            roundStateTime += deltaTime;
+            // the match is frozen, but still needs updating (e.g. to find out the game is over)
+            updatePlayerInput();
+            simulation.update(0f);
         }
 
-        game.player.update(deltaTime);
-        game.opponent.update(deltaTime);
+        // the replay ends with the game
+        if (simulation.getGameState() == MatchSimulation.GameState.GAME_OVER) {
+            replayRecorder.finish();
+            discardSuspendedMatch();
+        }
 
         // update the blood splatters
-        for (int i = 0; i < BLOOD_SPLATTER_AMOUNT; i++ ) {
+        for (int i = 0; i < MatchSimulation.BLOOD_SPLATTER_AMOUNT; i++ ) {
             playerBloodSplatters[i].update(deltaTime);
             opponentBloodSplatters[i].update(deltaTime);
         }
-
-        // update the blood pools
-        for (BloodPool bloodPool : bloodPools) {
-            bloodPool.update(deltaTime);
-        }
-
-
-        // make sure the fighters are facing each other
-        if (game.player.getPosition().x <= game.opponent.getPosition().x) {
-            game.player.faceRight();
-            game.opponent.faceLeft();
-        } else {
-            game.player.faceLeft();
-            game.opponent.faceRight();
-        }
-
-        // keep the fighters within the bounds of the ring
-        keepWithinRingBounds(game.player.getPosition());
-        keepWithinRingBounds(game.opponent.getPosition());
-
-        if (roundState == RoundState.IN_PROGRESS) {
-            // if the round is in progress, decrease the round timer by delta time
-            roundTimer -= deltaTime;
-
-            if(roundTimer <= 0f) {
-                // if the round timer has finished and player has the same or more life than opponent, player wins the round;
-                // otherwise, player loses the round
-                if (game.player.getLife() >= game.opponent.getLife()) {
-                    winRound();
-                } else {
-                    loseRound();
-                }
-            }
-
-            // perform the AI for opponent
-            performOpponentAi(deltaTime);
-
-
-            // check if the fighters are within contact distance
-            if (areWithinContactDistance(game.player.getPosition() , game.opponent.getPosition())) {
-                if (game.player.isAttackActive()){
-                    // if the fighters are within contact distance and player is actively attacking, opponent gets hit
-                    game.opponent.getHit(Fighter.HIT_STRENGTH);
-
-                    if (game.opponent.isBlocking()) {
-                        // if opponent is blocking, play block sound
-                        game.audioManager.playSound(Assets.BLOCK_SOUND);
-                    } else {
-                        // if opponent isn't blocking, play hit sound
-                        game.audioManager.playSound(Assets.HIT_SOUND);
-
-                        // spill some blood
-                        spillBlood(game.opponent);
-                    }
-
-                    // deactivate player's attack
-                    game.player.makeContact();
-
-                    // check if opponent has lost
-                    if (game.opponent.hasLost()) {
-                        // if opponent has lost, player wins the round
-                        winRound();
-                    }
-                } else if (game.opponent.isAttackActive()){
-                    // if the fighters are within contact distance and opponent is actively attacking, player gets hit
-                    game.player.getHit(Fighter.HIT_STRENGTH);
-
-                    if (game.player.isBlocking()) {
-                        // if player is blocking, play block sound
-                        game.audioManager.playSound(Assets.BLOCK_SOUND);
-                    } else {
-                        // if player isn't blocking, play hit sound
-                        game.audioManager.playSound(Assets.HIT_SOUND);
-
-                        // spill some blood
-                        spillBlood(game.player);
-                    }
-
-                    // deactivate opponent's attack
-                    game.opponent.makeContact();
-
-                    // check if player has lost
-                    if (game.player.hasLost()) {
-                        // if player has lost, player looses the round
-                        loseRound();
-                    }
-                }
-            }
-        }
-
-    }
-
-    private void spillBlood(Fighter fighter) {
-        // use the given fighter to get the correct blood splatter array and current index
-        BloodSplatter[] bloodSplatters;
-        int currentBloodSplatterIndex;
-        if (fighter.equals(game.player)) {
-            bloodSplatters = playerBloodSplatters;
-            currentBloodSplatterIndex = currentPlayerBloodSplatterIndex;
-        } else {
-            bloodSplatters = opponentBloodSplatters;
-            currentBloodSplatterIndex = currentOpponentBloodSplatterIndex;
-        }
-
-        // activate the current blood splatter in the array
-        bloodSplatters[currentBloodSplatterIndex].activate(fighter.getPosition().x + BLOOD_SPLATTER_OFFSET_X,
-            fighter.getPosition().y + BLOOD_SPLATTER_OFFSET_Y);
-
-        // increment the correct current blood splatter index, or return to the first if the end of the array has been
-        // reached
-        if (fighter.equals(game.player)){
-            if (currentPlayerBloodSplatterIndex < BLOOD_SPLATTER_AMOUNT - 1) {
-                currentPlayerBloodSplatterIndex++;
-            } else {
-                currentPlayerBloodSplatterIndex = 0;
-            }
-        } else {
-            if (currentOpponentBloodSplatterIndex < BLOOD_SPLATTER_AMOUNT - 1) {
-                currentOpponentBloodSplatterIndex++;
-            } else {
-                currentOpponentBloodSplatterIndex = 0;
-            }
-        }
-
-        // activate the current blood pool in the array
-        bloodPools[currentBloodPoolIndex].activate( fighter.getPosition().x, fighter.getPosition().y );
-
-        // increment the current blood pool index, or return the first if the end of the blood pool array has been
-        // reached
-        if (currentBloodPoolIndex < BLOOD_POOL_AMOUNT - 1) {
-            currentBloodPoolIndex++;
-        } else {
-            currentBloodPoolIndex = 0;
-        }
-    }
-
-    private void keepWithinRingBounds(Vector2 position ){
-        if (position.y < RING_MIN_Y) {
-            position.y = RING_MIN_Y;
-        } else if (position.y > RING_MAX_Y) {
-            position.y = RING_MAX_Y;
-        }
-        if (position.x < position.y / RING_SLOPE + RING_MIN_X) {
-            position.x = position.y / RING_SLOPE + RING_MIN_X;
-        } else if (position.x > position.y / -RING_SLOPE + RING_MAX_X) {
-            position.x = position.y / -RING_SLOPE + RING_MAX_X;
-        }
     }
 
-    private boolean areWithinContactDistance( Vector2 position1, Vector2 position2 ) {
-        // determine if the positions are within the distance in which contact is possible
-        float xDistance = Math.abs(position1.x - position2.x);
-        float yDistance = Math.abs(position1.y - position2.y);
-        return xDistance <= FIGHTER_CONTACT_DISTANCE_X && yDistance <= FIGHTER_CONTACT_DISTANCE_Y;
-    }
 
-    private void performOpponentAi(float deltaTime ) {
-        // check if opponent is making a contact decision (attack, block, etc.)
-        if (opponentAIMakingContactDecision) {
-            if (game.opponent.isBlocking()) {
-                // if opponent is blocking, stop blocking if the fighters are not within contact distance, or player isn't
-                // attacking, or player has attacked and made contact
-                if ( !areWithinContactDistance(game.player.getPosition(), game.opponent.getPosition()) ||
-                !game.player.isAttacking() || game.player.hasMadeContact()) {
-                    game.opponent.stopBlocking();
-                }
-            } else if (!game.opponent.isAttacking()) {
-                // if opponent isn't currently attacking, check if the fighters are within contact distance
-                if (areWithinContactDistance(game.player.getPosition(), game.opponent.getPosition())){
-                    if (opponentAiTimer <= 0f) {
-                        // if the fighters are within contact distance and the opponent AI timer has finished, make a
-                        // contact decision
-                        opponentAiMakeContactDecision();
-                    } else {
-                        // decrease the opponent AI timer by delta time
-                        opponentAiTimer -= deltaTime;
-                    }
-                } else {
-                    // if the fighters aren't within contact distance, opponent shouldn't make a contact decision
-                    opponentAIMakingContactDecision = false;
-                }
+    private void updatePlayerInput() {
+        // on EXPERT, opponent is played through its input, by the expert opponent
+        int opponentInput = FighterInput.NONE;
+        if (simulation.getDifficulty() == GlobalVariables.Difficulty.EXPERT) {
+            if (expertOpponent == null) {
+                expertOpponent = new ExpertOpponent(timestep.getStepTime(), ExpertOpponent.DEFAULT_BUDGET_NANOS);
             }
-
+            opponentInput = expertOpponent.update(simulation);
         } else {
-            if (areWithinContactDistance( game.player.getPosition(), game.opponent.getPosition() )) {
-                // if opponent isn't currently making a contact decision and the fighters are within contact distance,
-                // make a contact decision
-                opponentAiMakeContactDecision();
-            } else {
-                if (opponentAiTimer <= 0f) {
-                    // if the fighters are not within contact distance and the opponent AI timer has finished, either
-                    // pursue player or move in a random direction
-                    float pursueChance = difficulty == GlobalVariables.Difficulty.EASY ? OPPONENT_AI_PURSUE_PLAYER_CHANCE_EASY :
-                        difficulty == GlobalVariables.Difficulty.MEDIUM ? OPPONENT_AI_PURSUE_PLAYER_CHANCE_MEDIUM :
-                            OPPONENT_AI_PURSUE_PLAYER_CHANCE_HARD;
-
-                    if (MathUtils.random() <= pursueChance) {
-                        // opponent is pursuing player
-                        opponentAiPursuingPlayer = true;
-
-                        // move in the direction of player
-                        opponentAiMoveTowardPlayer();
-                    } else {
-                        // opponent is not pursuing player
-                        opponentAiPursuingPlayer = false;
-
-                        // move in a random direction
-                        opponentAiMoveRandomly();
-                    }
-
-                    // set the opponent AI timer to the non-contact decision delay
-                    opponentAiTimer = OPPONENT_AI_NON_CONTACT_DECISION_DELAY;
-
-                } else {
-                    // if opponent is pursuing player, move in the direction of player
-                    if (opponentAiPursuingPlayer)  {
-                        opponentAiMoveTowardPlayer();
-                    }
-
-                    // decrease the opponent AI timer by delta time
-                    opponentAiTimer -= deltaTime;
+            // if its profile decides off the match's thread, take opponent's AI out of the match (setting the
+            // difficulty puts it back) and onto its own thread
+            if (simulation.getOpponentAi() != null) {
+                AiProfile profile = simulation.getOpponentAiProfile();
+                if (profile.offThread) {
+                    asyncOpponentProfile = profile;
+                    simulation.setOpponentAiProfile(null);
+                } else if (asyncOpponentProfile != null) {
+                    asyncOpponentProfile = null;
+                    asyncOpponentAi.reset();
                 }
             }
-        }
-
-    }
-
-    private void opponentAiMakeContactDecision() {
-        opponentAIMakingContactDecision = true;
-
-        // make a contact decision
-        if (game.player.isAttacking()) {
-            // if player is attacking and hasn't yet made contact, determine whether to block player's attack or move away
-            // from player
-            if (!game.player.hasMadeContact()) {
-                if (MathUtils.random() <= OPPONENT_AI_BLOCK_CHANCE) {
-                    // block player's attack
-                    game.opponent.block();
-                } else {
-                    // move away from player
-                    opponentAiMoveAwayFromPlayer();
+            if (asyncOpponentProfile != null) {
+                if (asyncOpponentAi == null) {
+                    asyncOpponentAi = new AsyncOpponentAi(timestep.getStepTime());
                 }
+                opponentInput = asyncOpponentAi.update(simulation, asyncOpponentProfile);
             }
-        } else {
-            // if player isn't attacking, determine whether to attack player or move away from player
-            if (MathUtils.random() <= OPPONENT_AI_ATTACK_CHANCE) {
-                // attack player (equal chance of punching or kicking)
-                if (MathUtils.random(1) == 0) {
-                    game.opponent.punch();
-                } else {
-                    game.opponent.kick();
-                }
-            } else {
-                // move away from player
-                opponentAiMoveAwayFromPlayer();
-            }
-        }
-
-        // set the opponent AI timer to a difficulty-based contact decision delay
-        switch (difficulty) {
-            case EASY:
-                opponentAiTimer = OPPONENT_AI_CONTACT_DECISION_DELAY_EASY;
-                break;
-            case MEDIUM:
-                opponentAiTimer = OPPONENT_AI_CONTACT_DECISION_DELAY_MEDIUM;
-                break;
-            default:
-                opponentAiTimer = OPPONENT_AI_CONTACT_DECISION_DELAY_HARD;
         }
-    }
 
-    private void opponentAiMoveTowardPlayer() {
-        // move in the direction of player's position
-        Vector2 playerPosition = game.player.getPosition();
-        Vector2 opponentPosition = game.opponent.getPosition();
-        if (opponentPosition.x >playerPosition.x + FIGHTER_CONTACT_DISTANCE_X) {
-            game.opponent.moveLeft();
-        } else if (opponentPosition.x < playerPosition.x - FIGHTER_CONTACT_DISTANCE_X) {
-            game.opponent.moveRight();
-        } else {
-            game.opponent.stopMovingLeft();
-            game.opponent.stopMovingRight();
-        }
-        if (opponentPosition.y < playerPosition.y - FIGHTER_CONTACT_DISTANCE_Y) {
-            game.opponent.moveUp();
-        } else if (opponentPosition.y > playerPosition.y + FIGHTER_CONTACT_DISTANCE_Y) {
-            game.opponent.moveDown();
-        } else {
-            game.opponent.stopMovingUp();
-            game.opponent.stopMovingDown();
-        }
-    }
-
-    private void opponentAiMoveRandomly() {
-        // randomly set opponent's horizontal movement
-        switch (MathUtils.random(2)){
-            case 0:
-                game.opponent.moveLeft();
-                break;
-            case 1:
-                game.opponent.moveRight();
-                break;
+        // record player's input for the replay, along with anything else player did to the match since the last update
+        // (and opponent's input, which the replay can't plan again)
+        int input = heldInput | pressedInput;
+        replayRecorder.record(simulation, ReplayControl.of(input, opponentInput, simulation.getOpponentAi() == null,
+            roundDelaySkipped, simulation.getGameState() == MatchSimulation.GameState.PAUSED,
+            simulation.getDifficulty()));
+        roundDelaySkipped = false;
+
+        // give the simulation player's (and opponent's) input for the next update
+        simulation.setPlayerInput(input);
+        simulation.setOpponentInput(opponentInput);
+        pressedInput = FighterInput.NONE;
+    }
+
+    private static int getInputButton(int keycode) {
+        // get the input button the given key is mapped to
+        switch (keycode) {
+            case Input.Keys.LEFT:
+            case Input.Keys.A:
+                return FighterInput.LEFT;
+            case Input.Keys.RIGHT:
+            case Input.Keys.D:
+                return FighterInput.RIGHT;
+            case Input.Keys.UP:
+            case Input.Keys.W:
+                return FighterInput.UP;
+            case Input.Keys.DOWN:
+            case Input.Keys.S:
+                return FighterInput.DOWN;
+            case Input.Keys.B:
+                return FighterInput.BLOCK;
+            case Input.Keys.F:
+                return FighterInput.PUNCH;
+            case Input.Keys.V:
+                return FighterInput.KICK;
             default:
-                game.opponent.stopMovingLeft();
-                game.opponent.stopMovingRight();
-        }
-
-        // randomly set opponent's vertical movement
-        switch (MathUtils.random(2)){
-            case 0:
-                game.opponent.moveUp();
-                break;
-            case 1:
-                game.opponent.moveDown();
-                break;
-            default:
-                game.opponent.stopMovingUp();
-                game.opponent.stopMovingDown();
-        }
-    }
-
-    private void opponentAiMoveAwayFromPlayer() {
-        // move away from player's position
-        Vector2 playerPosition = game.player.getPosition();
-        Vector2 opponentPosition = game.opponent.getPosition();
-        if (opponentPosition.x > playerPosition.x) {
-            game.opponent.moveRight();
-        } else {
-            game.opponent.moveLeft();
-        }
-        if (opponentPosition.y > playerPosition.y) {
-            game.opponent.moveUp();
-        } else {
-            game.opponent.moveDown();
+                return FighterInput.NONE;
         }
     }
 
-
     @Override
     public void resize(int width, int height) {
         // update the viewport with the new screen size
@@ -934,12 +768,18 @@ public class GameScreen implements Screen, InputProcessor {
     @Override
     public void pause() {
         // if the game is running, pause it
-        if (gameState == GameState.RUNNING) {
+        if (simulation.isRunning()) {
             pauseGame();
         }
 
         // pause music
         game.audioManager.pauseMusic();
+
+        // write the replay so far and the paused match, in case the app doesn't come back
+        replayRecorder.flush();
+        if (simulation.getGameState() == MatchSimulation.GameState.PAUSED) {
+            suspendMatch();
+        }
     }
 
     @Override
@@ -955,30 +795,33 @@ public class GameScreen implements Screen, InputProcessor {
 
     @Override
     public void dispose() {
-
+        replayRecorder.dispose();
+        if (expertOpponent != null) {
+            expertOpponent.dispose();
+        }
+        if (asyncOpponentAi != null) {
+            asyncOpponentAi.dispose();
+        }
     }
 
     @Override
     public boolean keyDown(int keycode) {
         if (keycode == Input.Keys.SPACE) {
-            if (gameState == GameState.RUNNING) {
+            if (simulation.isRunning()) {
                 // if the game is running and the space key has been pressed, skip any round delays
-                if (roundState == RoundState.STARTING) {
-                    roundStateTime = START_ROUND_DELAY;
-                } else if (roundState == RoundState.ENDING) {
-                    roundStateTime = END_ROUND_DELAY;
-                }
-            } else if (gameState == GameState.GAME_OVER) {
+                skipRoundDelay();
+            } else if (simulation.getGameState() == MatchSimulation.GameState.GAME_OVER) {
                 // if the game is over and the space key has been pressed, restart the game
-                startGame();
+                restartGame();
             } else {
                 // if the game is paused and the space key has been pressed, resume the game
                 resumeGame();
             }
-        } else if ((gameState == GameState.RUNNING || gameState == GameState.PAUSED) && keycode == Input.Keys.P) {
+        } else if ((simulation.isRunning() || simulation.getGameState() == MatchSimulation.GameState.PAUSED) &&
+            keycode == Input.Keys.P) {
 
             // if the game is running or paused and the P key has been pressed, pause or resume the game
-            if (gameState == GameState.RUNNING) {
+            if (simulation.isRunning()) {
                 pauseGame();
             } else {
                 resumeGame();
@@ -989,42 +832,39 @@ public class GameScreen implements Screen, InputProcessor {
             game.audioManager.toggleMusic();
         } else if (keycode == Input.Keys.L) {
             // change the difficulty
-            switch (difficulty) {
+            switch (simulation.getDifficulty()) {
                 case EASY:
-                    difficulty = GlobalVariables.Difficulty.MEDIUM;
+                    simulation.setDifficulty(GlobalVariables.Difficulty.MEDIUM);
                     break;
                 case MEDIUM:
-                    difficulty = GlobalVariables.Difficulty.HARD;
+                    simulation.setDifficulty(GlobalVariables.Difficulty.HARD);
+                    break;
+                case HARD:
+                    simulation.setDifficulty(GlobalVariables.Difficulty.ADAPTIVE);
+                    break;
+                case ADAPTIVE:
+                    simulation.setDifficulty(GlobalVariables.Difficulty.EXPERT);
                     break;
                 default:
-                    difficulty = GlobalVariables.Difficulty.EASY;
+                    simulation.setDifficulty(GlobalVariables.Difficulty.EASY);
             }
         } else if (keycode == Input.Keys.K) {
             // toggle blood on or off
             showingBlood = !showingBlood;
+        } else if (keycode == Input.Keys.LEFT_BRACKET) {
+            // slow the match down
+            changeTimeScale(timestep.getTimeScale() / 2f);
+        } else if (keycode == Input.Keys.RIGHT_BRACKET) {
+            // speed the match up
+            changeTimeScale(timestep.getTimeScale() * 2f);
+        } else if (keycode == Input.Keys.BACKSLASH) {
+            // go back to real time
+            changeTimeScale(1f);
         } else {
-            if (roundState == RoundState.IN_PROGRESS) {
-                // check if player has pressed a movement key
-                if (keycode == Input.Keys.LEFT || keycode == Input.Keys.A) {
-                    game.player.moveLeft();
-                } else if (keycode == Input.Keys.RIGHT || keycode == Input.Keys.D) {
-                    game.player.moveRight();
-                }
-                if (keycode == Input.Keys.UP || keycode == Input.Keys.W) {
-                    game.player.moveUp();
-                } else if (keycode == Input.Keys.DOWN || keycode == Input.Keys.S) {
-                    game.player.moveDown();
-                }
-            }
-
-            // check if the player has pressed a block or attack key
-            if (keycode == Input.Keys.B) {
-                game.player.block();
-            } else if (keycode == Input.Keys.F) {
-                game.player.punch();
-            } else if (keycode == Input.Keys.V) {
-                game.player.kick();
-            }
+            // check if player has pressed a movement, block or attack key; the match applies it on its next update
+            int button = getInputButton(keycode);
+            heldInput |= button;
+            pressedInput |= button;
         }
 
 
@@ -1033,23 +873,9 @@ public class GameScreen implements Screen, InputProcessor {
 
     @Override
     public boolean keyUp(int keycode) {
-        // if player has released a movement key, stop moving in that direction
-
-        if (keycode == Input.Keys.LEFT || keycode == Input.Keys.A) {
-            game.player.stopMovingLeft();
-        } else if (keycode == Input.Keys.RIGHT || keycode == Input.Keys.D) {
-            game.player.stopMovingRight();
-        }
-        if (keycode == Input.Keys.UP || keycode == Input.Keys.W) {
-            game.player.stopMovingUp();
-        } else if (keycode == Input.Keys.DOWN || keycode == Input.Keys.S) {
-            game.player.stopMovingDown();
-        }
-
-        // if player has released the block key, stop blocking
-        if (keycode == Input.Keys.B) {
-            game.player.stopBlocking();
-        }
+        // if player has released a movement or block key, the match stops moving in that direction or stops blocking on
+        // its next update
+        heldInput &= ~getInputButton(keycode);
         return true;
     }
 
@@ -1065,7 +891,7 @@ public class GameScreen implements Screen, InputProcessor {
         viewport.getCamera().unproject(position, viewport.getScreenX(), viewport.getScreenY(), viewport.getScreenWidth(),
             viewport.getScreenHeight());
 
-        if (gameState == GameState.RUNNING) {
+        if (simulation.isRunning()) {
             if (pauseButtonSprite.getBoundingRectangle().contains(position.x, position.y)){
                 // if the pause button has been touched, pause the game
                 pauseGame();
@@ -1073,21 +899,18 @@ public class GameScreen implements Screen, InputProcessor {
                 // play click sound
                 game.audioManager.playSound(Assets.CLICK_SOUND);
 
-            } else if (roundState == RoundState.STARTING) {
-                // if the round is starting and the screen has been touched, skip the start round delay
-                roundStateTime = START_ROUND_DELAY;
-            } else if (roundState == RoundState.ENDING) {
-                // if the round is ending and the screen has been touched, skip the end round delay
-                roundStateTime = END_ROUND_DELAY;
+            } else {
+                // if the round is starting or ending and the screen has been touched, skip the round delay
+                skipRoundDelay();
             }
         } else {
-            if (gameState == GameState.GAME_OVER && playAgainButtonSprite.getBoundingRectangle().contains(position.x, position.y)) {
+            if (simulation.getGameState() == MatchSimulation.GameState.GAME_OVER && playAgainButtonSprite.getBoundingRectangle().contains(position.x, position.y)) {
                 // if the game is over and the play again button has been pressed, start the game from the beginning
-                startGame();
+                restartGame();
 
                 // play click sound
                 game.audioManager.playSound(Assets.CLICK_SOUND);
-            } else if (gameState == GameState.PAUSED && continueButtonSprite.getBoundingRectangle().contains(position.x, position.y)) {
+            } else if (simulation.getGameState() == MatchSimulation.GameState.PAUSED && continueButtonSprite.getBoundingRectangle().contains(position.x, position.y)) {
                 // if the game is paused and the continue button has been touched, resume the game
                 resumeGame();
 
@@ -1101,12 +924,16 @@ public class GameScreen implements Screen, InputProcessor {
                 game.audioManager.stopGameSounds();
 
                 // resume music if the game is paused
-                if (gameState == GameState.PAUSED) {
+                if (simulation.getGameState() == MatchSimulation.GameState.PAUSED) {
                     game.audioManager.playMusic();
                 }
 
+                // the match is abandoned, so end its replay and don't pick it up again
+                replayRecorder.finish();
+                discardSuspendedMatch();
+
                 // deactivate all the blood splatters
-                for (int i = 0; i < BLOOD_SPLATTER_AMOUNT; i++) {
+                for (int i = 0; i < MatchSimulation.BLOOD_SPLATTER_AMOUNT; i++) {
                     playerBloodSplatters[i].deactivate();
                     opponentBloodSplatters[i].deactivate();
                 }
@@ -5,7 +5,6 @@ import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
-import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.Button;
@@ -20,6 +19,8 @@ import com.mfein.sfs.SFS;
 import com.mfein.sfs.objects.FighterChoice;
 import com.mfein.sfs.resources.Assets;
 import com.mfein.sfs.resources.GlobalVariables;
+import com.mfein.sfs.simulation.MatchRandom;
+import com.mfein.sfs.simulation.MatchSimulation;
 
 public class MainMenuScreen implements Screen {
     private final SFS game;
@@ -138,12 +139,17 @@ public class MainMenuScreen implements Screen {
                 // play click sound
                 game.audioManager.playSound(Assets.CLICK_SOUND);
 
+                // pick the seed for the match, which also decides the opponent fighter
+                long matchSeed = MatchRandom.newSeed();
+                MatchRandom random = new MatchRandom(matchSeed, MatchSimulation.FIGHTER_CHOICE_RANDOM_STREAM);
+                game.gameScreen.setMatchSeed(matchSeed);
+
                 // choose a random opponent fighter from the fighter choice list, making sure it's different from player's
                 // fighter
-                int index = MathUtils.random(game.fighterChoiceList.size() - 1);
+                int index = random.random(game.fighterChoiceList.size() - 1);
                 FighterChoice fighterChoice = game.fighterChoiceList.get(index);
                 while (fighterChoice.getName().equals(game.player.getName())) {
-                    index = MathUtils.random(game.fighterChoiceList.size() - 1);
+                    index = random.random(game.fighterChoiceList.size() - 1);
                     fighterChoice = game.fighterChoiceList.get(index);
                 }
                 game.opponent.setName(fighterChoice.getName());
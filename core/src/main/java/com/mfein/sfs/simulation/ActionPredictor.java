@@ -0,0 +1,183 @@
+package com.mfein.sfs.simulation;
+
+import com.mfein.sfs.objects.Fighter;
+
+import java.util.Arrays;
+
+/**
+ * Learns a fighter's habits during a match and predicts what it will do next, for an AI to anticipate. The fighter's
+ * actions (moving, blocking, punching, kicking) are taken as a sequence, one entry each time it goes from one to
+ * another, and a trigram model counts which action followed each of the last one and two: a count per context and
+ * next action, in one fixed byte table. {@link #observe} takes the fighter's action every update and
+ * {@link #getProbability} looks a prediction up, both in constant time without allocating. A prediction comes from the
+ * longest context that has been seen often enough, backing off to shorter ones; once a count reaches its limit, the
+ * counts of its context are halved, so newer habits outweigh older ones.
+ */
+public class ActionPredictor {
+    // actions, as predicted
+    public static final int MOVE = 0;
+    public static final int BLOCK = 1;
+    public static final int PUNCH = 2;
+    public static final int KICK = 3;
+    public static final int ACTION_COUNT = 4;
+
+    // the action of each fighter state (-1 for the states that aren't the fighter's doing)
+    private static final int[] STATE_ACTIONS = new int[Fighter.State.values().length];
+
+    static {
+        for (Fighter.State state : Fighter.State.values()) {
+            int action;
+            switch (state) {
+                case IDLE:
+                case WALK:
+                    action = MOVE;
+                    break;
+                case BLOCK:
+                    action = BLOCK;
+                    break;
+                case PUNCH:
+                    action = PUNCH;
+                    break;
+                case KICK:
+                    action = KICK;
+                    break;
+                default:
+                    action = -1;
+            }
+            STATE_ACTIONS[state.ordinal()] = action;
+        }
+    }
+
+    // where each order's counts start in the table: after no action, after the last action, and after the last two
+    private static final int UNIGRAMS = 0;
+    private static final int BIGRAMS = UNIGRAMS + ACTION_COUNT;
+    private static final int TRIGRAMS = BIGRAMS + ACTION_COUNT * ACTION_COUNT;
+    static final int COUNT_SIZE = TRIGRAMS + ACTION_COUNT * ACTION_COUNT * ACTION_COUNT;
+
+    // bytes a predictor takes up in a snapshot
+    static final int SIZE = 1 + 1 + COUNT_SIZE;
+
+    // most a count can reach before its context's counts are halved, and fewest (in total) a context needs to predict
+    private static final int MAX_COUNT = 255;
+    private static final int MIN_CONTEXT_COUNT = 3;
+
+    // the last two actions (the last one in the low two bits), how many of them there have been (up to two), and the
+    // counts, one unsigned byte each
+    private int history;
+    private int historyLength;
+    private final byte[] counts = new byte[COUNT_SIZE];
+
+    public void reset() {
+        history = 0;
+        historyLength = 0;
+        Arrays.fill(counts, (byte) 0);
+    }
+
+    public boolean observe(Fighter fighter) {
+        // take the fighter's action for this update; returns whether it's a new one, i.e. whether the model changed
+        int action = STATE_ACTIONS[fighter.getState().ordinal()];
+        if (action < 0 || historyLength > 0 && action == (history & 3)) return false;
+
+        // count the action after no context, the last action, and the last two
+        count(UNIGRAMS, action);
+        if (historyLength >= 1) {
+            count(BIGRAMS + (history & 3) * ACTION_COUNT, action);
+        }
+        if (historyLength >= 2) {
+            count(TRIGRAMS + (history & 0xf) * ACTION_COUNT, action);
+        }
+        history = (history << 2 | action) & 0xf;
+        if (historyLength < 2) historyLength++;
+        return true;
+    }
+
+    public int getLastAction() {
+        // the fighter's current action, or -1 if none has been observed
+        return historyLength == 0 ? -1 : history & 3;
+    }
+
+    public float getProbability(int action) {
+        // the chance that the fighter's next action is the given one
+        int context = getContext();
+        int total = getTotal(context);
+        return total == 0 ? 0f : (counts[context + action] & 0xff) / (float) total;
+    }
+
+    public float getAttackProbability() {
+        // the chance that the fighter's next action is a punch or a kick
+        int context = getContext();
+        int total = getTotal(context);
+        return total == 0 ? 0f : ((counts[context + PUNCH] & 0xff) + (counts[context + KICK] & 0xff)) / (float) total;
+    }
+
+    public void save(MatchSnapshot snapshot) {
+        snapshot.putByte(history);
+        snapshot.putByte(historyLength);
+        for (int i = 0; i < COUNT_SIZE; i++) {
+            snapshot.putByte(counts[i]);
+        }
+    }
+
+    public static void skip(MatchSnapshot snapshot, boolean write) {
+        // the bytes of an empty predictor, to keep a snapshot's layout when there's no predictor to save or restore
+        for (int i = 0; i < SIZE; i++) {
+            if (write) {
+                snapshot.putByte(0);
+            } else {
+                snapshot.getByte();
+            }
+        }
+    }
+
+    public long hash(long hash) {
+        hash = StateHash.mix(hash, history);
+        hash = StateHash.mix(hash, historyLength);
+        for (int i = 0; i < COUNT_SIZE; i += ACTION_COUNT) {
+            // a context's counts at a time
+            hash = StateHash.mix(hash, (counts[i] & 0xff) << 24 | (counts[i + 1] & 0xff) << 16 |
+                (counts[i + 2] & 0xff) << 8 | counts[i + 3] & 0xff);
+        }
+        return hash;
+    }
+
+    public void describe(StringBuilder text, String prefix) {
+        text.append(prefix).append("history: ").append(history).append(" (").append(historyLength).append(")\n");
+        text.append(prefix).append("attackProbability: ").append(getAttackProbability()).append('\n');
+    }
+
+    public void restore(MatchSnapshot snapshot) {
+        history = snapshot.getByte();
+        historyLength = snapshot.getByte();
+        for (int i = 0; i < COUNT_SIZE; i++) {
+            counts[i] = (byte) snapshot.getByte();
+        }
+    }
+
+    private void count(int context, int action) {
+        // once the count is at its limit, halve the context's counts (rounding up, so nothing seen is forgotten)
+        if ((counts[context + action] & 0xff) == MAX_COUNT) {
+            for (int i = context; i < context + ACTION_COUNT; i++) {
+                counts[i] = (byte) (((counts[i] & 0xff) + 1) >> 1);
+            }
+        }
+        counts[context + action]++;
+    }
+
+    private int getContext() {
+        // the longest context seen often enough to predict from
+        if (historyLength >= 2) {
+            int context = TRIGRAMS + (history & 0xf) * ACTION_COUNT;
+            if (getTotal(context) >= MIN_CONTEXT_COUNT) return context;
+        }
+        if (historyLength >= 1) {
+            int context = BIGRAMS + (history & 3) * ACTION_COUNT;
+            if (getTotal(context) >= MIN_CONTEXT_COUNT) return context;
+        }
+        return UNIGRAMS;
+    }
+
+    private int getTotal(int context) {
+        return (counts[context] & 0xff) + (counts[context + 1] & 0xff) + (counts[context + 2] & 0xff) +
+            (counts[context + 3] & 0xff);
+    }
+}
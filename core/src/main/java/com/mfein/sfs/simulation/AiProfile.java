@@ -0,0 +1,233 @@
+package com.mfein.sfs.simulation;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import com.mfein.sfs.resources.GlobalVariables;
+
+/**
+ * The numbers behind a {@link FighterAi}'s decisions, and optionally a {@link BehaviorTree}, {@link PolicyTable},
+ * {@link PolicyNetwork} or {@link GhostIndex} that makes them instead.
+ * Each difficulty has its own profile: a built-in one, or one loaded from a data file at start-up.
+ */
+public class AiProfile {
+    // default profile values
+    public static final float CONTACT_DECISION_DELAY_EASY = 0.1f;
+    public static final float CONTACT_DECISION_DELAY_MEDIUM = 0.07f;
+    public static final float CONTACT_DECISION_DELAY_HARD = 0.01f;
+    public static final float BLOCK_CHANCE = 0.4f;
+    public static final float ATTACK_CHANCE = 0.8f;
+    public static final float NON_CONTACT_DECISION_DELAY = 0.5f;
+    public static final float PURSUE_PLAYER_CHANCE_EASY = 0.2f;
+    public static final float PURSUE_PLAYER_CHANCE_MEDIUM = 0.5f;
+    public static final float PURSUE_PLAYER_CHANCE_HARD = 1f;
+    public static final float ANTICIPATION_ADAPTIVE = 0.5f;
+
+    public String name;
+
+    // delay before making another decision while within contact distance (attack, block, etc.)
+    public float contactDecisionDelay;
+
+    // delay before deciding again whether to pursue the target while not within contact distance
+    public float nonContactDecisionDelay;
+
+    // chance of blocking (instead of moving away) when the target attacks
+    public float blockChance;
+
+    // chance of attacking (instead of moving away) when the target isn't attacking
+    public float attackChance;
+
+    // chance of pursuing the target (instead of moving randomly) while not within contact distance
+    public float pursueChance;
+
+    // how far to act on the target's predicted next action (0 to ignore it): the chance of anticipating an attack, by
+    // blocking early or attacking first, is this times the chance that the target attacks next
+    public float anticipation;
+
+    // the numbers above by index, under the names used in the data files (where behavior trees can refer to them)
+    public static final int NUMBER_COUNT = 6;
+    private static final String[] NUMBER_NAMES = {"contactDecisionDelay", "nonContactDecisionDelay", "blockChance",
+        "attackChance", "pursueChance", "anticipation"};
+
+    // decisions made by a behavior tree instead of the built-in ones (null if there isn't one)
+    public BehaviorTree behaviorTree;
+
+    // decisions looked up in a precomputed table instead (null if there isn't one); it takes precedence over the tree
+    public PolicyTable policyTable;
+
+    // decisions made by a neural network instead (null if there isn't one); a policy table takes precedence over it,
+    // and it over the tree
+    public PolicyNetwork policyNetwork;
+
+    // decisions imitating a recorded player instead (null if there isn't one); a policy table or network takes
+    // precedence over it, and it over the tree, which (or the built-in decisions) it leaves the situations it has no
+    // recording of to
+    public GhostIndex ghost;
+
+    // whether the game makes this profile's decisions on a worker thread (see AsyncOpponentAi), where they land a tick
+    // or so late, instead of in the match's update, as the sim tools do; by default only for the expensive decisions,
+    // a network's or a ghost's, so the shipped difficulties play as they are measured on any machine
+    public boolean offThread;
+
+    // profiles loaded from data files, which replace the built-in ones for their difficulty (set up once, at start-up)
+    private static final AiProfile[] loadedProfiles = new AiProfile[GlobalVariables.Difficulty.values().length];
+
+    public AiProfile() {
+    }
+
+    public AiProfile(String name, float contactDecisionDelay, float nonContactDecisionDelay, float blockChance,
+                     float attackChance, float pursueChance) {
+        this.name = name;
+        this.contactDecisionDelay = contactDecisionDelay;
+        this.nonContactDecisionDelay = nonContactDecisionDelay;
+        this.blockChance = blockChance;
+        this.attackChance = attackChance;
+        this.pursueChance = pursueChance;
+    }
+
+    public AiProfile copy() {
+        AiProfile copy = new AiProfile(name, contactDecisionDelay, nonContactDecisionDelay, blockChance, attackChance,
+            pursueChance);
+        copy.anticipation = anticipation;
+        copy.behaviorTree = behaviorTree;
+        copy.policyTable = policyTable;
+        copy.policyNetwork = policyNetwork;
+        copy.ghost = ghost;
+        copy.offThread = offThread;
+        return copy;
+    }
+
+    public static String getNumberName(int index) {
+        return NUMBER_NAMES[index];
+    }
+
+    public static int indexOfNumber(String name) {
+        // the index of the named number, or -1 if there's no such number
+        for (int i = 0; i < NUMBER_COUNT; i++) {
+            if (NUMBER_NAMES[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    public float getNumber(int index) {
+        switch (index) {
+            case 0:
+                return contactDecisionDelay;
+            case 1:
+                return nonContactDecisionDelay;
+            case 2:
+                return blockChance;
+            case 3:
+                return attackChance;
+            case 4:
+                return pursueChance;
+            default:
+                return anticipation;
+        }
+    }
+
+    public void setNumber(int index, float value) {
+        switch (index) {
+            case 0:
+                contactDecisionDelay = value;
+                break;
+            case 1:
+                nonContactDecisionDelay = value;
+                break;
+            case 2:
+                blockChance = value;
+                break;
+            case 3:
+                attackChance = value;
+                break;
+            case 4:
+                pursueChance = value;
+                break;
+            default:
+                anticipation = value;
+        }
+    }
+
+    public static AiProfile forDifficulty(GlobalVariables.Difficulty difficulty) {
+        // the loaded profile for the difficulty, if there is one; EXPERT has no built-in profile (null), since its
+        // opponent is played through its input by an ExpertOpponent
+        AiProfile loadedProfile = loadedProfiles[difficulty.ordinal()];
+        if (loadedProfile != null) return loadedProfile.copy();
+        return difficulty == GlobalVariables.Difficulty.EXPERT ? null : builtIn(difficulty);
+    }
+
+    public static void setDifficultyProfile(GlobalVariables.Difficulty difficulty, AiProfile profile) {
+        // use the given profile for the difficulty from now on (or the built-in one again, if it's null)
+        loadedProfiles[difficulty.ordinal()] = profile;
+    }
+
+    public static AiProfile load(FileHandle file) {
+        // a policy table, network or ghost is named by its file, next to the profile file
+        JsonValue json = new JsonReader().parse(file);
+        AiProfile profile = fromJson(json);
+        String policyTable = json.getString("policyTable", null);
+        if (policyTable != null) {
+            profile.policyTable = PolicyTable.load(file.sibling(policyTable));
+        }
+        String policyNetwork = json.getString("policyNetwork", null);
+        if (policyNetwork != null) {
+            profile.policyNetwork = PolicyNetwork.load(file.sibling(policyNetwork));
+        }
+        String ghost = json.getString("ghost", null);
+        if (ghost != null) {
+            profile.ghost = GhostIndex.load(file.sibling(ghost));
+        }
+        profile.offThread = json.getBoolean("offThread", profile.policyTable == null &&
+            (profile.policyNetwork != null || profile.ghost != null));
+        return profile;
+    }
+
+    public static AiProfile fromJson(JsonValue json) {
+        // any number left out is that of the built-in profile of the difficulty the profile is named after (or HARD)
+        String name = json.getString("name");
+        AiProfile profile = builtIn(GlobalVariables.Difficulty.HARD);
+        for (GlobalVariables.Difficulty difficulty : GlobalVariables.Difficulty.values()) {
+            if (difficulty.name().equalsIgnoreCase(name)) {
+                profile = builtIn(difficulty);
+            }
+        }
+        profile.name = name;
+        for (int i = 0; i < NUMBER_COUNT; i++) {
+            profile.setNumber(i, json.getFloat(NUMBER_NAMES[i], profile.getNumber(i)));
+        }
+        if (json.has("behaviorTree")) {
+            profile.behaviorTree = BehaviorTree.compile(name, json.get("behaviorTree"), json.get("subtrees"));
+        }
+        return profile;
+    }
+
+    public static AiProfile builtIn(GlobalVariables.Difficulty difficulty) {
+        switch (difficulty) {
+            case EASY:
+                return new AiProfile("EASY", CONTACT_DECISION_DELAY_EASY, NON_CONTACT_DECISION_DELAY, BLOCK_CHANCE,
+                    ATTACK_CHANCE, PURSUE_PLAYER_CHANCE_EASY);
+            case MEDIUM:
+                return new AiProfile("MEDIUM", CONTACT_DECISION_DELAY_MEDIUM, NON_CONTACT_DECISION_DELAY, BLOCK_CHANCE,
+                    ATTACK_CHANCE, PURSUE_PLAYER_CHANCE_MEDIUM);
+            case ADAPTIVE:
+                // HARD, anticipating the target's habits
+                AiProfile profile = new AiProfile("ADAPTIVE", CONTACT_DECISION_DELAY_HARD, NON_CONTACT_DECISION_DELAY,
+                    BLOCK_CHANCE, ATTACK_CHANCE, PURSUE_PLAYER_CHANCE_HARD);
+                profile.anticipation = ANTICIPATION_ADAPTIVE;
+                return profile;
+            default:
+                return new AiProfile("HARD", CONTACT_DECISION_DELAY_HARD, NON_CONTACT_DECISION_DELAY, BLOCK_CHANCE,
+                    ATTACK_CHANCE, PURSUE_PLAYER_CHANCE_HARD);
+        }
+    }
+
+    public boolean isPredictingTarget() {
+        // whether anything acts on the target's predicted next action, i.e. whether the AI has to learn its habits
+        return anticipation > 0f || behaviorTree != null && behaviorTree.predictsTarget;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,201 @@
+package com.mfein.sfs.simulation;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Vector2;
+import com.mfein.sfs.objects.Fighter;
+import com.mfein.sfs.resources.GlobalVariables;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays opponent through its input, with its AI profile's decisions made on a worker thread instead of in the match's
+ * update, so an expensive AI can't make a frame late and runs on a spare core. Every tick, the caller (the render
+ * thread) hands the worker a snapshot of the match through one {@link SpscRing} and drains the worker's commands (the
+ * input its AI would hold) from another; the worker restores each snapshot into a match of its own and runs a
+ * {@link FighterAi} there. Neither side locks or allocates, and the caller never waits: a command lands a tick or so
+ * after the state it was decided in, and until the next one arrives, the last one is held. If the worker falls behind,
+ * snapshots that don't fit are dropped and it decides from the newest one it has.
+ */
+public class AsyncOpponentAi {
+    private static final int SNAPSHOT_SLOTS = 4;
+    private static final int COMMAND_SLOTS = 16;
+
+    // inputs held until the next command, and inputs only pressed for the tick their command is taken up in
+    private static final int HELD_INPUT = FighterInput.LEFT | FighterInput.RIGHT | FighterInput.UP | FighterInput.DOWN |
+        FighterInput.BLOCK;
+    private static final int ATTACK_INPUT = FighterInput.PUNCH | FighterInput.KICK;
+
+    private final float stepTime;
+    private final Thread worker;
+
+    // caller to worker: snapshots of the match, each with the profile to decide with and the caller's generation
+    private final SpscRing snapshotRing = new SpscRing(SNAPSHOT_SLOTS);
+    private final MatchSnapshot[] snapshots = new MatchSnapshot[SNAPSHOT_SLOTS];
+    private final AiProfile[] snapshotProfiles = new AiProfile[SNAPSHOT_SLOTS];
+    private final int[] snapshotGenerations = new int[SNAPSHOT_SLOTS];
+
+    // worker to caller: commands, each the generation of the snapshot it was decided in (high half) and the input
+    private final SpscRing commandRing = new SpscRing(COMMAND_SLOTS);
+    private final long[] commands = new long[COMMAND_SLOTS];
+
+    private volatile boolean disposed;
+    private volatile long decisions;
+
+    // the caller's side: the generation (bumped whenever the AI should start afresh, so commands from before are
+    // dropped), the input held, and the snapshots that didn't fit
+    private int generation;
+    private int heldInput;
+    private long droppedSnapshots;
+
+    // the worker's side: the match to decide in, the AI deciding, and the snapshot it last decided from
+    private final MatchSimulation simulation;
+    private final MatchRandom random = new MatchRandom(0);
+    private final FighterAi ai;
+    private int lastGeneration = -1;
+    private int lastRound;
+    private int lastTick;
+
+    public AsyncOpponentAi(float stepTime) {
+        this.stepTime = stepTime;
+        for (int i = 0; i < SNAPSHOT_SLOTS; i++) {
+            snapshots[i] = new MatchSnapshot();
+        }
+
+        // a match of its own, whose fighters are only ever moved by restoring snapshots; the AI isn't part of it, so
+        // its timers carry on from one snapshot to the next
+        simulation = new MatchSimulation(new Fighter("Player", Color.WHITE), new Fighter("Opponent", Color.WHITE));
+        simulation.setOpponentAiProfile(null);
+        ai = new FighterAi(simulation.getOpponent(), simulation.getPlayer(), random,
+            AiProfile.builtIn(GlobalVariables.Difficulty.EASY));
+
+        worker = new Thread(this::run, "opponent-ai");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public int update(MatchSimulation simulation, AiProfile profile) {
+        // get opponent's input for the simulation's next update
+        if (simulation.getRoundState() != MatchSimulation.RoundState.IN_PROGRESS) {
+            // stand still between rounds, and decide afresh once the next one is under way
+            reset();
+            return FighterInput.NONE;
+        }
+        if (!simulation.isRunning()) {
+            // the match is frozen, so nothing moves on
+            return heldInput;
+        }
+
+        // take up the commands that have arrived: the last one's movement and blocking, and any of their attacks
+        int attacks = FighterInput.NONE;
+        for (int slot = commandRing.peek(); slot >= 0; slot = commandRing.peek()) {
+            long command = commands[slot];
+            commandRing.release();
+            if ((int) (command >>> 32) == generation) {
+                heldInput = (int) command & HELD_INPUT;
+                attacks |= (int) command & ATTACK_INPUT;
+            }
+        }
+
+        // hand the worker the match as it is now, unless it still has all the slots to get through
+        int slot = snapshotRing.claim();
+        if (slot >= 0) {
+            simulation.save(snapshots[slot]);
+            snapshotProfiles[slot] = profile;
+            snapshotGenerations[slot] = generation;
+            snapshotRing.publish();
+            LockSupport.unpark(worker);
+        } else {
+            droppedSnapshots++;
+        }
+
+        return heldInput | attacks;
+    }
+
+    public void reset() {
+        // forget the input held (and the commands on their way) when the match starts over, moves on to another round
+        // or is restored
+        generation++;
+        heldInput = FighterInput.NONE;
+    }
+
+    public long getDecisions() {
+        return decisions;
+    }
+
+    public long getDroppedSnapshots() {
+        return droppedSnapshots;
+    }
+
+    public void dispose() {
+        disposed = true;
+        LockSupport.unpark(worker);
+    }
+
+    private void run() {
+        while (!disposed) {
+            int slot = snapshotRing.peek();
+            if (slot < 0) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            // decide from the newest snapshot; any older ones are already out of date
+            while (snapshotRing.size() > 1) {
+                snapshotRing.release();
+                slot = snapshotRing.peek();
+            }
+            decide(slot);
+            snapshotRing.release();
+        }
+    }
+
+    private void decide(int slot) {
+        simulation.restore(snapshots[slot]);
+        int snapshotGeneration = snapshotGenerations[slot];
+        int tick = simulation.getTick();
+
+        // the AI starts afresh in a new generation or round; otherwise its timers run for the ticks since it last
+        // decided (more than one if snapshots were dropped or skipped)
+        float deltaTime = stepTime;
+        if (snapshotGeneration != lastGeneration || simulation.getCurrentRound() != lastRound || tick <= lastTick) {
+            random.setSeed(simulation.getSeed() + tick, MatchSimulation.AI_RANDOM_STREAM);
+            ai.reset();
+        } else {
+            deltaTime = (tick - lastTick) * stepTime;
+        }
+        lastGeneration = snapshotGeneration;
+        lastRound = simulation.getCurrentRound();
+        lastTick = tick;
+
+        // let the AI move its fighter, then tell the caller how to do the same through its input
+        Fighter self = simulation.getOpponent();
+        boolean wasAttacking = self.isAttacking();
+        ai.setProfile(snapshotProfiles[slot]);
+        ai.setRoundTimer(simulation.getRoundTimer());
+        ai.update(deltaTime);
+        int input = getInput(self, wasAttacking);
+
+        // if the caller hasn't drained the commands in a while, it has stopped updating, so the command can go
+        int commandSlot = commandRing.claim();
+        if (commandSlot >= 0) {
+            commands[commandSlot] = (long) snapshotGeneration << 32 | input;
+            commandRing.publish();
+        }
+        decisions++;
+    }
+
+    private static int getInput(Fighter fighter, boolean wasAttacking) {
+        // the input that has a fighter doing what it's doing: moving, blocking, or starting an attack
+        Vector2 direction = fighter.getMovementDirection();
+        int input = direction.x < 0 ? FighterInput.LEFT : direction.x > 0 ? FighterInput.RIGHT : FighterInput.NONE;
+        input |= direction.y > 0 ? FighterInput.UP : direction.y < 0 ? FighterInput.DOWN : FighterInput.NONE;
+        if (fighter.isBlocking()) {
+            input |= FighterInput.BLOCK;
+        } else if (!wasAttacking && fighter.getState() == Fighter.State.PUNCH) {
+            input |= FighterInput.PUNCH;
+        } else if (!wasAttacking && fighter.getState() == Fighter.State.KICK) {
+            input |= FighterInput.KICK;
+        }
+        return input;
+    }
+}
@@ -0,0 +1,269 @@
+package com.mfein.sfs.simulation;
+
+import com.badlogic.gdx.utils.JsonValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link FighterAi}'s decisions as a behavior tree, defined in a data file and compiled when it's loaded into flat
+ * arrays that the AI walks every update without allocating. The nodes are stored depth-first, so a node's first child
+ * comes right after it and each further child comes right after the end of the previous child's subtree. The tree is
+ * run from the root every update; what the AI remembers between updates is its timer, its flags and what it has
+ * learned of the target's habits (see {@link ActionPredictor}), so a tree keeps the same state (and snapshots) as the
+ * built-in decisions.
+ *
+ * <p>A node is the name of a node type, or an object with the name of a node type and its argument: the children of a
+ * sequence or selector, the child of a decorator, or the parameter of a condition or action. The number of a chance,
+ * targetLikelyToAttack or setTimer can also be the name of one of the {@link AiProfile}'s numbers, e.g.
+ * <code>{"chance": "blockChance"}</code>, which is read from the AI's profile when the node runs (so tuning the profile
+ * tunes the tree). A subtree defined under "subtrees" can be used anywhere as <code>{"subtree": "name"}</code>, as if
+ * it had been written out there.
+ *
+ * <pre>
+ * composites:  sequence [children] (runs them until one fails), selector [children] (runs them until one succeeds)
+ * decorators:  invert child (flips its result), succeed child (succeeds whatever its result)
+ * conditions:  blocking, attacking, targetAttacking, targetMadeContact, withinContactDistance, timerDone,
+ *              flag name, chance probability|profileNumber, oneIn n,
+ *              targetLikelyToAttack probability|profileNumber (chance scaled by how likely its next action is an attack)
+ * actions:     block, stopBlocking, punch, kick, moveTowardTarget, moveAwayFromTarget, moveRandomly,
+ *              setTimer seconds|profileNumber, countDownTimer, setFlag name, clearFlag name (always succeed)
+ * flags:       makingContactDecision, pursuingTarget, anticipatingAttack
+ * </pre>
+ */
+public class BehaviorTree {
+    // composites
+    static final int SEQUENCE = 0;
+    static final int SELECTOR = 1;
+
+    // decorators
+    static final int INVERT = 2;
+    static final int SUCCEED = 3;
+
+    // conditions
+    static final int BLOCKING = 4;
+    static final int ATTACKING = 5;
+    static final int TARGET_ATTACKING = 6;
+    static final int TARGET_MADE_CONTACT = 7;
+    static final int WITHIN_CONTACT_DISTANCE = 8;
+    static final int TIMER_DONE = 9;
+    static final int FLAG = 10;
+    static final int CHANCE = 11;
+    static final int ONE_IN = 12;
+    static final int TARGET_LIKELY_TO_ATTACK = 13;
+
+    // actions
+    static final int BLOCK = 14;
+    static final int STOP_BLOCKING = 15;
+    static final int PUNCH = 16;
+    static final int KICK = 17;
+    static final int MOVE_TOWARD_TARGET = 18;
+    static final int MOVE_AWAY_FROM_TARGET = 19;
+    static final int MOVE_RANDOMLY = 20;
+    static final int SET_TIMER = 21;
+    static final int COUNT_DOWN_TIMER = 22;
+    static final int SET_FLAG = 23;
+    static final int CLEAR_FLAG = 24;
+
+    // node type names, indexed by type, as used in the data files
+    private static final String[] TYPE_NAMES = {"sequence", "selector", "invert", "succeed", "blocking", "attacking",
+        "targetAttacking", "targetMadeContact", "withinContactDistance", "timerDone", "flag", "chance", "oneIn",
+        "targetLikelyToAttack", "block",
+        "stopBlocking", "punch", "kick", "moveTowardTarget", "moveAwayFromTarget", "moveRandomly", "setTimer",
+        "countDownTimer", "setFlag", "clearFlag"};
+
+    // flags, by index
+    static final int MAKING_CONTACT_DECISION = 0;
+    static final int PURSUING_TARGET = 1;
+    static final int ANTICIPATING_ATTACK = 2;
+    private static final String[] FLAG_NAMES = {"makingContactDecision", "pursuingTarget", "anticipatingAttack"};
+
+    private static final String SUBTREE = "subtree";
+
+    private final String name;
+
+    // nodes, depth-first: each one's type, the index just past its subtree, its parameter (a flag's index, a count
+    // or a number; 0 if it has none), and the index of the profile number it uses instead (-1 if it doesn't)
+    final int[] types;
+    final int[] ends;
+    final float[] parameters;
+    final int[] profileNumbers;
+
+    // most composites and decorators on any path from the root, i.e. the stack a walk of the tree needs
+    final int depth;
+
+    // whether the tree checks the target's predicted next action
+    final boolean predictsTarget;
+
+    private BehaviorTree(String name, int[] types, int[] ends, float[] parameters, int[] profileNumbers, int depth) {
+        this.name = name;
+        this.types = types;
+        this.ends = ends;
+        this.parameters = parameters;
+        this.profileNumbers = profileNumbers;
+        this.depth = depth;
+        boolean predictsTarget = false;
+        for (int type : types) {
+            if (type == TARGET_LIKELY_TO_ATTACK) predictsTarget = true;
+        }
+        this.predictsTarget = predictsTarget;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getNodeCount() {
+        return types.length;
+    }
+
+    public static BehaviorTree compile(String name, JsonValue root, JsonValue subtrees) {
+        Compiler compiler = new Compiler(subtrees);
+        compiler.compile(root, 0);
+        return new BehaviorTree(name, Arrays.copyOf(compiler.types, compiler.count),
+            Arrays.copyOf(compiler.ends, compiler.count), Arrays.copyOf(compiler.parameters, compiler.count),
+            Arrays.copyOf(compiler.profileNumbers, compiler.count), compiler.depth);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static class Compiler {
+        private final JsonValue subtrees;
+        private final List<String> expandingSubtrees = new ArrayList<>();
+
+        private int[] types = new int[64];
+        private int[] ends = new int[64];
+        private float[] parameters = new float[64];
+        private int[] profileNumbers = new int[64];
+        private int count;
+        private int depth;
+
+        Compiler(JsonValue subtrees) {
+            this.subtrees = subtrees;
+        }
+
+        void compile(JsonValue node, int level) {
+            // a node is either a bare type name, or an object with a single type name and its argument
+            String typeName;
+            JsonValue argument;
+            if (node.isString()) {
+                typeName = node.asString();
+                argument = null;
+            } else if (node.isObject() && node.size == 1) {
+                typeName = node.child.name;
+                argument = node.child;
+            } else {
+                throw new IllegalArgumentException("Not a behavior tree node: " + node);
+            }
+
+            // subtrees are written out in place
+            if (typeName.equals(SUBTREE)) {
+                compileSubtree(argument, level);
+                return;
+            }
+
+            int type = indexOf(TYPE_NAMES, typeName, "node type");
+            int index = add(type);
+            switch (type) {
+                case SEQUENCE:
+                case SELECTOR:
+                    if (argument == null || !argument.isArray() || argument.size == 0) {
+                        throw new IllegalArgumentException(typeName + " needs an array of children");
+                    }
+                    depth = Math.max(depth, level + 1);
+                    for (JsonValue child = argument.child; child != null; child = child.next) {
+                        compile(child, level + 1);
+                    }
+                    break;
+                case INVERT:
+                case SUCCEED:
+                    if (argument == null || argument.isArray() || argument.isNumber()) {
+                        throw new IllegalArgumentException(typeName + " needs a single child");
+                    }
+                    depth = Math.max(depth, level + 1);
+                    compile(argument, level + 1);
+                    break;
+                case FLAG:
+                case SET_FLAG:
+                case CLEAR_FLAG:
+                    parameters[index] = indexOf(FLAG_NAMES, getArgument(typeName, argument).asString(), "flag");
+                    break;
+                case CHANCE:
+                case TARGET_LIKELY_TO_ATTACK:
+                case SET_TIMER:
+                    argument = getArgument(typeName, argument);
+                    if (argument.isString()) {
+                        profileNumbers[index] = indexOfProfileNumber(argument.asString());
+                    } else {
+                        parameters[index] = argument.asFloat();
+                    }
+                    break;
+                case ONE_IN:
+                    int n = getArgument(typeName, argument).asInt();
+                    if (n < 1) {
+                        throw new IllegalArgumentException("oneIn needs a count of at least 1");
+                    }
+                    parameters[index] = n;
+                    break;
+                default:
+                    if (argument != null && !argument.isNull()) {
+                        throw new IllegalArgumentException(typeName + " doesn't take an argument");
+                    }
+            }
+            ends[index] = count;
+        }
+
+        private void compileSubtree(JsonValue argument, int level) {
+            String subtreeName = getArgument(SUBTREE, argument).asString();
+            JsonValue subtree = subtrees == null ? null : subtrees.get(subtreeName);
+            if (subtree == null) {
+                throw new IllegalArgumentException("Unknown subtree: " + subtreeName);
+            }
+            if (expandingSubtrees.contains(subtreeName)) {
+                throw new IllegalArgumentException("Subtree uses itself: " + subtreeName);
+            }
+            expandingSubtrees.add(subtreeName);
+            compile(subtree, level);
+            expandingSubtrees.remove(subtreeName);
+        }
+
+        private int add(int type) {
+            if (count == types.length) {
+                types = Arrays.copyOf(types, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+                parameters = Arrays.copyOf(parameters, count * 2);
+                profileNumbers = Arrays.copyOf(profileNumbers, count * 2);
+            }
+            types[count] = type;
+            parameters[count] = 0f;
+            profileNumbers[count] = -1;
+            return count++;
+        }
+
+        private static JsonValue getArgument(String typeName, JsonValue argument) {
+            if (argument == null || !argument.isValue() || argument.isNull()) {
+                throw new IllegalArgumentException(typeName + " needs an argument");
+            }
+            return argument;
+        }
+
+        private static int indexOfProfileNumber(String name) {
+            int index = AiProfile.indexOfNumber(name);
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown profile number: " + name);
+            }
+            return index;
+        }
+
+        private static int indexOf(String[] names, String name, String what) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(name)) return i;
+            }
+            throw new IllegalArgumentException("Unknown " + what + ": " + name);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.mfein.sfs.simulation;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays opponent on EXPERT, through its input: an {@link MctsPlanner} picks each next action on a worker thread, from
+ * a snapshot of the match taken a little before the current action ends, so the caller (the render thread) only ever
+ * copies a snapshot or reads a decision and never waits for the search. A new search is only asked for while the
+ * worker is idle, so there's a single request and a single decision in flight; they are handed over through volatile
+ * counters, and the worker parks in between, so neither side locks or allocates. A decision that arrives late just
+ * lets the current action go on a little longer.
+ */
+public class ExpertOpponent {
+    public static final long DEFAULT_BUDGET_NANOS = 8_000_000L;
+
+    private final MctsPlanner planner;
+    private final long budgetNanos;
+    private final int aheadTicks;
+    private final Thread worker;
+
+    // the request, written by the caller before it bumps requestCount, and the decision, written by the worker before
+    // it bumps decisionCount; the worker is busy while the two counts differ
+    private final MatchSnapshot request = new MatchSnapshot();
+    private int requestAction;
+    private int requestActionTick;
+    private long requestSeed;
+    private int decidedAction;
+    private volatile int requestCount;
+    private volatile int decisionCount;
+    private volatile boolean disposed;
+
+    // the caller's side: the action being played and its next tick, the last decision taken up, and the last request
+    // made before the match was reset, whose decision no longer applies
+    private int action;
+    private int actionTick = MctsPlanner.ACTION_TICKS;
+    private int decisionsTaken;
+    private int staleRequest = -1;
+
+    public ExpertOpponent(float stepTime, long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+        planner = new MctsPlanner(stepTime, MctsPlanner.DEFAULT_POOL_SIZE);
+
+        // a decision is used as soon as it's ready, so it's asked for the ticks the search takes before the current
+        // action ends (at least one)
+        aheadTicks = Math.max(1, (int) Math.ceil(budgetNanos / (stepTime * 1e9)));
+
+        worker = new Thread(this::run, "expert-ai");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public int update(MatchSimulation simulation) {
+        // get opponent's input for the simulation's next update
+        if (simulation.getRoundState() != MatchSimulation.RoundState.IN_PROGRESS) {
+            // stand still between rounds, and decide afresh once the next one is under way
+            reset();
+            return FighterInput.NONE;
+        }
+        if (!simulation.isRunning()) {
+            // the match is frozen, so nothing moves on
+            return MctsPlanner.getActionInput(action, actionTick);
+        }
+
+        // take up a decision that has arrived, once the match has got to the tick it was made for (or drop it, if the
+        // match has been reset since it was asked for)
+        boolean planning = requestCount != decisionCount;
+        if (!planning && decisionsTaken != decisionCount) {
+            if (decisionCount == staleRequest) {
+                decisionsTaken = decisionCount;
+            } else if (actionTick >= requestActionTick + aheadTicks) {
+                decisionsTaken = decisionCount;
+                action = decidedAction;
+                actionTick = 0;
+            }
+        }
+
+        // ask for the next action in time for the current one to end
+        if (!planning && decisionsTaken == decisionCount && actionTick >= MctsPlanner.ACTION_TICKS - aheadTicks) {
+            simulation.save(request);
+            requestAction = action;
+            requestActionTick = actionTick;
+            requestSeed = simulation.getSeed() + simulation.getTick();
+            requestCount++;
+            LockSupport.unpark(worker);
+        }
+
+        return MctsPlanner.getActionInput(action, actionTick++);
+    }
+
+    public void reset() {
+        // forget the current action (and the decision being made, if any) when the match starts over or is restored
+        action = 0;
+        actionTick = MctsPlanner.ACTION_TICKS;
+        staleRequest = requestCount;
+    }
+
+    public boolean isPlanning() {
+        return requestCount != decisionCount;
+    }
+
+    public int getDecisions() {
+        return decisionCount;
+    }
+
+    public long getPlayouts() {
+        return planner.getPlayouts();
+    }
+
+    public int getLastPlayouts() {
+        return planner.getLastPlayouts();
+    }
+
+    public double getPlayoutsPerSecond() {
+        // only meant for reporting, so it may lag a decision behind
+        return planner.getPlayoutsPerSecond();
+    }
+
+    public void dispose() {
+        disposed = true;
+        LockSupport.unpark(worker);
+    }
+
+    private void run() {
+        while (!disposed) {
+            int count = requestCount;
+            if (count == decisionCount) {
+                LockSupport.park(this);
+                continue;
+            }
+            decidedAction = planner.plan(request, requestAction, requestActionTick, aheadTicks, budgetNanos,
+                requestSeed);
+            decisionCount = count;
+        }
+    }
+}
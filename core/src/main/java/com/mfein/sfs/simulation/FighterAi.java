@@ -0,0 +1,457 @@
+package com.mfein.sfs.simulation;
+
+import com.badlogic.gdx.math.Vector2;
+import com.mfein.sfs.objects.Fighter;
+
+public class FighterAi {
+    // how long to hold a block in anticipation of an attack the target hasn't started yet
+    public static final float ANTICIPATION_BLOCK_TIME = 0.1f;
+
+    // fighters
+    private final Fighter self;
+    private final Fighter target;
+
+    // random numbers for the decisions
+    private final MatchRandom random;
+
+    // decisions
+    private AiProfile profile;
+    private float aiTimer;
+    private boolean makingContactDecision;
+    private boolean pursuingTarget;
+    private boolean anticipatingAttack;
+
+    // the target's habits, learned during the match
+    private final ActionPredictor targetPredictor = new ActionPredictor();
+
+    // time left in the round, for a policy network to decide with (set by the match before each update)
+    private float roundTimer = MatchSimulation.MAX_ROUND_TIME;
+
+    // policy network evaluation: the features, every layer's activations and the outputs
+    private float[] networkBuffer = new float[0];
+
+    // behavior tree walk: the composites and decorators above the current node, and the nodes run so far
+    private int[] treeStack = new int[8];
+    private long treeNodesRun;
+
+    public FighterAi(Fighter self, Fighter target, MatchRandom random, AiProfile profile) {
+        this.self = self;
+        this.target = target;
+        this.random = random;
+        this.profile = profile;
+    }
+
+    public AiProfile getProfile() {
+        return profile;
+    }
+
+    public void setProfile(AiProfile profile) {
+        this.profile = profile;
+    }
+
+    public void setRoundTimer(float roundTimer) {
+        this.roundTimer = roundTimer;
+    }
+
+    public ActionPredictor getTargetPredictor() {
+        return targetPredictor;
+    }
+
+    public long getTreeNodesRun() {
+        // behavior tree nodes run since the AI was created, to measure what a tree costs per update
+        return treeNodesRun;
+    }
+
+    public void reset() {
+        aiTimer = 0f;
+        makingContactDecision = false;
+        pursuingTarget = false;
+        anticipatingAttack = false;
+        targetPredictor.reset();
+    }
+
+    public void save(MatchSnapshot snapshot) {
+        snapshot.putFloat(aiTimer);
+        snapshot.putBoolean(makingContactDecision);
+        snapshot.putBoolean(pursuingTarget);
+        snapshot.putBoolean(anticipatingAttack);
+        targetPredictor.save(snapshot);
+    }
+
+    public long hash(long hash) {
+        hash = StateHash.mix(hash, aiTimer);
+        hash = StateHash.mix(hash, makingContactDecision);
+        hash = StateHash.mix(hash, pursuingTarget);
+        hash = StateHash.mix(hash, anticipatingAttack);
+        return targetPredictor.hash(hash);
+    }
+
+    public void describe(StringBuilder text, String prefix) {
+        text.append(prefix).append("aiTimer: ").append(aiTimer).append('\n');
+        text.append(prefix).append("makingContactDecision: ").append(makingContactDecision).append('\n');
+        text.append(prefix).append("pursuingTarget: ").append(pursuingTarget).append('\n');
+        text.append(prefix).append("anticipatingAttack: ").append(anticipatingAttack).append('\n');
+        targetPredictor.describe(text, prefix + "targetPredictor.");
+    }
+
+    public void restore(MatchSnapshot snapshot) {
+        aiTimer = snapshot.getFloat();
+        makingContactDecision = snapshot.getBoolean();
+        pursuingTarget = snapshot.getBoolean();
+        anticipatingAttack = snapshot.getBoolean();
+        targetPredictor.restore(snapshot);
+    }
+
+    public void update(float deltaTime) {
+        // learn from what the target is doing now, whatever makes the decisions (if anything acts on what's learned)
+        if (profile.isPredictingTarget()) {
+            targetPredictor.observe(target);
+        }
+
+        // if the profile has a policy table, a policy network, a ghost or a behavior tree, it makes the decisions
+        // instead (a ghost only where it has a recording of the situation)
+        if (profile.policyTable != null) {
+            FighterInput.applyHeld(self, profile.policyTable.getInput(self, target));
+            return;
+        }
+        if (profile.policyNetwork != null) {
+            PolicyNetwork network = profile.policyNetwork;
+            if (networkBuffer.length < network.getBufferSize()) {
+                networkBuffer = new float[network.getBufferSize()];
+            }
+            FighterInput.applyHeld(self, network.getInput(self, target, roundTimer, networkBuffer));
+            return;
+        }
+        if (profile.ghost != null) {
+            int input = profile.ghost.getInput(self, target, random);
+            if (input >= 0) {
+                FighterInput.applyHeld(self, input);
+                return;
+            }
+        }
+        if (profile.behaviorTree != null) {
+            runBehaviorTree(profile.behaviorTree, deltaTime);
+            return;
+        }
+
+        // check if the AI is making a contact decision (attack, block, etc.)
+        if (makingContactDecision) {
+            if (self.isBlocking()) {
+                boolean withinContactDistance = MatchSimulation.areWithinContactDistance(target.getPosition(),
+                    self.getPosition());
+                if (anticipatingAttack && !target.isAttacking() && withinContactDistance && aiTimer > 0f) {
+                    // if the AI is blocking in anticipation of an attack, keep blocking until the AI timer has finished
+                    aiTimer -= deltaTime;
+                } else if (!withinContactDistance || !target.isAttacking() || target.hasMadeContact()) {
+                    // if the AI is blocking, stop blocking if the fighters are not within contact distance, or the
+                    // target isn't attacking, or the target has attacked and made contact
+                    self.stopBlocking();
+                    if (anticipatingAttack && withinContactDistance && target.hasMadeContact()) {
+                        // if the block was in anticipation of the attack that has just been blocked, counter it while
+                        // the target recovers
+                        attack();
+                    }
+                    anticipatingAttack = false;
+                }
+            } else if (!self.isAttacking()) {
+                // if the AI isn't currently attacking, check if the fighters are within contact distance
+                if (MatchSimulation.areWithinContactDistance(target.getPosition(), self.getPosition())) {
+                    if (aiTimer <= 0f) {
+                        // if the fighters are within contact distance and the AI timer has finished, make a contact
+                        // decision
+                        makeContactDecision();
+                    } else {
+                        // decrease the AI timer by delta time
+                        aiTimer -= deltaTime;
+                    }
+                } else {
+                    // if the fighters aren't within contact distance, the AI shouldn't make a contact decision
+                    makingContactDecision = false;
+                }
+            }
+
+        } else {
+            if (MatchSimulation.areWithinContactDistance(target.getPosition(), self.getPosition())) {
+                // if the AI isn't currently making a contact decision and the fighters are within contact distance,
+                // make a contact decision
+                makeContactDecision();
+            } else {
+                if (aiTimer <= 0f) {
+                    // if the fighters are not within contact distance and the AI timer has finished, either pursue the
+                    // target or move in a random direction
+                    if (random.random() <= profile.pursueChance) {
+                        // the AI is pursuing the target
+                        pursuingTarget = true;
+
+                        // move in the direction of the target
+                        moveTowardTarget();
+                    } else {
+                        // the AI is not pursuing the target
+                        pursuingTarget = false;
+
+                        // move in a random direction
+                        moveRandomly();
+                    }
+
+                    // set the AI timer to the non-contact decision delay
+                    aiTimer = profile.nonContactDecisionDelay;
+
+                } else {
+                    // if the AI is pursuing the target, move in the direction of the target
+                    if (pursuingTarget) {
+                        moveTowardTarget();
+                    }
+
+                    // decrease the AI timer by delta time
+                    aiTimer -= deltaTime;
+                }
+            }
+        }
+    }
+
+    private void runBehaviorTree(BehaviorTree tree, float deltaTime) {
+        int[] types = tree.types;
+        int[] ends = tree.ends;
+        float[] parameters = tree.parameters;
+        int[] profileNumbers = tree.profileNumbers;
+        if (treeStack.length < tree.depth) {
+            treeStack = new int[tree.depth];
+        }
+        int[] stack = treeStack;
+        int top = 0;
+        int node = 0;
+        int nodesRun = 0;
+
+        walk:
+        while (true) {
+            // go down to the first leaf, keeping track of the composites and decorators on the way
+            while (types[node] <= BehaviorTree.SUCCEED) {
+                stack[top++] = node++;
+                nodesRun++;
+            }
+            float parameter = profileNumbers[node] < 0 ? parameters[node] : profile.getNumber(profileNumbers[node]);
+            boolean result = runLeaf(types[node], parameter, deltaTime);
+            nodesRun++;
+
+            // go back up, until a composite has another child to run, or the root has finished
+            while (top > 0) {
+                int parent = stack[top - 1];
+                int next = ends[node];
+                switch (types[parent]) {
+                    case BehaviorTree.SEQUENCE:
+                        if (result && next < ends[parent]) {
+                            node = next;
+                            continue walk;
+                        }
+                        break;
+                    case BehaviorTree.SELECTOR:
+                        if (!result && next < ends[parent]) {
+                            node = next;
+                            continue walk;
+                        }
+                        break;
+                    case BehaviorTree.INVERT:
+                        result = !result;
+                        break;
+                    default:
+                        result = true;
+                }
+                node = parent;
+                top--;
+            }
+            break;
+        }
+        treeNodesRun += nodesRun;
+    }
+
+    private boolean runLeaf(int type, float parameter, float deltaTime) {
+        switch (type) {
+            // conditions
+            case BehaviorTree.BLOCKING:
+                return self.isBlocking();
+            case BehaviorTree.ATTACKING:
+                return self.isAttacking();
+            case BehaviorTree.TARGET_ATTACKING:
+                return target.isAttacking();
+            case BehaviorTree.TARGET_MADE_CONTACT:
+                return target.hasMadeContact();
+            case BehaviorTree.WITHIN_CONTACT_DISTANCE:
+                return MatchSimulation.areWithinContactDistance(target.getPosition(), self.getPosition());
+            case BehaviorTree.TIMER_DONE:
+                return aiTimer <= 0f;
+            case BehaviorTree.FLAG:
+                switch ((int) parameter) {
+                    case BehaviorTree.MAKING_CONTACT_DECISION:
+                        return makingContactDecision;
+                    case BehaviorTree.PURSUING_TARGET:
+                        return pursuingTarget;
+                    default:
+                        return anticipatingAttack;
+                }
+            case BehaviorTree.CHANCE:
+                return random.random() <= parameter;
+            case BehaviorTree.TARGET_LIKELY_TO_ATTACK:
+                return parameter > 0f && random.random() <= parameter * targetPredictor.getAttackProbability();
+            case BehaviorTree.ONE_IN:
+                return random.random((int) parameter - 1) == 0;
+
+            // actions
+            case BehaviorTree.BLOCK:
+                self.block();
+                break;
+            case BehaviorTree.STOP_BLOCKING:
+                self.stopBlocking();
+                break;
+            case BehaviorTree.PUNCH:
+                self.punch();
+                break;
+            case BehaviorTree.KICK:
+                self.kick();
+                break;
+            case BehaviorTree.MOVE_TOWARD_TARGET:
+                moveTowardTarget();
+                break;
+            case BehaviorTree.MOVE_AWAY_FROM_TARGET:
+                moveAwayFromTarget();
+                break;
+            case BehaviorTree.MOVE_RANDOMLY:
+                moveRandomly();
+                break;
+            case BehaviorTree.SET_TIMER:
+                aiTimer = parameter;
+                break;
+            case BehaviorTree.COUNT_DOWN_TIMER:
+                aiTimer -= deltaTime;
+                break;
+            case BehaviorTree.SET_FLAG:
+            case BehaviorTree.CLEAR_FLAG:
+                boolean value = type == BehaviorTree.SET_FLAG;
+                if ((int) parameter == BehaviorTree.MAKING_CONTACT_DECISION) {
+                    makingContactDecision = value;
+                } else if ((int) parameter == BehaviorTree.PURSUING_TARGET) {
+                    pursuingTarget = value;
+                } else {
+                    anticipatingAttack = value;
+                }
+                break;
+        }
+        return true;
+    }
+
+    private void makeContactDecision() {
+        makingContactDecision = true;
+        anticipatingAttack = false;
+
+        // make a contact decision
+        if (target.isAttacking()) {
+            // if the target is attacking and hasn't yet made contact, determine whether to block the attack or move away
+            // from the target
+            if (!target.hasMadeContact()) {
+                if (random.random() <= profile.blockChance) {
+                    // block the target's attack
+                    self.block();
+                } else {
+                    // move away from the target
+                    moveAwayFromTarget();
+                }
+            }
+        } else if (profile.anticipation > 0f &&
+            random.random() <= profile.anticipation * targetPredictor.getAttackProbability()) {
+            // if the target isn't attacking but is likely to attack next, determine whether to block in anticipation
+            // of its attack or get an attack in first
+            if (random.random() <= profile.blockChance) {
+                self.block();
+                anticipatingAttack = true;
+                aiTimer = ANTICIPATION_BLOCK_TIME;
+                return;
+            }
+            attack();
+        } else {
+            // if the target isn't attacking, determine whether to attack the target or move away from the target
+            if (random.random() <= profile.attackChance) {
+                attack();
+            } else {
+                // move away from the target
+                moveAwayFromTarget();
+            }
+        }
+
+        // set the AI timer to the profile's contact decision delay
+        aiTimer = profile.contactDecisionDelay;
+    }
+
+    private void attack() {
+        // attack the target (equal chance of punching or kicking)
+        if (random.random(1) == 0) {
+            self.punch();
+        } else {
+            self.kick();
+        }
+    }
+
+    private void moveTowardTarget() {
+        // move in the direction of the target's position
+        Vector2 targetPosition = target.getPosition();
+        Vector2 selfPosition = self.getPosition();
+        if (selfPosition.x > targetPosition.x + MatchSimulation.FIGHTER_CONTACT_DISTANCE_X) {
+            self.moveLeft();
+        } else if (selfPosition.x < targetPosition.x - MatchSimulation.FIGHTER_CONTACT_DISTANCE_X) {
+            self.moveRight();
+        } else {
+            self.stopMovingLeft();
+            self.stopMovingRight();
+        }
+        if (selfPosition.y < targetPosition.y - MatchSimulation.FIGHTER_CONTACT_DISTANCE_Y) {
+            self.moveUp();
+        } else if (selfPosition.y > targetPosition.y + MatchSimulation.FIGHTER_CONTACT_DISTANCE_Y) {
+            self.moveDown();
+        } else {
+            self.stopMovingUp();
+            self.stopMovingDown();
+        }
+    }
+
+    private void moveRandomly() {
+        // randomly set the horizontal movement
+        switch (random.random(2)) {
+            case 0:
+                self.moveLeft();
+                break;
+            case 1:
+                self.moveRight();
+                break;
+            default:
+                self.stopMovingLeft();
+                self.stopMovingRight();
+        }
+
+        // randomly set the vertical movement
+        switch (random.random(2)) {
+            case 0:
+                self.moveUp();
+                break;
+            case 1:
+                self.moveDown();
+                break;
+            default:
+                self.stopMovingUp();
+                self.stopMovingDown();
+        }
+    }
+
+    private void moveAwayFromTarget() {
+        // move away from the target's position
+        Vector2 targetPosition = target.getPosition();
+        Vector2 selfPosition = self.getPosition();
+        if (selfPosition.x > targetPosition.x) {
+            self.moveRight();
+        } else {
+            self.moveLeft();
+        }
+        if (selfPosition.y > targetPosition.y) {
+            self.moveUp();
+        } else {
+            self.moveDown();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.mfein.sfs.simulation;
+
+import com.badlogic.gdx.math.Vector2;
+import com.mfein.sfs.objects.Fighter;
+
+/**
+ * The built-in {@link FighterAi} decisions for many AI-controlled fighters at once, for crowd modes and mass
+ * simulation. Everything a decision reads or changes is kept as structure-of-arrays (one array per field, indexed by
+ * fighter), and {@link #update} makes every fighter's decision in a few passes over them: loops over primitive arrays
+ * only, with no fighter objects or virtual calls, which the JIT can unroll; the random number and contact distance
+ * passes are straight-line arithmetic that it can also vectorise, as far as the JVM supports the operations. The
+ * caller fills in where each fighter and its target are and what they're doing, with {@link #gather} or by writing
+ * the arrays directly, and takes each fighter's held input back out of {@link #inputs} (see
+ * {@link FighterInput#applyHeld}); the attack bits are only set for the update that decided to attack.
+ *
+ * <p>The decisions follow the built-in AI's rules and chances, but each fighter draws from its own small xorshift
+ * generator, one number per update, so a batch doesn't replay the same numbers as a {@link FighterAi} would. Profiles'
+ * behavior trees and policy tables aren't evaluated; only their numbers are used.
+ */
+public class FighterAiBatch {
+    // what a fighter and its target are doing, as bits of situations
+    public static final int SELF_BLOCKING = 1;
+    public static final int SELF_ATTACKING = 1 << 1;
+    public static final int TARGET_ATTACKING = 1 << 2;
+    public static final int TARGET_MADE_CONTACT = 1 << 3;
+
+    // the AI's own flags, as bits of aiFlags
+    private static final int MAKING_CONTACT_DECISION = 1;
+    private static final int PURSUING_TARGET = 1 << 1;
+
+    private static final int MOVEMENT_INPUT = FighterInput.LEFT | FighterInput.RIGHT | FighterInput.UP |
+        FighterInput.DOWN;
+
+    private final int capacity;
+    private int count;
+
+    // input: where each fighter and its target are, and what they're doing
+    public final float[] selfX, selfY, targetX, targetY;
+    public final int[] situations;
+
+    // each fighter's profile numbers
+    public final float[] contactDecisionDelays, nonContactDecisionDelays, blockChances, attackChances, pursueChances;
+
+    // each fighter's AI state and random number generator, and scratch space for update: the number drawn and
+    // whether the fighter is within contact distance
+    private final float[] aiTimers;
+    private final int[] aiFlags;
+    private final int[] randomStates;
+    private final float[] rolls;
+    private final int[] choices;
+    private final int[] contacts;
+
+    // output: each fighter's input, held until it's changed (the attack bits only for one update)
+    public final int[] inputs;
+
+    public FighterAiBatch(int capacity) {
+        this.capacity = capacity;
+        selfX = new float[capacity];
+        selfY = new float[capacity];
+        targetX = new float[capacity];
+        targetY = new float[capacity];
+        situations = new int[capacity];
+        contactDecisionDelays = new float[capacity];
+        nonContactDecisionDelays = new float[capacity];
+        blockChances = new float[capacity];
+        attackChances = new float[capacity];
+        pursueChances = new float[capacity];
+        aiTimers = new float[capacity];
+        aiFlags = new int[capacity];
+        randomStates = new int[capacity];
+        rolls = new float[capacity];
+        choices = new int[capacity];
+        contacts = new int[capacity];
+        inputs = new int[capacity];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        // only the first count fighters are updated
+        if (count < 0 || count > capacity) {
+            throw new IllegalArgumentException("A batch of " + capacity + " fighters can't update " + count);
+        }
+        this.count = count;
+    }
+
+    public void setProfile(int index, AiProfile profile) {
+        contactDecisionDelays[index] = profile.contactDecisionDelay;
+        nonContactDecisionDelays[index] = profile.nonContactDecisionDelay;
+        blockChances[index] = profile.blockChance;
+        attackChances[index] = profile.attackChance;
+        pursueChances[index] = profile.pursueChance;
+    }
+
+    public void reset(int index, long seed) {
+        // start the fighter's AI afresh, with its own random numbers (a xorshift state may not be zero)
+        aiTimers[index] = 0f;
+        aiFlags[index] = 0;
+        inputs[index] = FighterInput.NONE;
+        int state = (int) (seed ^ seed >>> 32);
+        randomStates[index] = state == 0 ? 1 : state;
+    }
+
+    public void gather(int index, Fighter self, Fighter target) {
+        // read a fighter and its target into the arrays
+        Vector2 selfPosition = self.getPosition();
+        Vector2 targetPosition = target.getPosition();
+        selfX[index] = selfPosition.x;
+        selfY[index] = selfPosition.y;
+        targetX[index] = targetPosition.x;
+        targetY[index] = targetPosition.y;
+        situations[index] = (self.isBlocking() ? SELF_BLOCKING : 0) | (self.isAttacking() ? SELF_ATTACKING : 0) |
+            (target.isAttacking() ? TARGET_ATTACKING : 0) | (target.hasMadeContact() ? TARGET_MADE_CONTACT : 0);
+    }
+
+    public void update(float deltaTime) {
+        int count = this.count;
+
+        // draw every fighter's random number for this update: a chance roll from the high half, and the low half for
+        // picking one of a few choices
+        for (int i = 0; i < count; i++) {
+            int x = randomStates[i];
+            x ^= x << 13;
+            x ^= x >>> 17;
+            x ^= x << 5;
+            randomStates[i] = x;
+            rolls[i] = (x >>> 16) * 0x1.0p-16f;
+            choices[i] = x & 0xffff;
+        }
+
+        // find the fighters within contact distance of their targets
+        for (int i = 0; i < count; i++) {
+            float xDistance = Math.abs(selfX[i] - targetX[i]);
+            float yDistance = Math.abs(selfY[i] - targetY[i]);
+            contacts[i] = xDistance <= MatchSimulation.FIGHTER_CONTACT_DISTANCE_X &&
+                yDistance <= MatchSimulation.FIGHTER_CONTACT_DISTANCE_Y ? 1 : 0;
+        }
+
+        // make the decisions
+        for (int i = 0; i < count; i++) {
+            decide(i, deltaTime);
+        }
+    }
+
+    private void decide(int i, float deltaTime) {
+        // the built-in AI's update (see FighterAi), on locals written back once (the attack bits only last an update)
+        int situation = situations[i];
+        int flags = aiFlags[i];
+        float timer = aiTimers[i];
+        int input = inputs[i] & ~(FighterInput.PUNCH | FighterInput.KICK);
+        boolean contact = contacts[i] != 0;
+        boolean contactDecision = false;
+        if ((flags & MAKING_CONTACT_DECISION) != 0) {
+            if ((situation & SELF_BLOCKING) != 0) {
+                // stop blocking once out of contact distance, or the target has stopped attacking or made contact
+                if (!contact || (situation & TARGET_ATTACKING) == 0 || (situation & TARGET_MADE_CONTACT) != 0) {
+                    input &= ~FighterInput.BLOCK;
+                }
+            } else if ((situation & SELF_ATTACKING) == 0) {
+                if (!contact) {
+                    flags &= ~MAKING_CONTACT_DECISION;
+                } else if (timer <= 0f) {
+                    contactDecision = true;
+                } else {
+                    timer -= deltaTime;
+                }
+            }
+        } else if (contact) {
+            contactDecision = true;
+        } else if (timer <= 0f) {
+            // pursue the target or move in a random direction, until the next non-contact decision
+            if (rolls[i] <= pursueChances[i]) {
+                flags |= PURSUING_TARGET;
+                input = getInputTowardTarget(i, input);
+            } else {
+                flags &= ~PURSUING_TARGET;
+                input = getRandomInput(i, input);
+            }
+            timer = nonContactDecisionDelays[i];
+        } else {
+            if ((flags & PURSUING_TARGET) != 0) {
+                input = getInputTowardTarget(i, input);
+            }
+            timer -= deltaTime;
+        }
+
+        if (contactDecision) {
+            flags |= MAKING_CONTACT_DECISION;
+            if ((situation & TARGET_ATTACKING) != 0) {
+                // block the target's attack or move away from it, unless it has already landed
+                if ((situation & TARGET_MADE_CONTACT) == 0) {
+                    if (rolls[i] <= blockChances[i]) {
+                        input |= FighterInput.BLOCK;
+                    } else {
+                        input = getInputAwayFromTarget(i, input);
+                    }
+                }
+            } else if (rolls[i] <= attackChances[i]) {
+                // attack the target (equal chance of punching or kicking)
+                input |= (choices[i] & 1) == 0 ? FighterInput.PUNCH : FighterInput.KICK;
+            } else {
+                input = getInputAwayFromTarget(i, input);
+            }
+            timer = contactDecisionDelays[i];
+        }
+
+        aiFlags[i] = flags;
+        aiTimers[i] = timer;
+        inputs[i] = input;
+    }
+
+    private int getInputTowardTarget(int i, int input) {
+        input &= ~MOVEMENT_INPUT;
+        float xDistance = targetX[i] - selfX[i];
+        float yDistance = targetY[i] - selfY[i];
+        input |= xDistance < -MatchSimulation.FIGHTER_CONTACT_DISTANCE_X ? FighterInput.LEFT :
+            xDistance > MatchSimulation.FIGHTER_CONTACT_DISTANCE_X ? FighterInput.RIGHT : FighterInput.NONE;
+        input |= yDistance > MatchSimulation.FIGHTER_CONTACT_DISTANCE_Y ? FighterInput.UP :
+            yDistance < -MatchSimulation.FIGHTER_CONTACT_DISTANCE_Y ? FighterInput.DOWN : FighterInput.NONE;
+        return input;
+    }
+
+    private int getRandomInput(int i, int input) {
+        // left, right or neither, and up, down or neither, each scaled from 7 bits of the choice
+        input &= ~MOVEMENT_INPUT;
+        int horizontal = (choices[i] >>> 1 & 0x7f) * 3 >>> 7;
+        int vertical = (choices[i] >>> 8 & 0x7f) * 3 >>> 7;
+        input |= horizontal == 0 ? FighterInput.LEFT : horizontal == 1 ? FighterInput.RIGHT : FighterInput.NONE;
+        input |= vertical == 0 ? FighterInput.UP : vertical == 1 ? FighterInput.DOWN : FighterInput.NONE;
+        return input;
+    }
+
+    private int getInputAwayFromTarget(int i, int input) {
+        input &= ~MOVEMENT_INPUT;
+        input |= selfX[i] > targetX[i] ? FighterInput.RIGHT : FighterInput.LEFT;
+        input |= selfY[i] > targetY[i] ? FighterInput.UP : FighterInput.DOWN;
+        return input;
+    }
+}
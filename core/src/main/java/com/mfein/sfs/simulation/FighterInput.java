@@ -0,0 +1,80 @@
+package com.mfein.sfs.simulation;
+
+import com.mfein.sfs.objects.Fighter;
+
+/**
+ * The buttons a fighter's controller holds during a tick, packed into the low bits of an int. The simulation compares
+ * each tick's input with the previous one and turns presses and releases into the same fighter actions the keyboard
+ * used to trigger directly, so a match can be driven (and replayed or sent over the network) one int per tick.
+ */
+public final class FighterInput {
+    public static final int NONE = 0;
+    public static final int LEFT = 1;
+    public static final int RIGHT = 1 << 1;
+    public static final int UP = 1 << 2;
+    public static final int DOWN = 1 << 3;
+    public static final int BLOCK = 1 << 4;
+    public static final int PUNCH = 1 << 5;
+    public static final int KICK = 1 << 6;
+
+    // number of bits used by an input
+    public static final int BITS = 7;
+    public static final int MASK = (1 << BITS) - 1;
+
+    private FighterInput() {}
+
+    public static void apply(Fighter fighter, int previousInput, int input, boolean canMove) {
+        int pressed = input & ~previousInput;
+        int released = previousInput & ~input;
+
+        // if a movement button has been released, stop moving in that direction
+        if ((released & LEFT) != 0) fighter.stopMovingLeft();
+        if ((released & RIGHT) != 0) fighter.stopMovingRight();
+        if ((released & UP) != 0) fighter.stopMovingUp();
+        if ((released & DOWN) != 0) fighter.stopMovingDown();
+
+        // if the block button has been released, stop blocking
+        if ((released & BLOCK) != 0) fighter.stopBlocking();
+
+        // movement buttons only count while the round is in progress
+        if (canMove) {
+            if ((pressed & LEFT) != 0) fighter.moveLeft();
+            if ((pressed & RIGHT) != 0) fighter.moveRight();
+            if ((pressed & UP) != 0) fighter.moveUp();
+            if ((pressed & DOWN) != 0) fighter.moveDown();
+        }
+
+        // check if a block or attack button has been pressed
+        if ((pressed & BLOCK) != 0) fighter.block();
+        if ((pressed & PUNCH) != 0) fighter.punch();
+        if ((pressed & KICK) != 0) fighter.kick();
+    }
+
+    public static void applyHeld(Fighter fighter, int input) {
+        // make the fighter do what the input says, whatever it did before (so, unlike apply, no previous input has to be
+        // remembered between updates); an attack starts whenever the fighter is free to attack
+        if ((input & LEFT) != 0) {
+            fighter.moveLeft();
+        } else if ((input & RIGHT) != 0) {
+            fighter.moveRight();
+        } else {
+            fighter.stopMovingLeft();
+            fighter.stopMovingRight();
+        }
+        if ((input & UP) != 0) {
+            fighter.moveUp();
+        } else if ((input & DOWN) != 0) {
+            fighter.moveDown();
+        } else {
+            fighter.stopMovingUp();
+            fighter.stopMovingDown();
+        }
+        if ((input & BLOCK) != 0) {
+            fighter.block();
+        } else {
+            fighter.stopBlocking();
+        }
+        if ((input & PUNCH) != 0) fighter.punch();
+        if ((input & KICK) != 0) fighter.kick();
+    }
+}
@@ -0,0 +1,63 @@
+package com.mfein.sfs.simulation;
+
+/**
+ * Turns variable frame times into a whole number of fixed-length simulation steps. The time left over after the last
+ * step is kept for the next frame and exposed as an interpolation alpha for rendering between the last two steps. A
+ * time scale runs the simulation slower or faster than real time; the steps themselves are always the same length.
+ */
+public class FixedTimestep {
+    // longest frame time that will be simulated, so a long hitch doesn't trigger a burst of catch-up steps
+    private static final float MAX_FRAME_TIME = 0.25f;
+
+    // slowest and fastest time scales
+    public static final float MIN_TIME_SCALE = 0.25f;
+    public static final float MAX_TIME_SCALE = 64f;
+
+    private final int tickRate;
+    private final float stepTime;
+    private float accumulator;
+    private float timeScale = 1f;
+
+    public FixedTimestep(int tickRate) {
+        this.tickRate = tickRate;
+        stepTime = 1f / tickRate;
+    }
+
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    public float getStepTime() {
+        return stepTime;
+    }
+
+    public float getTimeScale() {
+        return timeScale;
+    }
+
+    public void setTimeScale(float timeScale) {
+        this.timeScale = Math.max(MIN_TIME_SCALE, Math.min(timeScale, MAX_TIME_SCALE));
+    }
+
+    public float getScaledFrameTime(float frameTime) {
+        // the amount of simulation time a frame of the given length covers
+        return Math.min(frameTime, MAX_FRAME_TIME) * timeScale;
+    }
+
+    public void reset() {
+        accumulator = 0f;
+    }
+
+    public int advance(float frameTime) {
+        // add the (clamped and scaled) frame time to the accumulator and take as many whole steps out of it as possible
+        accumulator += getScaledFrameTime(frameTime);
+        int steps = (int) (accumulator / stepTime);
+        accumulator -= steps * stepTime;
+        return steps;
+    }
+
+    public float getAlpha() {
+        // how far the current frame is between the last step and the next one
+        return accumulator / stepTime;
+    }
+}
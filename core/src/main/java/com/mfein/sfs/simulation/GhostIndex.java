@@ -0,0 +1,341 @@
+package com.mfein.sfs.simulation;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.Vector2;
+import com.mfein.sfs.objects.Fighter;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A {@link FighterAi}'s decisions imitating a recorded player, its "ghost": the recorded samples of what the player
+ * did (its input) in each situation, indexed so that every update can look up the recorded situation nearest to the
+ * fighter's own and do what the player did there. A situation is the fighter's state and movement and the target's
+ * state, which have to match, and where the target is and the life difference, which are quantized and compared by
+ * distance. Situations with the target on the left are mirrored, so a player recorded on one side plays on either.
+ * Samples are recorded offline from replays (see GhostBuilder in the sim project) and stored as a binary asset, which
+ * a profile file names as its "ghost"; the index is built when it's loaded.
+ *
+ * <p>Samples are sorted and merged into points, one per distinct situation with the inputs recorded there and how
+ * often, and the points of each combination of states are arranged into a KD-tree, in flat arrays, so a lookup walks
+ * down it without allocating. When two or more inputs were recorded in a situation, one is picked at random, as often
+ * as the player did it.
+ *
+ * <pre>
+ * magic "SFSG", version, state buckets, directions, sample count, samples (states and movement as a short, then
+ * distance, height, life difference and input a byte each)...
+ * </pre>
+ */
+public class GhostIndex {
+    // "SFSG"
+    public static final int MAGIC = 0x53465347;
+    public static final int VERSION = 1;
+
+    // sizes of the quantization steps: horizontal and vertical distance to the target, and life difference
+    public static final float DX_STEP = 0.5f;
+    public static final float DY_STEP = 0.5f;
+    public static final float LIFE_STEP = 5f;
+
+    // groups of situations, by the fighter's state bucket (see PolicyTable) and movement direction (none, left or
+    // right times none, up or down) and the target's state bucket
+    private static final int DIRECTIONS = 9;
+    public static final int GROUPS = PolicyTable.STATE_BUCKETS * DIRECTIONS * PolicyTable.STATE_BUCKETS;
+
+    // a sample, packed into a long: the group, then distance (mirrored to be positive), height and life difference
+    // (offset to be positive) a byte each, then the input
+    private static final int GROUP_SHIFT = 32;
+    private static final int DX_SHIFT = 24;
+    private static final int DY_SHIFT = 16;
+    private static final int LIFE_SHIFT = 8;
+    private static final int COORDINATE_OFFSET = 128;
+
+    // a point: its coordinates, then its first entry, number of entries and total weight
+    private static final int POINT_SIZE = 6;
+    private static final int FIRST_ENTRY = 3;
+    private static final int ENTRY_COUNT = 4;
+    private static final int TOTAL_WEIGHT = 5;
+
+    private static final int HEADER_SIZE = 4 + 1 + 2 + 4;
+    private static final int SAMPLE_SIZE = 2 + 4;
+
+    private final String name;
+    private final int sampleCount;
+
+    // where each group's points start (and the last one's end), the points, and each point's splitting coordinate
+    private final int[] groupStarts = new int[GROUPS + 1];
+    private final int[] points;
+    private final byte[] splitCoordinates;
+
+    // the inputs recorded in each point's situation and how often
+    private final byte[] entryInputs;
+    private final int[] entryWeights;
+
+    public GhostIndex(String name, long[] samples, int count) {
+        this.name = name;
+        this.sampleCount = count;
+
+        // sort the samples, so each point's samples are together and its inputs are in order
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int pointCount = 0;
+        int entryCount = 0;
+        for (int i = 0; i < count; i++) {
+            int group = (int) (sorted[i] >>> GROUP_SHIFT);
+            if (group < 0 || group >= GROUPS) {
+                throw new IllegalArgumentException("Ghost sample out of range: " + name);
+            }
+            if (i == 0 || sorted[i] >>> LIFE_SHIFT != sorted[i - 1] >>> LIFE_SHIFT) {
+                pointCount++;
+                groupStarts[group + 1]++;
+            }
+            if (i == 0 || sorted[i] != sorted[i - 1]) entryCount++;
+        }
+        for (int group = 0; group < GROUPS; group++) {
+            groupStarts[group + 1] += groupStarts[group];
+        }
+
+        // merge them into points and entries
+        points = new int[pointCount * POINT_SIZE];
+        splitCoordinates = new byte[pointCount];
+        entryInputs = new byte[entryCount];
+        entryWeights = new int[entryCount];
+        int point = -POINT_SIZE;
+        int entry = -1;
+        for (int i = 0; i < count; i++) {
+            long sample = sorted[i];
+            if (i == 0 || sample >>> LIFE_SHIFT != sorted[i - 1] >>> LIFE_SHIFT) {
+                point += POINT_SIZE;
+                points[point] = (int) (sample >>> DX_SHIFT) & 0xff;
+                points[point + 1] = ((int) (sample >>> DY_SHIFT) & 0xff) - COORDINATE_OFFSET;
+                points[point + 2] = ((int) (sample >>> LIFE_SHIFT) & 0xff) - COORDINATE_OFFSET;
+                points[point + FIRST_ENTRY] = entry + 1;
+            }
+            if (i == 0 || sample != sorted[i - 1]) {
+                entry++;
+                entryInputs[entry] = (byte) sample;
+                points[point + ENTRY_COUNT]++;
+            }
+            entryWeights[entry]++;
+            points[point + TOTAL_WEIGHT]++;
+        }
+
+        // arrange each group's points into a KD-tree
+        for (int group = 0; group < GROUPS; group++) {
+            build(groupStarts[group], groupStarts[group + 1]);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    public int getPointCount() {
+        return splitCoordinates.length;
+    }
+
+    public static long getSample(Fighter self, Fighter target, int input) {
+        // the fighter's situation, and the input it had in it; mirrored if the target is on the left
+        Vector2 selfPosition = self.getPosition();
+        Vector2 targetPosition = target.getPosition();
+        float dx = targetPosition.x - selfPosition.x;
+        boolean mirrored = dx < 0f;
+        Vector2 direction = self.getMovementDirection();
+        int horizontal = direction.x == 0f ? 0 : direction.x < 0f != mirrored ? 1 : 2;
+        int vertical = direction.y > 0f ? 1 : direction.y < 0f ? 2 : 0;
+        int group = ((PolicyTable.getStateBucket(self) * DIRECTIONS) + horizontal * 3 + vertical) *
+            PolicyTable.STATE_BUCKETS + PolicyTable.getStateBucket(target);
+        int x = Math.min(255, Math.round(Math.abs(dx) / DX_STEP));
+        int y = quantize(targetPosition.y - selfPosition.y, DY_STEP);
+        int life = quantize(self.getLife() - target.getLife(), LIFE_STEP);
+        return (long) group << GROUP_SHIFT | (long) x << DX_SHIFT | y << DY_SHIFT | life << LIFE_SHIFT |
+            (mirrored ? mirror(input) : input);
+    }
+
+    public int getInput(Fighter self, Fighter target, MatchRandom random) {
+        // what the player did in the nearest recorded situation, or -1 if none was recorded with the fighter in its
+        // state and movement
+        int input = getInput(getSample(self, target, FighterInput.NONE), random);
+        return input >= 0 && target.getPosition().x < self.getPosition().x ? mirror(input) : input;
+    }
+
+    public int getInput(long situation, MatchRandom random) {
+        // the same for a sample's situation (ignoring its input), without mirroring the input back
+        int group = (int) (situation >>> GROUP_SHIFT);
+        int dx = (int) (situation >>> DX_SHIFT) & 0xff;
+        int dy = ((int) (situation >>> DY_SHIFT) & 0xff) - COORDINATE_OFFSET;
+        int life = ((int) (situation >>> LIFE_SHIFT) & 0xff) - COORDINATE_OFFSET;
+        long nearest = findNearest(groupStarts[group], groupStarts[group + 1], dx, dy, life, Long.MAX_VALUE);
+        if (nearest == Long.MAX_VALUE) {
+            // nothing was recorded with the target in its state: the nearest situation with the target in any state
+            int first = group - group % PolicyTable.STATE_BUCKETS;
+            for (int other = first; other < first + PolicyTable.STATE_BUCKETS; other++) {
+                nearest = findNearest(groupStarts[other], groupStarts[other + 1], dx, dy, life, nearest);
+            }
+            if (nearest == Long.MAX_VALUE) return -1;
+        }
+
+        // pick one of the inputs recorded there, as often as each was
+        int point = (int) nearest * POINT_SIZE;
+        int entry = points[point + FIRST_ENTRY];
+        int lastEntry = entry + points[point + ENTRY_COUNT] - 1;
+        if (entry < lastEntry) {
+            int weight = random.random(points[point + TOTAL_WEIGHT] - 1);
+            while (entry < lastEntry && weight >= entryWeights[entry]) {
+                weight -= entryWeights[entry];
+                entry++;
+            }
+        }
+        return entryInputs[entry];
+    }
+
+    private long findNearest(int start, int end, int dx, int dy, int life, long nearest) {
+        // the nearest point of the tree in [start, end) or the given one, whichever is nearer, as its squared distance
+        // (high int) and index (low int)
+        while (start < end) {
+            int middle = (start + end) >>> 1;
+            int point = middle * POINT_SIZE;
+            int differenceX = dx - points[point];
+            int differenceY = dy - points[point + 1];
+            int differenceLife = life - points[point + 2];
+            long candidate = (long) (differenceX * differenceX + differenceY * differenceY +
+                differenceLife * differenceLife) << 32 | middle;
+            if (candidate < nearest) nearest = candidate;
+
+            // search the side of the splitting plane the situation is on, then the other side too if the plane is
+            // nearer than the nearest point so far
+            int split = splitCoordinates[middle];
+            int difference = split == 0 ? differenceX : split == 1 ? differenceY : differenceLife;
+            if (difference < 0) {
+                nearest = findNearest(start, middle, dx, dy, life, nearest);
+                if ((long) difference * difference >= nearest >>> 32) break;
+                start = middle + 1;
+            } else {
+                nearest = findNearest(middle + 1, end, dx, dy, life, nearest);
+                if ((long) difference * difference >= nearest >>> 32) break;
+                end = middle;
+            }
+        }
+        return nearest;
+    }
+
+    private void build(int start, int end) {
+        // split the points in [start, end) at the median of the coordinate they're most spread along
+        if (end - start < 2) return;
+        int split = 0;
+        int widestSpread = -1;
+        for (int coordinate = 0; coordinate < 3; coordinate++) {
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int point = start * POINT_SIZE + coordinate; point < end * POINT_SIZE; point += POINT_SIZE) {
+                min = Math.min(min, points[point]);
+                max = Math.max(max, points[point]);
+            }
+            if (max - min > widestSpread) {
+                widestSpread = max - min;
+                split = coordinate;
+            }
+        }
+        int middle = (start + end) >>> 1;
+        select(start, end, middle, split);
+        splitCoordinates[middle] = (byte) split;
+        build(start, middle);
+        build(middle + 1, end);
+    }
+
+    private void select(int start, int end, int k, int coordinate) {
+        // reorder the points in [start, end) so the k-th is where it would be if they were sorted by the coordinate,
+        // with none greater before it and none less after it
+        while (end - start > 1) {
+            int pivot = points[((start + end) >>> 1) * POINT_SIZE + coordinate];
+            int i = start;
+            int j = end - 1;
+            while (i <= j) {
+                while (points[i * POINT_SIZE + coordinate] < pivot) i++;
+                while (points[j * POINT_SIZE + coordinate] > pivot) j--;
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                end = j + 1;
+            } else if (k >= i) {
+                start = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        for (int i = 0; i < POINT_SIZE; i++) {
+            int value = points[a * POINT_SIZE + i];
+            points[a * POINT_SIZE + i] = points[b * POINT_SIZE + i];
+            points[b * POINT_SIZE + i] = value;
+        }
+    }
+
+    private static int quantize(float value, float step) {
+        return Math.max(-COORDINATE_OFFSET, Math.min(COORDINATE_OFFSET - 1, Math.round(value / step))) +
+            COORDINATE_OFFSET;
+    }
+
+    public static int mirror(int input) {
+        // the input with left and right swapped, as recorded in a mirrored situation
+        int horizontal = input & (FighterInput.LEFT | FighterInput.RIGHT);
+        if (horizontal == FighterInput.LEFT || horizontal == FighterInput.RIGHT) {
+            input ^= FighterInput.LEFT | FighterInput.RIGHT;
+        }
+        return input;
+    }
+
+    public static GhostIndex load(FileHandle file) {
+        return read(file.nameWithoutExtension(), ByteBuffer.wrap(file.readBytes()));
+    }
+
+    public static GhostIndex read(String name, ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a ghost: " + name);
+        }
+        int version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported ghost version " + version + ": " + name);
+        }
+        if (buffer.get() != PolicyTable.STATE_BUCKETS || buffer.get() != DIRECTIONS) {
+            throw new IllegalArgumentException("Ghost quantized differently: " + name);
+        }
+        int count = buffer.getInt();
+        if (count < 0 || buffer.remaining() != (long) count * SAMPLE_SIZE) {
+            throw new IllegalArgumentException("Ghost has the wrong size: " + name);
+        }
+        long[] samples = new long[count];
+        for (int i = 0; i < count; i++) {
+            samples[i] = (long) (buffer.getShort() & 0xffff) << GROUP_SHIFT | buffer.getInt() & 0xffffffffL;
+        }
+        return new GhostIndex(name, samples, count);
+    }
+
+    public static void write(ByteBuffer buffer, long[] samples, int count) {
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.put((byte) PolicyTable.STATE_BUCKETS);
+        buffer.put((byte) DIRECTIONS);
+        buffer.putInt(count);
+        for (int i = 0; i < count; i++) {
+            buffer.putShort((short) (samples[i] >>> GROUP_SHIFT));
+            buffer.putInt((int) samples[i]);
+        }
+    }
+
+    public static int getFileSize(int count) {
+        return HEADER_SIZE + count * SAMPLE_SIZE;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,20 @@
+package com.mfein.sfs.simulation;
+
+import com.mfein.sfs.objects.Fighter;
+
+/** Receives the events a {@link MatchSimulation} emits while it is updated. All methods default to doing nothing. */
+public interface MatchListener {
+
+    // the given fighter has been hit, either while blocking or not
+    default void fighterHit(Fighter fighter, boolean blocked) {}
+
+    // the given fighter is bleeding; the index is the blood splatter slot to activate (blood pools are part of the
+    // simulation's state)
+    default void bloodSpilled(Fighter fighter, int bloodSplatterIndex) {}
+
+    // player has won the current round
+    default void roundWon() {}
+
+    // player has lost the current round
+    default void roundLost() {}
+}
@@ -0,0 +1,93 @@
+package com.mfein.sfs.simulation;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Seedable xorshift128+ generator for everything random in a match. The same seed and stream always produce the same
+ * numbers, generating them never allocates, and each match has its own instance so parallel matches don't contend on a
+ * shared generator. Several independent streams can be split off one seed.
+ */
+public class MatchRandom {
+    // used to make seeds created at the same time differ
+    private static final AtomicLong seedUniquifier = new AtomicLong(0x2545F4914F6CDD1DL);
+
+    private long seed;
+    private long state0, state1;
+
+    public MatchRandom(long seed) {
+        setSeed(seed, 0);
+    }
+
+    public MatchRandom(long seed, long stream) {
+        setSeed(seed, stream);
+    }
+
+    public static long newSeed() {
+        // create a seed that's different on every call
+        return mix(seedUniquifier.addAndGet(0x9E3779B97F4A7C15L) ^ System.nanoTime());
+    }
+
+    public void setSeed(long seed) {
+        setSeed(seed, 0);
+    }
+
+    public void setSeed(long seed, long stream) {
+        this.seed = seed;
+
+        // expand the seed and stream into the two state words (neither of which may be zero)
+        long x = seed + stream * 0xD1B54A32D192ED03L;
+        state0 = mix(x += 0x9E3779B97F4A7C15L);
+        state1 = mix(x + 0x9E3779B97F4A7C15L);
+        if (state0 == 0 && state1 == 0) {
+            state1 = 1;
+        }
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getState0() {
+        return state0;
+    }
+
+    public long getState1() {
+        return state1;
+    }
+
+    public void setState(long state0, long state1) {
+        this.state0 = state0;
+        this.state1 = state1;
+    }
+
+    public MatchRandom split() {
+        // create a new, independent generator seeded from this one
+        return new MatchRandom(nextLong());
+    }
+
+    public long nextLong() {
+        long s1 = state0;
+        final long s0 = state1;
+        state0 = s0;
+        s1 ^= s1 << 23;
+        state1 = s1 ^ s0 ^ (s1 >>> 17) ^ (s0 >>> 26);
+        return state1 + s0;
+    }
+
+    public float random() {
+        // random float between 0 (inclusive) and 1 (exclusive)
+        return (nextLong() >>> 40) * 0x1.0p-24f;
+    }
+
+    public int random(int range) {
+        // random int between 0 and range (both inclusive), like MathUtils.random(int)
+        return (int) (((nextLong() >>> 33) * (range + 1L)) >>> 31);
+    }
+
+    private static long mix(long z) {
+        // SplitMix64 finalizer
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,716 @@
+package com.mfein.sfs.simulation;
+
+import com.badlogic.gdx.math.Vector2;
+import com.mfein.sfs.objects.Fighter;
+import com.mfein.sfs.resources.GlobalVariables;
+
+/**
+ * The rules of a match between player and opponent: rounds, contact, fighter input and AI, and blood bookkeeping. It doesn't
+ * render or play audio, so it can run without a GL context; anything a view needs to react to is sent to the
+ * {@link MatchListener}. Its whole state can be saved to and restored from a {@link MatchSnapshot}.
+ */
+public class MatchSimulation {
+    // game
+    public enum GameState {
+        RUNNING,
+        PAUSED,
+        GAME_OVER
+    }
+    private static final GameState[] GAME_STATES = GameState.values();
+    private GameState gameState;
+    private int tick;
+    private GlobalVariables.Difficulty difficulty = GlobalVariables.Difficulty.EASY;
+
+    // rounds
+    public enum RoundState {
+        STARTING,
+        IN_PROGRESS,
+        ENDING
+    }
+    private static final RoundState[] ROUND_STATES = RoundState.values();
+    private RoundState roundState;
+    private float roundStateTime;
+    public static final float START_ROUND_DELAY = 2f;
+    public static final float END_ROUND_DELAY = 2f;
+    private int currentRound;
+    public static final int MAX_ROUNDS = 3;
+    private int roundsWon = 0, roundsLost = 0;
+
+    public static final float MAX_ROUND_TIME = 99.99f;
+    private float roundTimer = MAX_ROUND_TIME;
+
+    // ring
+    public static final float RING_MIN_X = 7f;
+    public static final float RING_MAX_X = 60f;
+    public static final float RING_MIN_Y = 4f;
+    public static final float RING_MAX_Y = 22f;
+    public static final float RING_SLOPE = 3.16f;
+
+    // fighters
+    private final Fighter player;
+    private final Fighter opponent;
+    public static final float PLAYER_START_POSITION_X = 16f;
+    public static final float OPPONENT_START_POSITION_X = 51f;
+    public static final float FIGHTER_START_POSITION_Y = 15f;
+    public static final float FIGHTER_CONTACT_DISTANCE_X = 7.5f;
+    public static final float FIGHTER_CONTACT_DISTANCE_Y = 1.5f;
+
+    // input for each fighter during the current and the previous tick (see FighterInput)
+    private int playerInput, opponentInput;
+    private int previousPlayerInput, previousOpponentInput;
+
+    // AI (a fighter is controlled by the AI when an AI profile is given for it; by default, only opponent is)
+    private FighterAi opponentAi;
+    private FighterAi playerAi;
+
+    // random numbers, split into independent streams from a single match seed
+    private long seed;
+    private final MatchRandom aiRandom = new MatchRandom(0);
+    private final MatchRandom bloodRandom = new MatchRandom(0);
+    private final MatchRandom playerAiRandom = new MatchRandom(0);
+    public static final int AI_RANDOM_STREAM = 0;
+    public static final int BLOOD_RANDOM_STREAM = 1;
+    public static final int FIGHTER_CHOICE_RANDOM_STREAM = 2;
+    public static final int PLAYER_AI_RANDOM_STREAM = 3;
+
+    // blood
+    public static final int BLOOD_SPLATTER_AMOUNT = 5;
+    public static final int BLOOD_POOL_AMOUNT = 100;
+    public static final int BLOOD_POOL_VARIANT_AMOUNT = 3;
+    public static final float BLOOD_POOL_FADE_TIME = 60f;
+    private int currentPlayerBloodSplatterIndex;
+    private int currentOpponentBloodSplatterIndex;
+    private int currentBloodPoolIndex;
+
+    // blood pools (a pool is active until its state time reaches the fade time)
+    private final float[] bloodPoolPositionsX = new float[BLOOD_POOL_AMOUNT];
+    private final float[] bloodPoolPositionsY = new float[BLOOD_POOL_AMOUNT];
+    private final int[] bloodPoolVariants = new int[BLOOD_POOL_AMOUNT];
+    private final float[] bloodPoolStateTimes = new float[BLOOD_POOL_AMOUNT];
+
+    // events
+    private MatchListener listener = new MatchListener() {};
+
+    public MatchSimulation(Fighter player, Fighter opponent) {
+        this.player = player;
+        this.opponent = opponent;
+
+        // the opponent is controlled by the AI, which targets player
+        setOpponentAiProfile(AiProfile.forDifficulty(difficulty));
+
+        // there are no blood pools yet
+        clearBloodPools();
+    }
+
+    public void setListener(MatchListener listener) {
+        this.listener = listener;
+    }
+
+    public Fighter getPlayer() {
+        return player;
+    }
+
+    public Fighter getOpponent() {
+        return opponent;
+    }
+
+    public GameState getGameState() {
+        return gameState;
+    }
+
+    public boolean isRunning() {
+        return gameState == GameState.RUNNING;
+    }
+
+    public int getTick() {
+        return tick;
+    }
+
+    public RoundState getRoundState() {
+        return roundState;
+    }
+
+    public float getRoundStateTime() {
+        return roundStateTime;
+    }
+
+    public int getCurrentRound() {
+        return currentRound;
+    }
+
+    public int getRoundsWon() {
+        return roundsWon;
+    }
+
+    public int getRoundsLost() {
+        return roundsLost;
+    }
+
+    public float getRoundTimer() {
+        return roundTimer;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public boolean isBloodPoolActive(int index) {
+        return bloodPoolStateTimes[index] < BLOOD_POOL_FADE_TIME;
+    }
+
+    public float getBloodPoolPositionX(int index) {
+        return bloodPoolPositionsX[index];
+    }
+
+    public float getBloodPoolPositionY(int index) {
+        return bloodPoolPositionsY[index];
+    }
+
+    public int getBloodPoolVariant(int index) {
+        return bloodPoolVariants[index];
+    }
+
+    public float getBloodPoolStateTime(int index) {
+        return bloodPoolStateTimes[index];
+    }
+
+    public GlobalVariables.Difficulty getDifficulty() {
+        return difficulty;
+    }
+
+    public void setDifficulty(GlobalVariables.Difficulty difficulty) {
+        // set the difficulty and use its AI profile for opponent
+        this.difficulty = difficulty;
+        setOpponentAiProfile(AiProfile.forDifficulty(difficulty));
+    }
+
+    public FighterAi getOpponentAi() {
+        return opponentAi;
+    }
+
+    public FighterAi getPlayerAi() {
+        return playerAi;
+    }
+
+    public AiProfile getOpponentAiProfile() {
+        return opponentAi == null ? null : opponentAi.getProfile();
+    }
+
+    public void setOpponentAiProfile(AiProfile profile) {
+        // let the AI control opponent using the given profile, or leave opponent to its input if the profile is null
+        if (profile == null) {
+            opponentAi = null;
+        } else if (opponentAi == null) {
+            opponentAi = new FighterAi(opponent, player, aiRandom, profile);
+        } else {
+            opponentAi.setProfile(profile);
+        }
+    }
+
+    public AiProfile getPlayerAiProfile() {
+        return playerAi == null ? null : playerAi.getProfile();
+    }
+
+    public void setPlayerAiProfile(AiProfile profile) {
+        // let the AI control player using the given profile, or hand player back to the user if the profile is null
+        if (profile == null) {
+            playerAi = null;
+        } else if (playerAi == null) {
+            playerAi = new FighterAi(player, opponent, playerAiRandom, profile);
+        } else {
+            playerAi.setProfile(profile);
+        }
+    }
+
+    public void setPlayerInput(int input) {
+        // the input player holds during the next update
+        playerInput = input;
+    }
+
+    public void setOpponentInput(int input) {
+        // the input opponent holds during the next update
+        opponentInput = input;
+    }
+
+    public void startGame(long seed) {
+        gameState = GameState.RUNNING;
+        tick = 0;
+
+        // seed the random number streams
+        this.seed = seed;
+        aiRandom.setSeed(seed, AI_RANDOM_STREAM);
+        bloodRandom.setSeed(seed, BLOOD_RANDOM_STREAM);
+        playerAiRandom.setSeed(seed, PLAYER_AI_RANDOM_STREAM);
+
+        roundsWon = roundsLost = 0;
+        playerInput = opponentInput = previousPlayerInput = previousOpponentInput = FighterInput.NONE;
+
+        // set the blood and the AI back to the start
+        currentPlayerBloodSplatterIndex = 0;
+        currentOpponentBloodSplatterIndex = 0;
+        currentBloodPoolIndex = 0;
+        clearBloodPools();
+        if (opponentAi != null) {
+            opponentAi.reset();
+        }
+        if (playerAi != null) {
+            playerAi.reset();
+        }
+
+        // start round 1
+        currentRound = 1;
+        startRound();
+    }
+
+    public void pauseGame() {
+        gameState = GameState.PAUSED;
+    }
+
+    public void resumeGame() {
+        gameState = GameState.RUNNING;
+    }
+
+    public void skipRoundDelay() {
+        // skip any start or end round delay
+        if (roundState == RoundState.STARTING) {
+            roundStateTime = START_ROUND_DELAY;
+        } else if (roundState == RoundState.ENDING) {
+            roundStateTime = END_ROUND_DELAY;
+        }
+    }
+
+    public void save(MatchSnapshot snapshot) {
+        snapshot.beginWrite();
+
+        // game and rounds
+        snapshot.putEnum(gameState);
+        snapshot.putEnum(roundState);
+        snapshot.putInt(tick);
+        snapshot.putFloat(roundStateTime);
+        snapshot.putInt(currentRound);
+        snapshot.putInt(roundsWon);
+        snapshot.putInt(roundsLost);
+        snapshot.putFloat(roundTimer);
+
+        // random numbers
+        snapshot.putLong(seed);
+        saveRandom(snapshot, aiRandom);
+        saveRandom(snapshot, bloodRandom);
+        saveRandom(snapshot, playerAiRandom);
+
+        // blood
+        snapshot.putInt(currentPlayerBloodSplatterIndex);
+        snapshot.putInt(currentOpponentBloodSplatterIndex);
+        snapshot.putInt(currentBloodPoolIndex);
+        for (int i = 0; i < BLOOD_POOL_AMOUNT; i++) {
+            snapshot.putFloat(bloodPoolPositionsX[i]);
+            snapshot.putFloat(bloodPoolPositionsY[i]);
+            snapshot.putByte(bloodPoolVariants[i]);
+            snapshot.putFloat(bloodPoolStateTimes[i]);
+        }
+
+        // input
+        snapshot.putInt(playerInput);
+        snapshot.putInt(opponentInput);
+        snapshot.putInt(previousPlayerInput);
+        snapshot.putInt(previousOpponentInput);
+
+        // fighters and AI
+        player.save(snapshot);
+        opponent.save(snapshot);
+        saveAi(snapshot, playerAi);
+        saveAi(snapshot, opponentAi);
+
+        snapshot.endWrite();
+    }
+
+    public void restore(MatchSnapshot snapshot) {
+        // read the state in the same order save wrote it; the listener isn't told about anything
+        snapshot.beginRead();
+
+        // game and rounds
+        gameState = snapshot.getEnum(GAME_STATES);
+        roundState = snapshot.getEnum(ROUND_STATES);
+        tick = snapshot.getInt();
+        roundStateTime = snapshot.getFloat();
+        currentRound = snapshot.getInt();
+        roundsWon = snapshot.getInt();
+        roundsLost = snapshot.getInt();
+        roundTimer = snapshot.getFloat();
+
+        // random numbers
+        seed = snapshot.getLong();
+        restoreRandom(snapshot, aiRandom);
+        restoreRandom(snapshot, bloodRandom);
+        restoreRandom(snapshot, playerAiRandom);
+
+        // blood
+        currentPlayerBloodSplatterIndex = snapshot.getInt();
+        currentOpponentBloodSplatterIndex = snapshot.getInt();
+        currentBloodPoolIndex = snapshot.getInt();
+        for (int i = 0; i < BLOOD_POOL_AMOUNT; i++) {
+            bloodPoolPositionsX[i] = snapshot.getFloat();
+            bloodPoolPositionsY[i] = snapshot.getFloat();
+            bloodPoolVariants[i] = snapshot.getByte();
+            bloodPoolStateTimes[i] = snapshot.getFloat();
+        }
+
+        // input
+        playerInput = snapshot.getInt();
+        opponentInput = snapshot.getInt();
+        previousPlayerInput = snapshot.getInt();
+        previousOpponentInput = snapshot.getInt();
+
+        // fighters and AI
+        player.restore(snapshot);
+        opponent.restore(snapshot);
+        snapshot.getBoolean();
+        restoreAi(snapshot, playerAi);
+        restoreOpponentAi(snapshot);
+    }
+
+    public long getStateHash() {
+        // a hash of everything that decides how the match plays out; the blood pools are only drawn (and the ring
+        // indexes already tell how many were spilled), so they're left out to keep the hash cheap enough for every tick
+        long hash = StateHash.SEED;
+
+        // game and rounds
+        hash = StateHash.mix(hash, gameState);
+        hash = StateHash.mix(hash, roundState);
+        hash = StateHash.mix(hash, tick);
+        hash = StateHash.mix(hash, roundStateTime);
+        hash = StateHash.mix(hash, currentRound);
+        hash = StateHash.mix(hash, roundsWon);
+        hash = StateHash.mix(hash, roundsLost);
+        hash = StateHash.mix(hash, roundTimer);
+
+        // random numbers
+        hash = StateHash.mix(hash, aiRandom.getState0());
+        hash = StateHash.mix(hash, aiRandom.getState1());
+        hash = StateHash.mix(hash, bloodRandom.getState0());
+        hash = StateHash.mix(hash, bloodRandom.getState1());
+        hash = StateHash.mix(hash, playerAiRandom.getState0());
+        hash = StateHash.mix(hash, playerAiRandom.getState1());
+
+        // blood ring indexes
+        hash = StateHash.mix(hash, currentPlayerBloodSplatterIndex);
+        hash = StateHash.mix(hash, currentOpponentBloodSplatterIndex);
+        hash = StateHash.mix(hash, currentBloodPoolIndex);
+
+        // input
+        hash = StateHash.mix(hash, playerInput);
+        hash = StateHash.mix(hash, opponentInput);
+        hash = StateHash.mix(hash, previousPlayerInput);
+        hash = StateHash.mix(hash, previousOpponentInput);
+
+        // fighters and AI
+        hash = player.hash(hash);
+        hash = opponent.hash(hash);
+        hash = playerAi == null ? StateHash.mix(hash, false) : playerAi.hash(StateHash.mix(hash, true));
+        return opponentAi == null ? StateHash.mix(hash, false) : opponentAi.hash(StateHash.mix(hash, true));
+    }
+
+    public String describeState() {
+        // one line per value hashed, for comparing two states by eye (debugging only)
+        StringBuilder text = new StringBuilder();
+        text.append("gameState: ").append(gameState).append('\n');
+        text.append("roundState: ").append(roundState).append('\n');
+        text.append("tick: ").append(tick).append('\n');
+        text.append("roundStateTime: ").append(roundStateTime).append('\n');
+        text.append("currentRound: ").append(currentRound).append('\n');
+        text.append("rounds: ").append(roundsWon).append(" - ").append(roundsLost).append('\n');
+        text.append("roundTimer: ").append(roundTimer).append('\n');
+        text.append("aiRandom: ").append(aiRandom.getState0()).append(", ").append(aiRandom.getState1()).append('\n');
+        text.append("bloodRandom: ").append(bloodRandom.getState0()).append(", ").append(bloodRandom.getState1())
+            .append('\n');
+        text.append("playerAiRandom: ").append(playerAiRandom.getState0()).append(", ")
+            .append(playerAiRandom.getState1()).append('\n');
+        text.append("bloodIndexes: ").append(currentPlayerBloodSplatterIndex).append(", ")
+            .append(currentOpponentBloodSplatterIndex).append(", ").append(currentBloodPoolIndex).append('\n');
+        text.append("input: ").append(playerInput).append(", ").append(opponentInput).append('\n');
+        text.append("previousInput: ").append(previousPlayerInput).append(", ").append(previousOpponentInput)
+            .append('\n');
+        player.describe(text, "player.");
+        opponent.describe(text, "opponent.");
+        if (playerAi != null) {
+            playerAi.describe(text, "playerAi.");
+        }
+        if (opponentAi != null) {
+            opponentAi.describe(text, "opponentAi.");
+        }
+        return text.toString();
+    }
+
+    private static void saveAi(MatchSnapshot snapshot, FighterAi ai) {
+        // the AI's state is always written (even if the fighter isn't AI-controlled), so every snapshot has the same size
+        snapshot.putBoolean(ai != null);
+        if (ai != null) {
+            ai.save(snapshot);
+        } else {
+            snapshot.putFloat(0f);
+            snapshot.putBoolean(false);
+            snapshot.putBoolean(false);
+            snapshot.putBoolean(false);
+            ActionPredictor.skip(snapshot, true);
+        }
+    }
+
+    private void restoreOpponentAi(MatchSnapshot snapshot) {
+        // opponent's AI is created or dropped to match the snapshot (e.g. when a replay seeks from a stretch on EXPERT,
+        // which has none, back to one on another difficulty), so its saved state isn't skipped or left over
+        boolean aiSaved = snapshot.getBoolean();
+        if (aiSaved && opponentAi == null) {
+            AiProfile profile = AiProfile.forDifficulty(difficulty);
+            if (profile != null) {
+                setOpponentAiProfile(profile);
+            }
+        } else if (!aiSaved && opponentAi != null) {
+            setOpponentAiProfile(null);
+        }
+        restoreAi(snapshot, opponentAi);
+    }
+
+    private static void restoreAi(MatchSnapshot snapshot, FighterAi ai) {
+        // the AI's state (after whether it was saved, which has been read) is skipped if the fighter isn't
+        // AI-controlled
+        if (ai != null) {
+            ai.restore(snapshot);
+        } else {
+            snapshot.getFloat();
+            snapshot.getBoolean();
+            snapshot.getBoolean();
+            snapshot.getBoolean();
+            ActionPredictor.skip(snapshot, false);
+        }
+    }
+
+    private static void saveRandom(MatchSnapshot snapshot, MatchRandom random) {
+        snapshot.putLong(random.getState0());
+        snapshot.putLong(random.getState1());
+    }
+
+    private static void restoreRandom(MatchSnapshot snapshot, MatchRandom random) {
+        random.setState(snapshot.getLong(), snapshot.getLong());
+    }
+
+    private void startRound() {
+        // get the fighters ready
+        player.getReady(PLAYER_START_POSITION_X, FIGHTER_START_POSITION_Y);
+        opponent.getReady(OPPONENT_START_POSITION_X, FIGHTER_START_POSITION_Y);
+
+        // start the round
+        roundState = RoundState.STARTING;
+        roundStateTime = 0f;
+        roundTimer = MAX_ROUND_TIME;
+    }
+
+    private void endRound() {
+        // end the round
+        roundState = RoundState.ENDING;
+        roundStateTime = 0f;
+    }
+
+    private void winRound() {
+        // player wins the round and opponent loses
+        player.win();
+        opponent.lose();
+        roundsWon++;
+        listener.roundWon();
+
+        // end the round
+        endRound();
+    }
+
+    private void loseRound() {
+        // player loses the round and opponent wins
+        player.lose();
+        opponent.win();
+        roundsLost++;
+        listener.roundLost();
+
+        // end the round
+        endRound();
+    }
+
+    public void update(float delta) {
+        // delta time should be 0 if the game isn't running, to freeze the game
+        float deltaTime = gameState == GameState.RUNNING ? delta : 0f;
+        if (deltaTime > 0f) {
+            tick++;
+        }
+
+        // turn the fighters' input into actions; movement only counts while the round is in progress
+        FighterInput.apply(player, previousPlayerInput, playerInput, roundState == RoundState.IN_PROGRESS);
+        FighterInput.apply(opponent, previousOpponentInput, opponentInput, roundState == RoundState.IN_PROGRESS);
+        previousPlayerInput = playerInput;
+        previousOpponentInput = opponentInput;
+
+        if (roundState == RoundState.STARTING && roundStateTime >= START_ROUND_DELAY) {
+            // if the start round delay has been reached, start the fight
+            roundState = RoundState.IN_PROGRESS;
+            roundStateTime = 0f;
+        } else if (roundState == RoundState.ENDING && roundStateTime >= END_ROUND_DELAY) {
+            // if the end round delay has been reached and player has won or lost more than half of the max number of rounds,
+            // end the game; otherwise, start the next round
+            if (roundsWon > MAX_ROUNDS / 2 || roundsLost > MAX_ROUNDS / 2) {
+                gameState = GameState.GAME_OVER;
+            } else {
+                currentRound++;
+                startRound();
+            }
+        } else {
+            // increment the round state time by delta time
+            roundStateTime += deltaTime;
+        }
+
+        player.update(deltaTime);
+        opponent.update(deltaTime);
+
+        // make sure the fighters are facing each other
+        if (player.getPosition().x <= opponent.getPosition().x) {
+            player.faceRight();
+            opponent.faceLeft();
+        } else {
+            player.faceLeft();
+            opponent.faceRight();
+        }
+
+        // keep the fighters within the bounds of the ring
+        keepWithinRingBounds(player.getPosition());
+        keepWithinRingBounds(opponent.getPosition());
+
+        // fade the blood pools
+        updateBloodPools(deltaTime);
+
+        if (roundState == RoundState.IN_PROGRESS) {
+            // if the round is in progress, decrease the round timer by delta time
+            roundTimer -= deltaTime;
+
+            if (roundTimer <= 0f) {
+                // if the round timer has finished and player has the same or more life than opponent, player wins the round;
+                // otherwise, player loses the round
+                if (player.getLife() >= opponent.getLife()) {
+                    winRound();
+                } else {
+                    loseRound();
+                }
+            }
+
+            // perform the AI for any AI-controlled fighters
+            if (playerAi != null) {
+                playerAi.setRoundTimer(roundTimer);
+                playerAi.update(deltaTime);
+            }
+            if (opponentAi != null) {
+                opponentAi.setRoundTimer(roundTimer);
+                opponentAi.update(deltaTime);
+            }
+
+            // check if either fighter is actively attacking and the other is within the attack's reach
+            if (player.isAttackActive() && player.canReach(opponent)) {
+                // if player is actively attacking and opponent is within reach, opponent gets hit
+                hitFighter(player, opponent);
+
+                // check if opponent has lost
+                if (opponent.hasLost()) {
+                    // if opponent has lost, player wins the round
+                    winRound();
+                }
+            } else if (opponent.isAttackActive() && opponent.canReach(player)) {
+                // if opponent is actively attacking and player is within reach, player gets hit
+                hitFighter(opponent, player);
+
+                // check if player has lost
+                if (player.hasLost()) {
+                    // if player has lost, player loses the round
+                    loseRound();
+                }
+            }
+        }
+    }
+
+    private void hitFighter(Fighter attacker, Fighter defender) {
+        defender.getHit(attacker.getState());
+        listener.fighterHit(defender, defender.isBlocking());
+
+        // if the defender isn't blocking, spill some blood
+        if (!defender.isBlocking()) {
+            spillBlood(defender);
+        }
+
+        // deactivate the attacker's attack
+        attacker.makeContact();
+    }
+
+    private void spillBlood(Fighter fighter) {
+        // tell the listener which blood splatter to activate
+        int bloodSplatterIndex = fighter == player ? currentPlayerBloodSplatterIndex : currentOpponentBloodSplatterIndex;
+        listener.bloodSpilled(fighter, bloodSplatterIndex);
+
+        // activate the current blood pool under the fighter, using a random variant
+        bloodPoolPositionsX[currentBloodPoolIndex] = fighter.getPosition().x;
+        bloodPoolPositionsY[currentBloodPoolIndex] = fighter.getPosition().y;
+        bloodPoolVariants[currentBloodPoolIndex] = bloodRandom.random(BLOOD_POOL_VARIANT_AMOUNT - 1);
+        bloodPoolStateTimes[currentBloodPoolIndex] = 0f;
+
+        // increment the correct current blood splatter index, or return to the first if the end of the array has been
+        // reached
+        if (fighter == player) {
+            if (currentPlayerBloodSplatterIndex < BLOOD_SPLATTER_AMOUNT - 1) {
+                currentPlayerBloodSplatterIndex++;
+            } else {
+                currentPlayerBloodSplatterIndex = 0;
+            }
+        } else {
+            if (currentOpponentBloodSplatterIndex < BLOOD_SPLATTER_AMOUNT - 1) {
+                currentOpponentBloodSplatterIndex++;
+            } else {
+                currentOpponentBloodSplatterIndex = 0;
+            }
+        }
+
+        // increment the current blood pool index, or return the first if the end of the blood pool array has been
+        // reached
+        if (currentBloodPoolIndex < BLOOD_POOL_AMOUNT - 1) {
+            currentBloodPoolIndex++;
+        } else {
+            currentBloodPoolIndex = 0;
+        }
+    }
+
+    private void updateBloodPools(float deltaTime) {
+        // increment the state time of every active blood pool by delta time
+        for (int i = 0; i < BLOOD_POOL_AMOUNT; i++) {
+            if (bloodPoolStateTimes[i] < BLOOD_POOL_FADE_TIME) {
+                bloodPoolStateTimes[i] += deltaTime;
+            }
+        }
+    }
+
+    private void clearBloodPools() {
+        // deactivate all the blood pools
+        for (int i = 0; i < BLOOD_POOL_AMOUNT; i++) {
+            bloodPoolStateTimes[i] = BLOOD_POOL_FADE_TIME;
+        }
+    }
+
+    private void keepWithinRingBounds(Vector2 position) {
+        if (position.y < RING_MIN_Y) {
+            position.y = RING_MIN_Y;
+        } else if (position.y > RING_MAX_Y) {
+            position.y = RING_MAX_Y;
+        }
+        if (position.x < position.y / RING_SLOPE + RING_MIN_X) {
+            position.x = position.y / RING_SLOPE + RING_MIN_X;
+        } else if (position.x > position.y / -RING_SLOPE + RING_MAX_X) {
+            position.x = position.y / -RING_SLOPE + RING_MAX_X;
+        }
+    }
+
+    public static boolean areWithinContactDistance(Vector2 position1, Vector2 position2) {
+        // determine if the positions are within the distance in which contact is possible
+        float xDistance = Math.abs(position1.x - position2.x);
+        float yDistance = Math.abs(position1.y - position2.y);
+        return xDistance <= FIGHTER_CONTACT_DISTANCE_X && yDistance <= FIGHTER_CONTACT_DISTANCE_Y;
+    }
+}
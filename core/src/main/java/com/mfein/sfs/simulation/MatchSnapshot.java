@@ -0,0 +1,115 @@
+package com.mfein.sfs.simulation;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The complete state of a match at one point in time, packed into a fixed-size buffer that is allocated once and
+ * reused. {@link MatchSimulation#save} writes into it and {@link MatchSimulation#restore} reads it back, always in the
+ * same order, so neither allocates and a snapshot can be taken every tick. Configuration (difficulty, AI profiles,
+ * fighter names and colors) isn't part of the snapshot.
+ */
+public class MatchSnapshot {
+    // bytes needed by each part of the state
+    static final int FIGHTER_SIZE = 1 + 4 + 1 + 4 + 8 + 1 + 4 + 8 + 8 + 4 + 4 + 1;
+    static final int AI_SIZE = 4 + 1 + 1 + 1 + ActionPredictor.SIZE;
+    static final int RANDOM_SIZE = 8 + 8;
+    static final int BLOOD_POOL_SIZE = 4 + 4 + 1 + 4;
+    public static final int SIZE = 1 + 1 + 4 + 4 + 4 + 4 + 4 + 4 + 8 + 3 * RANDOM_SIZE + 3 * 4 +
+        MatchSimulation.BLOOD_POOL_AMOUNT * BLOOD_POOL_SIZE + 4 * 4 + 2 * FIGHTER_SIZE + 2 * (1 + AI_SIZE);
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+
+    public MatchSnapshot() {
+        // an empty snapshot has nothing to read
+        buffer.limit(0);
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    public boolean isEmpty() {
+        return buffer.limit() == 0;
+    }
+
+    public void copyFrom(MatchSnapshot other) {
+        System.arraycopy(other.buffer.array(), 0, buffer.array(), 0, other.buffer.limit());
+        buffer.limit(other.buffer.limit());
+        buffer.position(0);
+    }
+
+    public void writeTo(ByteBuffer target) {
+        // copy the whole snapshot into target (e.g. a file), leaving this one as it is
+        target.put(buffer.array(), 0, buffer.limit());
+    }
+
+    public void readFrom(ByteBuffer source) {
+        // copy a whole snapshot written by writeTo out of source
+        source.get(buffer.array(), 0, SIZE);
+        buffer.limit(SIZE);
+        buffer.position(0);
+    }
+
+    void beginWrite() {
+        buffer.clear();
+    }
+
+    void endWrite() {
+        buffer.flip();
+    }
+
+    void beginRead() {
+        buffer.rewind();
+    }
+
+    public void putFloat(float value) {
+        buffer.putFloat(value);
+    }
+
+    public void putInt(int value) {
+        buffer.putInt(value);
+    }
+
+    public void putLong(long value) {
+        buffer.putLong(value);
+    }
+
+    public void putByte(int value) {
+        buffer.put((byte) value);
+    }
+
+    public void putBoolean(boolean value) {
+        buffer.put((byte) (value ? 1 : 0));
+    }
+
+    public void putEnum(Enum<?> value) {
+        // enums are stored by ordinal, with -1 for null
+        buffer.put((byte) (value == null ? -1 : value.ordinal()));
+    }
+
+    public float getFloat() {
+        return buffer.getFloat();
+    }
+
+    public int getInt() {
+        return buffer.getInt();
+    }
+
+    public long getLong() {
+        return buffer.getLong();
+    }
+
+    public int getByte() {
+        return buffer.get();
+    }
+
+    public boolean getBoolean() {
+        return buffer.get() != 0;
+    }
+
+    public <E extends Enum<E>> E getEnum(E[] values) {
+        // values should be a cached copy of the enum's values(), so reading doesn't allocate
+        int ordinal = buffer.get();
+        return ordinal < 0 ? null : values[ordinal];
+    }
+}
@@ -0,0 +1,219 @@
+package com.mfein.sfs.simulation;
+
+import com.badlogic.gdx.graphics.Color;
+import com.mfein.sfs.objects.Fighter;
+import com.mfein.sfs.resources.GlobalVariables;
+
+/**
+ * Picks opponent's next action by Monte Carlo tree search: it plays out possible futures of the match on its own
+ * {@link MatchSimulation}, restored from a snapshot of the real one, and keeps the action whose futures went best.
+ * Each node of the tree is an action held for {@link #ACTION_TICKS} ticks; each playout follows the tree down (UCB1),
+ * adds one node, plays random actions up to the horizon, then scores how the fighters' life changed. Player is played
+ * by the built-in HARD AI, as a stand-in for the human. The nodes come from a pool allocated up front, so planning
+ * doesn't allocate. An instance must only be used by one thread at a time.
+ */
+public class MctsPlanner {
+    // actions: stand still, move in one of 8 directions, block, punch or kick
+    public static final int ACTION_COUNT = 12;
+    private static final int[] ACTION_INPUTS = {FighterInput.NONE, FighterInput.LEFT, FighterInput.RIGHT,
+        FighterInput.UP, FighterInput.DOWN, FighterInput.LEFT | FighterInput.UP, FighterInput.LEFT | FighterInput.DOWN,
+        FighterInput.RIGHT | FighterInput.UP, FighterInput.RIGHT | FighterInput.DOWN, FighterInput.BLOCK,
+        FighterInput.PUNCH, FighterInput.KICK};
+    private static final int ATTACKS = FighterInput.PUNCH | FighterInput.KICK;
+
+    // ticks each action is held for, and actions played out per playout
+    public static final int ACTION_TICKS = 6;
+    private static final int HORIZON_ACTIONS = 6;
+
+    // UCB1 exploration constant
+    private static final float EXPLORATION = 1.4f;
+
+    public static final int DEFAULT_POOL_SIZE = 1 << 16;
+
+    // node pool (node 0 is the root): each node's action, first child (-1 if it hasn't been expanded; the children of
+    // a node are ACTION_COUNT consecutive nodes), visits and total score
+    private final int[] actions;
+    private final int[] firstChildren;
+    private final int[] visits;
+    private final float[] scores;
+    private int nodeCount;
+
+    // playouts
+    private final MatchSimulation simulation;
+    private final MatchSnapshot rootSnapshot = new MatchSnapshot();
+    private final MatchRandom random = new MatchRandom(0);
+    private final int[] path = new int[HORIZON_ACTIONS + 1];
+    private final float stepTime;
+
+    // counters
+    private long playouts;
+    private long planningNanos;
+    private int lastPlayouts;
+
+    public MctsPlanner(float stepTime, int poolSize) {
+        this.stepTime = stepTime;
+        actions = new int[poolSize];
+        firstChildren = new int[poolSize];
+        visits = new int[poolSize];
+        scores = new float[poolSize];
+
+        // a match of its own to play the futures out on: player is played by an AI, opponent by the planner's input
+        simulation = new MatchSimulation(new Fighter("Player", Color.WHITE), new Fighter("Opponent", Color.WHITE));
+        simulation.setPlayerAiProfile(AiProfile.builtIn(GlobalVariables.Difficulty.HARD));
+        simulation.setOpponentAiProfile(null);
+    }
+
+    public static int getActionInput(int action, int tick) {
+        // the input for the given tick of an action: attack buttons are only pressed on its first tick, so the same
+        // attack can be chosen twice in a row
+        return tick == 0 ? ACTION_INPUTS[action] : ACTION_INPUTS[action] & ~ATTACKS;
+    }
+
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    public int getLastPlayouts() {
+        // playouts of the last decision
+        return lastPlayouts;
+    }
+
+    public double getPlayoutsPerSecond() {
+        return planningNanos == 0 ? 0 : playouts * 1e9 / planningNanos;
+    }
+
+    public int plan(MatchSnapshot snapshot, int currentAction, int currentActionTick, int aheadTicks, long budgetNanos,
+                    long seed) {
+        // stop after the budget, counted from now
+        long startTime = System.nanoTime();
+        long deadline = startTime + budgetNanos;
+
+        // start from the state the match will be in when the decision is used, aheadTicks later, assuming the current
+        // action goes on until then (currentActionTick is the tick of it the snapshot's next update plays)
+        simulation.restore(snapshot);
+        for (int i = 0; i < aheadTicks && isRoundInProgress(); i++) {
+            step(getActionInput(currentAction, currentActionTick + i));
+        }
+        simulation.save(rootSnapshot);
+        random.setSeed(seed);
+
+        // the root, with its children expanded
+        nodeCount = 1;
+        visits[0] = 0;
+        scores[0] = 0f;
+        expand(0);
+
+        // play out as many futures as fit into the budget (at least one per action)
+        int count = 0;
+        do {
+            playOut();
+            count++;
+        } while (count < ACTION_COUNT || System.nanoTime() < deadline);
+
+        // the action tried the most is the one whose futures went best
+        int bestAction = 0;
+        for (int i = 1; i < ACTION_COUNT; i++) {
+            if (visits[firstChildren[0] + i] > visits[firstChildren[0] + bestAction]) {
+                bestAction = i;
+            }
+        }
+
+        lastPlayouts = count;
+        playouts += count;
+        planningNanos += System.nanoTime() - startTime;
+        return bestAction;
+    }
+
+    private void playOut() {
+        simulation.restore(rootSnapshot);
+        float playerLife = simulation.getPlayer().getLife();
+        float opponentLife = simulation.getOpponent().getLife();
+        int roundsWon = simulation.getRoundsWon();
+        int roundsLost = simulation.getRoundsLost();
+
+        // follow the tree down, playing each node's action
+        int node = 0;
+        int depth = 0;
+        path[0] = 0;
+        while (firstChildren[node] >= 0 && depth < HORIZON_ACTIONS && isRoundInProgress()) {
+            node = selectChild(node);
+            playAction(actions[node]);
+            path[++depth] = node;
+        }
+
+        // add a node below the last one (if there's room), and play its action
+        if (firstChildren[node] < 0 && depth < HORIZON_ACTIONS && isRoundInProgress() &&
+            nodeCount + ACTION_COUNT <= actions.length) {
+            expand(node);
+            node = firstChildren[node] + random.random(ACTION_COUNT - 1);
+            playAction(actions[node]);
+            path[++depth] = node;
+        }
+
+        // play random actions up to the horizon
+        for (int i = depth; i < HORIZON_ACTIONS && isRoundInProgress(); i++) {
+            playAction(random.random(ACTION_COUNT - 1));
+        }
+
+        // score the future for opponent, and add it to every node on the way
+        float score = score(playerLife, opponentLife, roundsWon, roundsLost);
+        for (int i = 0; i <= depth; i++) {
+            visits[path[i]]++;
+            scores[path[i]] += score;
+        }
+    }
+
+    private int selectChild(int node) {
+        // UCB1, trying every child once first
+        int first = firstChildren[node];
+        float logVisits = (float) Math.log(Math.max(visits[node], 1));
+        int best = first;
+        float bestValue = Float.NEGATIVE_INFINITY;
+        for (int child = first; child < first + ACTION_COUNT; child++) {
+            if (visits[child] == 0) return child;
+            float value = scores[child] / visits[child] + EXPLORATION * (float) Math.sqrt(logVisits / visits[child]);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    private void expand(int node) {
+        firstChildren[node] = nodeCount;
+        for (int i = 0; i < ACTION_COUNT; i++) {
+            actions[nodeCount] = i;
+            firstChildren[nodeCount] = -1;
+            visits[nodeCount] = 0;
+            scores[nodeCount] = 0f;
+            nodeCount++;
+        }
+    }
+
+    private void playAction(int action) {
+        for (int tick = 0; tick < ACTION_TICKS && isRoundInProgress(); tick++) {
+            step(getActionInput(action, tick));
+        }
+    }
+
+    private void step(int opponentInput) {
+        simulation.setOpponentInput(opponentInput);
+        simulation.update(stepTime);
+    }
+
+    private boolean isRoundInProgress() {
+        return simulation.getRoundState() == MatchSimulation.RoundState.IN_PROGRESS;
+    }
+
+    private float score(float playerLife, float opponentLife, int roundsWon, int roundsLost) {
+        // winning the round is best and losing it worst; otherwise, it's the damage dealt minus the damage taken
+        // (roundsLost counts the rounds player lost, i.e. the ones opponent won)
+        if (simulation.getRoundsLost() > roundsLost) return 1f;
+        if (simulation.getRoundsWon() > roundsWon) return 0f;
+        float damageDealt = playerLife - simulation.getPlayer().getLife();
+        float damageTaken = opponentLife - simulation.getOpponent().getLife();
+        float difference = (damageDealt - damageTaken) / (2f * Fighter.getFrameData().getMaxDamage());
+        return 0.5f + 0.5f * Math.max(-1f, Math.min(1f, difference));
+    }
+}
@@ -0,0 +1,245 @@
+package com.mfein.sfs.simulation;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.Vector2;
+import com.mfein.sfs.objects.Fighter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link FighterAi}'s decisions made by a small neural network: a multilayer perceptron, trained offline (see
+ * PolicyNetworkTrainer in the sim project) and stored as a binary asset, which a profile file names as its
+ * "policyNetwork". Its weights are kept in two flat float arrays, all layers one after another, and a forward pass
+ * runs over a buffer the caller allocates once (see {@link #getBufferSize}), so deciding doesn't allocate and one
+ * network can be shared by any number of fighters. Its input is a feature vector built from the two fighters and the
+ * round timer ({@link #getFeatures}); hidden layers use ReLU. Its outputs are scores in three groups, horizontal
+ * movement, vertical movement and what else to do, and the best of each group makes up the fighter's input.
+ *
+ * <pre>
+ * magic "SFSN", version, layers, layer sizes (input first, output last, a short each),
+ * then for each layer: weights (one row of inputs per output), biases (floats)...
+ * </pre>
+ */
+public class PolicyNetwork {
+    // "SFSN"
+    public static final int MAGIC = 0x5346534E;
+    public static final int VERSION = 1;
+
+    // features: where the target is and whether it's within contact distance, both fighters' life, the round timer,
+    // both fighters' states (one-hot) and attack phases, and whether the target's attack has made contact
+    private static final Fighter.State[] STATES = Fighter.State.values();
+    private static final int SELF_STATE_FEATURES = 6;
+    private static final int TARGET_STATE_FEATURES = SELF_STATE_FEATURES + STATES.length;
+    private static final int ATTACK_FEATURES = TARGET_STATE_FEATURES + STATES.length;
+    public static final int FEATURE_COUNT = ATTACK_FEATURES + 3;
+
+    // output groups, by their first output: horizontal (none, left, right), vertical (none, up, down), and other
+    // (none, block, punch, kick)
+    public static final int HORIZONTAL_OUTPUTS = 0;
+    public static final int VERTICAL_OUTPUTS = 3;
+    public static final int OTHER_OUTPUTS = 6;
+    public static final int OUTPUT_COUNT = 10;
+
+    private final String name;
+    private final int[] sizes;
+    private final float[] weights;
+    private final float[] biases;
+    private final int bufferSize;
+
+    public PolicyNetwork(String name, int[] sizes, float[] weights, float[] biases) {
+        if (sizes.length < 2 || sizes[0] != FEATURE_COUNT || sizes[sizes.length - 1] != OUTPUT_COUNT) {
+            throw new IllegalArgumentException("A policy network needs " + FEATURE_COUNT + " inputs and " +
+                OUTPUT_COUNT + " outputs: " + name);
+        }
+        int weightCount = 0;
+        int biasCount = 0;
+        int bufferSize = 0;
+        for (int layer = 0; layer < sizes.length - 1; layer++) {
+            weightCount += sizes[layer] * sizes[layer + 1];
+            biasCount += sizes[layer + 1];
+        }
+        for (int size : sizes) {
+            bufferSize += size;
+        }
+        if (weights.length != weightCount || biases.length != biasCount) {
+            throw new IllegalArgumentException("Policy network has the wrong number of weights: " + name);
+        }
+        this.name = name;
+        this.sizes = sizes;
+        this.weights = weights;
+        this.biases = biases;
+        this.bufferSize = bufferSize;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int[] getSizes() {
+        return sizes;
+    }
+
+    public float[] getWeights() {
+        return weights;
+    }
+
+    public float[] getBiases() {
+        return biases;
+    }
+
+    public int getBufferSize() {
+        // floats a forward pass needs: every layer's activations, the features first and the outputs last
+        return bufferSize;
+    }
+
+    public int getInput(Fighter self, Fighter target, float roundTimer, float[] buffer) {
+        getFeatures(self, target, roundTimer, buffer);
+        evaluate(buffer);
+        return getInput(buffer, bufferSize - OUTPUT_COUNT);
+    }
+
+    public void evaluate(float[] buffer) {
+        // run the features at the start of the buffer through every layer; each layer's activations follow the
+        // previous layer's, so the outputs end up at the end of the buffer
+        int in = 0;
+        int weight = 0;
+        int bias = 0;
+        int lastLayer = sizes.length - 2;
+        for (int layer = 0; layer <= lastLayer; layer++) {
+            int inputs = sizes[layer];
+            int outputs = sizes[layer + 1];
+            int out = in + inputs;
+            for (int o = 0; o < outputs; o++) {
+                float sum = biases[bias + o];
+                for (int i = 0; i < inputs; i++) {
+                    sum += weights[weight + i] * buffer[in + i];
+                }
+                weight += inputs;
+                buffer[out + o] = layer < lastLayer && sum < 0f ? 0f : sum;
+            }
+            bias += outputs;
+            in = out;
+        }
+    }
+
+    public static void getFeatures(Fighter self, Fighter target, float roundTimer, float[] features) {
+        Vector2 selfPosition = self.getPosition();
+        Vector2 targetPosition = target.getPosition();
+        features[0] = (targetPosition.x - selfPosition.x) / (MatchSimulation.RING_MAX_X - MatchSimulation.RING_MIN_X);
+        features[1] = (targetPosition.y - selfPosition.y) / (MatchSimulation.RING_MAX_Y - MatchSimulation.RING_MIN_Y);
+        features[2] = MatchSimulation.areWithinContactDistance(targetPosition, selfPosition) ? 1f : 0f;
+        features[3] = self.getLife() / Fighter.MAX_LIFE;
+        features[4] = target.getLife() / Fighter.MAX_LIFE;
+        features[5] = roundTimer / MatchSimulation.MAX_ROUND_TIME;
+        for (int i = 0; i < STATES.length; i++) {
+            features[SELF_STATE_FEATURES + i] = 0f;
+            features[TARGET_STATE_FEATURES + i] = 0f;
+        }
+        features[SELF_STATE_FEATURES + self.getState().ordinal()] = 1f;
+        features[TARGET_STATE_FEATURES + target.getState().ordinal()] = 1f;
+        features[ATTACK_FEATURES] = self.isAttacking() ? self.getAttackPhase() * 0.5f : 0f;
+        features[ATTACK_FEATURES + 1] = target.isAttacking() ? target.getAttackPhase() * 0.5f : 0f;
+        features[ATTACK_FEATURES + 2] = target.isAttacking() && target.hasMadeContact() ? 1f : 0f;
+    }
+
+    public static int getInput(float[] outputs, int offset) {
+        // the best output of each group, as an input
+        int horizontal = getBest(outputs, offset + HORIZONTAL_OUTPUTS, 3);
+        int vertical = getBest(outputs, offset + VERTICAL_OUTPUTS, 3);
+        int other = getBest(outputs, offset + OTHER_OUTPUTS, 4);
+        int input = horizontal == 1 ? FighterInput.LEFT : horizontal == 2 ? FighterInput.RIGHT : FighterInput.NONE;
+        input |= vertical == 1 ? FighterInput.UP : vertical == 2 ? FighterInput.DOWN : FighterInput.NONE;
+        switch (other) {
+            case 1:
+                return input | FighterInput.BLOCK;
+            case 2:
+                return input | FighterInput.PUNCH;
+            case 3:
+                return input | FighterInput.KICK;
+            default:
+                return input;
+        }
+    }
+
+    private static int getBest(float[] outputs, int offset, int count) {
+        int best = 0;
+        for (int i = 1; i < count; i++) {
+            if (outputs[offset + i] > outputs[offset + best]) best = i;
+        }
+        return best;
+    }
+
+    public static PolicyNetwork load(FileHandle file) {
+        return read(file.nameWithoutExtension(), ByteBuffer.wrap(file.readBytes()));
+    }
+
+    public static PolicyNetwork read(String name, ByteBuffer buffer) {
+        if (buffer.remaining() < 4 + 1 + 1 || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a policy network: " + name);
+        }
+        int version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported policy network version " + version + ": " + name);
+        }
+        int layers = buffer.get();
+        if (layers < 1 || buffer.remaining() < (layers + 1) * 2) {
+            throw new IllegalArgumentException("Policy network has no layers: " + name);
+        }
+        int[] sizes = new int[layers + 1];
+        int weightCount = 0;
+        int biasCount = 0;
+        for (int i = 0; i <= layers; i++) {
+            sizes[i] = buffer.getShort();
+            if (i > 0) {
+                weightCount += sizes[i - 1] * sizes[i];
+                biasCount += sizes[i];
+            }
+        }
+        if (buffer.remaining() != (weightCount + biasCount) * 4) {
+            throw new IllegalArgumentException("Policy network has the wrong size: " + name);
+        }
+
+        // each layer's weights and then its biases, gathered into the two arrays
+        float[] weights = new float[weightCount];
+        float[] biases = new float[biasCount];
+        int weight = 0;
+        int bias = 0;
+        for (int layer = 0; layer < layers; layer++) {
+            for (int i = sizes[layer] * sizes[layer + 1]; i > 0; i--) {
+                weights[weight++] = buffer.getFloat();
+            }
+            for (int i = sizes[layer + 1]; i > 0; i--) {
+                biases[bias++] = buffer.getFloat();
+            }
+        }
+        return new PolicyNetwork(name, sizes, weights, biases);
+    }
+
+    public void write(ByteBuffer buffer) {
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.put((byte) (sizes.length - 1));
+        for (int size : sizes) {
+            buffer.putShort((short) size);
+        }
+        int weight = 0;
+        int bias = 0;
+        for (int layer = 0; layer < sizes.length - 1; layer++) {
+            for (int i = sizes[layer] * sizes[layer + 1]; i > 0; i--) {
+                buffer.putFloat(weights[weight++]);
+            }
+            for (int i = sizes[layer + 1]; i > 0; i--) {
+                buffer.putFloat(biases[bias++]);
+            }
+        }
+    }
+
+    public int getFileSize() {
+        return 4 + 1 + 1 + sizes.length * 2 + (weights.length + biases.length) * 4;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
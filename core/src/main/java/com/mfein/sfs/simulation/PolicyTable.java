@@ -0,0 +1,133 @@
+package com.mfein.sfs.simulation;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.Vector2;
+import com.mfein.sfs.objects.Fighter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link FighterAi}'s decisions precomputed into a table: the input to hold for every quantized state of the two
+ * fighters, so an update is one index computation and one lookup. A state is where the target is relative to the AI's
+ * fighter (in {@link #DX_BUCKETS} horizontal and {@link #DY_BUCKETS} vertical buckets) and both fighters' states, with
+ * an attack split into its phases. Tables are built offline (see PolicyTableBuilder in the sim project) and stored as
+ * a byte array asset, which a profile file names as its "policyTable".
+ *
+ * <pre>
+ * magic "SFSP", version, dx buckets, dy buckets, states, inputs (one byte per quantized state)...
+ * </pre>
+ */
+public class PolicyTable {
+    // "SFSP"
+    public static final int MAGIC = 0x53465350;
+    public static final int VERSION = 1;
+
+    // buckets of where the target is, relative to the AI's fighter; anything farther is in the outermost bucket
+    public static final int DX_BUCKETS = 32;
+    public static final float DX_BUCKET_SIZE = 2.5f;
+    public static final int DY_BUCKETS = 12;
+    public static final float DY_BUCKET_SIZE = 1.5f;
+
+    // fighter states, with punches and kicks split into their attack phases (the starting phase keeps the state's own
+    // ordinal, the others come after the states)
+    private static final Fighter.State[] STATES = Fighter.State.values();
+    public static final int STATE_BUCKETS = STATES.length + 4;
+
+    public static final int SIZE = DX_BUCKETS * DY_BUCKETS * STATE_BUCKETS * STATE_BUCKETS;
+    private static final int HEADER_SIZE = 4 + 1 + 3;
+
+    private final String name;
+    private final byte[] inputs;
+
+    public PolicyTable(String name, byte[] inputs) {
+        if (inputs.length != SIZE) {
+            throw new IllegalArgumentException("A policy table needs " + SIZE + " inputs, not " + inputs.length);
+        }
+        this.name = name;
+        this.inputs = inputs;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getInput(Fighter self, Fighter target) {
+        return inputs[getIndex(self, target)];
+    }
+
+    public static int getIndex(Fighter self, Fighter target) {
+        Vector2 selfPosition = self.getPosition();
+        Vector2 targetPosition = target.getPosition();
+        int dx = getBucket(targetPosition.x - selfPosition.x, DX_BUCKET_SIZE, DX_BUCKETS);
+        int dy = getBucket(targetPosition.y - selfPosition.y, DY_BUCKET_SIZE, DY_BUCKETS);
+        return ((dx * DY_BUCKETS + dy) * STATE_BUCKETS + getStateBucket(self)) * STATE_BUCKETS +
+            getStateBucket(target);
+    }
+
+    public static float getBucketCenterX(int index) {
+        // horizontal distance to the target at the middle of the index's bucket
+        int dx = index / (DY_BUCKETS * STATE_BUCKETS * STATE_BUCKETS);
+        return (dx - DX_BUCKETS / 2 + 0.5f) * DX_BUCKET_SIZE;
+    }
+
+    public static float getBucketCenterY(int index) {
+        // vertical distance to the target at the middle of the index's bucket
+        int dy = index / (STATE_BUCKETS * STATE_BUCKETS) % DY_BUCKETS;
+        return (dy - DY_BUCKETS / 2 + 0.5f) * DY_BUCKET_SIZE;
+    }
+
+    private static int getBucket(float distance, float bucketSize, int buckets) {
+        // buckets are centered on 0: the first half is for negative distances, the second for positive ones
+        int bucket = (int) Math.floor(distance / bucketSize) + buckets / 2;
+        return Math.max(0, Math.min(buckets - 1, bucket));
+    }
+
+    static int getStateBucket(Fighter fighter) {
+        Fighter.State state = fighter.getState();
+        if (state != Fighter.State.PUNCH && state != Fighter.State.KICK) return state.ordinal();
+        int phase = fighter.getAttackPhase();
+        if (phase == Fighter.ATTACK_STARTING) return state.ordinal();
+        return STATES.length + (state == Fighter.State.PUNCH ? 0 : 2) + phase - 1;
+    }
+
+    public static PolicyTable load(FileHandle file) {
+        return read(file.nameWithoutExtension(), ByteBuffer.wrap(file.readBytes()));
+    }
+
+    public static PolicyTable read(String name, ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a policy table: " + name);
+        }
+        int version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported policy table version " + version + ": " + name);
+        }
+        if (buffer.get() != DX_BUCKETS || buffer.get() != DY_BUCKETS || buffer.get() != STATE_BUCKETS) {
+            throw new IllegalArgumentException("Policy table quantized differently: " + name);
+        }
+        if (buffer.remaining() != SIZE) {
+            throw new IllegalArgumentException("Policy table has the wrong size: " + name);
+        }
+        byte[] inputs = new byte[SIZE];
+        buffer.get(inputs);
+        return new PolicyTable(name, inputs);
+    }
+
+    public void write(ByteBuffer buffer) {
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.put((byte) DX_BUCKETS);
+        buffer.put((byte) DY_BUCKETS);
+        buffer.put((byte) STATE_BUCKETS);
+        buffer.put(inputs);
+    }
+
+    public static int getFileSize() {
+        return HEADER_SIZE + SIZE;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
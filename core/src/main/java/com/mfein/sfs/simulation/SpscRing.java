@@ -0,0 +1,56 @@
+package com.mfein.sfs.simulation;
+
+/**
+ * The indexes of a ring of slots handed from one producer thread to one consumer thread. The slots themselves live in
+ * the owner's own preallocated arrays (snapshots, commands...); the producer claims the next free slot, fills it and
+ * publishes it, and the consumer peeks at the oldest published slot, reads it and releases it. Each side only writes
+ * its own counter, so it never locks or allocates, and a volatile write of a counter makes the slot's contents visible
+ * to the other side. A full ring is the producer's to deal with (e.g. by dropping what it wanted to hand over).
+ */
+public class SpscRing {
+    private final int capacity;
+    private final int mask;
+
+    // slots published and slots released so far; the producer only writes the first, the consumer only the second
+    private volatile long published;
+    private volatile long released;
+
+    public SpscRing(int capacity) {
+        if (capacity <= 0 || (capacity & capacity - 1) != 0) {
+            throw new IllegalArgumentException("A ring's capacity must be a power of 2, not " + capacity);
+        }
+        this.capacity = capacity;
+        mask = capacity - 1;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int claim() {
+        // producer: the slot to fill next, or -1 if the ring is full
+        long next = published;
+        return next - released == capacity ? -1 : (int) (next & mask);
+    }
+
+    public void publish() {
+        // producer: hand the claimed slot over
+        published = published + 1;
+    }
+
+    public int peek() {
+        // consumer: the oldest slot handed over, or -1 if the ring is empty
+        long next = released;
+        return next == published ? -1 : (int) (next & mask);
+    }
+
+    public void release() {
+        // consumer: give the slot peeked at back to the producer
+        released = released + 1;
+    }
+
+    public int size() {
+        // only exact from either side's own thread while the other isn't active
+        return (int) (published - released);
+    }
+}
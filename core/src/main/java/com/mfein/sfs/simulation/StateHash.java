@@ -0,0 +1,34 @@
+package com.mfein.sfs.simulation;
+
+/**
+ * Builds a 64-bit hash of a match's state by mixing its values in one at a time, without allocating, so it can be
+ * taken every tick. Floats are mixed by their exact bits, so even the smallest difference between two simulations
+ * changes the hash. Not meant to resist anyone trying to forge a collision, only to catch desyncs.
+ */
+public final class StateHash {
+    public static final long SEED = 0x243F6A8885A308D3L;
+    private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private StateHash() {}
+
+    public static long mix(long hash, long value) {
+        hash = (hash ^ value) * MULTIPLIER;
+        return hash ^ hash >>> 31;
+    }
+
+    public static long mix(long hash, int value) {
+        return mix(hash, (long) value);
+    }
+
+    public static long mix(long hash, float value) {
+        return mix(hash, (long) Float.floatToRawIntBits(value));
+    }
+
+    public static long mix(long hash, boolean value) {
+        return mix(hash, value ? 1L : 0L);
+    }
+
+    public static long mix(long hash, Enum<?> value) {
+        return mix(hash, value == null ? -1L : value.ordinal());
+    }
+}
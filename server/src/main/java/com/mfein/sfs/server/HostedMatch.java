@@ -0,0 +1,70 @@
+package com.mfein.sfs.server;
+
+import com.badlogic.gdx.graphics.Color;
+import com.mfein.sfs.net.SpectatorFeed;
+import com.mfein.sfs.objects.Fighter;
+import com.mfein.sfs.simulation.AiProfile;
+import com.mfein.sfs.simulation.MatchSimulation;
+
+/**
+ * A match the server is authoritative for. Each fighter is either controlled by a remote client, whose latest input
+ * is submitted from any thread and picked up on the next tick, or by the AI (e.g. bots for load testing). Ticks are
+ * only ever run by one server worker at a time. After each tick, the match is broadcast to its spectators, if any.
+ */
+public class HostedMatch {
+    private final int id;
+    private final MatchSimulation simulation;
+    private final SpectatorFeed spectatorFeed;
+
+    // latest input submitted for each client-controlled fighter
+    private volatile int playerInput;
+    private volatile int opponentInput;
+
+    public HostedMatch(int id, int tickRate, AiProfile playerProfile, AiProfile opponentProfile) {
+        this.id = id;
+        spectatorFeed = new SpectatorFeed(tickRate);
+
+        // a fighter without an AI profile is controlled by its client's input
+        simulation = new MatchSimulation(new Fighter("Player", Color.WHITE), new Fighter("Opponent", Color.WHITE));
+        simulation.setPlayerAiProfile(playerProfile);
+        simulation.setOpponentAiProfile(opponentProfile);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public MatchSimulation getSimulation() {
+        return simulation;
+    }
+
+    public SpectatorFeed getSpectatorFeed() {
+        return spectatorFeed;
+    }
+
+    public boolean isOver() {
+        return simulation.getGameState() == MatchSimulation.GameState.GAME_OVER;
+    }
+
+    public void submitPlayerInput(int input) {
+        playerInput = input;
+    }
+
+    public void submitOpponentInput(int input) {
+        opponentInput = input;
+    }
+
+    void start(long seed) {
+        playerInput = opponentInput = 0;
+        simulation.startGame(seed);
+    }
+
+    int tick(float stepTime) {
+        simulation.setPlayerInput(playerInput);
+        simulation.setOpponentInput(opponentInput);
+        simulation.update(stepTime);
+
+        // returns the bytes sent to the spectators
+        return spectatorFeed.broadcast(simulation);
+    }
+}
@@ -0,0 +1,32 @@
+package com.mfein.sfs.server;
+
+import com.mfein.sfs.net.SpectatorDecoder;
+import com.mfein.sfs.net.SpectatorSubscriber;
+
+import java.nio.ByteBuffer;
+
+/** An in-process spectator that decodes every frame it gets, e.g. to load test the spectator feeds. */
+public class LocalSpectator implements SpectatorSubscriber {
+    private final SpectatorDecoder decoder = new SpectatorDecoder();
+    private long framesReceived;
+    private long bytesReceived;
+
+    @Override
+    public void onFrame(ByteBuffer frame) {
+        framesReceived++;
+        bytesReceived += frame.remaining();
+        decoder.decode(frame);
+    }
+
+    public SpectatorDecoder getDecoder() {
+        return decoder;
+    }
+
+    public long getFramesReceived() {
+        return framesReceived;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+}
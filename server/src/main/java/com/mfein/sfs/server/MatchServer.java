@@ -0,0 +1,202 @@
+package com.mfein.sfs.server;
+
+import com.mfein.sfs.simulation.MatchRandom;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hosts any number of {@link HostedMatch}es on a single shared tick. One scheduler thread fires the ticks at the tick
+ * rate; every tick, the matches are split into batches that a small pool of workers steps in parallel, and the tick ends
+ * once every batch is done. Matches are added from any thread and join on the next tick. Once a second, the tick time,
+ * the CPU time the workers used, the match count and the bytes sent to spectators are reported.
+ */
+public class MatchServer {
+    // matches stepped by a single worker task
+    public static final int MATCHES_PER_BATCH = 32;
+
+    // tick
+    private final int tickRate;
+    private final float stepTime;
+    private final long tickPeriodNanos;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService workers;
+
+    // matches (only touched by the scheduler thread, apart from the queue of matches to add)
+    private final Queue<HostedMatch> addedMatches = new ConcurrentLinkedQueue<>();
+    private HostedMatch[] matches = new HostedMatch[MATCHES_PER_BATCH];
+    private int matchCount;
+    private final MatchRandom seeds;
+    private boolean restartingFinishedMatches;
+
+    // batches, how many of them are still stepping this tick, and the tick thread waiting for them
+    private final List<Batch> batches = new ArrayList<>();
+    private final AtomicInteger pendingBatches = new AtomicInteger();
+    private Thread tickThread;
+
+    // stats
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final boolean measuringCpuTime;
+    private final AtomicLong cpuNanos = new AtomicLong();
+    private final AtomicLong spectatorBytes = new AtomicLong();
+    private final ServerStats stats = new ServerStats();
+    private final PrintStream out;
+    private long tick;
+
+    public MatchServer(int tickRate, int threads, long seed, PrintStream out) {
+        this.tickRate = tickRate;
+        stepTime = 1f / tickRate;
+        tickPeriodNanos = 1000000000L / tickRate;
+        seeds = new MatchRandom(seed);
+        this.out = out;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "tick"));
+        workers = Executors.newFixedThreadPool(threads, runnable -> new Thread(runnable, "match-worker"));
+
+        // measure the workers' CPU time, if the JVM supports it
+        measuringCpuTime = threadBean.isCurrentThreadCpuTimeSupported();
+        if (measuringCpuTime && !threadBean.isThreadCpuTimeEnabled()) {
+            threadBean.setThreadCpuTimeEnabled(true);
+        }
+    }
+
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    public void setRestartingFinishedMatches(boolean restartingFinishedMatches) {
+        // start a finished match again with a new seed instead of removing it (e.g. to keep a load test going)
+        this.restartingFinishedMatches = restartingFinishedMatches;
+    }
+
+    public void addMatch(HostedMatch match) {
+        addedMatches.add(match);
+    }
+
+    public void start() {
+        scheduler.scheduleAtFixedRate(this::tick, 0, tickPeriodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void stop() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private void tick() {
+        try {
+            long startTime = System.nanoTime();
+
+            // start the matches added since the last tick
+            HostedMatch added;
+            while ((added = addedMatches.poll()) != null) {
+                added.start(seeds.nextLong());
+                if (matchCount == matches.length) {
+                    HostedMatch[] grown = new HostedMatch[matches.length * 2];
+                    System.arraycopy(matches, 0, grown, 0, matchCount);
+                    matches = grown;
+                }
+                matches[matchCount++] = added;
+                stats.startedMatches++;
+            }
+
+            // count the spectators watching this tick
+            for (int i = 0; i < matchCount; i++) {
+                stats.spectatorTicks += matches[i].getSpectatorFeed().getSubscriberCount();
+            }
+
+            // step every match, one batch per worker task, and wait for all of them
+            stepMatches();
+
+            // restart or remove the matches that have finished
+            for (int i = matchCount - 1; i >= 0; i--) {
+                if (matches[i].isOver()) {
+                    stats.finishedMatches++;
+                    if (restartingFinishedMatches) {
+                        matches[i].start(seeds.nextLong());
+                        stats.startedMatches++;
+                    } else {
+                        matches[i] = matches[--matchCount];
+                        matches[matchCount] = null;
+                    }
+                }
+            }
+
+            // report once a second
+            stats.addTick(System.nanoTime() - startTime, tickPeriodNanos, matchCount);
+            if (++tick % tickRate == 0) {
+                stats.cpuNanos = measuringCpuTime ? cpuNanos.getAndSet(0) : -1;
+                stats.spectatorBytes = spectatorBytes.getAndSet(0);
+                out.println(stats.format(matchCount, tickRate));
+                stats.reset();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // an exception would cancel all future ticks, so report it and carry on
+            e.printStackTrace();
+        }
+    }
+
+    private void stepMatches() throws InterruptedException {
+        int batchCount = (matchCount + MATCHES_PER_BATCH - 1) / MATCHES_PER_BATCH;
+        while (batches.size() < batchCount) {
+            batches.add(new Batch());
+        }
+
+        // the last batch to finish wakes the tick thread up; nothing is allocated per tick
+        tickThread = Thread.currentThread();
+        pendingBatches.set(batchCount);
+        for (int i = 0; i < batchCount; i++) {
+            Batch batch = batches.get(i);
+            batch.fromMatch = i * MATCHES_PER_BATCH;
+            batch.toMatch = Math.min(batch.fromMatch + MATCHES_PER_BATCH, matchCount);
+            workers.execute(batch);
+        }
+        while (pendingBatches.get() > 0) {
+            LockSupport.park(this);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    private class Batch implements Runnable {
+        private int fromMatch;
+        private int toMatch;
+
+        @Override
+        public void run() {
+            try {
+                long startCpuTime = measuringCpuTime ? threadBean.getCurrentThreadCpuTime() : 0;
+                long bytes = 0;
+                for (int i = fromMatch; i < toMatch; i++) {
+                    bytes += matches[i].tick(stepTime);
+                }
+                if (bytes > 0) {
+                    spectatorBytes.addAndGet(bytes);
+                }
+                if (measuringCpuTime) {
+                    cpuNanos.addAndGet(threadBean.getCurrentThreadCpuTime() - startCpuTime);
+                }
+            } finally {
+                if (pendingBatches.decrementAndGet() == 0) {
+                    LockSupport.unpark(tickThread);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.mfein.sfs.server;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.mfein.sfs.objects.Fighter;
+import com.mfein.sfs.objects.FrameData;
+import com.mfein.sfs.resources.GlobalVariables;
+import com.mfein.sfs.simulation.AiProfile;
+import com.mfein.sfs.simulation.MatchRandom;
+
+/**
+ * Starts a headless {@link MatchServer}. Until clients can connect, it is filled with AI-vs-AI bot matches of every
+ * pair of difficulties, which are restarted as soon as they finish, so the server can be load tested. Each match can
+ * also be watched by in-process spectators that decode its spectator feed.
+ *
+ * <pre>
+ * --matches N      bot matches to host (default 200)
+ * --spectators N   spectators per match (default 0)
+ * --threads N      worker threads (default: all cores)
+ * --tick-rate N    ticks per second (default 60)
+ * --seconds N      stop after this many seconds (default: run until killed)
+ * --seed N         seed for the match seeds (default: random)
+ * </pre>
+ */
+public class ServerLauncher {
+
+    public static void main(String[] args) throws InterruptedException {
+        // set up the moves from the move definition file, as the game does at start-up
+        Fighter.loadFrameData(new FileHandle("assets/" + FrameData.FILE));
+
+        // default options
+        int matches = 200;
+        int spectators = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int tickRate = GlobalVariables.DEFAULT_TICK_RATE;
+        int seconds = 0;
+        long seed = MatchRandom.newSeed();
+
+        // parse the options
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--matches":
+                    matches = Integer.parseInt(value);
+                    break;
+                case "--spectators":
+                    spectators = Integer.parseInt(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "--tick-rate":
+                    tickRate = Integer.parseInt(value);
+                    break;
+                case "--seconds":
+                    seconds = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+            i++;
+        }
+
+        MatchServer server = new MatchServer(tickRate, threads, seed, System.out);
+        server.setRestartingFinishedMatches(true);
+
+        // fill the server with bot matches, cycling through every pair of difficulties played by an AI profile (not
+        // EXPERT)
+        GlobalVariables.Difficulty[] difficulties = {GlobalVariables.Difficulty.EASY, GlobalVariables.Difficulty.MEDIUM,
+            GlobalVariables.Difficulty.HARD};
+        for (int i = 0; i < matches; i++) {
+            GlobalVariables.Difficulty playerDifficulty = difficulties[i % difficulties.length];
+            GlobalVariables.Difficulty opponentDifficulty = difficulties[i / difficulties.length % difficulties.length];
+            HostedMatch match = new HostedMatch(i, tickRate, AiProfile.forDifficulty(playerDifficulty),
+                AiProfile.forDifficulty(opponentDifficulty));
+            for (int j = 0; j < spectators; j++) {
+                match.getSpectatorFeed().subscribe(new LocalSpectator());
+            }
+            server.addMatch(match);
+        }
+
+        System.out.printf("Hosting %d matches at %d ticks per second on %d threads (seed %d)%n", matches, tickRate,
+            threads, seed);
+        server.start();
+
+        // run for the given time, or until the process is killed
+        if (seconds > 0) {
+            Thread.sleep(seconds * 1000L);
+            server.stop();
+        }
+    }
+}
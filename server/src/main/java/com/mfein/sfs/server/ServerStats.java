@@ -0,0 +1,55 @@
+package com.mfein.sfs.server;
+
+import java.util.Locale;
+
+/** Totals the {@link MatchServer} collects between two reports. */
+public class ServerStats {
+    // ticks
+    public long ticks;
+    public long lateTicks;
+    public long totalTickNanos;
+    public long maxTickNanos;
+
+    // matches
+    public long matchTicks;
+    public long startedMatches;
+    public long finishedMatches;
+
+    // spectators (summed over the ticks, like the matches) and the bytes sent to them
+    public long spectatorTicks;
+    public long spectatorBytes;
+
+    // CPU time used by the workers stepping the matches (-1 if the JVM can't measure it)
+    public long cpuNanos;
+
+    public void addTick(long tickNanos, long tickPeriodNanos, int matchCount) {
+        ticks++;
+        totalTickNanos += tickNanos;
+        maxTickNanos = Math.max(maxTickNanos, tickNanos);
+        if (tickNanos > tickPeriodNanos) {
+            lateTicks++;
+        }
+        matchTicks += matchCount;
+    }
+
+    public void reset() {
+        ticks = lateTicks = totalTickNanos = maxTickNanos = 0;
+        matchTicks = startedMatches = finishedMatches = 0;
+        spectatorTicks = spectatorBytes = 0;
+        cpuNanos = 0;
+    }
+
+    public String format(int matchCount, int tickRate) {
+        String line = String.format(Locale.ROOT, "matches %d (+%d, %d finished) | ticks %d (%d late) | " +
+                "tick time avg %.3f ms, max %.3f ms | CPU %s ms/tick, %s us/match-tick", matchCount, startedMatches,
+            finishedMatches, ticks, lateTicks, ticks == 0 ? 0 : totalTickNanos / 1e6 / ticks, maxTickNanos / 1e6,
+            cpuNanos < 0 || ticks == 0 ? "n/a" : String.format(Locale.ROOT, "%.3f", cpuNanos / 1e6 / ticks),
+            cpuNanos < 0 || matchTicks == 0 ? "n/a" : String.format(Locale.ROOT, "%.3f", cpuNanos / 1e3 / matchTicks));
+        if (spectatorTicks == 0) return line;
+
+        // bytes per second for each spectator, from the bytes sent per spectator and tick
+        double spectators = (double) spectatorTicks / ticks;
+        return line + String.format(Locale.ROOT, " | spectators %.0f, %.0f B/s each", spectators,
+            (double) spectatorBytes / spectatorTicks * tickRate);
+    }
+}
@@ -0,0 +1,205 @@
+package com.mfein.sfs.sim;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Vector2;
+import com.mfein.sfs.objects.Fighter;
+import com.mfein.sfs.objects.FrameData;
+import com.mfein.sfs.resources.GlobalVariables;
+import com.mfein.sfs.simulation.AiProfile;
+import com.mfein.sfs.simulation.FighterAi;
+import com.mfein.sfs.simulation.FighterAiBatch;
+import com.mfein.sfs.simulation.FighterInput;
+import com.mfein.sfs.simulation.MatchRandom;
+import com.mfein.sfs.simulation.MatchSimulation;
+
+import java.util.Locale;
+
+/**
+ * Command-line tool that measures AI decisions per second against the number of AI-controlled fighters, one
+ * {@link FighterAi} per fighter against a {@link FighterAiBatch} for all of them. Each fighter has its own target,
+ * which circles near it and attacks now and then, and the fighters move as their AI tells them; only the AI is timed.
+ * The batch is timed on its own (as in a crowd mode that keeps its fighters as arrays) and with reading the fighters
+ * in and applying its inputs to them.
+ *
+ * <pre>
+ * --counts N,N,...   fighter counts to measure (default 1,10,100,1000,10000)
+ * --seconds S        time to measure each count and mode for (default 1)
+ * --difficulty NAME  difficulty whose built-in profile the fighters use (default HARD)
+ * --seed N           seed of the fighters' positions and AI (default: random)
+ * </pre>
+ */
+public class AiBatchBenchmark {
+    // how far from its fighter a target circles, how fast, and how often it attacks
+    private static final float TARGET_RADIUS = 6f;
+    private static final float TARGET_ANGULAR_SPEED = 1.5f;
+    private static final int TARGET_ATTACK_TICKS = 45;
+
+    public static void main(String[] args) {
+        // set up the moves from the move definition file, as the game does at start-up
+        Fighter.loadFrameData(new FileHandle("assets/" + FrameData.FILE));
+
+        // default options
+        String counts = "1,10,100,1000,10000";
+        double seconds = 1;
+        GlobalVariables.Difficulty difficulty = GlobalVariables.Difficulty.HARD;
+        long seed = MatchRandom.newSeed();
+
+        // parse the options
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--counts":
+                    counts = value;
+                    break;
+                case "--seconds":
+                    seconds = Double.parseDouble(value);
+                    break;
+                case "--difficulty":
+                    difficulty = GlobalVariables.Difficulty.valueOf(value.toUpperCase(Locale.ROOT));
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+            i++;
+        }
+        if (difficulty == GlobalVariables.Difficulty.EXPERT) {
+            System.err.println("No AI profile for difficulty: " + difficulty);
+            System.exit(1);
+        }
+        AiProfile profile = AiProfile.builtIn(difficulty);
+
+        System.out.printf(Locale.ROOT, "%s AI, %.1f s per measurement, seed %d%n", difficulty, seconds, seed);
+        System.out.printf(Locale.ROOT, "%9s %16s %16s %16s %8s%n", "fighters", "FighterAi/s", "batch/s",
+            "batch+fighters/s", "speedup");
+        for (String countText : counts.split(",")) {
+            int count = Integer.parseInt(countText.trim());
+            Crowd crowd = new Crowd(count, profile, seed);
+
+            // each mode is run once to warm the JIT up, then measured
+            double[] decisionsPerSecond = new double[3];
+            for (int mode = 0; mode < decisionsPerSecond.length; mode++) {
+                crowd.measure(mode, Math.min(seconds, 0.5));
+                decisionsPerSecond[mode] = crowd.measure(mode, seconds);
+            }
+            System.out.printf(Locale.ROOT, "%9d %16.0f %16.0f %16.0f %7.1fx%n", count, decisionsPerSecond[0],
+                decisionsPerSecond[1], decisionsPerSecond[2], decisionsPerSecond[1] / decisionsPerSecond[0]);
+        }
+    }
+
+    private static class Crowd {
+        private final int count;
+        private final Fighter[] fighters;
+        private final Fighter[] targets;
+        private final FighterAi[] ais;
+        private final FighterAiBatch batch;
+        private final float[] centersX, centersY, phases;
+        private final long seed;
+        private int tick;
+
+        Crowd(int count, AiProfile profile, long seed) {
+            this.count = count;
+            this.seed = seed;
+            fighters = new Fighter[count];
+            targets = new Fighter[count];
+            ais = new FighterAi[count];
+            batch = new FighterAiBatch(count);
+            batch.setCount(count);
+            centersX = new float[count];
+            centersY = new float[count];
+            phases = new float[count];
+            MatchRandom random = new MatchRandom(seed);
+            for (int i = 0; i < count; i++) {
+                fighters[i] = new Fighter("Fighter " + i, Color.WHITE);
+                targets[i] = new Fighter("Target " + i, Color.WHITE);
+                ais[i] = new FighterAi(fighters[i], targets[i], new MatchRandom(seed, i), profile);
+                batch.setProfile(i, profile);
+                centersX[i] = 20f + random.random() * 25f;
+                centersY[i] = 8f + random.random() * 10f;
+                phases[i] = random.random() * 6.2831855f;
+            }
+        }
+
+        double measure(int mode, double seconds) {
+            // start every fighter over, then run ticks until the time is up, only timing the AI
+            tick = 0;
+            for (int i = 0; i < count; i++) {
+                fighters[i].getReady(centersX[i] - TARGET_RADIUS * 2, centersY[i]);
+                targets[i].getReady(centersX[i], centersY[i]);
+                ais[i].reset();
+                batch.reset(i, seed + i);
+            }
+            long aiNanos = 0;
+            long decisions = 0;
+            long endTime = System.nanoTime() + (long) (seconds * 1e9);
+            while (System.nanoTime() < endTime) {
+                moveTargets();
+                if (mode == 1) {
+                    gather();
+                }
+
+                long startTime = System.nanoTime();
+                if (mode == 0) {
+                    for (int i = 0; i < count; i++) {
+                        ais[i].update(HeadlessMatch.STEP_TIME);
+                    }
+                } else if (mode == 1) {
+                    batch.update(HeadlessMatch.STEP_TIME);
+                } else {
+                    gather();
+                    batch.update(HeadlessMatch.STEP_TIME);
+                    apply();
+                }
+                aiNanos += System.nanoTime() - startTime;
+                decisions += count;
+
+                if (mode == 1) {
+                    apply();
+                }
+                moveFighters();
+            }
+            return decisions / (aiNanos / 1e9);
+        }
+
+        private void moveTargets() {
+            // the targets circle their spots, attacking every so often
+            tick++;
+            float angle = tick * HeadlessMatch.STEP_TIME * TARGET_ANGULAR_SPEED;
+            for (int i = 0; i < count; i++) {
+                Fighter target = targets[i];
+                target.getPosition().set(centersX[i] + TARGET_RADIUS * (float) Math.cos(angle + phases[i]),
+                    centersY[i] + TARGET_RADIUS * 0.5f * (float) Math.sin(angle + phases[i]));
+                if ((tick + i) % TARGET_ATTACK_TICKS == 0) {
+                    target.punch();
+                }
+                target.update(HeadlessMatch.STEP_TIME);
+            }
+        }
+
+        private void moveFighters() {
+            for (int i = 0; i < count; i++) {
+                Fighter fighter = fighters[i];
+                fighter.update(HeadlessMatch.STEP_TIME);
+                Vector2 position = fighter.getPosition();
+                position.x = Math.max(MatchSimulation.RING_MIN_X, Math.min(MatchSimulation.RING_MAX_X, position.x));
+                position.y = Math.max(MatchSimulation.RING_MIN_Y, Math.min(MatchSimulation.RING_MAX_Y, position.y));
+            }
+        }
+
+        private void gather() {
+            for (int i = 0; i < count; i++) {
+                batch.gather(i, fighters[i], targets[i]);
+            }
+        }
+
+        private void apply() {
+            for (int i = 0; i < count; i++) {
+                FighterInput.applyHeld(fighters[i], batch.inputs[i]);
+            }
+        }
+    }
+}
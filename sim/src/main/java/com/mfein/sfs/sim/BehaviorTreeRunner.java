@@ -0,0 +1,156 @@
+package com.mfein.sfs.sim;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.mfein.sfs.objects.Fighter;
+import com.mfein.sfs.objects.FrameData;
+import com.mfein.sfs.resources.GlobalVariables;
+import com.mfein.sfs.simulation.AiProfile;
+import com.mfein.sfs.simulation.MatchRandom;
+import com.mfein.sfs.simulation.MatchSimulation;
+
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * Command-line tool that checks the behavior trees of the AI profile files against the built-in AI, and measures what
+ * they cost. For each difficulty, it plays matches of the built-in HARD AI against the difficulty's built-in profile
+ * and against its tree, side by side with the same seeds, and counts the matches whose state hashes ever differ. Then
+ * it times both, and counts the tree nodes run per tick.
+ *
+ * <pre>
+ * --matches N    matches per difficulty (default 200)
+ * --trees DIR    directory with the profile files (default assets/data/ai)
+ * --seed N       seed of the first match (default: random)
+ * </pre>
+ */
+public class BehaviorTreeRunner {
+
+    public static void main(String[] args) {
+        // set up the moves from the move definition file, as the game does at start-up
+        Fighter.loadFrameData(new FileHandle("assets/" + FrameData.FILE));
+
+        // default options
+        int matches = 200;
+        File trees = new File("assets/data/ai");
+        long seed = MatchRandom.newSeed();
+
+        // parse the options
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--matches":
+                    matches = Integer.parseInt(value);
+                    break;
+                case "--trees":
+                    trees = new File(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+            i++;
+        }
+
+        boolean allIdentical = true;
+        for (GlobalVariables.Difficulty difficulty : GlobalVariables.Difficulty.values()) {
+            File file = new File(trees, difficulty.name().toLowerCase(Locale.ROOT) + ".json");
+            if (!file.exists()) {
+                System.out.printf("%-8s no profile file (%s)%n", difficulty, file);
+                continue;
+            }
+            AiProfile treeProfile = AiProfile.load(new FileHandle(file));
+            if (treeProfile.behaviorTree == null) {
+                System.out.printf("%-8s no behavior tree in %s%n", difficulty, file);
+                continue;
+            }
+            AiProfile builtInProfile = AiProfile.builtIn(difficulty);
+
+            // play the matches side by side, comparing their states every tick
+            int differing = 0;
+            for (int i = 0; i < matches; i++) {
+                if (!playSideBySide(builtInProfile, treeProfile, seed + i)) {
+                    differing++;
+                }
+            }
+            allIdentical &= differing == 0;
+
+            // time them (twice, so the first round warms up the JIT), and count the tree nodes run per tick
+            Timing builtInTiming = null;
+            Timing treeTiming = null;
+            MatchSimulation treeSimulation = null;
+            for (int round = 0; round < 2; round++) {
+                builtInTiming = time(createSimulation(builtInProfile), matches, seed);
+                treeSimulation = createSimulation(treeProfile);
+                treeTiming = time(treeSimulation, matches, seed);
+            }
+            double builtInNanos = builtInTiming.getNanosPerTick();
+            double treeNanos = treeTiming.getNanosPerTick();
+            double nodesPerTick = (double) treeSimulation.getOpponentAi().getTreeNodesRun() / treeTiming.ticks;
+
+            System.out.printf("%-8s %d nodes: %d/%d matches identical to built-in, %.0f ns/tick built-in, " +
+                    "%.0f ns/tick tree (%+.0f ns), %.1f nodes run per tick%n", difficulty,
+                treeProfile.behaviorTree.getNodeCount(), matches - differing, matches, builtInNanos, treeNanos,
+                treeNanos - builtInNanos, nodesPerTick);
+        }
+        if (!allIdentical) {
+            System.exit(1);
+        }
+    }
+
+    private static MatchSimulation createSimulation(AiProfile opponentProfile) {
+        MatchSimulation simulation = new MatchSimulation(new Fighter("Player", Color.WHITE),
+            new Fighter("Opponent", Color.WHITE));
+        simulation.setPlayerAiProfile(AiProfile.builtIn(GlobalVariables.Difficulty.HARD));
+        simulation.setOpponentAiProfile(opponentProfile);
+        return simulation;
+    }
+
+    private static boolean playSideBySide(AiProfile profile, AiProfile otherProfile, long seed) {
+        MatchSimulation simulation = createSimulation(profile);
+        MatchSimulation otherSimulation = createSimulation(otherProfile);
+        simulation.startGame(seed);
+        otherSimulation.startGame(seed);
+        while (simulation.getGameState() != MatchSimulation.GameState.GAME_OVER) {
+            if (simulation.getStateHash() != otherSimulation.getStateHash()) return false;
+            update(simulation);
+            update(otherSimulation);
+        }
+        return simulation.getStateHash() == otherSimulation.getStateHash();
+    }
+
+    private static Timing time(MatchSimulation simulation, int matches, long seed) {
+        // play whole matches, counting their ticks
+        Timing timing = new Timing();
+        long startTime = System.nanoTime();
+        for (int i = 0; i < matches; i++) {
+            simulation.startGame(seed + i);
+            while (simulation.getGameState() != MatchSimulation.GameState.GAME_OVER) {
+                update(simulation);
+                timing.ticks++;
+            }
+        }
+        timing.nanos = System.nanoTime() - startTime;
+        return timing;
+    }
+
+    private static void update(MatchSimulation simulation) {
+        // skip the start and end round delays, like HeadlessMatch
+        if (simulation.getRoundState() != MatchSimulation.RoundState.IN_PROGRESS) {
+            simulation.skipRoundDelay();
+        }
+        simulation.update(HeadlessMatch.STEP_TIME);
+    }
+
+    private static class Timing {
+        long ticks;
+        long nanos;
+
+        double getNanosPerTick() {
+            return (double) nanos / ticks;
+        }
+    }
+}
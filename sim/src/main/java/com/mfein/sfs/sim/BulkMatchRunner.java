@@ -0,0 +1,162 @@
+package com.mfein.sfs.sim;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.mfein.sfs.objects.Fighter;
+import com.mfein.sfs.objects.FrameData;
+import com.mfein.sfs.resources.GlobalVariables;
+import com.mfein.sfs.simulation.AiProfile;
+import com.mfein.sfs.simulation.MatchRandom;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Command-line tool that plays AI-vs-AI matches for pairs of AI profiles on all cores and writes one CSV row of
+ * aggregated results per pair as soon as the pair is finished. Each profile plays half of a pair's matches from
+ * either seat (the player's seat wins ties, e.g. when both fighters hit on the same tick), so the results are per
+ * profile rather than per seat.
+ *
+ * <pre>
+ * --matches N        matches per pair (default 10000)
+ * --threads N        worker threads (default: all cores)
+ * --seed N           base seed (default: random)
+ * --player NAME      first difficulty of each pair, ALL, or a profile file (*.json) (default ALL)
+ * --opponent NAME    second difficulty of each pair, ALL, or a profile file (*.json) (default ALL)
+ * --out FILE         CSV file to write (default: standard output)
+ * --block-chance X, --attack-chance X, --pursue-chance X, --contact-delay X, --non-contact-delay X, --anticipation X
+ *                    override a value in every second profile
+ * </pre>
+ */
+public class BulkMatchRunner {
+
+    public static void main(String[] args) throws IOException {
+        // set up the moves from the move definition file, as the game does at start-up
+        Fighter.loadFrameData(new FileHandle("assets/" + FrameData.FILE));
+
+        // default options
+        long matches = 10000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = MatchRandom.newSeed();
+        String player = "ALL";
+        String opponent = "ALL";
+        String out = null;
+        AiProfile overrides = new AiProfile("overrides", Float.NaN, Float.NaN, Float.NaN, Float.NaN, Float.NaN);
+        overrides.anticipation = Float.NaN;
+
+        // parse the options
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--matches":
+                    matches = Long.parseLong(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--player":
+                    player = value;
+                    break;
+                case "--opponent":
+                    opponent = value;
+                    break;
+                case "--out":
+                    out = value;
+                    break;
+                case "--block-chance":
+                    overrides.blockChance = Float.parseFloat(value);
+                    break;
+                case "--attack-chance":
+                    overrides.attackChance = Float.parseFloat(value);
+                    break;
+                case "--pursue-chance":
+                    overrides.pursueChance = Float.parseFloat(value);
+                    break;
+                case "--contact-delay":
+                    overrides.contactDecisionDelay = Float.parseFloat(value);
+                    break;
+                case "--non-contact-delay":
+                    overrides.nonContactDecisionDelay = Float.parseFloat(value);
+                    break;
+                case "--anticipation":
+                    overrides.anticipation = Float.parseFloat(value);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+            i++;
+        }
+
+        List<AiProfile> playerProfiles = getProfiles(player, null);
+        List<AiProfile> opponentProfiles = getProfiles(opponent, overrides);
+
+        System.err.printf(Locale.ROOT, "Playing %d matches per pair on %d threads (seed %d)%n", matches, threads, seed);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try (PrintWriter writer = out == null ? new PrintWriter(new OutputStreamWriter(System.out)) :
+            new PrintWriter(new FileWriter(out))) {
+            MatchStats.writeCsvHeader(writer);
+            writer.flush();
+
+            for (AiProfile playerProfile : playerProfiles) {
+                for (AiProfile opponentProfile : opponentProfiles) {
+                    // play all matches for this pair, half on each side, and stream the results
+                    long startTime = System.nanoTime();
+                    ForkJoinTask<MatchStats> asPlayer = pool.submit(new MatchBatchTask(playerProfile, opponentProfile,
+                        seed, 0, matches / 2));
+                    ForkJoinTask<MatchStats> asOpponent = pool.submit(new MatchBatchTask(opponentProfile, playerProfile,
+                        seed, matches / 2, matches));
+                    MatchStats stats = asPlayer.join().mergeSwapped(asOpponent.join());
+                    double seconds = (System.nanoTime() - startTime) / 1e9;
+                    stats.writeCsvRow(writer, playerProfile.name, opponentProfile.name, seconds);
+                    writer.flush();
+                    System.err.printf(Locale.ROOT, "%s vs %s: %.2f s%n", playerProfile.name, opponentProfile.name, seconds);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static List<AiProfile> getProfiles(String name, AiProfile overrides) {
+        // get the profile for the named difficulty, or for every difficulty that has one (EXPERT doesn't: it's played
+        // by a planner, see ExpertAiRunner), or the profile in the named file (e.g. one being edited)
+        List<AiProfile> profiles = new ArrayList<>();
+        if (name.endsWith(".json")) {
+            profiles.add(applyOverrides(AiProfile.load(new FileHandle(new File(name))), overrides));
+            return profiles;
+        }
+        for (GlobalVariables.Difficulty difficulty : GlobalVariables.Difficulty.values()) {
+            AiProfile profile = AiProfile.forDifficulty(difficulty);
+            if (profile != null && (name.equalsIgnoreCase("ALL") || name.equalsIgnoreCase(difficulty.name()))) {
+                profiles.add(applyOverrides(profile, overrides));
+            }
+        }
+        if (profiles.isEmpty()) {
+            throw new IllegalArgumentException("No AI profile for difficulty: " + name);
+        }
+        return profiles;
+    }
+
+    private static AiProfile applyOverrides(AiProfile profile, AiProfile overrides) {
+        // replace every value that has been overridden (values that haven't are NaN)
+        if (overrides == null) return profile;
+        if (!Float.isNaN(overrides.contactDecisionDelay)) profile.contactDecisionDelay = overrides.contactDecisionDelay;
+        if (!Float.isNaN(overrides.nonContactDecisionDelay)) profile.nonContactDecisionDelay = overrides.nonContactDecisionDelay;
+        if (!Float.isNaN(overrides.blockChance)) profile.blockChance = overrides.blockChance;
+        if (!Float.isNaN(overrides.attackChance)) profile.attackChance = overrides.attackChance;
+        if (!Float.isNaN(overrides.pursueChance)) profile.pursueChance = overrides.pursueChance;
+        if (!Float.isNaN(overrides.anticipation)) profile.anticipation = overrides.anticipation;
+        return profile;
+    }
+}
@@ -0,0 +1,333 @@
+package com.mfein.sfs.sim;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.mfein.sfs.objects.Fighter;
+import com.mfein.sfs.objects.FrameData;
+import com.mfein.sfs.resources.GlobalVariables;
+import com.mfein.sfs.simulation.AiProfile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Command-line tool that measures what each difficulty means to a player: it plays every {@link ReferenceBot} against
+ * every difficulty with an AI profile (as the game loads them, with the moves defined next to them) on all cores, and writes calibration.csv, one row per
+ * bot and difficulty, and calibration.html, a summary of the same with each difficulty's time-to-KO distribution.
+ * Given the CSV of an earlier report as a baseline, it also shows how much each win rate and mean time to KO moved,
+ * and marks any move too large to be chance (over 3 standard errors), so a change to the AI can be checked before a
+ * release. It also warns if a bot doesn't find the difficulties getting harder in order.
+ *
+ * <p>A difficulty's block rate is the share of the bot's hits it blocked, and its damage per round is what it dealt;
+ * a KO is a round the difficulty won before the time ran out.
+ *
+ * <pre>
+ * --matches N        matches per bot and difficulty (default 5000)
+ * --threads N        worker threads (default: all cores)
+ * --seed N           base seed (default 1, so reports compare like with like)
+ * --bots NAMES       comma-separated bots, or ALL (default ALL)
+ * --profiles DIR     directory with the profile files (default assets/data/ai)
+ * --baseline FILE    calibration.csv of an earlier report to compare with
+ * --out DIR          directory to write the report to (default build/calibration)
+ * </pre>
+ */
+public class CalibrationReport {
+    // how far a win rate or mean time to KO may move from the baseline's, in standard errors, before it's marked as a
+    // change
+    private static final double CHANGE_STANDARD_ERRORS = 3;
+
+    // seconds per bar of the time-to-KO charts
+    private static final int CHART_BUCKET_SECONDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        // set up the moves from the move definition file, as the game does at start-up
+        Fighter.loadFrameData(new FileHandle("assets/" + FrameData.FILE));
+
+        // default options
+        long matches = 5000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        String bots = "ALL";
+        File profiles = new File("assets/data/ai");
+        File baseline = null;
+        File out = new File("build/calibration");
+
+        // parse the options
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--matches":
+                    matches = Long.parseLong(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--bots":
+                    bots = value;
+                    break;
+                case "--profiles":
+                    profiles = new File(value);
+                    break;
+                case "--baseline":
+                    baseline = new File(value);
+                    break;
+                case "--out":
+                    out = new File(value);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+            i++;
+        }
+
+        // load the profile files, like the game does
+        List<GlobalVariables.Difficulty> difficulties = new ArrayList<>();
+        List<AiProfile> difficultyProfiles = new ArrayList<>();
+        for (GlobalVariables.Difficulty difficulty : GlobalVariables.Difficulty.values()) {
+            File file = new File(profiles, difficulty.name().toLowerCase(Locale.ROOT) + ".json");
+            if (file.exists()) {
+                AiProfile.setDifficultyProfile(difficulty, AiProfile.load(new FileHandle(file)));
+            }
+            AiProfile profile = AiProfile.forDifficulty(difficulty);
+            if (profile != null) {
+                difficulties.add(difficulty);
+                difficultyProfiles.add(profile);
+            }
+        }
+        List<ReferenceBot> playerBots = new ArrayList<>();
+        for (ReferenceBot bot : ReferenceBot.values()) {
+            if (bots.equalsIgnoreCase("ALL") || ("," + bots + ",").toUpperCase(Locale.ROOT).contains("," + bot + ",")) {
+                playerBots.add(bot);
+            }
+        }
+        if (playerBots.isEmpty()) {
+            System.err.println("No such bot: " + bots);
+            System.exit(1);
+        }
+        Map<String, Map<String, String>> baselineRows = baseline == null ? null : readCsv(baseline);
+
+        // play every bot against every difficulty
+        System.err.printf(Locale.ROOT, "Playing %d matches per bot and difficulty on %d threads (seed %d)%n", matches,
+            threads, seed);
+        int pairs = playerBots.size() * difficulties.size();
+        MatchStats[] stats = new MatchStats[pairs];
+        double[] seconds = new double[pairs];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (int i = 0; i < pairs; i++) {
+                ReferenceBot bot = playerBots.get(i / difficulties.size());
+                int difficulty = i % difficulties.size();
+                long startTime = System.nanoTime();
+                stats[i] = pool.invoke(new MatchBatchTask(bot, difficultyProfiles.get(difficulty), seed, 0, matches));
+                seconds[i] = (System.nanoTime() - startTime) / 1e9;
+                System.err.printf(Locale.ROOT, "%s vs %s: %.2f s%n", bot, difficulties.get(difficulty), seconds[i]);
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        // write the CSV and the HTML summary
+        out.mkdirs();
+        StringBuilder csv = new StringBuilder();
+        csv.append("bot,difficulty,matches,difficulty_win_rate,rounds,timeout_rate,ko_rate,ko_time_mean,ko_time_stddev,")
+            .append("ko_time_p10,ko_time_median,ko_time_p90,difficulty_damage_per_round,bot_damage_per_round,")
+            .append("difficulty_block_rate,bot_block_rate,matches_per_second\n");
+        for (int i = 0; i < pairs; i++) {
+            writeCsvRow(csv, playerBots.get(i / difficulties.size()), difficulties.get(i % difficulties.size()),
+                stats[i], seconds[i]);
+        }
+        File csvFile = new File(out, "calibration.csv");
+        Files.write(csvFile.toPath(), csv.toString().getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder html = new StringBuilder();
+        List<String> warnings = writeHtml(html, playerBots, difficulties, stats, matches, seed, baselineRows);
+        File htmlFile = new File(out, "calibration.html");
+        Files.write(htmlFile.toPath(), html.toString().getBytes(StandardCharsets.UTF_8));
+
+        for (String warning : warnings) {
+            System.err.println("Warning: " + warning);
+        }
+        System.err.printf(Locale.ROOT, "Wrote %s and %s%n", csvFile, htmlFile);
+    }
+
+    private static void writeCsvRow(StringBuilder csv, ReferenceBot bot, GlobalVariables.Difficulty difficulty,
+                                    MatchStats stats, double seconds) {
+        long[] koTimes = stats.opponentKoTimes;
+        csv.append(String.format(Locale.ROOT,
+            "%s,%s,%d,%.4f,%d,%.4f,%.4f,%.2f,%.2f,%.0f,%.0f,%.0f,%.3f,%.3f,%.4f,%.4f,%.1f%n", bot, difficulty,
+            stats.matches, MatchStats.ratio(stats.opponentMatchWins, stats.matches), stats.rounds,
+            MatchStats.ratio(stats.timedOutRounds, stats.rounds),
+            MatchStats.ratio(MatchStats.countKos(koTimes), stats.rounds), MatchStats.getKoTimeMean(koTimes),
+            MatchStats.getKoTimeStandardDeviation(koTimes), MatchStats.getKoTimePercentile(koTimes, 0.1), MatchStats.getKoTimePercentile(koTimes, 0.5),
+            MatchStats.getKoTimePercentile(koTimes, 0.9),
+            stats.rounds == 0 ? 0 : stats.opponentDamageDealt / stats.rounds,
+            stats.rounds == 0 ? 0 : stats.playerDamageDealt / stats.rounds,
+            MatchStats.ratio(stats.opponentHitsBlocked, stats.playerHits),
+            MatchStats.ratio(stats.playerHitsBlocked, stats.opponentHits), seconds <= 0 ? 0 : stats.matches / seconds));
+    }
+
+    private static List<String> writeHtml(StringBuilder html, List<ReferenceBot> bots,
+                                          List<GlobalVariables.Difficulty> difficulties, MatchStats[] stats,
+                                          long matches, long seed, Map<String, Map<String, String>> baselineRows) {
+        List<String> warnings = new ArrayList<>();
+        html.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n")
+            .append("<title>Difficulty calibration</title>\n<style>\n")
+            .append("body { font-family: sans-serif; margin: 2em; }\n")
+            .append("table { border-collapse: collapse; margin-bottom: 2em; }\n")
+            .append("th, td { border: 1px solid #ccc; padding: 0.3em 0.6em; text-align: right; }\n")
+            .append("th:first-child, td:first-child { text-align: left; }\n")
+            .append(".changed { background: #fdd; font-weight: bold; }\n")
+            .append(".warning { color: #b00; }\n")
+            .append(".chart { display: flex; align-items: flex-end; height: 40px; width: 200px; }\n")
+            .append(".chart div { flex: 1; background: #47a; margin-right: 1px; }\n")
+            .append("</style>\n</head>\n<body>\n<h1>Difficulty calibration</h1>\n")
+            .append(String.format(Locale.ROOT, "<p>%d matches per bot and difficulty, seed %d.", matches, seed));
+        if (baselineRows != null) {
+            html.append(String.format(Locale.ROOT, " Win rates and mean times to KO are compared with the " +
+                "baseline; a change of more than %.0f standard errors is marked.", CHANGE_STANDARD_ERRORS));
+        }
+        html.append("</p>\n");
+
+        for (int b = 0; b < bots.size(); b++) {
+            ReferenceBot bot = bots.get(b);
+            html.append("<h2>").append(bot).append("</h2>\n<table>\n<tr><th>Difficulty</th><th>Win rate</th>");
+            if (baselineRows != null) {
+                html.append("<th>Baseline</th><th>Change</th>");
+            }
+            html.append("<th>KO rate</th><th>Time to KO (median, 10-90%)</th>");
+            if (baselineRows != null) {
+                html.append("<th>Baseline mean</th><th>Change</th>");
+            }
+            html.append("<th>Time to KO</th>")
+                .append("<th>Damage per round</th><th>Taken per round</th><th>Block rate</th></tr>\n");
+
+            double previousWinRate = -1;
+            for (int d = 0; d < difficulties.size(); d++) {
+                GlobalVariables.Difficulty difficulty = difficulties.get(d);
+                MatchStats pair = stats[b * difficulties.size() + d];
+                long[] koTimes = pair.opponentKoTimes;
+                double winRate = MatchStats.ratio(pair.opponentMatchWins, pair.matches);
+                html.append("<tr><td>").append(difficulty).append("</td>")
+                    .append(String.format(Locale.ROOT, "<td>%.1f%%</td>", winRate * 100));
+
+                // the changes since the baseline, marked if they're more than chance would explain
+                Map<String, String> row = baselineRows == null ? null : baselineRows.get(bot + "," + difficulty);
+                if (baselineRows != null) {
+                    if (row == null) {
+                        html.append("<td>-</td><td>-</td>");
+                    } else {
+                        long baselineMatches = Long.parseLong(row.get("matches"));
+                        double baselineWinRate = Double.parseDouble(row.get("difficulty_win_rate"));
+                        double standardError = Math.sqrt(winRate * (1 - winRate) / Math.max(1, pair.matches) +
+                            baselineWinRate * (1 - baselineWinRate) / Math.max(1, baselineMatches));
+                        writeChange(html, warnings, difficulty + "'s win rate against " + bot, "%.1f%%",
+                            baselineWinRate * 100, winRate * 100, standardError * 100);
+                    }
+                }
+                long kos = MatchStats.countKos(koTimes);
+                html.append(String.format(Locale.ROOT, "<td>%.1f%%</td><td>%.0f s (%.0f-%.0f s)</td>",
+                    MatchStats.ratio(kos, pair.rounds) * 100, MatchStats.getKoTimePercentile(koTimes, 0.5),
+                    MatchStats.getKoTimePercentile(koTimes, 0.1), MatchStats.getKoTimePercentile(koTimes, 0.9)));
+                if (baselineRows != null) {
+                    long baselineKos = row == null ? 0 : Math.round(Double.parseDouble(row.get("ko_rate")) *
+                        Long.parseLong(row.get("rounds")));
+                    if (kos == 0 || baselineKos == 0) {
+                        html.append("<td>-</td><td>-</td>");
+                    } else {
+                        double baselineDeviation = Double.parseDouble(row.get("ko_time_stddev"));
+                        double deviation = MatchStats.getKoTimeStandardDeviation(koTimes);
+                        double standardError = Math.sqrt(deviation * deviation / kos +
+                            baselineDeviation * baselineDeviation / baselineKos);
+                        writeChange(html, warnings, difficulty + "'s mean time to KO against " + bot, "%.1f s",
+                            Double.parseDouble(row.get("ko_time_mean")), MatchStats.getKoTimeMean(koTimes),
+                            standardError);
+                    }
+                }
+                html.append("<td>");
+                writeChart(html, koTimes);
+                html.append(String.format(Locale.ROOT, "</td><td>%.1f</td><td>%.1f</td><td>%.1f%%</td></tr>\n",
+                    pair.rounds == 0 ? 0 : pair.opponentDamageDealt / pair.rounds,
+                    pair.rounds == 0 ? 0 : pair.playerDamageDealt / pair.rounds,
+                    MatchStats.ratio(pair.opponentHitsBlocked, pair.playerHits) * 100));
+
+                // each difficulty should win at least as often as the one before it
+                if (winRate < previousWinRate) {
+                    warnings.add(String.format(Locale.ROOT, "%s wins less often than %s against %s", difficulty,
+                        difficulties.get(d - 1), bot));
+                }
+                previousWinRate = winRate;
+            }
+            html.append("</table>\n");
+        }
+
+        if (!warnings.isEmpty()) {
+            html.append("<h2>Warnings</h2>\n<ul class=\"warning\">\n");
+            for (String warning : warnings) {
+                html.append("<li>").append(warning).append("</li>\n");
+            }
+            html.append("</ul>\n");
+        }
+        html.append("</body>\n</html>\n");
+        return warnings;
+    }
+
+    private static void writeChange(StringBuilder html, List<String> warnings, String what, String format,
+                                    double baselineValue, double value, double standardError) {
+        // the baseline's value and the change from it, marked (and warned about) if it's too large to be chance
+        boolean changed = Math.abs(value - baselineValue) > CHANGE_STANDARD_ERRORS * Math.max(standardError, 1e-9);
+        html.append("<td>").append(String.format(Locale.ROOT, format, baselineValue)).append("</td><td")
+            .append(changed ? " class=\"changed\">" : ">")
+            .append(String.format(Locale.ROOT, format.replace("%", "%+").replace("%+%", "%%"), value - baselineValue))
+            .append("</td>");
+        if (changed) {
+            warnings.add(what + " moved from " + String.format(Locale.ROOT, format, baselineValue) + " to " +
+                String.format(Locale.ROOT, format, value));
+        }
+    }
+
+    private static void writeChart(StringBuilder html, long[] koTimes) {
+        // a bar per few seconds of the round, as high as its share of the busiest bar
+        int bars = (koTimes.length + CHART_BUCKET_SECONDS - 1) / CHART_BUCKET_SECONDS;
+        long[] barCounts = new long[bars];
+        long maxCount = 0;
+        for (int i = 0; i < koTimes.length; i++) {
+            barCounts[i / CHART_BUCKET_SECONDS] += koTimes[i];
+            maxCount = Math.max(maxCount, barCounts[i / CHART_BUCKET_SECONDS]);
+        }
+        html.append("<div class=\"chart\">");
+        for (int i = 0; i < bars; i++) {
+            html.append(String.format(Locale.ROOT, "<div style=\"height: %.0f%%\" title=\"%d-%d s: %d\"></div>",
+                maxCount == 0 ? 0 : barCounts[i] * 100.0 / maxCount, i * CHART_BUCKET_SECONDS,
+                (i + 1) * CHART_BUCKET_SECONDS, barCounts[i]));
+        }
+        html.append("</div>");
+    }
+
+    private static Map<String, Map<String, String>> readCsv(File file) throws IOException {
+        // an earlier report's rows, by bot and difficulty, each by column name
+        Map<String, Map<String, String>> rows = new HashMap<>();
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        String[] header = lines.isEmpty() ? new String[0] : lines.get(0).split(",");
+        for (int i = 1; i < lines.size(); i++) {
+            String[] values = lines.get(i).split(",");
+            if (values.length != header.length) continue;
+            Map<String, String> row = new HashMap<>();
+            for (int j = 0; j < header.length; j++) {
+                row.put(header[j], values[j]);
+            }
+            rows.put(row.get("bot") + "," + row.get("difficulty"), row);
+        }
+        return rows;
+    }
+}
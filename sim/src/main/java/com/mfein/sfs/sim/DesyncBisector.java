@@ -0,0 +1,162 @@
+package com.mfein.sfs.sim;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.mfein.sfs.objects.Fighter;
+import com.mfein.sfs.objects.FrameData;
+import com.mfein.sfs.replay.ReplayPlayer;
+import com.mfein.sfs.replay.ReplayRecorder;
+import com.mfein.sfs.simulation.MatchSimulation;
+import com.mfein.sfs.simulation.MatchSnapshot;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Command-line tool that finds where a simulation stops being deterministic, and shows how the states differ there.
+ *
+ * <p>Given one replay, it plays the replay from the start and checks the match against the state hashes recorded with
+ * it. If one doesn't match, the match diverged in the hash interval before it; the replayed state is then compared
+ * field by field with the next keyframe's recorded state. Given two replays of the same match (e.g. recorded on both
+ * sides of a network match, or by two builds), it bisects them by seeking both to the same tick and comparing state
+ * hashes, down to the first tick they differ at, and compares both states there.
+ *
+ * <pre>
+ * --replay FILE    replay to check
+ * --against FILE   second replay of the same match to bisect against (default: check against the recorded hashes)
+ * </pre>
+ */
+public class DesyncBisector {
+
+    public static void main(String[] args) throws IOException {
+        // set up the moves from the move definition file, as the game does at start-up
+        Fighter.loadFrameData(new FileHandle("assets/" + FrameData.FILE));
+
+        // default options
+        File replay = null;
+        File against = null;
+
+        // parse the options
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--replay":
+                    replay = new File(value);
+                    break;
+                case "--against":
+                    against = new File(value);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+            i++;
+        }
+        if (replay == null) {
+            System.err.println("Missing --replay FILE");
+            System.exit(1);
+        }
+
+        boolean inSync;
+        try (ReplayPlayer player = new ReplayPlayer(replay)) {
+            if (against == null) {
+                inSync = checkRecordedHashes(player);
+            } else {
+                try (ReplayPlayer otherPlayer = new ReplayPlayer(against)) {
+                    inSync = bisect(player, otherPlayer);
+                }
+            }
+        }
+        if (!inSync) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean checkRecordedHashes(ReplayPlayer player) {
+        // play the whole replay, checking every recorded hash on the way
+        player.seek(0);
+        while (player.getFirstMismatchTick() < 0 && player.step()) {
+            // play on
+        }
+        int mismatchTick = player.getFirstMismatchTick();
+        if (mismatchTick < 0) {
+            System.out.printf("%d ticks, %d recorded hashes: all match%n", player.getEndTick(),
+                player.getHashesChecked());
+            return true;
+        }
+        System.out.printf("recorded hash doesn't match at tick %d: the match diverged after tick %d%n", mismatchTick,
+            Math.max(mismatchTick - ReplayRecorder.HASH_INTERVAL, 0));
+
+        // compare the replayed state with the next keyframe's recorded state, if there is one
+        for (int i = 0; i < player.getKeyframeCount(); i++) {
+            int keyframeTick = player.getKeyframeTick(i);
+            if (keyframeTick < mismatchTick) continue;
+            MatchSimulation simulation = player.getSimulation();
+            while (simulation.getTick() < keyframeTick && player.step()) {
+                // play on, without seeking (which would restore the keyframe)
+            }
+            MatchSnapshot snapshot = new MatchSnapshot();
+            player.readKeyframe(i, snapshot);
+            MatchSimulation recorded = player.createSimulation();
+            recorded.restore(snapshot);
+            System.out.printf("state at keyframe tick %d, recorded vs replayed:%n", keyframeTick);
+            printDifferences(recorded.describeState(), simulation.describeState());
+            return false;
+        }
+        System.out.println("no keyframe after the mismatch to compare with; replayed state:");
+        System.out.print(player.getSimulation().describeState());
+        return false;
+    }
+
+    private static boolean bisect(ReplayPlayer player, ReplayPlayer otherPlayer) {
+        if (player.getHeader().seed != otherPlayer.getHeader().seed) {
+            System.err.println("The replays aren't of the same match (their seeds differ)");
+            return false;
+        }
+
+        // the replays agree at low (they start out the same) and, if they diverge at all, differ at high
+        int low = 0;
+        int high = Math.min(player.getEndTick(), otherPlayer.getEndTick());
+        if (hashAt(player, high) == hashAt(otherPlayer, high)) {
+            System.out.printf("%d ticks: identical%n", high);
+            return true;
+        }
+        if (hashAt(player, low) != hashAt(otherPlayer, low)) {
+            high = low;
+        }
+
+        // narrow it down to the first tick they differ at
+        while (high - low > 1) {
+            int middle = (low + high) >>> 1;
+            if (hashAt(player, middle) == hashAt(otherPlayer, middle)) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        hashAt(player, high);
+        hashAt(otherPlayer, high);
+        System.out.printf("first diverging tick: %d%n", high);
+        printDifferences(player.getSimulation().describeState(), otherPlayer.getSimulation().describeState());
+        return false;
+    }
+
+    private static long hashAt(ReplayPlayer player, int tick) {
+        player.seek(tick);
+        return player.getSimulation().getStateHash();
+    }
+
+    private static void printDifferences(String state, String otherState) {
+        // print every value, marking the ones that differ
+        String[] lines = state.split("\n");
+        String[] otherLines = otherState.split("\n");
+        for (int i = 0; i < Math.max(lines.length, otherLines.length); i++) {
+            String line = i < lines.length ? lines[i] : "";
+            String otherLine = i < otherLines.length ? otherLines[i] : "";
+            if (line.equals(otherLine)) {
+                System.out.printf("   %s%n", line);
+            } else {
+                System.out.printf(" * %-50s | %s%n", line, otherLine);
+            }
+        }
+    }
+}
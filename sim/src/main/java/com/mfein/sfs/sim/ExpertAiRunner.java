@@ -0,0 +1,121 @@
+package com.mfein.sfs.sim;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.mfein.sfs.objects.Fighter;
+import com.mfein.sfs.objects.FrameData;
+import com.mfein.sfs.resources.GlobalVariables;
+import com.mfein.sfs.simulation.AiProfile;
+import com.mfein.sfs.simulation.ExpertOpponent;
+import com.mfein.sfs.simulation.MatchRandom;
+import com.mfein.sfs.simulation.MatchSimulation;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command-line tool that plays the EXPERT opponent against an AI player, to size its search budget for a machine. The
+ * {@link ExpertOpponent} plans on its worker thread as it does in the game; after each update, the tool waits for a
+ * search that's under way, as if each tick took longer than the budget (so a slow machine plays as well, only more
+ * slowly). It prints the playouts per second and per decision, the time the match thread spent in the opponent's
+ * update (on average and at most; on a single core, the worker takes the core from it now and then), and how many
+ * matches the expert won.
+ *
+ * <pre>
+ * --matches N      matches to play (default 10)
+ * --budget MS      search time per decision, in milliseconds (default 8)
+ * --against NAME   player's difficulty (default HARD)
+ * --seed N         seed of the first match (default: random)
+ * </pre>
+ */
+public class ExpertAiRunner {
+
+    public static void main(String[] args) {
+        // set up the moves from the move definition file, as the game does at start-up
+        Fighter.loadFrameData(new FileHandle("assets/" + FrameData.FILE));
+
+        // default options
+        int matches = 10;
+        long budgetNanos = ExpertOpponent.DEFAULT_BUDGET_NANOS;
+        GlobalVariables.Difficulty against = GlobalVariables.Difficulty.HARD;
+        long seed = MatchRandom.newSeed();
+
+        // parse the options
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--matches":
+                    matches = Integer.parseInt(value);
+                    break;
+                case "--budget":
+                    budgetNanos = TimeUnit.MICROSECONDS.toNanos(Math.round(Double.parseDouble(value) * 1000));
+                    break;
+                case "--against":
+                    against = GlobalVariables.Difficulty.valueOf(value.toUpperCase());
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+            i++;
+        }
+        AiProfile playerProfile = AiProfile.forDifficulty(against);
+        if (playerProfile == null) {
+            System.err.println("No AI profile for difficulty: " + against);
+            System.exit(1);
+        }
+
+        MatchSimulation simulation = new MatchSimulation(new Fighter("Player", Color.WHITE),
+            new Fighter("Opponent", Color.WHITE));
+        simulation.setPlayerAiProfile(playerProfile);
+        simulation.setDifficulty(GlobalVariables.Difficulty.EXPERT);
+        ExpertOpponent expert = new ExpertOpponent(HeadlessMatch.STEP_TIME, budgetNanos);
+
+        System.out.printf("EXPERT vs %s, %.1f ms per decision, seed %d%n", against, budgetNanos / 1e6, seed);
+        int expertWins = 0;
+        long updates = 0;
+        long totalUpdateNanos = 0;
+        long maxUpdateNanos = 0;
+        for (int i = 0; i < matches; i++) {
+            simulation.startGame(seed + i);
+            expert.reset();
+            while (simulation.getGameState() != MatchSimulation.GameState.GAME_OVER) {
+                // skip the start and end round delays, like HeadlessMatch
+                if (simulation.getRoundState() != MatchSimulation.RoundState.IN_PROGRESS) {
+                    simulation.skipRoundDelay();
+                }
+
+                // the opponent's update is all the match thread pays for the search
+                long startTime = System.nanoTime();
+                int opponentInput = expert.update(simulation);
+                long updateNanos = System.nanoTime() - startTime;
+                totalUpdateNanos += updateNanos;
+                maxUpdateNanos = Math.max(maxUpdateNanos, updateNanos);
+                updates++;
+                simulation.setOpponentInput(opponentInput);
+                simulation.update(HeadlessMatch.STEP_TIME);
+
+                while (expert.isPlanning()) {
+                    Thread.yield();
+                }
+            }
+
+            // roundsLost counts the rounds player lost
+            boolean expertWon = simulation.getRoundsLost() > simulation.getRoundsWon();
+            if (expertWon) {
+                expertWins++;
+            }
+            System.out.printf("match %d: %s %d - %d, %.0f playouts per second%n", i + 1,
+                expertWon ? "EXPERT won" : "EXPERT lost", simulation.getRoundsLost(), simulation.getRoundsWon(),
+                expert.getPlayoutsPerSecond());
+        }
+        expert.dispose();
+
+        System.out.printf("EXPERT won %d/%d matches; %.0f playouts per second, %.0f per decision (%d decisions); " +
+                "opponent update %.1f us on average, %.1f us at most%n", expertWins, matches,
+            expert.getPlayoutsPerSecond(), (double) expert.getPlayouts() / expert.getDecisions(), expert.getDecisions(),
+            totalUpdateNanos / 1e3 / updates, maxUpdateNanos / 1e3);
+    }
+}
@@ -0,0 +1,213 @@
+package com.mfein.sfs.sim;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.mfein.sfs.objects.Fighter;
+import com.mfein.sfs.objects.FrameData;
+import com.mfein.sfs.replay.ReplayPlayer;
+import com.mfein.sfs.resources.GlobalVariables;
+import com.mfein.sfs.simulation.AiProfile;
+import com.mfein.sfs.simulation.FighterInput;
+import com.mfein.sfs.simulation.GhostIndex;
+import com.mfein.sfs.simulation.MatchRandom;
+import com.mfein.sfs.simulation.MatchSimulation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Command-line tool that records a {@link GhostIndex} of the player of the replays in a directory: every update of a
+ * round in progress is a sample of the player's situation and what it did next (which way it moved, whether it
+ * blocked, whether it started an attack). It writes the samples, builds the index from them as the game does when it
+ * loads it, and times lookups of the opponent's situations in the same replays, which the ghost hasn't seen. Then it
+ * plays the ghost against a difficulty, whose AI also makes the ghost's decisions in situations it has no recording
+ * of.
+ *
+ * <p>To play a difficulty as the ghost, name it in the difficulty's profile file, e.g.
+ * <code>"ghost": "player.ghost"</code>. The game then makes its decisions on a worker thread, a tick or so late, unless
+ * the profile also says <code>"offThread": false</code>; this tool always makes them in the match.
+ *
+ * <pre>
+ * --replays DIR         replays (*.sfsr) to record the player of
+ * --against NAME        difficulty to play the ghost against, and to fall back on (default HARD)
+ * --eval-matches N      matches to play the ghost against it (default 200)
+ * --seed N              seed of the first match and of the lookups (default: random)
+ * --profiles DIR        directory with the profile files (default assets/data/ai)
+ * --out FILE            ghost to write (default player.ghost in the profile directory)
+ * </pre>
+ */
+public class GhostBuilder {
+    // times every lookup is repeated, to time them over long enough
+    private static final int LOOKUP_ROUNDS = 20;
+
+    public static void main(String[] args) throws IOException {
+        // set up the moves from the move definition file, as the game does at start-up
+        Fighter.loadFrameData(new FileHandle("assets/" + FrameData.FILE));
+
+        // default options
+        File replays = null;
+        GlobalVariables.Difficulty against = GlobalVariables.Difficulty.HARD;
+        int evalMatches = 200;
+        long seed = MatchRandom.newSeed();
+        File profiles = new File("assets/data/ai");
+        File out = null;
+
+        // parse the options
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--replays":
+                    replays = new File(value);
+                    break;
+                case "--against":
+                    against = GlobalVariables.Difficulty.valueOf(value.toUpperCase(Locale.ROOT));
+                    break;
+                case "--eval-matches":
+                    evalMatches = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--profiles":
+                    profiles = new File(value);
+                    break;
+                case "--out":
+                    out = new File(value);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+            i++;
+        }
+        if (replays == null) {
+            System.err.println("No replays to record (--replays)");
+            System.exit(1);
+        }
+        if (out == null) {
+            out = new File(profiles, "player.ghost");
+        }
+
+        // the difficulty's profile, as the game loads it (without any table, network or ghost it already has)
+        File profileFile = new File(profiles, against.name().toLowerCase(Locale.ROOT) + ".json");
+        AiProfile profile = profileFile.exists() ? AiProfile.load(new FileHandle(profileFile)) :
+            AiProfile.forDifficulty(against);
+        if (profile == null) {
+            System.err.println("No AI profile for difficulty: " + against);
+            System.exit(1);
+        }
+        profile.policyTable = null;
+        profile.policyNetwork = null;
+        profile.ghost = null;
+
+        // record the samples, and the opponent's situations to time lookups with
+        File[] files = replays.listFiles((directory, name) -> name.endsWith(".sfsr"));
+        if (files == null || files.length == 0) {
+            System.err.println("No replays in " + replays);
+            System.exit(1);
+        }
+        Arrays.sort(files);
+        long startTime = System.nanoTime();
+        Samples samples = new Samples();
+        Samples queries = new Samples();
+        for (File file : files) {
+            addSamples(file, samples, queries);
+        }
+        if (samples.count == 0) {
+            System.err.println("No samples to record");
+            System.exit(1);
+        }
+        System.out.printf(Locale.ROOT, "%d samples from %d replays (%.2f s)%n", samples.count, files.length,
+            (System.nanoTime() - startTime) / 1e9);
+
+        // write them, then build the index as loading it would
+        ByteBuffer buffer = ByteBuffer.allocate(GhostIndex.getFileSize(samples.count));
+        GhostIndex.write(buffer, samples.samples, samples.count);
+        Files.write(out.toPath(), buffer.array());
+        String name = out.getName().replaceFirst("\\.[^.]*$", "");
+        GhostIndex ghost = null;
+        long buildNanos = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            startTime = System.nanoTime();
+            ghost = GhostIndex.read(name, ByteBuffer.wrap(buffer.array()));
+            buildNanos = Math.min(buildNanos, System.nanoTime() - startTime);
+        }
+        System.out.printf(Locale.ROOT, "Wrote %s: %d bytes, %d distinct situations (loaded in %.1f ms)%n", out,
+            buffer.capacity(), ghost.getPointCount(), buildNanos / 1e6);
+
+        // time lookups (twice, so the first round warms up the JIT)
+        MatchRandom random = new MatchRandom(seed);
+        int found = 0;
+        for (int i = 0; i < queries.count; i++) {
+            if (ghost.getInput(queries.samples[i], random) >= 0) found++;
+        }
+        double lookupNanos = 0;
+        for (int round = 0; round < 2; round++) {
+            lookupNanos = timeLookups(ghost, queries, random);
+        }
+        System.out.printf(Locale.ROOT, "%.0f ns per lookup over %d situations, %.1f%% of them recorded%n",
+            lookupNanos, queries.count, 100.0 * found / queries.count);
+
+        // play the ghost against the difficulty, on both sides
+        AiProfile ghostProfile = profile.copy();
+        ghostProfile.ghost = ghost;
+        MatchStats asPlayer = new MatchBatchTask(ghostProfile, profile, seed, 0, evalMatches / 2).invoke();
+        MatchStats asOpponent = new MatchBatchTask(profile, ghostProfile, seed, evalMatches / 2, evalMatches)
+            .invoke();
+        System.out.printf(Locale.ROOT, "Ghost won %d/%d matches against %s%n",
+            asPlayer.playerMatchWins + asOpponent.opponentMatchWins, asPlayer.matches + asOpponent.matches, against);
+    }
+
+    private static void addSamples(File file, Samples samples, Samples queries) throws IOException {
+        // play the replay back, sampling its player (and its opponent's situation) before each update of a round in
+        // progress
+        try (ReplayPlayer replay = new ReplayPlayer(file)) {
+            MatchSimulation simulation = replay.getSimulation();
+            Fighter self = simulation.getPlayer();
+            Fighter target = simulation.getOpponent();
+            while (!replay.isFinished()) {
+                boolean sampling = simulation.getRoundState() == MatchSimulation.RoundState.IN_PROGRESS &&
+                    simulation.isRunning();
+                boolean wasAttacking = self.isAttacking();
+                boolean mirrored = target.getPosition().x < self.getPosition().x;
+                long situation = GhostIndex.getSample(self, target, FighterInput.NONE);
+                if (sampling) {
+                    queries.add(GhostIndex.getSample(target, self, FighterInput.NONE));
+                }
+                replay.step();
+                if (sampling) {
+                    int input = PolicyTableBuilder.getActionInput(PolicyTableBuilder.getAction(self, wasAttacking));
+                    samples.add(situation | (mirrored ? GhostIndex.mirror(input) : input));
+                }
+            }
+        }
+    }
+
+    private static double timeLookups(GhostIndex ghost, Samples queries, MatchRandom random) {
+        // the inputs are summed up, so the lookups can't be optimized away
+        long inputs = 0;
+        long startTime = System.nanoTime();
+        for (int round = 0; round < LOOKUP_ROUNDS; round++) {
+            for (int i = 0; i < queries.count; i++) {
+                inputs += ghost.getInput(queries.samples[i], random);
+            }
+        }
+        double nanos = (double) (System.nanoTime() - startTime) / ((long) LOOKUP_ROUNDS * queries.count);
+        return inputs == Long.MIN_VALUE ? 0 : nanos;
+    }
+
+    private static class Samples {
+        long[] samples = new long[1024];
+        int count;
+
+        void add(long sample) {
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count++] = sample;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.mfein.sfs.sim;
+
+import com.badlogic.gdx.graphics.Color;
+import com.mfein.sfs.objects.Fighter;
+import com.mfein.sfs.resources.GlobalVariables;
+import com.mfein.sfs.simulation.AiProfile;
+import com.mfein.sfs.simulation.MatchListener;
+import com.mfein.sfs.simulation.MatchSimulation;
+
+/**
+ * Plays complete AI-vs-AI matches (or matches of a {@link ReferenceBot} against an AI) as fast as possible, skipping
+ * the round delays, and adds the results to a {@link MatchStats}. An instance is reused for many matches but must only
+ * be used by one thread at a time.
+ */
+public class HeadlessMatch implements MatchListener {
+    public static final float STEP_TIME = 1f / GlobalVariables.DEFAULT_TICK_RATE;
+
+    private final MatchSimulation simulation;
+    private final ReferenceBot playerBot;
+    private MatchStats stats;
+
+    public HeadlessMatch(AiProfile playerProfile, AiProfile opponentProfile) {
+        this(playerProfile, null, opponentProfile);
+    }
+
+    public HeadlessMatch(ReferenceBot playerBot, AiProfile opponentProfile) {
+        this(null, playerBot, opponentProfile);
+    }
+
+    private HeadlessMatch(AiProfile playerProfile, ReferenceBot playerBot, AiProfile opponentProfile) {
+        this.playerBot = playerBot;
+        simulation = new MatchSimulation(new Fighter("Player", Color.WHITE), new Fighter("Opponent", Color.WHITE));
+        simulation.setListener(this);
+        simulation.setPlayerAiProfile(playerProfile);
+        simulation.setOpponentAiProfile(opponentProfile);
+    }
+
+    public MatchSimulation getSimulation() {
+        return simulation;
+    }
+
+    public void play(long seed, MatchStats stats) {
+        this.stats = stats;
+
+        // play the match until it's over, skipping the start and end round delays
+        simulation.startGame(seed);
+        while (simulation.getGameState() != MatchSimulation.GameState.GAME_OVER) {
+            if (simulation.getRoundState() != MatchSimulation.RoundState.IN_PROGRESS) {
+                simulation.skipRoundDelay();
+            }
+            if (playerBot != null) {
+                simulation.setPlayerInput(playerBot.getInput(simulation));
+            }
+            simulation.update(STEP_TIME);
+            stats.ticks++;
+        }
+
+        // record the winner
+        stats.matches++;
+        if (simulation.getRoundsWon() > simulation.getRoundsLost()) {
+            stats.playerMatchWins++;
+        } else {
+            stats.opponentMatchWins++;
+        }
+    }
+
+    @Override
+    public void fighterHit(Fighter fighter, boolean blocked) {
+        // the attacker is the other fighter, still in its attack
+        Fighter attacker = fighter == simulation.getOpponent() ? simulation.getPlayer() : simulation.getOpponent();
+        float damage = Fighter.getFrameData().getDamage(attacker.getState(), blocked);
+        if (fighter == simulation.getOpponent()) {
+            // player hit opponent
+            stats.playerHits++;
+            stats.playerDamageDealt += damage;
+            if (blocked) {
+                stats.opponentHitsBlocked++;
+            }
+        } else {
+            // opponent hit player
+            stats.opponentHits++;
+            stats.opponentDamageDealt += damage;
+            if (blocked) {
+                stats.playerHitsBlocked++;
+            }
+        }
+    }
+
+    @Override
+    public void roundWon() {
+        recordRound(true);
+    }
+
+    @Override
+    public void roundLost() {
+        recordRound(false);
+    }
+
+    private void recordRound(boolean playerWon) {
+        stats.addRound(MatchSimulation.MAX_ROUND_TIME - Math.max(simulation.getRoundTimer(), 0f),
+            simulation.getRoundTimer() <= 0f, playerWon);
+    }
+}
@@ -0,0 +1,214 @@
+package com.mfein.sfs.sim;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.mfein.sfs.net.DesyncDetector;
+import com.mfein.sfs.net.InputTransport;
+import com.mfein.sfs.net.LockstepSession;
+import com.mfein.sfs.net.UdpTransport;
+import com.mfein.sfs.objects.Fighter;
+import com.mfein.sfs.objects.FrameData;
+import com.mfein.sfs.simulation.FighterInput;
+import com.mfein.sfs.simulation.MatchRandom;
+import com.mfein.sfs.simulation.MatchSimulation;
+import com.mfein.sfs.simulation.MatchSnapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Command-line tool that plays a match between two {@link LockstepSession}s, each on its own thread, talking over UDP
+ * on 127.0.0.1 and both fed with random button presses. Once both have simulated every tick, it checks that they
+ * ended up in exactly the same state.
+ *
+ * <pre>
+ * --ticks N         ticks to simulate (default 1200)
+ * --delay N         input delay in ticks (default 3)
+ * --redundancy N    inputs repeated in every packet (default 8)
+ * --loss X          chance that a packet is dropped before it's sent (default 0)
+ * --port N          UDP port of the first side; the second side uses the next one (default 47000)
+ * --seed N          match seed (default: random)
+ * --fast            don't wait for the tick time between ticks
+ * </pre>
+ */
+public class LockstepUdpRunner {
+
+    public static void main(String[] args) throws Exception {
+        // set up the moves from the move definition file, as the game does at start-up
+        Fighter.loadFrameData(new FileHandle("assets/" + FrameData.FILE));
+
+        // default options
+        int ticks = 1200;
+        int delay = LockstepSession.DEFAULT_INPUT_DELAY;
+        int redundancy = LockstepSession.DEFAULT_REDUNDANCY;
+        float loss = 0f;
+        int port = 47000;
+        long seed = MatchRandom.newSeed();
+        boolean fast = false;
+
+        // parse the options
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--ticks":
+                    ticks = Integer.parseInt(value);
+                    break;
+                case "--delay":
+                    delay = Integer.parseInt(value);
+                    break;
+                case "--redundancy":
+                    redundancy = Integer.parseInt(value);
+                    break;
+                case "--loss":
+                    loss = Float.parseFloat(value);
+                    break;
+                case "--port":
+                    port = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--fast":
+                    fast = true;
+                    i--;
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+            i++;
+        }
+
+        // connect the two sides over the loopback interface
+        try (UdpTransport playerTransport = new UdpTransport(port, "127.0.0.1", port + 1);
+             UdpTransport opponentTransport = new UdpTransport(port + 1, "127.0.0.1", port)) {
+            AtomicInteger finished = new AtomicInteger();
+            Peer player = new Peer(true, playerTransport, loss, delay, redundancy, ticks, seed, fast, finished);
+            Peer opponent = new Peer(false, opponentTransport, loss, delay, redundancy, ticks, seed, fast, finished);
+
+            // play the match
+            long startTime = System.nanoTime();
+            Thread playerThread = new Thread(player, "player");
+            Thread opponentThread = new Thread(opponent, "opponent");
+            playerThread.start();
+            opponentThread.start();
+            playerThread.join();
+            opponentThread.join();
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+
+            // both sides must have ended up in the same state
+            boolean inSync = player.snapshot.getBuffer().equals(opponent.snapshot.getBuffer());
+            System.out.printf(Locale.ROOT, "%d ticks in %.2f s, %d ticks input delay, %d redundant inputs, %.1f%% loss, " +
+                "seed %d: %s%n", ticks, seconds, delay, redundancy, loss * 100, seed, inSync ? "in sync" : "DESYNC");
+            player.printStats("player", playerTransport);
+            opponent.printStats("opponent", opponentTransport);
+            if (!inSync) {
+                System.exit(1);
+            }
+        }
+    }
+
+    private static class Peer implements Runnable {
+        private static final long TICK_NANOS = (long) (HeadlessMatch.STEP_TIME * 1e9);
+
+        private final LockstepSession session;
+        private final int ticks;
+        private final long seed;
+        private final boolean fast;
+        private final AtomicInteger finished;
+        private final MatchRandom buttons;
+        private final MatchSnapshot snapshot = new MatchSnapshot();
+
+        private Peer(boolean localIsPlayer, UdpTransport transport, float loss, int delay, int redundancy, int ticks,
+                     long seed, boolean fast, AtomicInteger finished) {
+            MatchSimulation simulation = new MatchSimulation(new Fighter("Player", Color.WHITE),
+                new Fighter("Opponent", Color.WHITE));
+            InputTransport lossyTransport = loss > 0 ? new LossyTransport(transport, loss, seed, localIsPlayer ? 0 : 1) :
+                transport;
+            session = new LockstepSession(simulation, localIsPlayer, lossyTransport, HeadlessMatch.STEP_TIME, delay,
+                redundancy);
+            this.ticks = ticks;
+            this.seed = seed;
+            this.fast = fast;
+            this.finished = finished;
+            buttons = new MatchRandom(seed, localIsPlayer ? 10 : 11);
+        }
+
+        @Override
+        public void run() {
+            session.start(seed);
+            int input = FighterInput.NONE;
+            long nextTickTime = System.nanoTime();
+            while (session.getTick() < ticks) {
+                // now and then, let go of everything and press a random set of buttons
+                if (buttons.random() < 0.1f) {
+                    input = buttons.random(FighterInput.MASK);
+                }
+
+                // keep trying the same input until the tick can be simulated
+                while (!session.advance(input)) {
+                    waitUntil(nextTickTime += TICK_NANOS / 4);
+                }
+                if (!fast) {
+                    waitUntil(nextTickTime += TICK_NANOS);
+                }
+            }
+
+            // keep sending until the other side has finished as well
+            session.getSimulation().save(snapshot);
+            finished.incrementAndGet();
+            while (finished.get() < 2) {
+                session.poll();
+                waitUntil(System.nanoTime() + TICK_NANOS / 4);
+            }
+        }
+
+        private static void waitUntil(long time) {
+            long remaining;
+            while ((remaining = time - System.nanoTime()) > 0) {
+                try {
+                    Thread.sleep(remaining / 1000000, (int) (remaining % 1000000));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        private void printStats(String side, UdpTransport transport) {
+            DesyncDetector desyncDetector = session.getDesyncDetector();
+            System.out.printf(Locale.ROOT, "%s: %d stalls, %d packets sent (%.1f bytes each), %d received, %d send errors, " +
+                    "%d state hashes compared, %d differed%n", side, session.getStalls(), transport.getPacketsSent(),
+                transport.getPacketsSent() == 0 ? 0 : (double) transport.getBytesSent() / transport.getPacketsSent(),
+                transport.getPacketsReceived(), transport.getSendErrors(), desyncDetector.getChecks(),
+                desyncDetector.getDesyncs());
+        }
+    }
+
+    private static class LossyTransport implements InputTransport {
+        // drops a share of the packets before they reach the real transport
+        private final InputTransport transport;
+        private final float lossChance;
+        private final MatchRandom random;
+
+        private LossyTransport(InputTransport transport, float lossChance, long seed, int stream) {
+            this.transport = transport;
+            this.lossChance = lossChance;
+            random = new MatchRandom(seed, stream);
+        }
+
+        @Override
+        public void send(ByteBuffer packet) {
+            if (random.random() >= lossChance) {
+                transport.send(packet);
+            }
+        }
+
+        @Override
+        public boolean receive(ByteBuffer packet) {
+            return transport.receive(packet);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.mfein.sfs.sim;
+
+import com.mfein.sfs.simulation.AiProfile;
+import com.mfein.sfs.simulation.MatchRandom;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Plays a range of matches on a fork-join pool. Large ranges are split in half until they are small enough to play on
+ * one thread, so idle workers can steal the remaining halves. Each leaf has its own {@link HeadlessMatch} and
+ * {@link MatchStats}, so no state is shared between threads.
+ */
+public class MatchBatchTask extends RecursiveTask<MatchStats> {
+    private static final long serialVersionUID = 1L;
+
+    // matches played by a single leaf task
+    private static final int LEAF_SIZE = 256;
+
+    private final AiProfile playerProfile;
+    private final ReferenceBot playerBot;
+    private final AiProfile opponentProfile;
+    private final long baseSeed;
+    private final long fromMatch;
+    private final long toMatch;
+
+    public MatchBatchTask(AiProfile playerProfile, AiProfile opponentProfile, long baseSeed, long fromMatch, long toMatch) {
+        this(playerProfile, null, opponentProfile, baseSeed, fromMatch, toMatch);
+    }
+
+    public MatchBatchTask(ReferenceBot playerBot, AiProfile opponentProfile, long baseSeed, long fromMatch, long toMatch) {
+        this(null, playerBot, opponentProfile, baseSeed, fromMatch, toMatch);
+    }
+
+    private MatchBatchTask(AiProfile playerProfile, ReferenceBot playerBot, AiProfile opponentProfile, long baseSeed,
+                           long fromMatch, long toMatch) {
+        this.playerProfile = playerProfile;
+        this.playerBot = playerBot;
+        this.opponentProfile = opponentProfile;
+        this.baseSeed = baseSeed;
+        this.fromMatch = fromMatch;
+        this.toMatch = toMatch;
+    }
+
+    @Override
+    protected MatchStats compute() {
+        if (toMatch - fromMatch > LEAF_SIZE) {
+            // split the range in half, play the second half on another worker and the first half here
+            long middle = (fromMatch + toMatch) >>> 1;
+            MatchBatchTask second = new MatchBatchTask(playerProfile, playerBot, opponentProfile, baseSeed, middle,
+                toMatch);
+            second.fork();
+            MatchStats stats = new MatchBatchTask(playerProfile, playerBot, opponentProfile, baseSeed, fromMatch, middle)
+                .compute();
+            return stats.merge(second.join());
+        }
+
+        // play the matches; each match gets its own seed derived from the base seed and the match number
+        MatchStats stats = new MatchStats();
+        HeadlessMatch match = playerBot != null ? new HeadlessMatch(playerBot, opponentProfile) :
+            new HeadlessMatch(playerProfile, opponentProfile);
+        MatchRandom seeds = new MatchRandom(baseSeed);
+        for (long i = fromMatch; i < toMatch; i++) {
+            seeds.setSeed(baseSeed, i);
+            match.play(seeds.nextLong(), stats);
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,153 @@
+package com.mfein.sfs.sim;
+
+import com.mfein.sfs.simulation.MatchSimulation;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Totals collected over any number of headless matches. Stats from separate threads are combined with {@link #merge},
+ * and stats of the same pairing played from the other seats with {@link #mergeSwapped}.
+ */
+public class MatchStats {
+    // rounds won by a knockout, counted by the whole seconds the round took
+    public static final int KO_TIME_BUCKETS = (int) Math.ceil(MatchSimulation.MAX_ROUND_TIME);
+
+    // matches
+    public long matches;
+    public long playerMatchWins;
+    public long opponentMatchWins;
+
+    // rounds
+    public long rounds;
+    public long timedOutRounds;
+    public double totalRoundTime;
+    public float minRoundTime = Float.MAX_VALUE;
+    public float maxRoundTime;
+    public final long[] playerKoTimes = new long[KO_TIME_BUCKETS];
+    public final long[] opponentKoTimes = new long[KO_TIME_BUCKETS];
+
+    // hits
+    public long playerHits, opponentHits;
+    public long playerHitsBlocked, opponentHitsBlocked;
+    public double playerDamageDealt, opponentDamageDealt;
+
+    // simulation work
+    public long ticks;
+
+    public void addRound(float roundTime, boolean timedOut, boolean playerWon) {
+        rounds++;
+        totalRoundTime += roundTime;
+        minRoundTime = Math.min(minRoundTime, roundTime);
+        maxRoundTime = Math.max(maxRoundTime, roundTime);
+        if (timedOut) {
+            timedOutRounds++;
+        } else {
+            int bucket = Math.min((int) roundTime, KO_TIME_BUCKETS - 1);
+            (playerWon ? playerKoTimes : opponentKoTimes)[bucket]++;
+        }
+    }
+
+    public static long countKos(long[] koTimes) {
+        long count = 0;
+        for (long bucketCount : koTimes) count += bucketCount;
+        return count;
+    }
+
+    public static float getKoTimePercentile(long[] koTimes, double percentile) {
+        // the end of the first second by which the given share of the knockouts had happened (0 if there were none)
+        long count = countKos(koTimes);
+        if (count == 0) return 0f;
+        long needed = Math.max(1, (long) Math.ceil(count * percentile));
+        long seen = 0;
+        for (int i = 0; i < koTimes.length; i++) {
+            seen += koTimes[i];
+            if (seen >= needed) return i + 1;
+        }
+        return koTimes.length;
+    }
+
+    public static double getKoTimeMean(long[] koTimes) {
+        // taking each knockout to be in the middle of its second
+        long count = countKos(koTimes);
+        if (count == 0) return 0;
+        double total = 0;
+        for (int i = 0; i < koTimes.length; i++) total += koTimes[i] * (i + 0.5);
+        return total / count;
+    }
+
+    public static double getKoTimeStandardDeviation(long[] koTimes) {
+        long count = countKos(koTimes);
+        if (count == 0) return 0;
+        double mean = getKoTimeMean(koTimes);
+        double total = 0;
+        for (int i = 0; i < koTimes.length; i++) total += koTimes[i] * (i + 0.5 - mean) * (i + 0.5 - mean);
+        return Math.sqrt(total / count);
+    }
+
+    public MatchStats merge(MatchStats other) {
+        matches += other.matches;
+        playerMatchWins += other.playerMatchWins;
+        opponentMatchWins += other.opponentMatchWins;
+        rounds += other.rounds;
+        timedOutRounds += other.timedOutRounds;
+        totalRoundTime += other.totalRoundTime;
+        minRoundTime = Math.min(minRoundTime, other.minRoundTime);
+        maxRoundTime = Math.max(maxRoundTime, other.maxRoundTime);
+        for (int i = 0; i < KO_TIME_BUCKETS; i++) {
+            playerKoTimes[i] += other.playerKoTimes[i];
+            opponentKoTimes[i] += other.opponentKoTimes[i];
+        }
+        playerHits += other.playerHits;
+        opponentHits += other.opponentHits;
+        playerHitsBlocked += other.playerHitsBlocked;
+        opponentHitsBlocked += other.opponentHitsBlocked;
+        playerDamageDealt += other.playerDamageDealt;
+        opponentDamageDealt += other.opponentDamageDealt;
+        ticks += other.ticks;
+        return this;
+    }
+
+    public MatchStats mergeSwapped(MatchStats other) {
+        // merge stats of matches with the profiles in each other's seats, so "player" stays the same profile
+        MatchStats swapped = new MatchStats();
+        swapped.matches = other.matches;
+        swapped.playerMatchWins = other.opponentMatchWins;
+        swapped.opponentMatchWins = other.playerMatchWins;
+        swapped.rounds = other.rounds;
+        swapped.timedOutRounds = other.timedOutRounds;
+        swapped.totalRoundTime = other.totalRoundTime;
+        swapped.minRoundTime = other.minRoundTime;
+        swapped.maxRoundTime = other.maxRoundTime;
+        System.arraycopy(other.opponentKoTimes, 0, swapped.playerKoTimes, 0, KO_TIME_BUCKETS);
+        System.arraycopy(other.playerKoTimes, 0, swapped.opponentKoTimes, 0, KO_TIME_BUCKETS);
+        swapped.playerHits = other.opponentHits;
+        swapped.opponentHits = other.playerHits;
+        swapped.playerHitsBlocked = other.opponentHitsBlocked;
+        swapped.opponentHitsBlocked = other.playerHitsBlocked;
+        swapped.playerDamageDealt = other.opponentDamageDealt;
+        swapped.opponentDamageDealt = other.playerDamageDealt;
+        swapped.ticks = other.ticks;
+        return merge(swapped);
+    }
+
+    public static void writeCsvHeader(Appendable out) throws IOException {
+        // the values are per profile, not per seat: each profile plays half the matches from either seat
+        out.append("profile,other_profile,matches,win_rate,other_win_rate,rounds,timeout_rate,")
+            .append("round_time_mean,round_time_min,round_time_max,damage_per_round,other_damage_per_round,")
+            .append("block_rate,other_block_rate,ticks,matches_per_second\n");
+    }
+
+    public void writeCsvRow(Appendable out, String profile, String otherProfile, double seconds) throws IOException {
+        out.append(String.format(Locale.ROOT, "%s,%s,%d,%.4f,%.4f,%d,%.4f,%.3f,%.3f,%.3f,%.3f,%.3f,%.4f,%.4f,%d,%.1f%n",
+            profile, otherProfile, matches, ratio(playerMatchWins, matches), ratio(opponentMatchWins, matches),
+            rounds, ratio(timedOutRounds, rounds), rounds == 0 ? 0 : totalRoundTime / rounds,
+            rounds == 0 ? 0 : minRoundTime, maxRoundTime, rounds == 0 ? 0 : playerDamageDealt / rounds,
+            rounds == 0 ? 0 : opponentDamageDealt / rounds, ratio(playerHitsBlocked, opponentHits),
+            ratio(opponentHitsBlocked, playerHits), ticks, seconds <= 0 ? 0 : matches / seconds));
+    }
+
+    public static double ratio(long count, long total) {
+        return total == 0 ? 0 : (double) count / total;
+    }
+}
@@ -0,0 +1,485 @@
+package com.mfein.sfs.sim;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.mfein.sfs.objects.Fighter;
+import com.mfein.sfs.objects.FrameData;
+import com.mfein.sfs.replay.ReplayPlayer;
+import com.mfein.sfs.resources.GlobalVariables;
+import com.mfein.sfs.simulation.AiProfile;
+import com.mfein.sfs.simulation.FighterAi;
+import com.mfein.sfs.simulation.MatchRandom;
+import com.mfein.sfs.simulation.MatchSimulation;
+import com.mfein.sfs.simulation.PolicyNetwork;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Command-line tool that trains a {@link PolicyNetwork} offline, by imitation: every update of the recorded matches
+ * is a sample of the features a fighter saw and what it did next (which way it moved, whether it blocked, whether it
+ * started an attack). The matches are the replays in a directory, learning what their player did, or, without
+ * replays, self-play matches of an AI profile, learning what its AI did. The network is trained by stochastic
+ * gradient descent on the cross-entropy of each output group, with each group's choices weighted by how rare they
+ * are, since a fighter only starts an attack on one update in many. Then it plays the network against the source
+ * difficulty's profile, and times both.
+ *
+ * <p>To play a difficulty from the network, name it in the difficulty's profile file, e.g.
+ * <code>"policyNetwork": "hard.net"</code>. The game then makes its decisions on a worker thread, a tick or so late, unless
+ * the profile also says <code>"offThread": false</code>; this tool always makes them in the match.
+ *
+ * <pre>
+ * --replays DIR         replays (*.sfsr) to learn their player's play from (default: none, learn from self-play)
+ * --source NAME         difficulty to learn from by self-play, and to play against afterwards (default HARD)
+ * --matches N           self-play matches to learn from (default 200)
+ * --sample-every N      updates between samples in which the fighter doesn't block or attack (default 4)
+ * --hidden N,N,...      sizes of the hidden layers (default 32)
+ * --epochs N            passes over the samples (default 10)
+ * --learning-rate X     step size of gradient descent (default 0.01)
+ * --eval-matches N      matches to play the network against the source afterwards (default 500)
+ * --seed N              seed of the first match and of the training (default: random)
+ * --profiles DIR        directory with the profile files (default assets/data/ai)
+ * --out FILE            network to write (default: the source's name in the profile directory, e.g. hard.net)
+ * </pre>
+ */
+public class PolicyNetworkTrainer {
+    // output choices of each group (horizontal, vertical, other) and the first output of each group
+    private static final int[] GROUP_SIZES = {3, 3, 4};
+    private static final int[] GROUP_OUTPUTS = {PolicyNetwork.HORIZONTAL_OUTPUTS, PolicyNetwork.VERTICAL_OUTPUTS,
+        PolicyNetwork.OTHER_OUTPUTS};
+
+    // share of the samples held back to measure the network on, rather than trained on
+    private static final float VALIDATION_SHARE = 0.1f;
+
+    public static void main(String[] args) throws IOException {
+        // set up the moves from the move definition file, as the game does at start-up
+        Fighter.loadFrameData(new FileHandle("assets/" + FrameData.FILE));
+
+        // default options
+        File replays = null;
+        GlobalVariables.Difficulty source = GlobalVariables.Difficulty.HARD;
+        int matches = 200;
+        int sampleEvery = 4;
+        String hidden = "32";
+        int epochs = 10;
+        float learningRate = 0.01f;
+        int evalMatches = 500;
+        long seed = MatchRandom.newSeed();
+        File profiles = new File("assets/data/ai");
+        File out = null;
+
+        // parse the options
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--replays":
+                    replays = new File(value);
+                    break;
+                case "--source":
+                    source = GlobalVariables.Difficulty.valueOf(value.toUpperCase(Locale.ROOT));
+                    break;
+                case "--matches":
+                    matches = Integer.parseInt(value);
+                    break;
+                case "--sample-every":
+                    sampleEvery = Integer.parseInt(value);
+                    break;
+                case "--hidden":
+                    hidden = value;
+                    break;
+                case "--epochs":
+                    epochs = Integer.parseInt(value);
+                    break;
+                case "--learning-rate":
+                    learningRate = Float.parseFloat(value);
+                    break;
+                case "--eval-matches":
+                    evalMatches = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--profiles":
+                    profiles = new File(value);
+                    break;
+                case "--out":
+                    out = new File(value);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+            i++;
+        }
+        String sourceName = source.name().toLowerCase(Locale.ROOT);
+        if (out == null) {
+            out = new File(profiles, sourceName + ".net");
+        }
+
+        // the source's profile, as the game loads it (without any table, network or ghost it already has)
+        File profileFile = new File(profiles, sourceName + ".json");
+        AiProfile profile = profileFile.exists() ? AiProfile.load(new FileHandle(profileFile)) :
+            AiProfile.forDifficulty(source);
+        if (profile == null) {
+            System.err.println("No AI profile for difficulty: " + source);
+            System.exit(1);
+        }
+        profile.policyTable = null;
+        profile.policyNetwork = null;
+        profile.ghost = null;
+
+        // gather the samples
+        long startTime = System.nanoTime();
+        Samples samples = new Samples();
+        if (replays != null) {
+            File[] files = replays.listFiles((directory, name) -> name.endsWith(".sfsr"));
+            if (files == null || files.length == 0) {
+                System.err.println("No replays in " + replays);
+                System.exit(1);
+            }
+            Arrays.sort(files);
+            for (File file : files) {
+                addReplaySamples(file, sampleEvery, samples);
+            }
+            System.out.printf(Locale.ROOT, "%d samples from %d replays (%.2f s)%n", samples.count, files.length,
+                (System.nanoTime() - startTime) / 1e9);
+        } else {
+            addSelfPlaySamples(profile, seed, matches, sampleEvery, samples);
+            System.out.printf(Locale.ROOT, "%d samples from %d %s self-play matches (seed %d, %.2f s)%n",
+                samples.count, matches, source, seed, (System.nanoTime() - startTime) / 1e9);
+        }
+
+        if (samples.count == 0) {
+            System.err.println("No samples to learn from");
+            System.exit(1);
+        }
+
+        // train the network, holding some samples back to measure it on
+        String[] hiddenSizes = hidden.split(",");
+        int[] sizes = new int[hiddenSizes.length + 2];
+        sizes[0] = PolicyNetwork.FEATURE_COUNT;
+        for (int i = 0; i < hiddenSizes.length; i++) {
+            sizes[i + 1] = Integer.parseInt(hiddenSizes[i].trim());
+        }
+        sizes[sizes.length - 1] = PolicyNetwork.OUTPUT_COUNT;
+        startTime = System.nanoTime();
+        PolicyNetwork network = train(replays != null ? "player" : sourceName, sizes, samples, epochs, learningRate,
+            new Random(seed));
+        ByteBuffer buffer = ByteBuffer.allocate(network.getFileSize());
+        network.write(buffer);
+        Files.write(out.toPath(), buffer.array());
+        System.out.printf(Locale.ROOT, "Wrote %s: %d bytes, layers %s (%.2f s)%n", out, network.getFileSize(),
+            Arrays.toString(sizes), (System.nanoTime() - startTime) / 1e9);
+
+        // play the network against the source, on both sides
+        AiProfile networkProfile = profile.copy();
+        networkProfile.policyNetwork = network;
+        MatchStats asPlayer = new MatchBatchTask(networkProfile, profile, seed, 0, evalMatches / 2).invoke();
+        MatchStats asOpponent = new MatchBatchTask(profile, networkProfile, seed, evalMatches / 2, evalMatches)
+            .invoke();
+        long networkWins = asPlayer.playerMatchWins + asOpponent.opponentMatchWins;
+        long played = asPlayer.matches + asOpponent.matches;
+        System.out.printf(Locale.ROOT, "Network won %d/%d matches against %s%n", networkWins, played, source);
+
+        // time a forward pass on its own, and both AIs against themselves (twice, so the first round warms up the
+        // JIT)
+        double profileNanos = 0;
+        double networkNanos = 0;
+        double passNanos = 0;
+        for (int round = 0; round < 2; round++) {
+            profileNanos = timeTicks(profile, evalMatches, seed);
+            networkNanos = timeTicks(networkProfile, evalMatches, seed);
+            passNanos = timeForwardPasses(network, samples);
+        }
+        System.out.printf(Locale.ROOT, "%.0f ns per forward pass (%.0f fighters per millisecond)%n", passNanos,
+            1e6 / passNanos);
+        System.out.printf(Locale.ROOT, "%.0f ns/tick with the profile's AI, %.0f ns/tick with the network (%+.0f ns)%n",
+            profileNanos, networkNanos, networkNanos - profileNanos);
+    }
+
+    private static void addReplaySamples(File file, int sampleEvery, Samples samples) throws IOException {
+        // play the replay back, sampling its player before each update of a round in progress
+        try (ReplayPlayer replay = new ReplayPlayer(file)) {
+            MatchSimulation simulation = replay.getSimulation();
+            Fighter self = simulation.getPlayer();
+            Fighter target = simulation.getOpponent();
+            float[] features = new float[PolicyNetwork.FEATURE_COUNT];
+            while (!replay.isFinished()) {
+                boolean sampling = simulation.getRoundState() == MatchSimulation.RoundState.IN_PROGRESS &&
+                    simulation.isRunning();
+                boolean wasAttacking = self.isAttacking();
+                if (sampling) {
+                    PolicyNetwork.getFeatures(self, target, simulation.getRoundTimer(), features);
+                }
+                replay.step();
+                if (sampling) {
+                    samples.add(features, PolicyTableBuilder.getAction(self, wasAttacking), simulation.getTick(),
+                        sampleEvery);
+                }
+            }
+        }
+    }
+
+    private static void addSelfPlaySamples(AiProfile profile, long baseSeed, int matches, int sampleEvery,
+                                           Samples samples) {
+        // the AIs are driven here rather than by the simulation, right after each update, so what they do can be told
+        // apart from the update and sampled with the features they decided from
+        MatchSimulation simulation = new MatchSimulation(new Fighter("Player", Color.WHITE),
+            new Fighter("Opponent", Color.WHITE));
+        simulation.setOpponentAiProfile(null);
+        Fighter player = simulation.getPlayer();
+        Fighter opponent = simulation.getOpponent();
+        MatchRandom seeds = new MatchRandom(baseSeed);
+        MatchRandom playerRandom = new MatchRandom(baseSeed);
+        MatchRandom opponentRandom = new MatchRandom(baseSeed);
+        FighterAi playerAi = new FighterAi(player, opponent, playerRandom, profile);
+        FighterAi opponentAi = new FighterAi(opponent, player, opponentRandom, profile);
+        float[] features = new float[PolicyNetwork.FEATURE_COUNT];
+        for (int i = 0; i < matches; i++) {
+            seeds.setSeed(baseSeed, i);
+            long seed = seeds.nextLong();
+            simulation.startGame(seed);
+            playerRandom.setSeed(seed, MatchSimulation.PLAYER_AI_RANDOM_STREAM);
+            opponentRandom.setSeed(seed, MatchSimulation.AI_RANDOM_STREAM);
+            playerAi.reset();
+            opponentAi.reset();
+            while (simulation.getGameState() != MatchSimulation.GameState.GAME_OVER) {
+                if (simulation.getRoundState() != MatchSimulation.RoundState.IN_PROGRESS) {
+                    simulation.skipRoundDelay();
+                }
+                simulation.update(HeadlessMatch.STEP_TIME);
+                if (simulation.getRoundState() != MatchSimulation.RoundState.IN_PROGRESS) continue;
+                decide(playerAi, player, opponent, simulation, features, samples, sampleEvery);
+                decide(opponentAi, opponent, player, simulation, features, samples, sampleEvery);
+            }
+        }
+    }
+
+    private static void decide(FighterAi ai, Fighter self, Fighter target, MatchSimulation simulation,
+                               float[] features, Samples samples, int sampleEvery) {
+        PolicyNetwork.getFeatures(self, target, simulation.getRoundTimer(), features);
+        boolean wasAttacking = self.isAttacking();
+        ai.setRoundTimer(simulation.getRoundTimer());
+        ai.update(HeadlessMatch.STEP_TIME);
+        samples.add(features, PolicyTableBuilder.getAction(self, wasAttacking), simulation.getTick(), sampleEvery);
+    }
+
+    private static PolicyNetwork train(String name, int[] sizes, Samples samples, int epochs, float learningRate,
+                                       Random random) {
+        // the network's own arrays are trained in place, so a forward pass is the network's own
+        int weightCount = 0;
+        int biasCount = 0;
+        for (int layer = 0; layer < sizes.length - 1; layer++) {
+            weightCount += sizes[layer] * sizes[layer + 1];
+            biasCount += sizes[layer + 1];
+        }
+        PolicyNetwork network = new PolicyNetwork(name, sizes, new float[weightCount], new float[biasCount]);
+        float[] weights = network.getWeights();
+        float[] biases = network.getBiases();
+
+        // He initialization, for the ReLU layers
+        int weight = 0;
+        for (int layer = 0; layer < sizes.length - 1; layer++) {
+            float scale = (float) Math.sqrt(2.0 / sizes[layer]);
+            for (int i = sizes[layer] * sizes[layer + 1]; i > 0; i--) {
+                weights[weight++] = (float) random.nextGaussian() * scale;
+            }
+        }
+
+        // each group's choices are weighted by how rare they are among the samples, so that each choice counts as
+        // much in total
+        float[][] classWeights = new float[GROUP_SIZES.length][];
+        for (int group = 0; group < GROUP_SIZES.length; group++) {
+            long[] counts = new long[GROUP_SIZES[group]];
+            for (int i = 0; i < samples.count; i++) {
+                counts[samples.labels[i * 3 + group]]++;
+            }
+            classWeights[group] = new float[GROUP_SIZES[group]];
+            for (int label = 0; label < counts.length; label++) {
+                classWeights[group][label] = counts[label] == 0 ? 0f :
+                    (float) samples.count / (counts.length * counts[label]);
+            }
+        }
+
+        // shuffle once, hold the last samples back, and shuffle the rest every epoch
+        int[] order = new int[samples.count];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        shuffle(order, order.length, random);
+        int trainingCount = samples.count - (int) (samples.count * VALIDATION_SHARE);
+
+        float[] buffer = new float[network.getBufferSize()];
+        float[] deltas = new float[network.getBufferSize()];
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            shuffle(order, trainingCount, random);
+            double loss = 0;
+            for (int i = 0; i < trainingCount; i++) {
+                loss += step(network, samples, order[i], classWeights, learningRate, buffer, deltas);
+            }
+            System.out.printf(Locale.ROOT, "Epoch %d: loss %.4f, validation accuracy %s%n", epoch,
+                loss / trainingCount, getAccuracy(network, samples, order, trainingCount, buffer));
+        }
+        return network;
+    }
+
+    private static double step(PolicyNetwork network, Samples samples, int sample, float[][] classWeights,
+                               float learningRate, float[] buffer, float[] deltas) {
+        // forward
+        int[] sizes = network.getSizes();
+        float[] weights = network.getWeights();
+        float[] biases = network.getBiases();
+        System.arraycopy(samples.features, sample * PolicyNetwork.FEATURE_COUNT, buffer, 0,
+            PolicyNetwork.FEATURE_COUNT);
+        network.evaluate(buffer);
+
+        // the output deltas: softmax minus the one-hot label, in each group, times the label's weight
+        int outputs = network.getBufferSize() - PolicyNetwork.OUTPUT_COUNT;
+        double loss = 0;
+        for (int group = 0; group < GROUP_SIZES.length; group++) {
+            int first = outputs + GROUP_OUTPUTS[group];
+            int size = GROUP_SIZES[group];
+            int label = samples.labels[sample * 3 + group];
+            float weight = classWeights[group][label];
+            float max = buffer[first];
+            for (int i = 1; i < size; i++) max = Math.max(max, buffer[first + i]);
+            float sum = 0f;
+            for (int i = 0; i < size; i++) sum += (float) Math.exp(buffer[first + i] - max);
+            for (int i = 0; i < size; i++) {
+                float probability = (float) Math.exp(buffer[first + i] - max) / sum;
+                deltas[first + i] = weight * (probability - (i == label ? 1f : 0f));
+                if (i == label) loss -= weight * Math.log(Math.max(probability, 1e-7f));
+            }
+        }
+
+        // backward, a layer at a time from the last, updating each layer's weights once its deltas have been passed
+        // back through them
+        int out = outputs;
+        int weightEnd = weights.length;
+        int biasEnd = biases.length;
+        for (int layer = sizes.length - 2; layer >= 0; layer--) {
+            int inputs = sizes[layer];
+            int outputCount = sizes[layer + 1];
+            int in = out - inputs;
+            int weight = weightEnd - inputs * outputCount;
+            int bias = biasEnd - outputCount;
+            if (layer > 0) {
+                for (int i = 0; i < inputs; i++) {
+                    float delta = 0f;
+                    if (buffer[in + i] > 0f) {
+                        for (int o = 0; o < outputCount; o++) {
+                            delta += weights[weight + o * inputs + i] * deltas[out + o];
+                        }
+                    }
+                    deltas[in + i] = delta;
+                }
+            }
+            for (int o = 0; o < outputCount; o++) {
+                float step = learningRate * deltas[out + o];
+                int row = weight + o * inputs;
+                for (int i = 0; i < inputs; i++) {
+                    weights[row + i] -= step * buffer[in + i];
+                }
+                biases[bias + o] -= step;
+            }
+            out = in;
+            weightEnd = weight;
+            biasEnd = bias;
+        }
+        return loss;
+    }
+
+    private static String getAccuracy(PolicyNetwork network, Samples samples, int[] order, int from,
+                                      float[] buffer) {
+        // how often the network's best choice of each group is the sample's, over the held back samples
+        long[] correct = new long[GROUP_SIZES.length];
+        int outputs = network.getBufferSize() - PolicyNetwork.OUTPUT_COUNT;
+        for (int i = from; i < samples.count; i++) {
+            int sample = order[i];
+            System.arraycopy(samples.features, sample * PolicyNetwork.FEATURE_COUNT, buffer, 0,
+                PolicyNetwork.FEATURE_COUNT);
+            network.evaluate(buffer);
+            for (int group = 0; group < GROUP_SIZES.length; group++) {
+                int first = outputs + GROUP_OUTPUTS[group];
+                int best = 0;
+                for (int j = 1; j < GROUP_SIZES[group]; j++) {
+                    if (buffer[first + j] > buffer[first + best]) best = j;
+                }
+                if (best == samples.labels[sample * 3 + group]) correct[group]++;
+            }
+        }
+        int count = Math.max(1, samples.count - from);
+        return String.format(Locale.ROOT, "%.3f horizontal, %.3f vertical, %.3f other", correct[0] / (double) count,
+            correct[1] / (double) count, correct[2] / (double) count);
+    }
+
+    private static void shuffle(int[] values, int count, Random random) {
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+    }
+
+    private static double timeForwardPasses(PolicyNetwork network, Samples samples) {
+        float[] buffer = new float[network.getBufferSize()];
+        int passes = Math.min(samples.count, 200_000);
+        float sink = 0f;
+        long startTime = System.nanoTime();
+        for (int i = 0; i < passes; i++) {
+            System.arraycopy(samples.features, i * PolicyNetwork.FEATURE_COUNT, buffer, 0,
+                PolicyNetwork.FEATURE_COUNT);
+            network.evaluate(buffer);
+            sink += buffer[buffer.length - 1];
+        }
+        double nanos = (double) (System.nanoTime() - startTime) / passes;
+        return sink == Float.MAX_VALUE ? nanos + 1 : nanos;
+    }
+
+    private static double timeTicks(AiProfile profile, int matches, long seed) {
+        MatchSimulation simulation = new MatchSimulation(new Fighter("Player", Color.WHITE),
+            new Fighter("Opponent", Color.WHITE));
+        simulation.setPlayerAiProfile(profile);
+        simulation.setOpponentAiProfile(profile);
+        long ticks = 0;
+        long startTime = System.nanoTime();
+        for (int i = 0; i < matches; i++) {
+            simulation.startGame(seed + i);
+            while (simulation.getGameState() != MatchSimulation.GameState.GAME_OVER) {
+                if (simulation.getRoundState() != MatchSimulation.RoundState.IN_PROGRESS) {
+                    simulation.skipRoundDelay();
+                }
+                simulation.update(HeadlessMatch.STEP_TIME);
+                ticks++;
+            }
+        }
+        return (double) (System.nanoTime() - startTime) / ticks;
+    }
+
+    private static class Samples {
+        // each sample's features, and its labels: the horizontal, vertical and other choice (see PolicyNetwork)
+        float[] features = new float[PolicyNetwork.FEATURE_COUNT * 1024];
+        byte[] labels = new byte[3 * 1024];
+        int count;
+
+        void add(float[] sampleFeatures, int action, int tick, int sampleEvery) {
+            // every update in which the fighter blocks or starts an attack is kept, and every sampleEvery-th other one
+            int other = action % 4;
+            if (other == 0 && tick % sampleEvery != 0) return;
+            if (count * 3 == labels.length) {
+                features = Arrays.copyOf(features, features.length * 2);
+                labels = Arrays.copyOf(labels, labels.length * 2);
+            }
+            System.arraycopy(sampleFeatures, 0, features, count * PolicyNetwork.FEATURE_COUNT,
+                PolicyNetwork.FEATURE_COUNT);
+            labels[count * 3] = (byte) (action / 12);
+            labels[count * 3 + 1] = (byte) (action / 4 % 3);
+            labels[count * 3 + 2] = (byte) other;
+            count++;
+        }
+    }
+}
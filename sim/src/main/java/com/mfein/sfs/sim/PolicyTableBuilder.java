@@ -0,0 +1,322 @@
+package com.mfein.sfs.sim;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Vector2;
+import com.mfein.sfs.objects.Fighter;
+import com.mfein.sfs.objects.FrameData;
+import com.mfein.sfs.resources.GlobalVariables;
+import com.mfein.sfs.simulation.AiProfile;
+import com.mfein.sfs.simulation.FighterAi;
+import com.mfein.sfs.simulation.FighterInput;
+import com.mfein.sfs.simulation.MatchRandom;
+import com.mfein.sfs.simulation.MatchSimulation;
+import com.mfein.sfs.simulation.PolicyTable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Command-line tool that precomputes a {@link PolicyTable} from an AI profile, by distilling its decisions. It plays
+ * matches of the profile against itself on all cores, and every update counts, for each fighter, what its AI made it
+ * do (which way it moves, whether it blocks, whether it started an attack) in the quantized state it decided in, when
+ * that changed. Each state's entry in the table is what was done there most often; a state that never came up does
+ * what was done most often at the same distance, or moves toward the target. Then it plays the table against the
+ * profile it came from, and times both.
+ *
+ * <p>To play a difficulty from the table, name it in the difficulty's profile file, e.g.
+ * <code>"policyTable": "hard.policy"</code>.
+ *
+ * <pre>
+ * --source NAME         difficulty whose profile to distil (default HARD)
+ * --matches N           matches to distil it from (default 2000)
+ * --eval-matches N      matches to play the table against the profile afterwards (default 500)
+ * --threads N           worker threads (default: all cores)
+ * --seed N              seed of the first match (default: random)
+ * --profiles DIR        directory with the profile files (default assets/data/ai)
+ * --out FILE            table to write (default: the source's name in the profile directory, e.g. hard.policy)
+ * </pre>
+ */
+public class PolicyTableBuilder {
+    // what a fighter can be seen doing: 3 horizontal movements x 3 vertical movements x (nothing, block, punch, kick)
+    private static final int ACTION_COUNT = 36;
+
+    public static void main(String[] args) throws IOException {
+        // set up the moves from the move definition file, as the game does at start-up
+        Fighter.loadFrameData(new FileHandle("assets/" + FrameData.FILE));
+
+        // default options
+        GlobalVariables.Difficulty source = GlobalVariables.Difficulty.HARD;
+        int matches = 2000;
+        int evalMatches = 500;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = MatchRandom.newSeed();
+        File profiles = new File("assets/data/ai");
+        File out = null;
+
+        // parse the options
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--source":
+                    source = GlobalVariables.Difficulty.valueOf(value.toUpperCase(Locale.ROOT));
+                    break;
+                case "--matches":
+                    matches = Integer.parseInt(value);
+                    break;
+                case "--eval-matches":
+                    evalMatches = Integer.parseInt(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--profiles":
+                    profiles = new File(value);
+                    break;
+                case "--out":
+                    out = new File(value);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+            i++;
+        }
+        String sourceName = source.name().toLowerCase(Locale.ROOT);
+        if (out == null) {
+            out = new File(profiles, sourceName + ".policy");
+        }
+
+        // the source's profile, as the game loads it (without any table, network or ghost it already has)
+        File profileFile = new File(profiles, sourceName + ".json");
+        AiProfile profile = profileFile.exists() ? AiProfile.load(new FileHandle(profileFile)) :
+            AiProfile.forDifficulty(source);
+        if (profile == null) {
+            System.err.println("No AI profile for difficulty: " + source);
+            System.exit(1);
+        }
+        profile.policyTable = null;
+        profile.policyNetwork = null;
+        profile.ghost = null;
+
+        // count what the AI does in each state, each worker playing every threads-th match into its own counts
+        System.out.printf(Locale.ROOT, "Distilling %s from %d matches on %d threads (seed %d)%n", source, matches,
+            threads, seed);
+        long startTime = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        int[] counts;
+        try {
+            List<ForkJoinTask<int[]>> tasks = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int first = i;
+                int step = threads;
+                int matchCount = matches;
+                long baseSeed = seed;
+                tasks.add(pool.submit(() -> countActions(profile, baseSeed, first, step, matchCount)));
+            }
+            counts = new int[PolicyTable.SIZE * ACTION_COUNT];
+            for (ForkJoinTask<int[]> task : tasks) {
+                int[] taskCounts = task.join();
+                for (int i = 0; i < counts.length; i++) counts[i] += taskCounts[i];
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        // each state's input is what was done there most often; a state that never came up does what was done most
+        // often at the same distance, whatever the fighters' states
+        int positions = PolicyTable.DX_BUCKETS * PolicyTable.DY_BUCKETS;
+        int statesPerPosition = PolicyTable.SIZE / positions;
+        int[] positionCounts = new int[positions * ACTION_COUNT];
+        for (int i = 0; i < counts.length; i++) {
+            positionCounts[i / ACTION_COUNT / statesPerPosition * ACTION_COUNT + i % ACTION_COUNT] += counts[i];
+        }
+        byte[] inputs = new byte[PolicyTable.SIZE];
+        int seenStates = 0;
+        for (int index = 0; index < PolicyTable.SIZE; index++) {
+            int action = getMostCommonAction(counts, index);
+            if (action >= 0) {
+                seenStates++;
+            } else {
+                action = getMostCommonAction(positionCounts, index / statesPerPosition);
+            }
+            inputs[index] = (byte) (action >= 0 ? getActionInput(action) : getInputTowardTarget(index));
+        }
+        PolicyTable table = new PolicyTable(sourceName, inputs);
+        ByteBuffer buffer = ByteBuffer.allocate(PolicyTable.getFileSize());
+        table.write(buffer);
+        Files.write(out.toPath(), buffer.array());
+        System.out.printf(Locale.ROOT, "Wrote %s: %d bytes, %d of %d states seen (%.2f s)%n", out,
+            PolicyTable.getFileSize(), seenStates, PolicyTable.SIZE, (System.nanoTime() - startTime) / 1e9);
+
+        // play the table against the profile it came from, on both sides
+        AiProfile tableProfile = profile.copy();
+        tableProfile.policyTable = table;
+        MatchStats asPlayer = new MatchBatchTask(tableProfile, profile, seed, 0, evalMatches / 2).invoke();
+        MatchStats asOpponent = new MatchBatchTask(profile, tableProfile, seed, evalMatches / 2, evalMatches).invoke();
+        long tableWins = asPlayer.playerMatchWins + asOpponent.opponentMatchWins;
+        long played = asPlayer.matches + asOpponent.matches;
+        System.out.printf(Locale.ROOT, "Table won %d/%d matches against %s%n", tableWins, played, source);
+
+        // time both against themselves (twice, so the first round warms up the JIT)
+        double profileNanos = 0;
+        double tableNanos = 0;
+        for (int round = 0; round < 2; round++) {
+            profileNanos = timeTicks(profile, evalMatches, seed);
+            tableNanos = timeTicks(tableProfile, evalMatches, seed);
+        }
+        System.out.printf(Locale.ROOT, "%.0f ns/tick with the profile's AI, %.0f ns/tick with the table (%+.0f ns)%n",
+            profileNanos, tableNanos, tableNanos - profileNanos);
+    }
+
+    private static int[] countActions(AiProfile profile, long baseSeed, int first, int step, int matches) {
+        // the AIs are driven here rather than by the simulation, right after each update, so what they do can be told
+        // apart from the update and counted under the state they decided in
+        int[] counts = new int[PolicyTable.SIZE * ACTION_COUNT];
+        MatchSimulation simulation = createSimulation(null);
+        Fighter player = simulation.getPlayer();
+        Fighter opponent = simulation.getOpponent();
+        MatchRandom seeds = new MatchRandom(baseSeed);
+        MatchRandom playerRandom = new MatchRandom(baseSeed);
+        MatchRandom opponentRandom = new MatchRandom(baseSeed);
+        FighterAi playerAi = new FighterAi(player, opponent, playerRandom, profile);
+        FighterAi opponentAi = new FighterAi(opponent, player, opponentRandom, profile);
+        for (int i = first; i < matches; i += step) {
+            seeds.setSeed(baseSeed, i);
+            long seed = seeds.nextLong();
+            simulation.startGame(seed);
+            playerRandom.setSeed(seed, MatchSimulation.PLAYER_AI_RANDOM_STREAM);
+            opponentRandom.setSeed(seed, MatchSimulation.AI_RANDOM_STREAM);
+            int round = -1;
+            while (simulation.getGameState() != MatchSimulation.GameState.GAME_OVER) {
+                if (simulation.getRoundState() != MatchSimulation.RoundState.IN_PROGRESS) {
+                    simulation.skipRoundDelay();
+                }
+                simulation.update(HeadlessMatch.STEP_TIME);
+                if (simulation.getRoundState() != MatchSimulation.RoundState.IN_PROGRESS) continue;
+                if (simulation.getCurrentRound() != round) {
+                    round = simulation.getCurrentRound();
+                    playerAi.reset();
+                    opponentAi.reset();
+                }
+                decide(playerAi, player, opponent, counts);
+                decide(opponentAi, opponent, player, counts);
+            }
+        }
+        return counts;
+    }
+
+    private static void decide(FighterAi ai, Fighter self, Fighter target, int[] counts) {
+        // only count what the AI changed: between decisions it waits out its timers, and counting that would make
+        // waiting the most common thing to do in every state
+        int index = PolicyTable.getIndex(self, target);
+        boolean wasAttacking = self.isAttacking();
+        int heldAction = getAction(self, true);
+        ai.update(HeadlessMatch.STEP_TIME);
+        int action = getAction(self, wasAttacking);
+        if (action != heldAction) {
+            counts[index * ACTION_COUNT + action]++;
+        }
+    }
+
+    private static int getMostCommonAction(int[] counts, int index) {
+        // blocking or attacking is picked first, over all the movements it was done with, so an attack done while
+        // moving in any direction isn't outnumbered by a single movement; then the movement it was done with most
+        int offset = index * ACTION_COUNT;
+        int[] otherCounts = new int[4];
+        for (int action = 0; action < ACTION_COUNT; action++) {
+            otherCounts[action % 4] += counts[offset + action];
+        }
+        int other = 0;
+        for (int i = 1; i < otherCounts.length; i++) {
+            if (otherCounts[i] > otherCounts[other]) other = i;
+        }
+        if (otherCounts[other] == 0) return -1;
+        int best = other;
+        for (int action = other; action < ACTION_COUNT; action += 4) {
+            if (counts[offset + action] > counts[offset + best]) best = action;
+        }
+        return best;
+    }
+
+    static int getAction(Fighter fighter, boolean wasAttacking) {
+        // what the fighter has been seen doing: its movement, and blocking or starting an attack
+        Vector2 direction = fighter.getMovementDirection();
+        int horizontal = direction.x < 0 ? 1 : direction.x > 0 ? 2 : 0;
+        int vertical = direction.y > 0 ? 1 : direction.y < 0 ? 2 : 0;
+        int other = 0;
+        if (fighter.isBlocking()) {
+            other = 1;
+        } else if (!wasAttacking && fighter.getState() == Fighter.State.PUNCH) {
+            other = 2;
+        } else if (!wasAttacking && fighter.getState() == Fighter.State.KICK) {
+            other = 3;
+        }
+        return (horizontal * 3 + vertical) * 4 + other;
+    }
+
+    static int getActionInput(int action) {
+        int horizontal = action / 12;
+        int vertical = action / 4 % 3;
+        int other = action % 4;
+        int input = horizontal == 1 ? FighterInput.LEFT : horizontal == 2 ? FighterInput.RIGHT : FighterInput.NONE;
+        input |= vertical == 1 ? FighterInput.UP : vertical == 2 ? FighterInput.DOWN : FighterInput.NONE;
+        switch (other) {
+            case 1:
+                return input | FighterInput.BLOCK;
+            case 2:
+                return input | FighterInput.PUNCH;
+            case 3:
+                return input | FighterInput.KICK;
+            default:
+                return input;
+        }
+    }
+
+    private static int getInputTowardTarget(int index) {
+        // move toward the target until within contact distance, like the AI's pursuit
+        float dx = PolicyTable.getBucketCenterX(index);
+        float dy = PolicyTable.getBucketCenterY(index);
+        int input = FighterInput.NONE;
+        if (dx < -MatchSimulation.FIGHTER_CONTACT_DISTANCE_X) input |= FighterInput.LEFT;
+        if (dx > MatchSimulation.FIGHTER_CONTACT_DISTANCE_X) input |= FighterInput.RIGHT;
+        if (dy > MatchSimulation.FIGHTER_CONTACT_DISTANCE_Y) input |= FighterInput.UP;
+        if (dy < -MatchSimulation.FIGHTER_CONTACT_DISTANCE_Y) input |= FighterInput.DOWN;
+        return input;
+    }
+
+    private static double timeTicks(AiProfile profile, int matches, long seed) {
+        MatchSimulation simulation = createSimulation(profile);
+        long ticks = 0;
+        long startTime = System.nanoTime();
+        for (int i = 0; i < matches; i++) {
+            simulation.startGame(seed + i);
+            while (simulation.getGameState() != MatchSimulation.GameState.GAME_OVER) {
+                if (simulation.getRoundState() != MatchSimulation.RoundState.IN_PROGRESS) {
+                    simulation.skipRoundDelay();
+                }
+                simulation.update(HeadlessMatch.STEP_TIME);
+                ticks++;
+            }
+        }
+        return (double) (System.nanoTime() - startTime) / ticks;
+    }
+
+    private static MatchSimulation createSimulation(AiProfile profile) {
+        MatchSimulation simulation = new MatchSimulation(new Fighter("Player", Color.WHITE),
+            new Fighter("Opponent", Color.WHITE));
+        simulation.setPlayerAiProfile(profile);
+        simulation.setOpponentAiProfile(profile);
+        return simulation;
+    }
+}
@@ -0,0 +1,323 @@
+package com.mfein.sfs.sim;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.mfein.sfs.objects.Fighter;
+import com.mfein.sfs.objects.FrameData;
+import com.mfein.sfs.resources.GlobalVariables;
+import com.mfein.sfs.simulation.AiProfile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Command-line tool that tunes the numbers of a difficulty's AI profile by evolving them. A population of profiles
+ * plays headless matches against a few rivals from the population and against every reference profile (the current
+ * EASY, MEDIUM and HARD ones), all on a fork-join pool. Within a generation every pairing uses the same seeds, half of
+ * its matches with the profile as player and half as opponent, so profiles are compared on the same matches. A
+ * profile's fitness is its match win rate, or how close that comes to a target win rate if one is given (to tune an
+ * easier difficulty). The fittest few go on to the next generation unchanged; the rest are bred from parents picked by
+ * tournament, by uniform crossover and Gaussian mutation. The first generation starts from the difficulty's current
+ * numbers plus random ones.
+ *
+ * <p>The fittest profile of the last generation is written to the difficulty's file in the profile directory (which
+ * the game loads at start-up), with its numbers right after the name; the rest of the file, e.g. its behavior tree,
+ * is kept as it is.
+ *
+ * <pre>
+ * --difficulty NAME   difficulty to tune (default HARD)
+ * --target X          match win rate to aim for, between 0 and 1 (default: as high as possible)
+ * --population N      profiles per generation (default 32)
+ * --generations N     generations to evolve (default 10)
+ * --rivals N          rivals from the population each profile plays per generation (default 4)
+ * --matches N         matches per pairing (default 20)
+ * --threads N         worker threads (default: all cores)
+ * --seed N            seed of the evolution and the matches (default: random)
+ * --profiles DIR      directory with the profile files (default assets/data/ai)
+ * --dry-run           don't write the tuned profile
+ * </pre>
+ */
+public class ProfileTuner {
+    // range of each profile number, by index
+    private static final float[] MIN_NUMBERS = {0f, 0.05f, 0f, 0f, 0f, 0f};
+    private static final float[] MAX_NUMBERS = {0.5f, 1.5f, 1f, 1f, 1f, 1f};
+
+    // profiles that go on unchanged, tournament size, and the chance and size (as a fraction of the range) of mutations
+    private static final int ELITE_COUNT = 2;
+    private static final int TOURNAMENT_SIZE = 3;
+    private static final float MUTATION_CHANCE = 0.3f;
+    private static final float MUTATION_SIZE = 0.1f;
+
+    private static final GlobalVariables.Difficulty[] REFERENCE_DIFFICULTIES = {GlobalVariables.Difficulty.EASY,
+        GlobalVariables.Difficulty.MEDIUM, GlobalVariables.Difficulty.HARD};
+
+    public static void main(String[] args) throws IOException {
+        // set up the moves from the move definition file, as the game does at start-up
+        Fighter.loadFrameData(new FileHandle("assets/" + FrameData.FILE));
+
+        // default options
+        GlobalVariables.Difficulty difficulty = GlobalVariables.Difficulty.HARD;
+        float target = Float.NaN;
+        int populationSize = 32;
+        int generations = 10;
+        int rivals = 4;
+        int matches = 20;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = new Random().nextLong();
+        File profiles = new File("assets/data/ai");
+        boolean dryRun = false;
+
+        // parse the options
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--difficulty":
+                    difficulty = GlobalVariables.Difficulty.valueOf(value.toUpperCase(Locale.ROOT));
+                    break;
+                case "--target":
+                    target = Float.parseFloat(value);
+                    break;
+                case "--population":
+                    populationSize = Integer.parseInt(value);
+                    break;
+                case "--generations":
+                    generations = Integer.parseInt(value);
+                    break;
+                case "--rivals":
+                    rivals = Integer.parseInt(value);
+                    break;
+                case "--matches":
+                    matches = Integer.parseInt(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--profiles":
+                    profiles = new File(value);
+                    break;
+                case "--dry-run":
+                    dryRun = true;
+                    i--;
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+            i++;
+        }
+        rivals = Math.min(rivals, populationSize - 1);
+
+        // load the profile files, like the game does, for the references and the profile to tune
+        for (GlobalVariables.Difficulty fileDifficulty : GlobalVariables.Difficulty.values()) {
+            File file = getProfileFile(profiles, fileDifficulty);
+            if (file.exists()) {
+                AiProfile.setDifficultyProfile(fileDifficulty, AiProfile.load(new FileHandle(file)));
+            }
+        }
+        AiProfile base = AiProfile.forDifficulty(difficulty);
+        if (base == null) {
+            System.err.println("No AI profile for difficulty: " + difficulty);
+            System.exit(1);
+        }
+        AiProfile[] references = new AiProfile[REFERENCE_DIFFICULTIES.length];
+        for (int i = 0; i < references.length; i++) {
+            references[i] = AiProfile.forDifficulty(REFERENCE_DIFFICULTIES[i]);
+        }
+
+        // the first generation: the current profile, and random ones
+        Random random = new Random(seed);
+        AiProfile[] population = new AiProfile[populationSize];
+        population[0] = base.copy();
+        for (int i = 1; i < populationSize; i++) {
+            population[i] = base.copy();
+            for (int j = 0; j < AiProfile.NUMBER_COUNT; j++) {
+                setNumber(population[i], j, MIN_NUMBERS[j] + random.nextFloat() * (MAX_NUMBERS[j] - MIN_NUMBERS[j]));
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "Tuning %s%s: %d profiles, %d rivals and %d references, %d matches per " +
+                "pairing, on %d threads (seed %d)%n", difficulty, Float.isNaN(target) ? "" : " for a win rate of " +
+                target, populationSize, rivals, references.length, matches, threads, seed);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        float[] fitness = new float[populationSize];
+        try {
+            for (int generation = 1; ; generation++) {
+                long startTime = System.nanoTime();
+                evaluate(pool, population, references, rivals, matches, seed + generation, target, random, fitness);
+                double seconds = (System.nanoTime() - startTime) / 1e9;
+
+                int best = 0;
+                float totalFitness = 0f;
+                for (int i = 0; i < populationSize; i++) {
+                    totalFitness += fitness[i];
+                    if (fitness[i] > fitness[best]) best = i;
+                }
+                System.out.printf(Locale.ROOT, "generation %d: best %.3f, mean %.3f (%.2f s) %s%n", generation,
+                    fitness[best], totalFitness / populationSize, seconds, describe(population[best]));
+
+                if (generation == generations) {
+                    if (!dryRun) {
+                        File file = getProfileFile(profiles, difficulty);
+                        writeProfile(file, population[best]);
+                        System.out.println("Wrote " + file);
+                    }
+                    break;
+                }
+                population = breed(population, fitness, random);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void evaluate(ForkJoinPool pool, AiProfile[] population, AiProfile[] references, int rivals,
+                                 int matches, long seed, float target, Random random, float[] fitness) {
+        // every profile plays every reference and a few rivals, half the matches on each side; all the pairings are
+        // played at once, so the pool stays busy
+        int populationSize = population.length;
+        List<ForkJoinTask<MatchStats>> asPlayer = new ArrayList<>();
+        List<ForkJoinTask<MatchStats>> asOpponent = new ArrayList<>();
+        for (int i = 0; i < populationSize; i++) {
+            for (AiProfile rival : pickRivals(population, i, rivals, references, random)) {
+                asPlayer.add(pool.submit(new MatchBatchTask(population[i], rival, seed, 0, matches / 2)));
+                asOpponent.add(pool.submit(new MatchBatchTask(rival, population[i], seed, matches / 2, matches)));
+            }
+        }
+
+        // a profile's fitness is its win rate (or how close that comes to the target)
+        int pairings = asPlayer.size() / populationSize;
+        for (int i = 0; i < populationSize; i++) {
+            long wins = 0;
+            long played = 0;
+            for (int j = i * pairings; j < (i + 1) * pairings; j++) {
+                MatchStats playerStats = asPlayer.get(j).join();
+                MatchStats opponentStats = asOpponent.get(j).join();
+                wins += playerStats.playerMatchWins + opponentStats.opponentMatchWins;
+                played += playerStats.matches + opponentStats.matches;
+            }
+            float winRate = played == 0 ? 0f : (float) wins / played;
+            fitness[i] = Float.isNaN(target) ? winRate : 1f - Math.abs(winRate - target);
+        }
+    }
+
+    private static List<AiProfile> pickRivals(AiProfile[] population, int index, int rivals, AiProfile[] references,
+                                              Random random) {
+        // the references, plus distinct rivals from the rest of the population
+        List<AiProfile> picked = new ArrayList<>(Arrays.asList(references));
+        List<Integer> others = new ArrayList<>();
+        for (int i = 0; i < population.length; i++) {
+            if (i != index) others.add(i);
+        }
+        for (int i = 0; i < rivals; i++) {
+            picked.add(population[others.remove(random.nextInt(others.size()))]);
+        }
+        return picked;
+    }
+
+    private static AiProfile[] breed(AiProfile[] population, float[] fitness, Random random) {
+        // the elite go on unchanged
+        int populationSize = population.length;
+        Integer[] order = new Integer[populationSize];
+        for (int i = 0; i < populationSize; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Float.compare(fitness[b], fitness[a]));
+        AiProfile[] next = new AiProfile[populationSize];
+        int count = 0;
+        for (; count < Math.min(ELITE_COUNT, populationSize); count++) {
+            next[count] = population[order[count]].copy();
+        }
+
+        // the rest are children of two parents picked by tournament, each number from either parent, maybe mutated
+        for (; count < populationSize; count++) {
+            AiProfile mother = population[pickParent(fitness, random)];
+            AiProfile father = population[pickParent(fitness, random)];
+            AiProfile child = mother.copy();
+            for (int j = 0; j < AiProfile.NUMBER_COUNT; j++) {
+                float number = random.nextBoolean() ? mother.getNumber(j) : father.getNumber(j);
+                if (random.nextFloat() < MUTATION_CHANCE) {
+                    number += (float) random.nextGaussian() * MUTATION_SIZE * (MAX_NUMBERS[j] - MIN_NUMBERS[j]);
+                }
+                setNumber(child, j, number);
+            }
+            next[count] = child;
+        }
+        return next;
+    }
+
+    private static int pickParent(float[] fitness, Random random) {
+        // the fittest of a few profiles picked at random
+        int best = random.nextInt(fitness.length);
+        for (int i = 1; i < TOURNAMENT_SIZE; i++) {
+            int other = random.nextInt(fitness.length);
+            if (fitness[other] > fitness[best]) best = other;
+        }
+        return best;
+    }
+
+    private static void setNumber(AiProfile profile, int index, float number) {
+        // keep the number within its range, at the precision it's written with
+        float clamped = Math.max(MIN_NUMBERS[index], Math.min(MAX_NUMBERS[index], number));
+        profile.setNumber(index, Math.round(clamped * 1000f) / 1000f);
+    }
+
+    private static String describe(AiProfile profile) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < AiProfile.NUMBER_COUNT; i++) {
+            if (i > 0) text.append(", ");
+            text.append(AiProfile.getNumberName(i)).append(' ').append(formatNumber(profile.getNumber(i)));
+        }
+        return text.toString();
+    }
+
+    private static String formatNumber(float number) {
+        return String.format(Locale.ROOT, "%.3f", number);
+    }
+
+    private static File getProfileFile(File profiles, GlobalVariables.Difficulty difficulty) {
+        return new File(profiles, difficulty.name().toLowerCase(Locale.ROOT) + ".json");
+    }
+
+    private static void writeProfile(File file, AiProfile profile) throws IOException {
+        StringBuilder numbers = new StringBuilder();
+        for (int i = 0; i < AiProfile.NUMBER_COUNT; i++) {
+            numbers.append("  \"").append(AiProfile.getNumberName(i)).append("\": ")
+                .append(formatNumber(profile.getNumber(i))).append(",\n");
+        }
+
+        String text;
+        if (file.exists()) {
+            // put the numbers right after the name, in place of any that were there
+            text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            for (int i = 0; i < AiProfile.NUMBER_COUNT; i++) {
+                text = text.replaceAll("(?m)^\\s*\"" + AiProfile.getNumberName(i) + "\":[^,\\n]*,?\\n", "");
+            }
+            Matcher name = Pattern.compile("\"name\":\\s*\"[^\"]*\",\\n").matcher(text);
+            if (!name.find()) {
+                throw new IOException("No name followed by other entries in " + file);
+            }
+            String rest = text.substring(name.end());
+            if (rest.trim().startsWith("}")) {
+                numbers.setLength(numbers.length() - 2);
+                numbers.append('\n');
+            }
+            text = text.substring(0, name.end()) + numbers + rest;
+        } else {
+            // a profile of its own, without a behavior tree
+            numbers.setLength(numbers.length() - 2);
+            text = "{\n  \"name\": \"" + profile.name + "\",\n" + numbers + "\n}\n";
+        }
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+    }
+}
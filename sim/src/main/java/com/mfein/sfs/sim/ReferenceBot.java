@@ -0,0 +1,64 @@
+package com.mfein.sfs.sim;
+
+import com.badlogic.gdx.math.Vector2;
+import com.mfein.sfs.objects.Fighter;
+import com.mfein.sfs.simulation.FighterInput;
+import com.mfein.sfs.simulation.MatchSimulation;
+
+/**
+ * Scripted players to measure the AI difficulties against. Unlike an AI profile, a bot has no random numbers and no
+ * timers: it holds an input worked out from the match as it is, so it plays the same way against every difficulty
+ * and any change in the results comes from the opponent's AI. Attacks are pressed on every other tick, so holding one
+ * down still attacks again as soon as the last attack is over.
+ */
+public enum ReferenceBot {
+    // stands still: how quickly a difficulty finishes off a player who doesn't fight back
+    PASSIVE,
+    // walks up to opponent and blocks
+    BLOCKER,
+    // walks up to opponent and attacks as fast as it can, punches and kicks in turn
+    MASHER,
+    // walks up to opponent, blocks while it's attacking and punches otherwise
+    COUNTER,
+    // walks up to opponent and punches at a casual player's pace, and doesn't block
+    CASUAL;
+
+    // ticks between a casual player's punches (a little over 3 a second, which is where the difficulties come apart)
+    private static final int CASUAL_ATTACK_TICKS = 18;
+
+    public int getInput(MatchSimulation simulation) {
+        // get player's input for the simulation's next update
+        if (this == PASSIVE) return FighterInput.NONE;
+        Fighter self = simulation.getPlayer();
+        Fighter target = simulation.getOpponent();
+        if (!MatchSimulation.areWithinContactDistance(target.getPosition(), self.getPosition())) {
+            return getInputTowardTarget(self.getPosition(), target.getPosition());
+        }
+
+        boolean pressing = simulation.getTick() % 2 == 0;
+        switch (this) {
+            case BLOCKER:
+                return FighterInput.BLOCK;
+            case CASUAL:
+                return simulation.getTick() % CASUAL_ATTACK_TICKS == 0 ? FighterInput.PUNCH : FighterInput.NONE;
+            case MASHER:
+                if (!pressing) return FighterInput.NONE;
+                return simulation.getTick() % 4 == 0 ? FighterInput.PUNCH : FighterInput.KICK;
+            default:
+                if (target.isAttacking() && !target.hasMadeContact()) return FighterInput.BLOCK;
+                return pressing ? FighterInput.PUNCH : FighterInput.NONE;
+        }
+    }
+
+    private static int getInputTowardTarget(Vector2 selfPosition, Vector2 targetPosition) {
+        // move toward the target on each axis it's out of contact distance on
+        float xDistance = targetPosition.x - selfPosition.x;
+        float yDistance = targetPosition.y - selfPosition.y;
+        int input = FighterInput.NONE;
+        if (xDistance > MatchSimulation.FIGHTER_CONTACT_DISTANCE_X) input |= FighterInput.RIGHT;
+        if (xDistance < -MatchSimulation.FIGHTER_CONTACT_DISTANCE_X) input |= FighterInput.LEFT;
+        if (yDistance > MatchSimulation.FIGHTER_CONTACT_DISTANCE_Y) input |= FighterInput.UP;
+        if (yDistance < -MatchSimulation.FIGHTER_CONTACT_DISTANCE_Y) input |= FighterInput.DOWN;
+        return input;
+    }
+}
@@ -0,0 +1,194 @@
+package com.mfein.sfs.sim;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.mfein.sfs.objects.Fighter;
+import com.mfein.sfs.objects.FrameData;
+import com.mfein.sfs.replay.ReplayControl;
+import com.mfein.sfs.replay.ReplayHeader;
+import com.mfein.sfs.replay.ReplayPlayer;
+import com.mfein.sfs.replay.ReplayRecorder;
+import com.mfein.sfs.resources.GlobalVariables;
+import com.mfein.sfs.simulation.FighterInput;
+import com.mfein.sfs.simulation.MatchRandom;
+import com.mfein.sfs.simulation.MatchSimulation;
+import com.mfein.sfs.simulation.MatchSnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Command-line tool that records a match with random button presses against the AI, then seeks a {@link ReplayPlayer}
+ * to random ticks of it, checks that each seek ends in exactly the state the match was in at that tick, and times the
+ * seeks against replaying from the start. With <code>--switch-to</code>, the player keeps switching the difficulty back
+ * and forth during the match, as from the settings; on EXPERT, opponent holds random buttons as well (instead of
+ * planning, which the replay records as input anyway).
+ *
+ * <pre>
+ * --seeks N        seeks to time (default 1000)
+ * --difficulty D   EASY, MEDIUM or HARD (default HARD)
+ * --switch-to D    difficulty to switch to and back every 700 ticks, e.g. EXPERT (default: none)
+ * --out FILE       where to write the replay (default: a temporary file)
+ * --seed N         match seed (default: random)
+ * </pre>
+ */
+public class ReplaySeekRunner {
+    // ticks between the player's difficulty switches
+    private static final int SWITCH_INTERVAL = 700;
+
+    public static void main(String[] args) throws IOException {
+        // set up the moves from the move definition file, as the game does at start-up
+        Fighter.loadFrameData(new FileHandle("assets/" + FrameData.FILE));
+
+        // default options
+        int seeks = 1000;
+        GlobalVariables.Difficulty difficulty = GlobalVariables.Difficulty.HARD;
+        GlobalVariables.Difficulty switchTo = null;
+        File out = null;
+        long seed = MatchRandom.newSeed();
+
+        // parse the options
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--seeks":
+                    seeks = Integer.parseInt(value);
+                    break;
+                case "--difficulty":
+                    difficulty = GlobalVariables.Difficulty.valueOf(value);
+                    break;
+                case "--switch-to":
+                    switchTo = GlobalVariables.Difficulty.valueOf(value);
+                    break;
+                case "--out":
+                    out = new File(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+            i++;
+        }
+        if (out == null) {
+            out = File.createTempFile("replay", ".sfsr");
+            out.deleteOnExit();
+        }
+
+        // record the match, keeping the state it was in at every tick
+        List<ByteBuffer> states = record(out, difficulty, switchTo, seed);
+        int endTick = states.size() - 1;
+
+        // open the replay and check that it ends the same way
+        long startTime = System.nanoTime();
+        ReplayPlayer player = new ReplayPlayer(out);
+        double openMillis = (System.nanoTime() - startTime) / 1e6;
+        MatchSnapshot snapshot = new MatchSnapshot();
+        if (player.getEndTick() != endTick) {
+            System.err.println("Replay ends at tick " + player.getEndTick() + " instead of " + endTick);
+            System.exit(1);
+        }
+
+        // replay the whole match from the start, for comparison
+        startTime = System.nanoTime();
+        player.seek(0);
+        while (player.step()) {
+            // play on
+        }
+        double fullMillis = (System.nanoTime() - startTime) / 1e6;
+        check(player, snapshot, states, endTick);
+
+        // seek to random ticks
+        MatchRandom random = new MatchRandom(seed, 1);
+        long totalSeekNanos = 0;
+        long maxSeekNanos = 0;
+        for (int i = 0; i < seeks; i++) {
+            int tick = random.random(endTick);
+            startTime = System.nanoTime();
+            player.seek(tick);
+            long seekNanos = System.nanoTime() - startTime;
+            totalSeekNanos += seekNanos;
+            maxSeekNanos = Math.max(maxSeekNanos, seekNanos);
+            check(player, snapshot, states, tick);
+        }
+        player.close();
+
+        System.out.printf(Locale.ROOT, "%d ticks (%.1f s), %d bytes, %d keyframes every %d ticks, seed %d%n", endTick,
+            endTick * HeadlessMatch.STEP_TIME, out.length(), player.getKeyframeCount(), ReplayRecorder.KEYFRAME_INTERVAL,
+            seed);
+        System.out.printf(Locale.ROOT, "open %.3f ms, replay from start %.3f ms, %d seeks identical: avg %.3f ms, " +
+            "max %.3f ms%n", openMillis, fullMillis, seeks, totalSeekNanos / 1e6 / seeks, maxSeekNanos / 1e6);
+    }
+
+    private static List<ByteBuffer> record(File file, GlobalVariables.Difficulty difficulty,
+                                           GlobalVariables.Difficulty switchTo, long seed) {
+        MatchSimulation simulation = new MatchSimulation(new Fighter("Player", Color.WHITE),
+            new Fighter("Opponent", Color.WHITE));
+        simulation.setDifficulty(difficulty);
+        simulation.startGame(seed);
+
+        ReplayHeader header = new ReplayHeader();
+        header.seed = seed;
+        header.tickRate = GlobalVariables.DEFAULT_TICK_RATE;
+        header.difficulty = difficulty;
+        header.playerName = simulation.getPlayer().getName();
+        header.playerColor = simulation.getPlayer().getColor();
+        header.opponentName = simulation.getOpponent().getName();
+        header.opponentColor = simulation.getOpponent().getColor();
+        ReplayRecorder recorder = new ReplayRecorder();
+        recorder.start(file, header);
+
+        // player holds random buttons, letting go now and then, until the game is over
+        List<ByteBuffer> states = new ArrayList<>();
+        MatchSnapshot snapshot = new MatchSnapshot();
+        simulation.save(snapshot);
+        states.add(copy(snapshot));
+        MatchRandom buttons = new MatchRandom(seed, 2);
+        int input = FighterInput.NONE;
+        int opponentInput = FighterInput.NONE;
+        GlobalVariables.Difficulty current = difficulty;
+        while (simulation.getGameState() != MatchSimulation.GameState.GAME_OVER) {
+            if (switchTo != null && simulation.getTick() > 0 && simulation.getTick() % SWITCH_INTERVAL == 0) {
+                current = current == difficulty ? switchTo : difficulty;
+                simulation.setDifficulty(current);
+            }
+            if (buttons.random() < 0.1f) {
+                input = buttons.random(FighterInput.MASK);
+            }
+            boolean opponentByInput = simulation.getOpponentAi() == null;
+            if (opponentByInput && buttons.random() < 0.1f) {
+                opponentInput = buttons.random(FighterInput.MASK);
+            }
+            recorder.record(simulation, ReplayControl.of(input, opponentByInput ? opponentInput : FighterInput.NONE,
+                opponentByInput, false, false, current));
+            simulation.setPlayerInput(input);
+            simulation.setOpponentInput(opponentByInput ? opponentInput : FighterInput.NONE);
+            simulation.update(HeadlessMatch.STEP_TIME);
+            simulation.save(snapshot);
+            states.add(copy(snapshot));
+        }
+        recorder.dispose();
+        return states;
+    }
+
+    private static void check(ReplayPlayer player, MatchSnapshot snapshot, List<ByteBuffer> states, int tick) {
+        player.getSimulation().save(snapshot);
+        if (!snapshot.getBuffer().equals(states.get(tick))) {
+            System.err.println("Seeking to tick " + tick + " didn't restore the match as it was");
+            System.exit(1);
+        }
+    }
+
+    private static ByteBuffer copy(MatchSnapshot snapshot) {
+        ByteBuffer copy = ByteBuffer.allocate(snapshot.getBuffer().remaining());
+        copy.put(snapshot.getBuffer().duplicate());
+        copy.flip();
+        return copy;
+    }
+}
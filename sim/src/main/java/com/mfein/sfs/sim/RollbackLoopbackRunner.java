@@ -0,0 +1,151 @@
+package com.mfein.sfs.sim;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.mfein.sfs.net.DesyncDetector;
+import com.mfein.sfs.net.LoopbackTransport;
+import com.mfein.sfs.net.RollbackCounters;
+import com.mfein.sfs.net.RollbackSession;
+import com.mfein.sfs.objects.Fighter;
+import com.mfein.sfs.objects.FrameData;
+import com.mfein.sfs.simulation.FighterInput;
+import com.mfein.sfs.simulation.MatchRandom;
+import com.mfein.sfs.simulation.MatchSimulation;
+import com.mfein.sfs.simulation.MatchSnapshot;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * Command-line tool that plays a match between two {@link RollbackSession}s connected by a {@link LoopbackTransport},
+ * both fed with random button presses, and checks after every frame that both sides agree on every tick they have
+ * confirmed. Time is simulated, so a long match with bad network conditions runs in a moment and is reproducible.
+ *
+ * <pre>
+ * --frames N       frames to run each side (default 36000)
+ * --latency MS     one-way latency in milliseconds (default 60)
+ * --jitter MS      extra random latency in milliseconds (default 20)
+ * --loss X         chance that a packet is lost (default 0.05)
+ * --seed N         match and network seed (default: random)
+ * </pre>
+ */
+public class RollbackLoopbackRunner {
+    private static final long FRAME_NANOS = 1000000000L / 60;
+
+    // simulated time, shared by both ends of the loopback connection
+    private static long now;
+
+    public static void main(String[] args) {
+        // set up the moves from the move definition file, as the game does at start-up
+        Fighter.loadFrameData(new FileHandle("assets/" + FrameData.FILE));
+
+        // default options
+        int frames = 36000;
+        float latency = 0.06f;
+        float jitter = 0.02f;
+        float loss = 0.05f;
+        long seed = MatchRandom.newSeed();
+
+        // parse the options
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--frames":
+                    frames = Integer.parseInt(value);
+                    break;
+                case "--latency":
+                    latency = Float.parseFloat(value) / 1000f;
+                    break;
+                case "--jitter":
+                    jitter = Float.parseFloat(value) / 1000f;
+                    break;
+                case "--loss":
+                    loss = Float.parseFloat(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+            i++;
+        }
+
+        // connect two sessions, one for each fighter
+        LoopbackTransport[] transports = LoopbackTransport.createPair(latency, jitter, loss, seed, () -> now);
+        RollbackSession playerSession = createSession(true, transports[0]);
+        RollbackSession opponentSession = createSession(false, transports[1]);
+        playerSession.start(seed);
+        opponentSession.start(seed);
+
+        // each side holds random buttons
+        MatchRandom playerButtons = new MatchRandom(seed, 10);
+        MatchRandom opponentButtons = new MatchRandom(seed, 11);
+        int playerInput = 0, opponentInput = 0;
+
+        int verifiedTick = -1;
+        long startTime = System.nanoTime();
+        for (int frame = 0; frame < frames; frame++) {
+            now += FRAME_NANOS;
+            playerInput = nextInput(playerButtons, playerInput);
+            opponentInput = nextInput(opponentButtons, opponentInput);
+            playerSession.advance(playerInput);
+            opponentSession.advance(opponentInput);
+
+            // both sides must have the same state before the latest tick that both have confirmed
+            int tick = Math.min(Math.min(playerSession.getConfirmedRemoteTick(), opponentSession.getConfirmedRemoteTick()) + 1,
+                Math.min(playerSession.getTick(), opponentSession.getTick()) - 1);
+            if (tick > verifiedTick) {
+                MatchSnapshot playerSnapshot = playerSession.getSnapshot(tick);
+                MatchSnapshot opponentSnapshot = opponentSession.getSnapshot(tick);
+                if (playerSnapshot != null && opponentSnapshot != null) {
+                    if (!playerSnapshot.getBuffer().equals(opponentSnapshot.getBuffer())) {
+                        System.err.println("Desync at tick " + tick);
+                        System.exit(1);
+                    }
+                    verifiedTick = tick;
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+
+        System.out.printf(Locale.ROOT, "%d frames, %.0f ms latency, %.0f ms jitter, %.1f%% loss, seed %d%n", frames,
+            latency * 1000, jitter * 1000, loss * 100, seed);
+        System.out.printf(Locale.ROOT, "verified identical up to tick %d (score %d - %d)%n", verifiedTick,
+            playerSession.getSimulation().getRoundsWon(), playerSession.getSimulation().getRoundsLost());
+        printCounters("player", playerSession, transports[0], seconds);
+        printCounters("opponent", opponentSession, transports[1], seconds);
+    }
+
+    private static RollbackSession createSession(boolean localIsPlayer, LoopbackTransport transport) {
+        MatchSimulation simulation = new MatchSimulation(new Fighter("Player", Color.WHITE),
+            new Fighter("Opponent", Color.WHITE));
+        return new RollbackSession(simulation, localIsPlayer, transport, HeadlessMatch.STEP_TIME);
+    }
+
+    private static int nextInput(MatchRandom random, int input) {
+        // now and then, let go of everything and press a random set of buttons
+        if (random.random() < 0.1f) {
+            input = random.random(FighterInput.MASK);
+        }
+        return input;
+    }
+
+    private static void printCounters(String side, RollbackSession session, LoopbackTransport transport,
+                                      double seconds) {
+        // per second of match time and per second of real time
+        RollbackCounters counters = session.getCounters();
+        DesyncDetector desyncDetector = session.getDesyncDetector();
+        double matchSeconds = counters.ticks * HeadlessMatch.STEP_TIME;
+        System.out.printf(Locale.ROOT, "%s: %d ticks, %d stalls, %d rollbacks (depth avg %.2f, max %d), " +
+                "%.1f re-simulated ticks/s of match, %.0f re-simulated ticks/s of CPU, %.2f us per rollback, " +
+                "%d/%d packets lost, %d state hashes compared, %d differed%n", side, counters.ticks, counters.stalls, counters.rollbacks,
+            counters.getAverageRollbackDepth(), counters.maxRollbackDepth,
+            matchSeconds <= 0 ? 0 : counters.resimulatedTicks / matchSeconds,
+            counters.rollbackNanos <= 0 ? 0 : counters.resimulatedTicks / (counters.rollbackNanos / 1e9),
+            counters.rollbacks == 0 ? 0 : counters.rollbackNanos / 1e3 / counters.rollbacks,
+            transport.getPacketsDropped(), transport.getPacketsSent(), desyncDetector.getChecks(),
+            desyncDetector.getDesyncs());
+    }
+}